@@ -0,0 +1,105 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.lightblue.generator.runtime.EntityDeserializer;
+import com.redhat.lightblue.generator.runtime.EntitySerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading an entity, and an array of them as in a find response, with
+ * {@link EntityDeserializer} to reading them with an {@link ObjectMapper}. Each reads documents as
+ * it writes them, since they write dates differently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeserializerBenchmark {
+  private static final int FOUND = 100;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final JsonFactory factory = mapper.getFactory();
+  private final JavaType orders = mapper.getTypeFactory()
+      .constructCollectionType(List.class, Order.class);
+  private final EntityDeserializer deserializer = new EntityDeserializer();
+
+  private byte[] mapperDocument;
+  private byte[] mapperDocuments;
+  private byte[] document;
+  private byte[] documents;
+
+  @Setup
+  public void setUp() throws IOException {
+    EntitySerializer serializer = new EntitySerializer();
+    List<Order> found = Collections.nCopies(FOUND, Order.sample());
+
+    mapperDocument = mapper.writeValueAsBytes(Order.sample());
+    mapperDocuments = mapper.writeValueAsBytes(found);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try (JsonGenerator generator = factory.createGenerator(bytes)) {
+      serializer.write(Order.sample(), generator);
+    }
+
+    document = bytes.toByteArray();
+    bytes.reset();
+
+    try (JsonGenerator generator = factory.createGenerator(bytes)) {
+      generator.writeStartArray();
+
+      for (Order order : found) {
+        serializer.write(order, generator);
+      }
+
+      generator.writeEndArray();
+    }
+
+    documents = bytes.toByteArray();
+  }
+
+  @Benchmark
+  public Order objectMapperOne() throws IOException {
+    return mapper.readValue(mapperDocument, Order.class);
+  }
+
+  @Benchmark
+  public Order deserializerOne() throws IOException {
+    try (JsonParser parser = factory.createParser(document)) {
+      return deserializer.read(parser, Order.class);
+    }
+  }
+
+  @Benchmark
+  public List<Order> objectMapperFound() throws IOException {
+    return mapper.readValue(mapperDocuments, orders);
+  }
+
+  @Benchmark
+  public List<Order> deserializerFound() throws IOException {
+    try (JsonParser parser = factory.createParser(documents)) {
+      return deserializer.readArray(parser, Order.class);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.redhat.lightblue.generator.runtime.EntityDiffer;
+import com.redhat.lightblue.generator.runtime.EntitySerializer;
+import com.redhat.lightblue.query.UpdateExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding the update of one field of a wide entity, and of one folder deep in a tree of
+ * them, with {@link EntityDiffer}, to writing the whole entity with {@link EntitySerializer}, as
+ * it would be to replace the document. Before and after are separate instances, so every field is
+ * compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DifferBenchmark {
+  private static final int DEPTH = 6;
+  private static final int BREADTH = 3;
+
+  private final EntityDiffer differ = new EntityDiffer();
+  private final EntitySerializer serializer = new EntitySerializer();
+
+  private final Wide wideBefore = Wide.sample();
+  private final Wide wideAfter = Wide.sample();
+
+  private final Folder deepBefore = Folder.tree(DEPTH, BREADTH);
+  private final Folder deepAfter = Folder.tree(DEPTH, BREADTH);
+
+  public DifferBenchmark() {
+    wideAfter.setN15(-1);
+
+    Folder leaf = deepAfter;
+
+    while (!leaf.getChildren().isEmpty()) {
+      leaf = leaf.getChildren().get(BREADTH - 1);
+    }
+
+    leaf.setSize(-1);
+  }
+
+  @Benchmark
+  public Optional<UpdateExpression> diffWide() {
+    return differ.diff(wideBefore, wideAfter);
+  }
+
+  @Benchmark
+  public JsonNode serializeWide() {
+    return serializer.toJson(wideAfter);
+  }
+
+  @Benchmark
+  public Optional<UpdateExpression> diffDeep() {
+    return differ.diff(deepBefore, deepAfter);
+  }
+
+  @Benchmark
+  public JsonNode serializeDeep() {
+    return serializer.toJson(deepAfter);
+  }
+}
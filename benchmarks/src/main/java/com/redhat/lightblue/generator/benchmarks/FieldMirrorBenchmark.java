@@ -0,0 +1,106 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+import com.redhat.lightblue.generator.FieldMirror;
+import com.redhat.lightblue.generator.MaxItems;
+import com.redhat.lightblue.generator.MaxLength;
+import com.redhat.lightblue.generator.MinItems;
+import com.redhat.lightblue.generator.MinLength;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the min and max constraints of java beans fields, as metadata generation queries them
+ * for every field. Run with {@code -prof gc} to see that fields with constraints allocate nothing
+ * per query, like those without.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldMirrorBenchmark {
+  private final Collection<FieldMirror> constrained =
+      new JavaBeansReflector().reflect(Constrained.class).getFields();
+  private final Collection<FieldMirror> unconstrained =
+      new JavaBeansReflector().reflect(Wide.class).getFields();
+
+  @Benchmark
+  public void constrained(Blackhole blackhole) {
+    queryConstraints(constrained, blackhole);
+  }
+
+  @Benchmark
+  public void unconstrained(Blackhole blackhole) {
+    queryConstraints(unconstrained, blackhole);
+  }
+
+  private static void queryConstraints(Collection<FieldMirror> fields, Blackhole blackhole) {
+    for (FieldMirror field : fields) {
+      blackhole.consume(field.minItems());
+      blackhole.consume(field.maxItems());
+      blackhole.consume(field.minLength());
+      blackhole.consume(field.maxLength());
+    }
+  }
+
+  public static class Constrained {
+    private String code;
+    private String name;
+    private List<String> tags = new ArrayList<>();
+    private List<String> aliases = new ArrayList<>();
+
+    public String getCode() {
+      return code;
+    }
+
+    @MinLength(3)
+    @MaxLength(3)
+    public void setCode(String code) {
+      this.code = code;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    @MinLength(1)
+    @MaxLength(200)
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public List<String> getTags() {
+      return tags;
+    }
+
+    @MinItems(1)
+    @MaxItems(10)
+    public void setTags(List<String> tags) {
+      this.tags = tags;
+    }
+
+    public List<String> getAliases() {
+      return aliases;
+    }
+
+    @MaxItems(5)
+    public void setAliases(List<String> aliases) {
+      this.aliases = aliases;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+import com.redhat.lightblue.generator.ElementIdentity;
+import com.redhat.lightblue.generator.EntityName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@EntityName("folder")
+public class Folder {
+  private String name;
+  private long size;
+  private List<Folder> children = new ArrayList<>();
+
+  public Folder() {}
+
+  public Folder(String name, long size) {
+    this.name = name;
+    this.size = size;
+  }
+
+  /**
+   * @return A new tree of folders {@code depth} deep, in which each folder but the deepest has
+   * {@code breadth} children.
+   */
+  public static Folder tree(int depth, int breadth) {
+    return tree("root", depth, breadth);
+  }
+
+  private static Folder tree(String name, int depth, int breadth) {
+    Folder folder = new Folder(name, name.length());
+
+    if (depth > 1) {
+      for (int i = 0; i < breadth; i++) {
+        folder.children.add(tree(name + "/" + i, depth - 1, breadth));
+      }
+    }
+
+    return folder;
+  }
+
+  @ElementIdentity
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public void setSize(long size) {
+    this.size = size;
+  }
+
+  public List<Folder> getChildren() {
+    return children;
+  }
+
+  public void setChildren(List<Folder> children) {
+    this.children = children;
+  }
+}
@@ -0,0 +1,39 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+public class LineItem {
+  private String sku;
+  private int quantity;
+  private double price;
+
+  public LineItem() {}
+
+  public LineItem(String sku, int quantity, double price) {
+    this.sku = sku;
+    this.quantity = quantity;
+    this.price = price;
+  }
+
+  public String getSku() {
+    return sku;
+  }
+
+  public void setSku(String sku) {
+    this.sku = sku;
+  }
+
+  public int getQuantity() {
+    return quantity;
+  }
+
+  public void setQuantity(int quantity) {
+    this.quantity = quantity;
+  }
+
+  public double getPrice() {
+    return price;
+  }
+
+  public void setPrice(double price) {
+    this.price = price;
+  }
+}
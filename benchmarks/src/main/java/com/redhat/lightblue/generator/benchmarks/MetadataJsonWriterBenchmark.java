@@ -0,0 +1,95 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.MetadataGenerator;
+import com.redhat.lightblue.generator.MetadataJsonWriter;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing an entity's metadata as JSON by converting it to a tree with the parser, as
+ * metadata used to be written, to streaming it with {@link MetadataJsonWriter}. Both write to a
+ * writer which discards what it is given, so that only rendering is measured. Run with
+ * {@code -prof gc} to see how much less streaming allocates, for an entity with many fields and for
+ * one whose fields are mostly embedded objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataJsonWriterBenchmark {
+  @Param({"WIDE", "ORDER"})
+  private Entity entity;
+
+  private final ObjectWriter treeWriter = new ObjectMapper().writerWithDefaultPrettyPrinter();
+  private final Writer discarding = new Writer() {
+    @Override
+    public void write(char[] chars, int offset, int length) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  };
+
+  private JSONMetadataParser parser;
+  private MetadataJsonWriter jsonWriter;
+  private EntityMetadata metadata;
+
+  @Setup
+  public void setUp() {
+    Extensions<JsonNode> extensions = new Extensions<>();
+    extensions.addDefaultExtensions();
+    parser = new JSONMetadataParser(extensions, new DefaultTypes(),
+        JsonNodeFactory.withExactBigDecimals(true));
+    jsonWriter = new MetadataJsonWriter(parser);
+    metadata = new MetadataGenerator(new JavaBeansReflector()).generateMetadata(entity.type);
+  }
+
+  @Benchmark
+  public void tree() throws IOException {
+    treeWriter.writeValue(discarding, parser.convert(metadata));
+  }
+
+  @Benchmark
+  public void streamed() throws IOException {
+    jsonWriter.write(metadata, discarding);
+  }
+
+  public enum Entity {
+    WIDE(Wide.class), ORDER(Order.class);
+
+    final Class<?> type;
+
+    Entity(Class<?> type) {
+      this.type = type;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+import com.redhat.lightblue.generator.EntityName;
+import com.redhat.lightblue.generator.Identity;
+import com.redhat.lightblue.generator.Required;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+@EntityName("order")
+public class Order {
+  private String id;
+  private String customer;
+  private Status status;
+  private Date created;
+  private BigDecimal total;
+  private long version;
+  private boolean express;
+  private String notes;
+  private List<String> tags = new ArrayList<>();
+  private List<LineItem> lines = new ArrayList<>();
+
+  /**
+   * @return An order typical of those benchmarks read and write, with some of every kind of field.
+   */
+  public static Order sample() {
+    Order order = new Order();
+    order.setId("7f3c2a9e-4b1d-4e8a-9c6f-2d5b8a1e0f37");
+    order.setCustomer("ada.lovelace");
+    order.setStatus(Status.SHIPPED);
+    order.setCreated(new Date(1500000000000L));
+    order.setTotal(new BigDecimal("129.97"));
+    order.setVersion(3);
+    order.setExpress(true);
+    order.setTags(Arrays.asList("gift", "priority"));
+    order.setLines(Arrays.asList(
+        new LineItem("SKU-0001", 1, 79.99),
+        new LineItem("SKU-0002", 2, 19.99),
+        new LineItem("SKU-0003", 1, 10.00)));
+    return order;
+  }
+
+  @Identity
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getCustomer() {
+    return customer;
+  }
+
+  @Required
+  public void setCustomer(String customer) {
+    this.customer = customer;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public Date getCreated() {
+    return created;
+  }
+
+  public void setCreated(Date created) {
+    this.created = created;
+  }
+
+  public BigDecimal getTotal() {
+    return total;
+  }
+
+  public void setTotal(BigDecimal total) {
+    this.total = total;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  public boolean isExpress() {
+    return express;
+  }
+
+  public void setExpress(boolean express) {
+    this.express = express;
+  }
+
+  public String getNotes() {
+    return notes;
+  }
+
+  public void setNotes(String notes) {
+    this.notes = notes;
+  }
+
+  public List<String> getTags() {
+    return tags;
+  }
+
+  public void setTags(List<String> tags) {
+    this.tags = tags;
+  }
+
+  public List<LineItem> getLines() {
+    return lines;
+  }
+
+  public void setLines(List<LineItem> lines) {
+    this.lines = lines;
+  }
+}
@@ -0,0 +1,67 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+import com.redhat.lightblue.generator.FieldMirror;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.generator.javabeans.PropertyDiscovery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares discovering the fields of the benchmark entities with each {@link PropertyDiscovery},
+ * on one thread and on {@value #THREADS} sharing a reflector, as when metadata is generated in
+ * parallel. The {@link java.beans.Introspector}'s cache is synchronized, where accessor methods
+ * are cached per class without locking.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyDiscoveryBenchmark {
+  private static final int THREADS = 8;
+  private static final Class<?>[] BEANS = {Order.class, LineItem.class, Wide.class, Folder.class};
+
+  @Param({"INTROSPECTOR", "ACCESSOR_METHODS"})
+  private PropertyDiscovery discovery;
+
+  private JavaBeansReflector reflector;
+
+  @Setup
+  public void setUp() {
+    reflector = new JavaBeansReflector(discovery);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void discoverAlone(Blackhole blackhole) {
+    discover(blackhole);
+  }
+
+  @Benchmark
+  @Threads(THREADS)
+  public void discoverContended(Blackhole blackhole) {
+    discover(blackhole);
+  }
+
+  private void discover(Blackhole blackhole) {
+    for (Class<?> bean : BEANS) {
+      Collection<FieldMirror> fields = reflector.reflect(bean).getFields();
+      blackhole.consume(fields);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.lightblue.generator.runtime.EntitySerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing an entity with {@link EntitySerializer} to writing it with an
+ * {@link ObjectMapper}, as bytes and as a tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+  private final Order order = Order.sample();
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final JsonFactory factory = mapper.getFactory();
+  private final EntitySerializer serializer = new EntitySerializer();
+
+  @Benchmark
+  public byte[] objectMapperBytes() throws IOException {
+    return mapper.writeValueAsBytes(order);
+  }
+
+  @Benchmark
+  public byte[] serializerBytes() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+
+    try (JsonGenerator generator = factory.createGenerator(bytes)) {
+      serializer.write(order, generator);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  public JsonNode objectMapperTree() {
+    return mapper.valueToTree(order);
+  }
+
+  @Benchmark
+  public JsonNode serializerTree() {
+    return serializer.toJson(order);
+  }
+}
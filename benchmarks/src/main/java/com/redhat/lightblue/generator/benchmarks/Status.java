@@ -0,0 +1,5 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+public enum Status {
+  OPEN, SHIPPED, CLOSED
+}
@@ -0,0 +1,335 @@
+package com.redhat.lightblue.generator.benchmarks;
+
+import com.redhat.lightblue.generator.EntityName;
+
+@EntityName("wide")
+public class Wide {
+  private String s0;
+  private String s1;
+  private String s2;
+  private String s3;
+  private String s4;
+  private String s5;
+  private String s6;
+  private String s7;
+  private String s8;
+  private String s9;
+  private String s10;
+  private String s11;
+  private String s12;
+  private String s13;
+  private String s14;
+  private String s15;
+  private int n0;
+  private int n1;
+  private int n2;
+  private int n3;
+  private int n4;
+  private int n5;
+  private int n6;
+  private int n7;
+  private int n8;
+  private int n9;
+  private int n10;
+  private int n11;
+  private int n12;
+  private int n13;
+  private int n14;
+  private int n15;
+
+  /**
+   * @return An entity with 32 fields, half of them strings and half integers.
+   */
+  public static Wide sample() {
+    Wide wide = new Wide();
+    wide.s0 = "value s0";
+    wide.s1 = "value s1";
+    wide.s2 = "value s2";
+    wide.s3 = "value s3";
+    wide.s4 = "value s4";
+    wide.s5 = "value s5";
+    wide.s6 = "value s6";
+    wide.s7 = "value s7";
+    wide.s8 = "value s8";
+    wide.s9 = "value s9";
+    wide.s10 = "value s10";
+    wide.s11 = "value s11";
+    wide.s12 = "value s12";
+    wide.s13 = "value s13";
+    wide.s14 = "value s14";
+    wide.s15 = "value s15";
+    wide.n0 = 0;
+    wide.n1 = 1;
+    wide.n2 = 2;
+    wide.n3 = 3;
+    wide.n4 = 4;
+    wide.n5 = 5;
+    wide.n6 = 6;
+    wide.n7 = 7;
+    wide.n8 = 8;
+    wide.n9 = 9;
+    wide.n10 = 10;
+    wide.n11 = 11;
+    wide.n12 = 12;
+    wide.n13 = 13;
+    wide.n14 = 14;
+    wide.n15 = 15;
+    return wide;
+  }
+
+  public String getS0() {
+    return s0;
+  }
+
+  public void setS0(String s0) {
+    this.s0 = s0;
+  }
+
+  public String getS1() {
+    return s1;
+  }
+
+  public void setS1(String s1) {
+    this.s1 = s1;
+  }
+
+  public String getS2() {
+    return s2;
+  }
+
+  public void setS2(String s2) {
+    this.s2 = s2;
+  }
+
+  public String getS3() {
+    return s3;
+  }
+
+  public void setS3(String s3) {
+    this.s3 = s3;
+  }
+
+  public String getS4() {
+    return s4;
+  }
+
+  public void setS4(String s4) {
+    this.s4 = s4;
+  }
+
+  public String getS5() {
+    return s5;
+  }
+
+  public void setS5(String s5) {
+    this.s5 = s5;
+  }
+
+  public String getS6() {
+    return s6;
+  }
+
+  public void setS6(String s6) {
+    this.s6 = s6;
+  }
+
+  public String getS7() {
+    return s7;
+  }
+
+  public void setS7(String s7) {
+    this.s7 = s7;
+  }
+
+  public String getS8() {
+    return s8;
+  }
+
+  public void setS8(String s8) {
+    this.s8 = s8;
+  }
+
+  public String getS9() {
+    return s9;
+  }
+
+  public void setS9(String s9) {
+    this.s9 = s9;
+  }
+
+  public String getS10() {
+    return s10;
+  }
+
+  public void setS10(String s10) {
+    this.s10 = s10;
+  }
+
+  public String getS11() {
+    return s11;
+  }
+
+  public void setS11(String s11) {
+    this.s11 = s11;
+  }
+
+  public String getS12() {
+    return s12;
+  }
+
+  public void setS12(String s12) {
+    this.s12 = s12;
+  }
+
+  public String getS13() {
+    return s13;
+  }
+
+  public void setS13(String s13) {
+    this.s13 = s13;
+  }
+
+  public String getS14() {
+    return s14;
+  }
+
+  public void setS14(String s14) {
+    this.s14 = s14;
+  }
+
+  public String getS15() {
+    return s15;
+  }
+
+  public void setS15(String s15) {
+    this.s15 = s15;
+  }
+
+  public int getN0() {
+    return n0;
+  }
+
+  public void setN0(int n0) {
+    this.n0 = n0;
+  }
+
+  public int getN1() {
+    return n1;
+  }
+
+  public void setN1(int n1) {
+    this.n1 = n1;
+  }
+
+  public int getN2() {
+    return n2;
+  }
+
+  public void setN2(int n2) {
+    this.n2 = n2;
+  }
+
+  public int getN3() {
+    return n3;
+  }
+
+  public void setN3(int n3) {
+    this.n3 = n3;
+  }
+
+  public int getN4() {
+    return n4;
+  }
+
+  public void setN4(int n4) {
+    this.n4 = n4;
+  }
+
+  public int getN5() {
+    return n5;
+  }
+
+  public void setN5(int n5) {
+    this.n5 = n5;
+  }
+
+  public int getN6() {
+    return n6;
+  }
+
+  public void setN6(int n6) {
+    this.n6 = n6;
+  }
+
+  public int getN7() {
+    return n7;
+  }
+
+  public void setN7(int n7) {
+    this.n7 = n7;
+  }
+
+  public int getN8() {
+    return n8;
+  }
+
+  public void setN8(int n8) {
+    this.n8 = n8;
+  }
+
+  public int getN9() {
+    return n9;
+  }
+
+  public void setN9(int n9) {
+    this.n9 = n9;
+  }
+
+  public int getN10() {
+    return n10;
+  }
+
+  public void setN10(int n10) {
+    this.n10 = n10;
+  }
+
+  public int getN11() {
+    return n11;
+  }
+
+  public void setN11(int n11) {
+    this.n11 = n11;
+  }
+
+  public int getN12() {
+    return n12;
+  }
+
+  public void setN12(int n12) {
+    this.n12 = n12;
+  }
+
+  public int getN13() {
+    return n13;
+  }
+
+  public void setN13(int n13) {
+    this.n13 = n13;
+  }
+
+  public int getN14() {
+    return n14;
+  }
+
+  public void setN14(int n14) {
+    this.n14 = n14;
+  }
+
+  public int getN15() {
+    return n15;
+  }
+
+  public void setN15(int n15) {
+    this.n15 = n15;
+  }
+}
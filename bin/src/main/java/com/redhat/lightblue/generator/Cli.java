@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public class Cli {
@@ -19,8 +20,14 @@ public class Cli {
   }
 
   private static OptionSpec<String> jarOption = parser.acceptsAll(asList("j", "jar"),
-      "Path to jar to search for entity classes. If not provided, the current classpath is "
-          + "searched instead.")
+      "Path to jar, or directory of class files, to search for entity classes. May be given more "
+          + "than once. If not provided, the current classpath is searched instead.")
+      .withRequiredArg();
+
+  private static final OptionSpec<String> scanOption = parser.acceptsAll(asList("s", "scan"),
+      "Package to discover entity classes in, in addition to any named as arguments. Classes in "
+          + "the package or its subpackages which are annotated with @EntityName or @Version are "
+          + "found by reading the class files of the searched jars. May be given more than once.")
       .withRequiredArg();
 
   private static OptionSpec<String> outputDirOption = parser.acceptsAll(asList("o", "output-to"),
@@ -28,6 +35,50 @@ public class Cli {
           + "an entity at the given path, it will be updated.")
       .withRequiredArg();
 
+  private static final OptionSpec<String> bundleOption = parser.acceptsAll(asList("b", "bundle"),
+      "Path to a single file to write all metadata to, instead of a file per entity. Ending in "
+          + ".zip writes a zip with an entry per entity; ending in .ndjson or .ndjson.gz writes "
+          + "one compact JSON document per line. If the bundle already exists, its entities are "
+          + "updated and entities not generated are kept.")
+      .withRequiredArg();
+
+  private static final OptionSpec<Void> classFilesOption = parser.acceptsAll(
+      asList("c", "read-class-files"),
+      "Read entity annotations and properties from class files instead of loading entity classes. "
+          + "Static initializers of entities and enums are not run.");
+
+  private static final OptionSpec<String> indexOption = parser.acceptsAll(asList("x", "index"),
+      "Path to an index of entity mirrors, which is created if it does not exist and updated "
+          + "after each run. Entities whose class files are unchanged since the index was saved "
+          + "are read from the index instead. Implies --read-class-files.")
+      .withRequiredArg();
+
+  private static final OptionSpec<Void> incrementalOption = parser.acceptsAll(
+      asList("i", "incremental"),
+      "Skip entities whose class files, embedded types, and metadata file are unchanged since the "
+          + "last incremental run into the same output directory. Fingerprints are kept in "
+          + FingerprintManifest.FILE_NAME + " in the output directory.");
+
+  private static final OptionSpec<Void> watchOption = parser.acceptsAll(asList("w", "watch"),
+      "After generating, keep watching the jars or directories given with --jar, and regenerate "
+          + "entities as soon as they, or any type they embed, change. Always runs in process, "
+          + "rather than in a daemon.");
+
+  private static final OptionSpec<Integer> threadsOption = parser.acceptsAll(
+      asList("t", "threads"),
+      "Number of threads to generate metadata with.")
+      .withRequiredArg()
+      .ofType(Integer.class)
+      .defaultsTo(1);
+
+  private static final OptionSpec<Void> daemonOption = parser.accepts("daemon",
+      "Run as a daemon which keeps lightblue's parsers loaded and mirrors of unchanged jars "
+          + "cached between runs. Other invocations forward their arguments to a running daemon, "
+          + "and run in process only if there is none.");
+
+  private static final OptionSpec<Void> noDaemonOption = parser.accepts("no-daemon",
+      "Run in process even if a daemon is running.");
+
   private static final OptionSpec<Void> helpOption = parser.acceptsAll(asList("h", "?", "help"),
       "Displays this message.")
       .forHelp();
@@ -36,18 +87,39 @@ public class Cli {
 
   public Cli(String[] args) {
     optionSet = parser.parse(args);
+
+    if (optionSet.has(bundleOption) && optionSet.has(outputDirOption)) {
+      throw new IllegalArgumentException("--bundle and --output-to cannot be used together");
+    }
+
+    if (optionSet.has(bundleOption) && optionSet.has(incrementalOption)) {
+      throw new IllegalArgumentException("--incremental is not supported with --bundle");
+    }
+
+    if (optionSet.has(watchOption)
+        && (optionSet.has(bundleOption) || optionSet.has(indexOption))) {
+      throw new IllegalArgumentException("--watch is not supported with --bundle or --index");
+    }
   }
 
   public boolean helpRequested() {
     return optionSet.has(helpOption);
   }
 
-  public Optional<String> jarPath() {
-    if (!optionSet.has(jarOption)) {
-      return Optional.empty();
-    }
+  public boolean daemon() {
+    return optionSet.has(daemonOption);
+  }
+
+  public boolean noDaemon() {
+    return optionSet.has(noDaemonOption);
+  }
 
-    return Optional.of(optionSet.valueOf(jarOption));
+  public List<String> jarPaths() {
+    return optionSet.valuesOf(jarOption);
+  }
+
+  public List<String> scanPackages() {
+    return optionSet.valuesOf(scanOption);
   }
 
   public Optional<String> outputDirectory() {
@@ -58,6 +130,44 @@ public class Cli {
     return Optional.of(optionSet.valueOf(outputDirOption).trim());
   }
 
+  public Optional<String> bundleFile() {
+    if (!optionSet.has(bundleOption)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(optionSet.valueOf(bundleOption).trim());
+  }
+
+  public boolean readClassFiles() {
+    return optionSet.has(classFilesOption) || optionSet.has(indexOption);
+  }
+
+  public boolean incremental() {
+    return optionSet.has(incrementalOption);
+  }
+
+  public boolean watch() {
+    return optionSet.has(watchOption);
+  }
+
+  public Optional<String> indexFile() {
+    if (!optionSet.has(indexOption)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(optionSet.valueOf(indexOption).trim());
+  }
+
+  public int threads() {
+    int threads = optionSet.valueOf(threadsOption);
+
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1 but was " + threads);
+    }
+
+    return threads;
+  }
+
   public Collection<String> entityClasses() {
     return (Collection<String>) optionSet.nonOptionArguments();
   }
@@ -65,6 +175,8 @@ public class Cli {
   public void printHelpTo(OutputStream out) throws IOException {
     PrintStream printStream = new PrintStream(out);
     printStream.println("Usage: lightblue-java-generator [options] com.redhat.Entity1 com.redhat.Entity2");
+    printStream.println("       lightblue-java-generator [options] --scan com.redhat");
+    printStream.println("       lightblue-java-generator --daemon");
     printStream.println();
     parser.printHelpOn(out);
   }
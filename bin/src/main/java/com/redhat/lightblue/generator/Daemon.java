@@ -0,0 +1,306 @@
+package com.redhat.lightblue.generator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a JVM warm for generating metadata, with lightblue's parsers loaded and mirrors cached, for
+ * {@link DaemonClient clients} which would otherwise each start their own.
+ *
+ * <p>The daemon listens on a loopback port, which it records in a state file readable only by its
+ * user, along with a random token which clients must present. Each client sends its working
+ * directory, class path, and arguments, and is sent the output of running {@link Main} with them,
+ * followed by the exit code.
+ *
+ * <p>Class loaders of jars are reused while the jars are unchanged, so that their classes, and
+ * therefore their cached mirrors, are too.
+ */
+final class Daemon {
+  /*
+   * A request is the int length and bytes of the token, then the working directory, class path,
+   * int argument count and arguments, each as modified UTF-8. The response is a sequence of
+   * frames, each starting with its type.
+   */
+
+  /** Frame of output, followed by its int length and bytes. */
+  static final byte OUTPUT = 1;
+  /** Final frame, followed by the int exit code. */
+  static final byte EXIT = 2;
+
+  static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int MAX_CLASS_LOADERS = 16;
+  private static final int MAX_TOKEN_LENGTH = 256;
+
+  /** Class loaders of unchanged jars, by their paths; evicts the least recently used. */
+  private final Map<List<Path>, StampedClassLoader> classLoaders =
+      new LinkedHashMap<List<Path>, StampedClassLoader>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Path>, StampedClassLoader> eldest) {
+          return size() > MAX_CLASS_LOADERS;
+        }
+      };
+
+  private final byte[] token;
+
+  Daemon(byte[] token) {
+    this.token = token;
+  }
+
+  /**
+   * Serves clients until the process is stopped.
+   */
+  static void serve() throws IOException {
+    byte[] token = new byte[16];
+    new SecureRandom().nextBytes(token);
+    Daemon daemon = new Daemon(token);
+    Path stateFile = stateFile();
+
+    try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      writeStateFile(stateFile, server.getLocalPort(), token);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteStateFile(stateFile, token)));
+      System.out.println("Listening on " + server.getLocalSocketAddress() + "; state in "
+          + stateFile);
+
+      ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "lightblue-generator-daemon-client");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+      while (true) {
+        Socket socket = server.accept();
+        connections.execute(() -> daemon.handle(socket));
+      }
+    }
+  }
+
+  /**
+   * Where the port and token of the running daemon are recorded.
+   */
+  static Path stateFile() {
+    return Paths.get(System.getProperty("user.home"), ".lightblue-java-generator", "daemon");
+  }
+
+  /**
+   * Runs the request of one client, then closes its connection. Closed without a response if the
+   * client does not present the token.
+   */
+  void handle(Socket socket) {
+    try (Socket s = socket;
+         DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+         DataOutputStream frames = new DataOutputStream(
+             new BufferedOutputStream(s.getOutputStream()))) {
+      int tokenLength = in.readInt();
+
+      if (tokenLength < 0 || tokenLength > MAX_TOKEN_LENGTH) {
+        return;
+      }
+
+      byte[] presented = new byte[tokenLength];
+      in.readFully(presented);
+
+      if (!MessageDigest.isEqual(hex(token).getBytes(UTF_8), presented)) {
+        return;
+      }
+
+      Path workingDirectory = Paths.get(in.readUTF());
+      List<Path> classpath = Main.classpathRoots(in.readUTF());
+      String[] args = new String[in.readInt()];
+
+      for (int i = 0; i < args.length; i++) {
+        args[i] = in.readUTF();
+      }
+
+      PrintStream out = new PrintStream(new BufferedOutputStream(new FrameOutputStream(frames)),
+          true, UTF_8.name());
+      int exitCode;
+
+      try {
+        Cli cli = new Cli(args);
+
+        if (cli.watch()) {
+          // Would keep watching after the client is gone, since output errors go unnoticed
+          out.println("--watch is not run by the daemon; run with --no-daemon");
+          exitCode = 1;
+        } else {
+          Main main = new Main(out, workingDirectory, classpath, classLoader(classpath),
+              this::classLoader);
+          exitCode = main.run(cli);
+        }
+      } catch (Exception | LinkageError e) {
+        e.printStackTrace(out);
+        exitCode = 1;
+      }
+
+      out.flush();
+
+      synchronized (frames) {
+        frames.writeByte(EXIT);
+        frames.writeInt(exitCode);
+        frames.flush();
+      }
+    } catch (IOException e) {
+      // The client went away; nothing is left to report to
+    }
+  }
+
+  /**
+   * Reuses the class loader of {@code searchPaths} if they are all jars, none of which changed
+   * since it was created. Directories are never reused, since their changes go unnoticed.
+   */
+  private ClassLoader classLoader(List<Path> searchPaths) {
+    List<Path> key = new ArrayList<>();
+    StringBuilder stamp = new StringBuilder();
+
+    try {
+      for (Path path : searchPaths) {
+        Path absolute = path.toAbsolutePath().normalize();
+
+        if (!Files.isRegularFile(absolute)) {
+          return Main.newClassLoader(searchPaths);
+        }
+
+        key.add(absolute);
+        stamp.append(Files.size(absolute)).append(':')
+            .append(Files.getLastModifiedTime(absolute).toMillis()).append(';');
+      }
+    } catch (IOException e) {
+      return Main.newClassLoader(searchPaths);
+    }
+
+    synchronized (classLoaders) {
+      StampedClassLoader cached = classLoaders.get(key);
+
+      if (cached == null || !cached.stamp.equals(stamp.toString())) {
+        // Left for runs still using it, and then the garbage collector, rather than closed
+        cached = new StampedClassLoader(stamp.toString(), Main.newClassLoader(searchPaths));
+        classLoaders.put(key, cached);
+      }
+
+      return cached.classLoader;
+    }
+  }
+
+  static void writeStateFile(Path stateFile, int port, byte[] token) throws IOException {
+    Files.createDirectories(stateFile.getParent());
+    Path temporary = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+    Files.deleteIfExists(temporary);
+
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(temporary,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } else {
+      Files.createFile(temporary);
+    }
+
+    Properties state = new Properties();
+    state.setProperty("port", Integer.toString(port));
+    state.setProperty("token", hex(token));
+
+    try (Writer writer = Files.newBufferedWriter(temporary, UTF_8)) {
+      state.store(writer, "lightblue-java-generator daemon");
+    }
+
+    Files.move(temporary, stateFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Deletes the state file unless another daemon has since replaced it.
+   */
+  private static void deleteStateFile(Path stateFile, byte[] token) {
+    try {
+      Properties state = new Properties();
+
+      try (Reader reader = Files.newBufferedReader(stateFile, UTF_8)) {
+        state.load(reader);
+      }
+
+      if (hex(token).equals(state.getProperty("token"))) {
+        Files.delete(stateFile);
+      }
+    } catch (IOException e) {
+      // Already gone
+    }
+  }
+
+  static String hex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder();
+
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+
+    return hex.toString();
+  }
+
+  private static final class StampedClassLoader {
+    final String stamp;
+    final ClassLoader classLoader;
+
+    StampedClassLoader(String stamp, ClassLoader classLoader) {
+      this.stamp = stamp;
+      this.classLoader = classLoader;
+    }
+  }
+
+  /**
+   * Sends each write as an {@link #OUTPUT} frame. Written to by many threads of a run at once,
+   * though through a {@link PrintStream}, which serializes them.
+   */
+  private static final class FrameOutputStream extends OutputStream {
+    private final DataOutputStream frames;
+
+    FrameOutputStream(DataOutputStream frames) {
+      this.frames = frames;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      synchronized (frames) {
+        frames.writeByte(OUTPUT);
+        frames.writeInt(len);
+        frames.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (frames) {
+        frames.flush();
+      }
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.redhat.lightblue.generator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Forwards a command line to a running {@link Daemon}, if there is one.
+ */
+final class DaemonClient {
+  private static final int CONNECT_TIMEOUT_MILLIS = 500;
+
+  private DaemonClient() {}
+
+  /**
+   * Streams the output of the run to {@code out}.
+   *
+   * @return The exit code of the run, or empty if no daemon could be reached, in which case nothing
+   * was run.
+   */
+  static Optional<Integer> run(String[] args, PrintStream out) {
+    return run(args, out, Daemon.stateFile());
+  }
+
+  /**
+   * @param stateFile Where the daemon recorded its port and token.
+   */
+  static Optional<Integer> run(String[] args, PrintStream out, Path stateFile) {
+    if (!Files.isRegularFile(stateFile)) {
+      return Optional.empty();
+    }
+
+    Properties state = new Properties();
+    int port;
+
+    try (Reader reader = Files.newBufferedReader(stateFile, Daemon.UTF_8)) {
+      state.load(reader);
+      port = Integer.parseInt(state.getProperty("port"));
+    } catch (IOException | RuntimeException e) {
+      return Optional.empty();
+    }
+
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+          CONNECT_TIMEOUT_MILLIS);
+      DataOutputStream request = new DataOutputStream(
+          new BufferedOutputStream(socket.getOutputStream()));
+      byte[] token = state.getProperty("token", "").getBytes(Daemon.UTF_8);
+
+      request.writeInt(token.length);
+      request.write(token);
+      request.writeUTF(Paths.get("").toAbsolutePath().toString());
+      // Absolute, since the daemon runs elsewhere
+      request.writeUTF(Stream.of(System.getProperty("java.class.path").split(File.pathSeparator))
+          .filter(entry -> !entry.isEmpty())
+          .map(entry -> Paths.get(entry).toAbsolutePath().toString())
+          .collect(Collectors.joining(File.pathSeparator)));
+      request.writeInt(args.length);
+
+      for (String arg : args) {
+        request.writeUTF(arg);
+      }
+
+      request.flush();
+
+      return Optional.of(readResponse(
+          new DataInputStream(new BufferedInputStream(socket.getInputStream())), out));
+    } catch (IOException e) {
+      // Not running, or closed before any output, as for the stale token of a restarted daemon
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @throws IOException If the response ended before any output, in which case the run can still
+   * be retried in process.
+   */
+  static int readResponse(DataInputStream response, PrintStream out) throws IOException {
+    byte[] buffer = new byte[8192];
+    boolean anyOutput = false;
+
+    try {
+      while (true) {
+        byte type = response.readByte();
+
+        switch (type) {
+          case Daemon.OUTPUT:
+            int length = response.readInt();
+
+            if (length > buffer.length) {
+              buffer = new byte[length];
+            }
+
+            response.readFully(buffer, 0, length);
+            out.write(buffer, 0, length);
+            out.flush();
+            anyOutput = true;
+            break;
+          case Daemon.EXIT:
+            return response.readInt();
+          default:
+            throw new IOException("Unknown frame type from daemon: " + type);
+        }
+      }
+    } catch (IOException e) {
+      if (!anyOutput) {
+        throw e;
+      }
+
+      // Part of the run already happened, so running it again would not be safe
+      out.println("Lost connection to lightblue-java-generator daemon: " + e);
+      return 1;
+    }
+  }
+}
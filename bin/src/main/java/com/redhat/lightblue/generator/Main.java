@@ -1,111 +1,389 @@
 package com.redhat.lightblue.generator;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.redhat.lightblue.metadata.EntityInfo;
-import com.redhat.lightblue.metadata.EntityMetadata;
 import com.redhat.lightblue.metadata.parser.Extensions;
 import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
 import com.redhat.lightblue.metadata.types.DefaultTypes;
 import com.redhat.lightblue.mongo.metadata.MongoDataStoreParser;
+import com.redhat.lightblue.generator.classfile.ClassFileReflector;
+import com.redhat.lightblue.generator.classfile.EntityScanner;
+import com.redhat.lightblue.generator.classfile.IndexedReflector;
 import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class Main {
-  private static Extensions<JsonNode> extensions = new Extensions<>();
-  static {
-    extensions.addDefaultExtensions();
-    extensions.registerDataStoreParser("mongo", new MongoDataStoreParser<>());
+  private final PrintStream out;
+  private final Path workingDirectory;
+  private final List<Path> classpath;
+  private final ClassLoader classpathLoader;
+  private final Function<List<Path>, ClassLoader> classLoaders;
+
+  /**
+   * @param out Where progress and errors are printed.
+   * @param workingDirectory What relative paths among the arguments are relative to.
+   * @param classpath Searched for entities if no jars are given.
+   * @param classpathLoader Loads entities from {@code classpath}.
+   * @param classLoaders Creates, or reuses, a class loader which loads entities from the given
+   *                     jars or directories.
+   */
+  Main(PrintStream out, Path workingDirectory, List<Path> classpath,
+      ClassLoader classpathLoader, Function<List<Path>, ClassLoader> classLoaders) {
+    this.out = out;
+    this.workingDirectory = workingDirectory;
+    this.classpath = classpath;
+    this.classpathLoader = classpathLoader;
+    this.classLoaders = classLoaders;
   }
-  private static JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
-  private static JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
-  private static MetadataGenerator generator = new MetadataGenerator(new JavaBeansReflector());
-  private static ObjectMapper mapper = new ObjectMapper();
-  private static final Charset UTF_8 = Charset.forName("UTF-8");
 
-  public static void main(String[] args) throws IOException, ClassNotFoundException {
+  public static void main(String[] args) throws IOException {
     Cli cli = new Cli(args);
 
+    if (cli.daemon()) {
+      Daemon.serve();
+      return;
+    }
+
+    // Watching outlives the client's connection, so it is never left to the daemon
+    if (!cli.noDaemon() && !cli.helpRequested() && !cli.watch()) {
+      Optional<Integer> exitCode = DaemonClient.run(args, System.out);
+
+      if (exitCode.isPresent()) {
+        System.exit(exitCode.get());
+      }
+    }
+
+    int exitCode = new Main(System.out, Paths.get("").toAbsolutePath(), classpathRoots(),
+        Main.class.getClassLoader(), Main::newClassLoader).run(cli);
+
+    if (exitCode != 0) {
+      System.exit(exitCode);
+    }
+  }
+
+  /**
+   * @return The exit code.
+   */
+  int run(Cli cli) throws IOException {
     if (cli.helpRequested()) {
-      cli.printHelpTo(System.out);
-      System.exit(1);
+      cli.printHelpTo(out);
+      return 1;
     }
 
-    ClassLoader classLoader = getClassLoaderToSearch(cli.jarPath());
-    Path outputDirectory = cli.outputDirectory()
-        .map(Paths::get)
-        .orElse(Paths.get("./"));
+    List<Path> searchPaths = cli.jarPaths().stream()
+        .map(workingDirectory::resolve)
+        .collect(Collectors.toList());
+    ClassLoader classLoader = searchPaths.isEmpty()
+        ? classpathLoader
+        : classLoaders.apply(searchPaths);
+    Path outputDirectory = workingDirectory.resolve(cli.outputDirectory().orElse("./"));
 
-    if (cli.entityClasses().isEmpty()) {
-      println("No entity classes provided.");
-      println("");
-      cli.printHelpTo(System.out);
-      System.exit(1);
+    if (cli.entityClasses().isEmpty() && cli.scanPackages().isEmpty()) {
+      out.println("No entity classes provided.");
+      out.println("");
+      cli.printHelpTo(out);
+      return 1;
     }
 
-    for (String className : cli.entityClasses()) {
-      Class classForName = classLoader.loadClass(className);
-      EntityInfo info = generator.generateInfo(classForName);
+    if (cli.watch() && searchPaths.isEmpty()) {
+      // Classes on the generator's own class path are defined by its class loader, for good
+      out.println("--watch requires --jar, since classes on the class path cannot be reloaded.");
+      return 1;
+    }
 
-      Path metadataJsonPath = outputDirectory.resolve(info.getName() + ".json")
-          .toAbsolutePath();
-      EntityMetadata metadata = generateMetadata(classForName, metadataJsonPath);
+    List<Path> roots = searchPaths.isEmpty() ? classpath : searchPaths;
+    Optional<IndexedReflector> indexedReflector = cli.indexFile().isPresent()
+        ? Optional.of(new IndexedReflector(classLoader, roots,
+            workingDirectory.resolve(cli.indexFile().get())))
+        : Optional.empty();
+    // Entities generated by reflecting otherwise, or with other mappers, may differ
+    Optional<FingerprintManifest> manifest = cli.incremental()
+        ? Optional.of(FingerprintManifest.read(outputDirectory, classLoader,
+            cli.readClassFiles() ? "reflector=class-files" : "reflector=java-beans",
+            TypeMappers.load(classLoader)))
+        : Optional.empty();
+    Optional<MetadataBundle> bundle = cli.bundleFile().isPresent()
+        ? Optional.of(MetadataBundle.open(workingDirectory.resolve(cli.bundleFile().get()),
+            Parsing.jsonWriter))
+        : Optional.empty();
+    Reflector reflector = indexedReflector.isPresent()
+        ? new CachingReflector(indexedReflector.get())
+        : cli.readClassFiles()
+            ? Reflectors.CLASS_FILES
+            : Reflectors.JAVA_BEANS;
 
-      JsonNode metadataJson = parser.convert(metadata);
+    MetadataPipeline.Pass pass;
 
-      mapper.writerWithDefaultPrettyPrinter()
-          .writeValue(Files.newBufferedWriter(metadataJsonPath, UTF_8), metadataJson);
+    try {
+      pass = generate(cli, classLoader, roots, reflector, cli.entityClasses(),
+          !cli.scanPackages().isEmpty(), outputDirectory, manifest, bundle, cli.watch());
+    } finally {
+      if (bundle.isPresent()) {
+        // Even after failures, keeps the entities that were generated
+        bundle.get().close();
+      }
+    }
 
-      println("Wrote " + metadataJsonPath);
+    if (indexedReflector.isPresent()) {
+      IndexedReflector index = indexedReflector.get();
+      index.save();
+      out.println("Read " + index.hitCount() + " mirrors from index, " + index.missCount()
+          + " from class files");
     }
+
+    if (!cli.watch()) {
+      return pass.failed() ? 1 : 0;
+    }
+
+    watch(cli, searchPaths, classLoader, reflector, outputDirectory, manifest, pass.embedded());
+    return 0;
   }
 
-  private static EntityMetadata generateMetadata(Class classForName, Path metadataJsonPath) {
-    if (Files.exists(metadataJsonPath)) {
-      println(metadataJsonPath + " already exists, updating...");
+  /**
+   * Regenerates the entities which embed changed classes, as well as new entities if scanning,
+   * until interrupted.
+   *
+   * @param classLoader Loaded the entities as they were first generated; closed once replaced.
+   * @param manifest Finds class files through {@code classLoader}; each pass records entities
+   *                 through a view of it which finds them through that pass's class loader.
+   * @param embedded Entity class names by the classes they embed, including themselves; updated as
+   *                 entities are regenerated.
+   */
+  private void watch(Cli cli, List<Path> searchPaths, ClassLoader classLoader,
+      Reflector reflector, Path outputDirectory, Optional<FingerprintManifest> manifest,
+      Map<String, Set<String>> embedded) throws IOException {
+    ClassLoader previous = classLoader;
 
-      final EntityMetadata existing;
+    try (Watcher watcher = new Watcher(searchPaths)) {
+      out.println("Watching " + searchPaths + " for changes...");
 
-      try {
-        JsonNode existingJsonNode = mapper.readTree(Files.readAllBytes(metadataJsonPath));
-        existing = parser.parseEntityMetadata(existingJsonNode);
-      } catch (Exception e) {
-        e.printStackTrace();
+      while (true) {
+        Set<String> changed = watcher.awaitChanges();
+        long start = System.nanoTime();
+        Set<String> affected = new TreeSet<>();
+
+        for (Map.Entry<String, Set<String>> entity : embedded.entrySet()) {
+          if (!Collections.disjoint(entity.getValue(), changed)) {
+            affected.add(entity.getKey());
+          }
+        }
+
+        if (!cli.scanPackages().isEmpty() && !embedded.keySet().containsAll(changed)) {
+          // Some of the changed classes may be new entities
+          Set<String> found = ConcurrentHashMap.newKeySet();
+
+          try {
+            new EntityScanner(cli.scanPackages())
+                .scan(searchPaths, ForkJoinPool.commonPool(), found::add)
+                .join();
+          } catch (CompletionException e) {
+            e.getCause().printStackTrace(out);
+            out.println("Failed to scan for entity classes");
+          }
 
-        println("Failed to parse existing metadata.");
-        println("Generating new metadata instead of updating.");
+          found.removeAll(embedded.keySet());
+          affected.addAll(found);
+        }
 
-        return generator.generateMetadata(classForName);
+        if (affected.isEmpty()) {
+          continue;
+        }
+
+        // Changed classes can only be loaded again by a new class loader, and their class files
+        // only read again through one, since a loader keeps each jar it opened
+        ClassLoader current = classLoaders.apply(searchPaths);
+        MetadataPipeline.Pass pass = generate(cli, current, searchPaths, reflector, affected, false,
+            outputDirectory, manifest.map(m -> m.withClassLoader(current)), Optional.empty(),
+            true);
+
+        for (String entity : affected) {
+          Set<String> before = embedded.remove(entity);
+          Set<String> after = pass.embedded().get(entity);
+
+          // Entities which failed, or were skipped, are regenerated when their classes next change
+          embedded.put(entity, after != null
+              ? after
+              : before != null ? before : Collections.singleton(entity));
+        }
+
+        close(previous);
+        previous = current;
+        out.println("Regenerated after changes to " + changed.size() + " classes in "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
       }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      out.println("Stopped watching");
+    } finally {
+      close(previous);
+    }
+  }
 
-      return generator.updateMetadata(existing, classForName);
+  /**
+   * Closes the jars a class loader of a previous pass opened. Only called when watching, which
+   * is never left to a {@link Daemon}, so its loaders are not shared with other runs.
+   */
+  private static void close(ClassLoader classLoader) {
+    if (classLoader instanceof Closeable) {
+      try {
+        ((Closeable) classLoader).close();
+      } catch (IOException e) {
+        // Left to the garbage collector
+      }
+    }
+  }
+
+  /**
+   * Generates and writes metadata for {@code entityClasses}, and those found by scanning
+   * {@code roots} if {@code scan}, then prints how many were written.
+   *
+   * @param trackEmbedded Whether to find the classes each entity embeds even without a manifest.
+   */
+  private MetadataPipeline.Pass generate(Cli cli, ClassLoader classLoader, List<Path> roots,
+      Reflector reflector, Collection<String> entityClasses, boolean scan, Path outputDirectory,
+      Optional<FingerprintManifest> manifest, Optional<MetadataBundle> bundle,
+      boolean trackEmbedded) throws IOException {
+    MetadataPipeline pipeline = new MetadataPipeline(Parsing.parser, Parsing.metadataWriter,
+        cli.threads(), new PrintedLog(out));
+    MetadataPipeline.Pass pass = pipeline.generate(classLoader, reflector, entityClasses,
+        scan ? Optional.of(new EntityScanner(cli.scanPackages())) : Optional.empty(), roots,
+        outputDirectory, manifest, bundle, trackEmbedded);
+    out.println(pass.summary());
+    return pass;
+  }
+
+  static ClassLoader newClassLoader(List<Path> searchPaths) {
+    URL[] urls = new URL[searchPaths.size()];
+
+    try {
+      for (int i = 0; i < urls.length; i++) {
+        urls[i] = searchPaths.get(i).toUri().toURL();
+      }
+    } catch (MalformedURLException e) {
+      // Not thrown for file URIs
+      throw new IllegalArgumentException(e);
     }
 
-    return generator.generateMetadata(classForName);
+    return new URLClassLoader(urls, Main.class.getClassLoader());
+  }
+
+  static List<Path> classpathRoots() {
+    return classpathRoots(System.getProperty("java.class.path"));
   }
 
-  private static ClassLoader getClassLoaderToSearch(Optional<String> maybeJarPath)
-      throws MalformedURLException {
-    if (maybeJarPath.isPresent()) {
-      String jarPath = maybeJarPath.get();
-      URL jarUrl = Paths.get(jarPath).toUri().toURL();
-      return new URLClassLoader(new URL[]{jarUrl}, Main.class.getClassLoader());
+  static List<Path> classpathRoots(String classpath) {
+    return Arrays.stream(classpath.split(File.pathSeparator))
+        .filter(entry -> !entry.isEmpty())
+        .map(Paths::get)
+        .filter(Files::exists)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Only initialized when metadata is generated, so that forwarding to a {@link Daemon} does not
+   * pay for loading lightblue and its parsers.
+   */
+  private static final class Parsing {
+    static final Extensions<JsonNode> extensions = new Extensions<>();
+    static {
+      extensions.addDefaultExtensions();
+      extensions.registerDataStoreParser("mongo", new MongoDataStoreParser<>());
     }
+    static final JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+    static final JSONMetadataParser parser =
+        new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+    static final MetadataJsonWriter jsonWriter = new MetadataJsonWriter(parser);
+    static final MetadataFileWriter metadataWriter = new MetadataFileWriter(jsonWriter);
+  }
 
-    return Main.class.getClassLoader();
+  /**
+   * Shared by every run in the process. Mirrors are cached by class, so they are reused for as
+   * long as the class loader of the entities is, as by a {@link Daemon} for unchanged jars.
+   */
+  private static final class Reflectors {
+    /** Class file reflectors of recently used loaders, as many as a daemon keeps. */
+    private static final int MAX_CLASS_FILE_REFLECTORS = 16;
+
+    static final Reflector JAVA_BEANS = new CachingReflector(new JavaBeansReflector());
+    // Each bean's class file is found through the loader which defined it
+    static final Reflector CLASS_FILES = new CachingReflector(
+        bean -> classFileReflector(bean.getClassLoader()).reflect(bean));
+
+    /**
+     * One per loader, so that the class files each parses, such as of super classes shared by
+     * many beans, are parsed once. Least recently used are evicted rather than kept by loader,
+     * since each holds its loader, and so would never be collected.
+     */
+    private static final Map<ClassLoader, ClassFileReflector> classFileReflectors =
+        new LinkedHashMap<ClassLoader, ClassFileReflector>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(
+              Map.Entry<ClassLoader, ClassFileReflector> eldest) {
+            return size() > MAX_CLASS_FILE_REFLECTORS;
+          }
+        };
+
+    /**
+     * @param classLoader Null for classes of the bootstrap loader, whose class files are found
+     *                    through the system loader instead.
+     */
+    private static ClassFileReflector classFileReflector(ClassLoader classLoader) {
+      ClassLoader loader = classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+
+      synchronized (classFileReflectors) {
+        return classFileReflectors.computeIfAbsent(loader, ClassFileReflector::new);
+      }
+    }
   }
 
-  static void println(Object line) {
-    System.out.println(line);
+  /** Prints the stack trace of each failure before what failed, as other errors are printed. */
+  private static final class PrintedLog implements MetadataPipeline.Log {
+    private final PrintStream out;
+
+    PrintedLog(PrintStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void info(String message) {
+      out.println(message);
+    }
+
+    @Override
+    public void warn(String message, Throwable cause) {
+      cause.printStackTrace(out);
+      out.println(message);
+    }
+
+    @Override
+    public void error(String message, Throwable cause) {
+      cause.printStackTrace(out);
+      out.println(message);
+    }
   }
 }
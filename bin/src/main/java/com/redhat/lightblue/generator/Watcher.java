@@ -0,0 +1,197 @@
+package com.redhat.lightblue.generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Watches jars and directories of class files, reporting which classes changed.
+ *
+ * <p>Changes come in bursts as compilers write many class files, or replace a jar, so events are
+ * collected until none have arrived for a short while. Directories are watched recursively. A
+ * jar's changes are found by comparing the CRCs of its entries, which are read from its central
+ * directory without decompressing anything.
+ */
+final class Watcher implements Closeable {
+  private static final long QUIET_MILLIS = 100;
+
+  private final WatchService watchService;
+  /** The root of each watched directory of class files, which its class names are relative to. */
+  private final Map<Path, Path> classRoots = new HashMap<>();
+  private final Map<Path, Map<String, Long>> jarCrcs = new HashMap<>();
+
+  Watcher(List<Path> roots) throws IOException {
+    watchService = FileSystems.getDefault().newWatchService();
+
+    for (Path root : roots) {
+      Path absolute = root.toAbsolutePath().normalize();
+
+      if (Files.isDirectory(absolute)) {
+        registerTree(absolute, absolute);
+      } else {
+        jarCrcs.put(absolute, crcs(absolute));
+        register(absolute.getParent(), null);
+      }
+    }
+  }
+
+  /**
+   * Blocks until classes change, then until no more change for a short while.
+   *
+   * @return The binary names of classes which were added, changed, or removed.
+   * @throws java.nio.file.ClosedWatchServiceException If closed while waiting.
+   */
+  Set<String> awaitChanges() throws IOException, InterruptedException {
+    Set<String> changed = new TreeSet<>();
+    Set<Path> changedJars = new HashSet<>();
+
+    while (changed.isEmpty() && changedJars.isEmpty()) {
+      WatchKey key = watchService.take();
+
+      // Then collect the rest of the burst
+      while (key != null) {
+        collect(key, changed, changedJars);
+        key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+      }
+
+      for (Path jar : changedJars) {
+        Map<String, Long> previous = jarCrcs.get(jar);
+        Map<String, Long> current = crcs(jar);
+        jarCrcs.put(jar, current);
+
+        Set<String> names = new HashSet<>(previous.keySet());
+        names.addAll(current.keySet());
+
+        for (String name : names) {
+          if (!current.containsKey(name) || !current.get(name).equals(previous.get(name))) {
+            changed.add(name);
+          }
+        }
+      }
+
+      changedJars.clear();
+    }
+
+    return changed;
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+
+  private void collect(WatchKey key, Set<String> changed, Set<Path> changedJars)
+      throws IOException {
+    Path directory = (Path) key.watchable();
+    Path classRoot = classRoots.get(directory);
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // Events were lost, so any class might have changed
+        changedJars.addAll(jarCrcs.keySet());
+        continue;
+      }
+
+      Path path = directory.resolve((Path) event.context());
+
+      if (jarCrcs.containsKey(path)) {
+        changedJars.add(path);
+      } else if (classRoot != null) {
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+          registerTree(path, classRoot);
+          addClassesIn(path, classRoot, changed);
+        } else if (path.getFileName().toString().endsWith(".class")) {
+          changed.add(className(classRoot, path));
+        }
+      }
+    }
+
+    // False once the directory is deleted, after which it is no longer watched
+    key.reset();
+  }
+
+  private void registerTree(Path directory, Path classRoot) throws IOException {
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+          throws IOException {
+        register(dir, classRoot);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void register(Path directory, Path classRoot) throws IOException {
+    directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+    if (classRoot != null) {
+      classRoots.put(directory, classRoot);
+    }
+  }
+
+  /** Class files written before their directory was registered would otherwise be missed. */
+  private static void addClassesIn(Path directory, Path classRoot, Set<String> changed)
+      throws IOException {
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (file.getFileName().toString().endsWith(".class")) {
+          changed.add(className(classRoot, file));
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private static String className(Path classRoot, Path classFile) {
+    String relative = classRoot.relativize(classFile).toString();
+    return relative.substring(0, relative.length() - ".class".length())
+        .replace(classFile.getFileSystem().getSeparator(), ".");
+  }
+
+  /**
+   * @return CRC of each class in the jar by binary name; empty if it cannot be read, as while it
+   * is being replaced.
+   */
+  private static Map<String, Long> crcs(Path jar) {
+    Map<String, Long> crcs = new HashMap<>();
+
+    try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+      for (Enumeration<? extends ZipEntry> entries = zipFile.entries();
+          entries.hasMoreElements(); ) {
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName();
+
+        if (name.endsWith(".class")) {
+          crcs.put(name.substring(0, name.length() - ".class".length()).replace('/', '.'),
+              entry.getCrc());
+        }
+      }
+    } catch (IOException e) {
+      // Compared again when the jar is next written
+    }
+
+    return crcs;
+  }
+}
@@ -0,0 +1,103 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+@RunWith(JUnit4.class)
+public class DaemonClientTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+  private final PrintStream out = new PrintStream(output, true);
+
+  @Test
+  public void leavesRunToCallerWithoutStateFile() throws Exception {
+    Path stateFile = temporaryFolder.getRoot().toPath().resolve("daemon");
+
+    assertEquals(Optional.empty(), DaemonClient.run(new String[] {"--help"}, out, stateFile));
+  }
+
+  @Test
+  public void leavesRunToCallerWithUnreadableStateFile() throws Exception {
+    Path stateFile = temporaryFolder.newFile("daemon").toPath();
+    Files.write(stateFile, "port=none".getBytes(Daemon.UTF_8));
+
+    assertEquals(Optional.empty(), DaemonClient.run(new String[] {"--help"}, out, stateFile));
+  }
+
+  @Test
+  public void leavesRunToCallerWithStateFileOfStoppedDaemon() throws Exception {
+    Path stateFile = temporaryFolder.getRoot().toPath().resolve("daemon");
+
+    try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      Daemon.writeStateFile(stateFile, server.getLocalPort(), new byte[16]);
+    }
+
+    assertEquals(Optional.empty(), DaemonClient.run(new String[] {"--help"}, out, stateFile));
+    assertEquals("", output.toString());
+  }
+
+  @Test
+  public void returnsExitCodeAfterOutput() throws Exception {
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    DataOutputStream frames = new DataOutputStream(response);
+    output(frames, "Wrote user.json\n");
+    frames.writeByte(Daemon.EXIT);
+    frames.writeInt(3);
+
+    assertEquals(3, DaemonClient.readResponse(in(response), out));
+    assertEquals("Wrote user.json\n", output.toString());
+  }
+
+  @Test(expected = EOFException.class)
+  public void throwsIfConnectionDropsBeforeAnyOutput() throws Exception {
+    DaemonClient.readResponse(in(new ByteArrayOutputStream()), out);
+  }
+
+  @Test
+  public void failsWithoutRetryingIfConnectionDropsMidRun() throws Exception {
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    DataOutputStream frames = new DataOutputStream(response);
+    output(frames, "Wrote user.json\n");
+    // Cut off partway through a frame
+    frames.writeByte(Daemon.OUTPUT);
+    frames.writeInt(100);
+    frames.write(new byte[10]);
+
+    assertEquals(1, DaemonClient.readResponse(in(response), out));
+    assertTrue(output.toString(), output.toString().startsWith("Wrote user.json\n"));
+    assertTrue(output.toString(),
+        output.toString().contains("Lost connection to lightblue-java-generator daemon"));
+  }
+
+  private static void output(DataOutputStream frames, String text) throws IOException {
+    byte[] bytes = text.getBytes(Daemon.UTF_8);
+    frames.writeByte(Daemon.OUTPUT);
+    frames.writeInt(bytes.length);
+    frames.write(bytes);
+  }
+
+  private static DataInputStream in(ByteArrayOutputStream response) {
+    return new DataInputStream(new ByteArrayInputStream(response.toByteArray()));
+  }
+}
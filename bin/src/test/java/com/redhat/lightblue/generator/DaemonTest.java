@@ -0,0 +1,112 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(JUnit4.class)
+public class DaemonTest {
+  private static final byte[] TOKEN = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+  private final PrintStream out = new PrintStream(output, true);
+  private final ExecutorService connections = Executors.newCachedThreadPool();
+
+  private ServerSocket server;
+  private Path stateFile;
+
+  /** Serves as {@link Daemon#serve()} does, but with a state file of the test's own. */
+  @Before
+  public void setUp() throws Exception {
+    Daemon daemon = new Daemon(TOKEN);
+    server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    stateFile = temporaryFolder.getRoot().toPath().resolve("daemon");
+    Daemon.writeStateFile(stateFile, server.getLocalPort(), TOKEN);
+
+    connections.execute(() -> {
+      try {
+        while (true) {
+          Socket socket = server.accept();
+          connections.execute(() -> daemon.handle(socket));
+        }
+      } catch (IOException e) {
+        // Closed by the test
+      }
+    });
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.close();
+    connections.shutdownNow();
+  }
+
+  @Test
+  public void runsClientsArgumentsAndSendsBackOutputAndExitCode() throws Exception {
+    Path outputDirectory = temporaryFolder.newFolder("metadata").toPath();
+
+    Optional<Integer> exitCode = DaemonClient.run(new String[] {
+        ExampleTest.User.class.getName(), "--output-to", outputDirectory.toString()}, out,
+        stateFile);
+
+    assertEquals(Optional.of(0), exitCode);
+    assertTrue(output.toString(), output.toString()
+        .contains("Created 1, updated 0, unchanged 0, skipped 0, failed 0"));
+    assertTrue(Files.isRegularFile(outputDirectory.resolve("user.json")));
+  }
+
+  @Test
+  public void refusesToWatch() throws Exception {
+    Optional<Integer> exitCode = DaemonClient.run(new String[] {
+        "--watch", "--jar", "entities.jar", ExampleTest.User.class.getName()}, out, stateFile);
+
+    assertEquals(Optional.of(1), exitCode);
+    assertTrue(output.toString(),
+        output.toString().contains("--watch is not run by the daemon; run with --no-daemon"));
+  }
+
+  @Test
+  public void closesConnectionsPresentingAnotherToken() throws Exception {
+    Daemon.writeStateFile(stateFile, server.getLocalPort(), new byte[16]);
+
+    Optional<Integer> exitCode = DaemonClient.run(new String[] {"--help"}, out, stateFile);
+
+    // Left for the client to run itself, as if the daemon were not running
+    assertEquals(Optional.empty(), exitCode);
+    assertEquals("", output.toString());
+  }
+
+  @Test
+  public void closesConnectionsPresentingOversizedToken() throws Exception {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+      DataOutputStream request = new DataOutputStream(socket.getOutputStream());
+      request.writeInt(Integer.MAX_VALUE);
+      request.flush();
+
+      assertEquals(-1, socket.getInputStream().read());
+    }
+  }
+}
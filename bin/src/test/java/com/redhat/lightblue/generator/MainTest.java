@@ -0,0 +1,100 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.redhat.lightblue.generator.entities.SimpleUser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class MainTest {
+  /** Class files of lib's test entities, with the types they embed. */
+  private static final List<String> ENTITY_CLASS_FILES = Arrays.asList(
+      "com/redhat/lightblue/generator/ExampleTest$User.class",
+      "com/redhat/lightblue/generator/ExampleTest$User$Address.class",
+      "com/redhat/lightblue/generator/ExampleTest$User$Address$State.class",
+      "com/redhat/lightblue/generator/ExampleTest$User$PhoneNumber.class",
+      "com/redhat/lightblue/generator/ExampleTest$User$Status.class",
+      "com/redhat/lightblue/generator/entities/SimpleUser.class");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+  @Test
+  public void regeneratesOnlyEntitiesWhichEmbedChangedClasses() throws Exception {
+    Path classes = temporaryFolder.newFolder("classes").toPath();
+    Path outputDirectory = temporaryFolder.newFolder("metadata").toPath();
+
+    for (String classFile : ENTITY_CLASS_FILES) {
+      Path target = classes.resolve(classFile);
+      Files.createDirectories(target.getParent());
+
+      try (InputStream in = getClass().getClassLoader().getResourceAsStream(classFile)) {
+        Files.copy(in, target);
+      }
+    }
+
+    // Loads the same classes as the watched class files, which are only there to be changed
+    Main main = new Main(new PrintStream(output, true), temporaryFolder.getRoot().toPath(),
+        Collections.emptyList(), getClass().getClassLoader(),
+        searchPaths -> new ClassLoader(getClass().getClassLoader()) {});
+    Thread watching = new Thread(() -> {
+      try {
+        main.run(new Cli(new String[] {"--watch", "--jar", classes.toString(),
+            "--output-to", outputDirectory.toString(), ExampleTest.User.class.getName(),
+            SimpleUser.class.getName()}));
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    watching.start();
+
+    try {
+      awaitOutput("Watching ");
+      Path address = classes.resolve(
+          "com/redhat/lightblue/generator/ExampleTest$User$Address.class");
+      Files.write(address, Files.readAllBytes(address));
+      awaitOutput("Regenerated after changes to 1 classes");
+    } finally {
+      watching.interrupt();
+      watching.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    String regenerated = output.toString().substring(output.toString().indexOf("Watching "));
+
+    assertTrue(regenerated,
+        regenerated.contains("Unchanged " + outputDirectory.resolve("user.json")));
+    assertFalse(regenerated, regenerated.contains("simpleUser.json"));
+    assertTrue(regenerated,
+        regenerated.contains("Created 0, updated 0, unchanged 1, skipped 0, failed 0"));
+    assertFalse(watching.isAlive());
+  }
+
+  private void awaitOutput(String text) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+
+    while (!output.toString().contains(text)) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Expected \"" + text + "\" in output:\n" + output);
+      }
+
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@RunWith(JUnit4.class)
+public class WatcherTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void collectsBurstOfChangesUntilQuiet() throws Exception {
+    Path classes = temporaryFolder.newFolder("classes").toPath();
+
+    try (Watcher watcher = new Watcher(Collections.singletonList(classes))) {
+      CompletableFuture<Set<String>> changed = awaitChanges(watcher);
+
+      // Each sooner after the last than the watcher waits for quiet
+      for (String name : Arrays.asList("A", "B", "C")) {
+        Files.write(classes.resolve(name + ".class"), new byte[] {1});
+        Thread.sleep(20);
+      }
+
+      assertEquals(new TreeSet<>(Arrays.asList("A", "B", "C")),
+          changed.get(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void registersCreatedDirectoriesAndTheClassesAlreadyInThem() throws Exception {
+    Path classes = temporaryFolder.newFolder("classes").toPath();
+
+    try (Watcher watcher = new Watcher(Collections.singletonList(classes))) {
+      CompletableFuture<Set<String>> changed = awaitChanges(watcher);
+      Path example = Files.createDirectories(classes.resolve("com").resolve("example"));
+      Files.write(example.resolve("A.class"), new byte[] {1});
+
+      assertEquals(Collections.singleton("com.example.A"), changed.get(10, TimeUnit.SECONDS));
+
+      changed = awaitChanges(watcher);
+      Files.write(example.resolve("B.class"), new byte[] {1});
+
+      assertEquals(Collections.singleton("com.example.B"), changed.get(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void comparesEntriesOfReplacedJarByCrc() throws Exception {
+    Path jar = temporaryFolder.newFolder("lib").toPath().resolve("entities.jar");
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put("com/example/Changed.class", new byte[] {1});
+    entries.put("com/example/Removed.class", new byte[] {1});
+    entries.put("com/example/Unchanged.class", new byte[] {1});
+    writeJar(jar, entries);
+
+    try (Watcher watcher = new Watcher(Collections.singletonList(jar))) {
+      CompletableFuture<Set<String>> changed = awaitChanges(watcher);
+      entries.put("com/example/Changed.class", new byte[] {2});
+      entries.remove("com/example/Removed.class");
+      entries.put("com/example/Added.class", new byte[] {1});
+      // Replaced whole, as build tools do
+      Path replacement = temporaryFolder.newFolder("build").toPath().resolve("entities.jar");
+      writeJar(replacement, entries);
+      Files.move(replacement, jar, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+
+      assertEquals(new TreeSet<>(Arrays.asList("com.example.Added", "com.example.Changed",
+          "com.example.Removed")), changed.get(10, TimeUnit.SECONDS));
+    }
+  }
+
+  private static CompletableFuture<Set<String>> awaitChanges(Watcher watcher) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return watcher.awaitChanges();
+      } catch (IOException | InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  private static void writeJar(Path jar, Map<String, byte[]> entries) throws IOException {
+    try (OutputStream out = Files.newOutputStream(jar);
+         ZipOutputStream zipOut = new ZipOutputStream(out)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        zipOut.putNextEntry(new ZipEntry(entry.getKey()));
+        zipOut.write(entry.getValue());
+        zipOut.closeEntry();
+      }
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.redhat.lightblue.generator;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorates another {@link Reflector}, remembering an {@link ImmutableBeanMirror immutable
+ * snapshot} of each class's mirror so that a class is only reflected on once.
+ *
+ * <p>Snapshots are stored in a {@link ClassValue}, so they do not prevent a class from being
+ * unloaded once its class loader is otherwise unreachable.
+ *
+ * <p>Thread-safe.
+ */
+public class CachingReflector implements Reflector {
+  private final Reflector delegate;
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private final ClassValue<BeanMirror> mirrors = new ClassValue<BeanMirror>() {
+    @Override
+    protected BeanMirror computeValue(Class<?> type) {
+      misses.increment();
+      return ImmutableBeanMirror.copyOf(delegate.reflect(type), CachingReflector.this);
+    }
+  };
+
+  public CachingReflector(Reflector delegate) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate");
+  }
+
+  @Override
+  public BeanMirror reflect(Class<?> bean) {
+    lookups.increment();
+    return mirrors.get(bean);
+  }
+
+  /**
+   * @return The number of {@link #reflect(Class)} calls answered from the cache.
+   */
+  public long hitCount() {
+    return Math.max(0, lookups.sum() - misses.sum());
+  }
+
+  /**
+   * @return The number of {@link #reflect(Class)} calls which had to consult the delegate.
+   */
+  public long missCount() {
+    return misses.sum();
+  }
+}
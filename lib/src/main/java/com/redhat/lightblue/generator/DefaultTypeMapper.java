@@ -0,0 +1,75 @@
+package com.redhat.lightblue.generator;
+
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.ArrayType;
+import com.redhat.lightblue.metadata.types.BigDecimalType;
+import com.redhat.lightblue.metadata.types.BigIntegerType;
+import com.redhat.lightblue.metadata.types.BinaryType;
+import com.redhat.lightblue.metadata.types.BooleanType;
+import com.redhat.lightblue.metadata.types.DateType;
+import com.redhat.lightblue.metadata.types.DoubleType;
+import com.redhat.lightblue.metadata.types.IntegerType;
+import com.redhat.lightblue.metadata.types.StringType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Mappings which apply unless overridden by another {@link TypeMapper}.
+ */
+final class DefaultTypeMapper implements TypeMapper {
+  static final DefaultTypeMapper INSTANCE = new DefaultTypeMapper();
+
+  private static final Map<Class<?>, Type> EXACT_TYPES = new HashMap<>();
+
+  static {
+    exactly(StringType.TYPE, String.class, char.class, Character.class, UUID.class);
+    exactly(BooleanType.TYPE, boolean.class, Boolean.class);
+    exactly(DateType.TYPE, Date.class);
+    exactly(BigDecimalType.TYPE, BigDecimal.class);
+    exactly(BigIntegerType.TYPE, BigInteger.class);
+    exactly(BinaryType.TYPE, byte[].class);
+    exactly(DoubleType.TYPE, double.class, Double.class, float.class, Float.class);
+    // Lightblue integers are longs
+    exactly(IntegerType.TYPE, int.class, Integer.class, long.class, Long.class, short.class,
+        Short.class, byte.class, Byte.class);
+  }
+
+  private DefaultTypeMapper() {}
+
+  @Override
+  public Optional<Type> typeOf(Class<?> javaType) {
+    Type exactType = EXACT_TYPES.get(javaType);
+
+    if (exactType != null) {
+      return Optional.of(exactType);
+    }
+
+    if (javaType.isEnum()) {
+      return Optional.of(StringType.TYPE);
+    }
+
+    if (Temporal.class.isAssignableFrom(javaType)) {
+      return Optional.of(DateType.TYPE);
+    }
+
+    if (javaType.isArray() || Iterable.class.isAssignableFrom(javaType)) {
+      return Optional.of(ArrayType.TYPE);
+    }
+
+    // TODO: Reference type
+    return Optional.empty();
+  }
+
+  private static void exactly(Type type, Class<?>... javaTypes) {
+    for (Class<?> javaType : javaTypes) {
+      EXACT_TYPES.put(javaType, type);
+    }
+  }
+}
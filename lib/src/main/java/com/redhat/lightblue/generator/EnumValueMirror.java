@@ -5,4 +5,12 @@ import java.util.Optional;
 public interface EnumValueMirror {
   String name();
   Optional<String> description();
+
+  /**
+   * @return The name of the java enum constant this is a value of, which is the value's own
+   * name unless the mirror names values otherwise, such as by their {@code toString()}.
+   */
+  default String constantName() {
+    return name();
+  }
 }
@@ -0,0 +1,419 @@
+package com.redhat.lightblue.generator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.ArrayType;
+import com.redhat.lightblue.metadata.types.ObjectType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers a fingerprint of each entity whose metadata was written to an output directory, so
+ * that later runs can tell which entities would be generated exactly as before without reflecting
+ * on them, and skip them.
+ *
+ * <p>A fingerprint covers the class files of the entity and every type embedded in it, the
+ * metadata file as written, and the version of the generator. The class names it covers are
+ * stored alongside it, so it can be recomputed from class files alone. The manifest as a whole
+ * also records the options it was generated with and the class files of the type mappers it was
+ * generated with; if either differs, every entity is regenerated.
+ *
+ * <p>Thread-safe.
+ */
+public final class FingerprintManifest {
+  /** Name of the manifest within the output directory. */
+  public static final String FILE_NAME = ".lightblue-generator-manifest";
+
+  private static final int FORMAT = 2;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String GENERATOR_VERSION = generatorVersion();
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final Path manifestFile;
+  private final ClassLoader classLoader;
+  /** Digest of the options and type mappers entities are generated with. */
+  private final String configuration;
+  private final ConcurrentMap<String, Entry> entries;
+
+  private FingerprintManifest(Path manifestFile, ClassLoader classLoader, String configuration,
+      ConcurrentMap<String, Entry> entries) {
+    this.manifestFile = manifestFile;
+    this.classLoader = classLoader;
+    this.configuration = configuration;
+    this.entries = entries;
+  }
+
+  /**
+   * Reads the manifest of entities generated with no options, and with the default type
+   * mappings only.
+   *
+   * @see #read(Path, ClassLoader, String, TypeMappers)
+   */
+  public static FingerprintManifest read(Path outputDirectory, ClassLoader classLoader) {
+    return read(outputDirectory, classLoader, "", TypeMappers.defaults());
+  }
+
+  /**
+   * Reads the manifest of {@code outputDirectory}. If there is none, or it was written by a
+   * different version of the generator, or with other options or type mappers, the manifest is
+   * empty, so every entity is regenerated.
+   *
+   * @param classLoader Used to find the class files of entities as resources.
+   * @param options Describes the options which change the metadata generated, such as how
+   *                entities are reflected on.
+   * @param typeMappers The mappers entities are generated with, such as those
+   *                    {@link TypeMappers#load loaded} from their class path.
+   */
+  public static FingerprintManifest read(Path outputDirectory, ClassLoader classLoader,
+      String options, TypeMappers typeMappers) {
+    String configuration = configuration(options, typeMappers);
+    Path manifestFile = outputDirectory.resolve(FILE_NAME);
+    ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    if (Files.isRegularFile(manifestFile)) {
+      JsonNode root;
+
+      try {
+        root = mapper.readTree(Files.readAllBytes(manifestFile));
+      } catch (IOException e) {
+        // Unreadable or corrupt; it is replaced when next saved
+        root = null;
+      }
+
+      if (root != null && root.path("format").asInt() == FORMAT
+          && GENERATOR_VERSION.equals(root.path("generator").asText())
+          && configuration.equals(root.path("configuration").asText())) {
+        for (Iterator<Map.Entry<String, JsonNode>> i = root.path("entities").fields();
+            i.hasNext(); ) {
+          Map.Entry<String, JsonNode> entity = i.next();
+          SortedSet<String> classNames = new TreeSet<>();
+          entity.getValue().path("classes").forEach(c -> classNames.add(c.asText()));
+          entries.put(entity.getKey(), new Entry(entity.getValue().path("file").asText(),
+              classNames, entity.getValue().path("fingerprint").asText()));
+        }
+      }
+    }
+
+    return new FingerprintManifest(manifestFile, classLoader, configuration, entries);
+  }
+
+  /**
+   * @return A manifest of the same entities, saved to the same file, which finds class files
+   * through {@code classLoader} instead, such as a new loader of jars which have changed. Entities
+   * recorded through either are seen by both.
+   */
+  public FingerprintManifest withClassLoader(ClassLoader classLoader) {
+    Objects.requireNonNull(classLoader, "classLoader");
+    return new FingerprintManifest(manifestFile, classLoader, configuration, entries);
+  }
+
+  /**
+   * @return Whether the entity's metadata file and every class file it was generated from are
+   * unchanged since the entity was {@link #record recorded}.
+   */
+  public boolean isUnchanged(String entityClassName) {
+    Entry entry = entries.get(entityClassName);
+
+    if (entry == null) {
+      return false;
+    }
+
+    Path metadataFile = manifestFile.resolveSibling(entry.file);
+
+    if (!Files.isRegularFile(metadataFile)) {
+      return false;
+    }
+
+    return fingerprint(entry.classNames, metadataFile)
+        .map(entry.fingerprint::equals)
+        .orElse(false);
+  }
+
+  /**
+   * Records the fingerprint of the entity's metadata file as just written.
+   *
+   * @param classNames The entity and the types embedded in it, as found by
+   *                   {@link #embeddedClassNames}.
+   */
+  public void record(String entityClassName, Path metadataFile, Collection<String> classNames) {
+    SortedSet<String> sortedClassNames = new TreeSet<>(classNames);
+    Optional<String> fingerprint = fingerprint(sortedClassNames, metadataFile);
+
+    if (fingerprint.isPresent()) {
+      entries.put(entityClassName, new Entry(metadataFile.getFileName().toString(),
+          sortedClassNames, fingerprint.get()));
+    } else {
+      // Without class files there is nothing to compare against next time
+      entries.remove(entityClassName);
+    }
+  }
+
+  /**
+   * Writes to a temporary file which then replaces the manifest.
+   */
+  public void save() throws IOException {
+    ObjectNode root = JsonNodeFactory.instance.objectNode();
+    root.put("format", FORMAT);
+    root.put("generator", GENERATOR_VERSION);
+    root.put("configuration", configuration);
+    ObjectNode entities = root.putObject("entities");
+
+    for (String entityClassName : new TreeSet<>(entries.keySet())) {
+      Entry entry = entries.get(entityClassName);
+      ObjectNode entity = entities.putObject(entityClassName);
+      entity.put("file", entry.file);
+      entity.put("fingerprint", entry.fingerprint);
+      ArrayNode classes = entity.putArray("classes");
+      entry.classNames.forEach(classes::add);
+    }
+
+    Path temporary = Files.createTempFile(manifestFile.toAbsolutePath().getParent(), FILE_NAME,
+        ".tmp");
+
+    try {
+      Files.write(temporary, mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(root));
+      Files.move(temporary, manifestFile, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Finds the classes whose class files determine the metadata generated for {@code entity}: the
+   * entity, the types of its object fields and object array elements, recursively, their enums,
+   * and the super classes of all of these. Classes of the platform are left out, since they
+   * cannot change without the generator's class path changing too.
+   */
+  public static Set<String> embeddedClassNames(Class<?> entity, Reflector reflector,
+      TypeMappers typeMappers) {
+    Set<String> classNames = new TreeSet<>();
+    Set<Class<?>> visited = new HashSet<>();
+    Deque<Class<?>> beans = new ArrayDeque<>();
+    beans.push(entity);
+
+    while (!beans.isEmpty()) {
+      Class<?> bean = beans.pop();
+
+      if (!visited.add(bean)) {
+        continue;
+      }
+
+      addWithSuperClasses(bean, classNames);
+
+      for (FieldMirror field : reflector.reflect(bean).getFields()) {
+        Class<?> type = field.javaType();
+        Type lightblueType = typeMappers.typeOf(type);
+
+        if (ArrayType.TYPE.equals(lightblueType)) {
+          Optional<Class<?>> elementType = type.isArray()
+              ? Optional.of(type.getComponentType())
+              : field.elementJavaType();
+
+          if (!elementType.isPresent()) {
+            continue;
+          }
+
+          type = elementType.get();
+          lightblueType = typeMappers.typeOf(type);
+        }
+
+        if (type.isEnum()) {
+          addWithSuperClasses(type, classNames);
+        } else if (ObjectType.TYPE.equals(lightblueType)) {
+          beans.push(type);
+        }
+      }
+    }
+
+    return classNames;
+  }
+
+  private static void addWithSuperClasses(Class<?> type, Set<String> classNames) {
+    for (Class<?> c = type; c != null && !isPlatformClass(c); c = c.getSuperclass()) {
+      classNames.add(c.getName());
+    }
+  }
+
+  private static boolean isPlatformClass(Class<?> type) {
+    return type.getClassLoader() == null || type.getName().startsWith("java.");
+  }
+
+  /**
+   * @return Empty if a class file cannot be found.
+   */
+  private Optional<String> fingerprint(SortedSet<String> classNames, Path metadataFile) {
+    MessageDigest digest = sha256();
+    digest.update(GENERATOR_VERSION.getBytes(UTF_8));
+
+    try {
+      for (String className : classNames) {
+        Optional<byte[]> classFile = readClassFile(classLoader, className);
+
+        if (!classFile.isPresent()) {
+          return Optional.empty();
+        }
+
+        update(digest, className.getBytes(UTF_8));
+        update(digest, classFile.get());
+      }
+
+      update(digest, Files.readAllBytes(metadataFile));
+    } catch (IOException e) {
+      return Optional.empty();
+    }
+
+    return Optional.of(hex(digest.digest()));
+  }
+
+  /**
+   * Digests the options, and the name and class file of each type mapper, in order. Mappers
+   * defined by the bootstrap loader, or whose class files cannot be read, are digested by name.
+   */
+  private static String configuration(String options, TypeMappers typeMappers) {
+    MessageDigest digest = sha256();
+    update(digest, options.getBytes(UTF_8));
+
+    for (TypeMapper mapper : typeMappers.mappers()) {
+      Class<?> mapperClass = mapper.getClass();
+      update(digest, mapperClass.getName().getBytes(UTF_8));
+
+      try {
+        Optional<byte[]> classFile = mapperClass.getClassLoader() == null
+            ? Optional.empty()
+            : readClassFile(mapperClass.getClassLoader(), mapperClass.getName());
+        update(digest, classFile.orElse(new byte[0]));
+      } catch (IOException e) {
+        update(digest, new byte[0]);
+      }
+    }
+
+    return hex(digest.digest());
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder();
+
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+
+    return hex.toString();
+  }
+
+  private static Optional<byte[]> readClassFile(ClassLoader classLoader, String className)
+      throws IOException {
+    try (InputStream in = classLoader.getResourceAsStream(
+        className.replace('.', '/') + ".class")) {
+      if (in == null) {
+        return Optional.empty();
+      }
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        bytes.write(buffer, 0, read);
+      }
+
+      return Optional.of(bytes.toByteArray());
+    }
+  }
+
+  /** Length-prefixed, so that adjacent inputs cannot be confused. */
+  private static void update(MessageDigest digest, byte[] bytes) {
+    int length = bytes.length;
+    digest.update(new byte[] {
+        (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+    digest.update(bytes);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The version of this library, along with the size and modification time of its jar, so that
+   * snapshot builds of the same version are told apart.
+   */
+  private static String generatorVersion() {
+    StringBuilder version = new StringBuilder();
+    Properties pom = new Properties();
+
+    try (InputStream in = FingerprintManifest.class.getResourceAsStream(
+        "/META-INF/maven/com.redhat.lightblue.generator/lightblue-java-generator-lib/"
+            + "pom.properties")) {
+      if (in != null) {
+        pom.load(in);
+      }
+    } catch (IOException e) {
+      // Fall back to the jar alone
+    }
+
+    version.append(pom.getProperty("version", "unknown"));
+
+    try {
+      CodeSource codeSource = FingerprintManifest.class.getProtectionDomain().getCodeSource();
+
+      if (codeSource != null) {
+        Path location = Paths.get(codeSource.getLocation().toURI());
+
+        if (Files.isRegularFile(location)) {
+          version.append(':').append(Files.size(location))
+              .append(':').append(Files.getLastModifiedTime(location).toMillis());
+        }
+      }
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      // Version alone
+    }
+
+    return version.toString();
+  }
+
+  private static final class Entry {
+    final String file;
+    final SortedSet<String> classNames;
+    final String fingerprint;
+
+    Entry(String file, SortedSet<String> classNames, String fingerprint) {
+      this.file = Objects.requireNonNull(file, "file");
+      this.classNames = classNames;
+      this.fingerprint = Objects.requireNonNull(fingerprint, "fingerprint");
+    }
+  }
+}
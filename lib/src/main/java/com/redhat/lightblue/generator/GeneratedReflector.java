@@ -0,0 +1,81 @@
+package com.redhat.lightblue.generator;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Uses {@link BeanMirror} implementations generated at compile time by the
+ * lightblue-java-generator-processor annotation processor, falling back to another
+ * {@link Reflector} for classes which have no generated mirror.
+ *
+ * <p>A generated mirror for {@code com.acme.User$Address} is the top level class named
+ * {@code com.acme.User$Address_BeanMirror}. See {@link #mirrorClassName(String)}.
+ */
+public class GeneratedReflector implements Reflector {
+  public static final String MIRROR_CLASS_SUFFIX = "_BeanMirror";
+
+  private final Reflector fallback;
+
+  private final ClassValue<Optional<BeanMirror>> generatedMirrors =
+      new ClassValue<Optional<BeanMirror>>() {
+        @Override
+        protected Optional<BeanMirror> computeValue(Class<?> type) {
+          return loadGeneratedMirror(type);
+        }
+      };
+
+  public GeneratedReflector(Reflector fallback) {
+    this.fallback = Objects.requireNonNull(fallback, "fallback");
+  }
+
+  @Override
+  public BeanMirror reflect(Class<?> bean) {
+    Optional<BeanMirror> generated = generatedMirrors.get(bean);
+
+    if (generated.isPresent()) {
+      return generated.get();
+    }
+
+    return fallback.reflect(bean);
+  }
+
+  /**
+   * @param binaryName The {@link Class#getName() binary name} of a bean class.
+   * @return The binary name of the generated mirror for that bean class. The {@code $} of nested
+   * classes is kept, since replacing it would name the mirrors of {@code User$Address} and a top
+   * level {@code User_Address} alike.
+   */
+  public static String mirrorClassName(String binaryName) {
+    return binaryName + MIRROR_CLASS_SUFFIX;
+  }
+
+  private Optional<BeanMirror> loadGeneratedMirror(Class<?> bean) {
+    ClassLoader classLoader = bean.getClassLoader();
+
+    if (classLoader == null) {
+      return Optional.empty();
+    }
+
+    final Class<?> mirrorClass;
+
+    try {
+      mirrorClass = Class.forName(mirrorClassName(bean.getName()), true, classLoader);
+    } catch (ClassNotFoundException e) {
+      return Optional.empty();
+    }
+
+    if (!BeanMirror.class.isAssignableFrom(mirrorClass)) {
+      return Optional.empty();
+    }
+
+    try {
+      Constructor<?> constructor = mirrorClass.getConstructor(Reflector.class);
+      return Optional.of((BeanMirror) constructor.newInstance(this));
+    } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+        | InvocationTargetException e) {
+      throw new MirrorException(e);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.redhat.lightblue.generator;
+
+import com.redhat.lightblue.metadata.EntityMetadata;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The outcome of generating or updating metadata for one entity as part of a batch. Exactly one
+ * of {@link #metadata()} or {@link #failure()} is present.
+ *
+ * @see MetadataGenerator#generateAll(java.util.Collection, java.util.concurrent.Executor)
+ * @see MetadataGenerator#updateAll(java.util.Map, java.util.concurrent.Executor)
+ */
+public final class GenerationResult {
+  private final Class<?> entity;
+  private final Optional<EntityMetadata> metadata;
+  private final Optional<RuntimeException> failure;
+
+  private GenerationResult(Class<?> entity, Optional<EntityMetadata> metadata,
+      Optional<RuntimeException> failure) {
+    this.entity = Objects.requireNonNull(entity, "entity");
+    this.metadata = metadata;
+    this.failure = failure;
+  }
+
+  public static GenerationResult success(Class<?> entity, EntityMetadata metadata) {
+    return new GenerationResult(entity, Optional.of(metadata), Optional.empty());
+  }
+
+  public static GenerationResult failure(Class<?> entity, RuntimeException failure) {
+    return new GenerationResult(entity, Optional.empty(), Optional.of(failure));
+  }
+
+  public Class<?> entity() {
+    return entity;
+  }
+
+  public boolean isSuccess() {
+    return metadata.isPresent();
+  }
+
+  public Optional<EntityMetadata> metadata() {
+    return metadata;
+  }
+
+  public Optional<RuntimeException> failure() {
+    return failure;
+  }
+
+}
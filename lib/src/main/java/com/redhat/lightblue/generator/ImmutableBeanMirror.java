@@ -0,0 +1,57 @@
+package com.redhat.lightblue.generator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A {@link BeanMirror} whose entity name, version, and fields are all resolved up front.
+ *
+ * @see ImmutableFieldMirror
+ */
+public class ImmutableBeanMirror implements BeanMirror {
+  private final String entityName;
+  private final Optional<VersionMirror> version;
+  private final Collection<FieldMirror> fields;
+
+  public ImmutableBeanMirror(String entityName, Optional<VersionMirror> version,
+      Collection<FieldMirror> fields) {
+    this.entityName = Objects.requireNonNull(entityName, "entityName");
+    this.version = Objects.requireNonNull(version, "version");
+    this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+  }
+
+  /**
+   * @param reflector Used to resolve nested {@link FieldMirror#objectFields() object fields} of
+   *                  the copy.
+   */
+  public static ImmutableBeanMirror copyOf(BeanMirror beanMirror, Reflector reflector) {
+    Collection<FieldMirror> originalFields = beanMirror.getFields();
+    List<FieldMirror> fields = new ArrayList<>(originalFields.size());
+
+    for (FieldMirror fieldMirror : originalFields) {
+      fields.add(ImmutableFieldMirror.copyOf(fieldMirror, reflector));
+    }
+
+    return new ImmutableBeanMirror(beanMirror.getEntityName(),
+        beanMirror.getVersion().map(ImmutableVersionMirror::copyOf), fields);
+  }
+
+  @Override
+  public String getEntityName() {
+    return entityName;
+  }
+
+  @Override
+  public Optional<VersionMirror> getVersion() {
+    return version;
+  }
+
+  @Override
+  public Collection<FieldMirror> getFields() {
+    return fields;
+  }
+}
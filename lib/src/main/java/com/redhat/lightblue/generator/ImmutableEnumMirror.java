@@ -0,0 +1,40 @@
+package com.redhat.lightblue.generator;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+public class ImmutableEnumMirror implements EnumMirror {
+  private final String name;
+  private final Set<EnumValueMirror> values;
+
+  public ImmutableEnumMirror(String name, Set<EnumValueMirror> values) {
+    this.name = Objects.requireNonNull(name, "name");
+    this.values = Collections.unmodifiableSet(new LinkedHashSet<>(values));
+  }
+
+  public static ImmutableEnumMirror copyOf(EnumMirror enumMirror) {
+    if (enumMirror instanceof ImmutableEnumMirror) {
+      return (ImmutableEnumMirror) enumMirror;
+    }
+
+    Set<EnumValueMirror> values = new LinkedHashSet<>();
+
+    for (EnumValueMirror value : enumMirror.values()) {
+      values.add(ImmutableEnumValueMirror.copyOf(value));
+    }
+
+    return new ImmutableEnumMirror(enumMirror.name(), values);
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public Set<EnumValueMirror> values() {
+    return values;
+  }
+}
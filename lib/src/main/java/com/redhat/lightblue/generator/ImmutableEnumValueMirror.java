@@ -0,0 +1,48 @@
+package com.redhat.lightblue.generator;
+
+import java.util.Objects;
+import java.util.Optional;
+
+public class ImmutableEnumValueMirror implements EnumValueMirror {
+  private final String name;
+  private final String constantName;
+  private final Optional<String> description;
+
+  /**
+   * Creates a value named as its constant is.
+   */
+  public ImmutableEnumValueMirror(String name, Optional<String> description) {
+    this(name, name, description);
+  }
+
+  public ImmutableEnumValueMirror(String name, String constantName,
+      Optional<String> description) {
+    this.name = Objects.requireNonNull(name, "name");
+    this.constantName = Objects.requireNonNull(constantName, "constantName");
+    this.description = Objects.requireNonNull(description, "description");
+  }
+
+  public static ImmutableEnumValueMirror copyOf(EnumValueMirror enumValueMirror) {
+    if (enumValueMirror instanceof ImmutableEnumValueMirror) {
+      return (ImmutableEnumValueMirror) enumValueMirror;
+    }
+
+    return new ImmutableEnumValueMirror(enumValueMirror.name(), enumValueMirror.constantName(),
+        enumValueMirror.description());
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public String constantName() {
+    return constantName;
+  }
+
+  @Override
+  public Optional<String> description() {
+    return description;
+  }
+}
@@ -0,0 +1,141 @@
+package com.redhat.lightblue.generator;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A {@link FieldMirror} whose values are all resolved up front, so that repeated queries do no
+ * reflection. Nested {@link #objectFields() object fields} are resolved lazily through the
+ * provided {@link Reflector}, which allows self-referencing types to be snapshotted.
+ */
+public class ImmutableFieldMirror implements FieldMirror {
+  private final String name;
+  private final Class<?> javaType;
+  private final Optional<String> description;
+  private final boolean required;
+  private final boolean identifying;
+  private final boolean elementIdentifying;
+  private final Optional<Integer> minItems;
+  private final Optional<Integer> maxItems;
+  private final Optional<Integer> minLength;
+  private final Optional<Integer> maxLength;
+  private final Optional<Class<?>> elementJavaType;
+  private final Optional<EnumMirror> enumMirror;
+  private final Optional<ValueGeneratorMirror> valueGeneratorMirror;
+  private final Reflector reflector;
+
+  public ImmutableFieldMirror(String name, Class<?> javaType, Optional<String> description,
+      boolean required, boolean identifying, boolean elementIdentifying,
+      Optional<Integer> minItems, Optional<Integer> maxItems, Optional<Integer> minLength,
+      Optional<Integer> maxLength, Optional<Class<?>> elementJavaType,
+      Optional<EnumMirror> enumMirror, Optional<ValueGeneratorMirror> valueGeneratorMirror,
+      Reflector reflector) {
+    this.name = Objects.requireNonNull(name, "name");
+    this.javaType = Objects.requireNonNull(javaType, "javaType");
+    this.description = Objects.requireNonNull(description, "description");
+    this.required = required;
+    this.identifying = identifying;
+    this.elementIdentifying = elementIdentifying;
+    this.minItems = Objects.requireNonNull(minItems, "minItems");
+    this.maxItems = Objects.requireNonNull(maxItems, "maxItems");
+    this.minLength = Objects.requireNonNull(minLength, "minLength");
+    this.maxLength = Objects.requireNonNull(maxLength, "maxLength");
+    this.elementJavaType = Objects.requireNonNull(elementJavaType, "elementJavaType");
+    this.enumMirror = Objects.requireNonNull(enumMirror, "enumMirror");
+    this.valueGeneratorMirror = Objects.requireNonNull(valueGeneratorMirror,
+        "valueGeneratorMirror");
+    this.reflector = Objects.requireNonNull(reflector, "reflector");
+  }
+
+  /**
+   * @param reflector Used to resolve {@link #objectFields()} of the copy.
+   */
+  public static ImmutableFieldMirror copyOf(FieldMirror fieldMirror, Reflector reflector) {
+    return new ImmutableFieldMirror(
+        fieldMirror.name(),
+        fieldMirror.javaType(),
+        fieldMirror.description(),
+        fieldMirror.isRequired(),
+        fieldMirror.isIdentifying(),
+        fieldMirror.isElementIdentifying(),
+        fieldMirror.minItems(),
+        fieldMirror.maxItems(),
+        fieldMirror.minLength(),
+        fieldMirror.maxLength(),
+        fieldMirror.elementJavaType(),
+        fieldMirror.enumMirror().map(ImmutableEnumMirror::copyOf),
+        fieldMirror.valueGeneratorMirror(),
+        reflector);
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public Class<?> javaType() {
+    return javaType;
+  }
+
+  @Override
+  public Optional<String> description() {
+    return description;
+  }
+
+  @Override
+  public boolean isRequired() {
+    return required;
+  }
+
+  @Override
+  public boolean isIdentifying() {
+    return identifying;
+  }
+
+  @Override
+  public boolean isElementIdentifying() {
+    return elementIdentifying;
+  }
+
+  @Override
+  public Optional<Integer> minItems() {
+    return minItems;
+  }
+
+  @Override
+  public Optional<Integer> maxItems() {
+    return maxItems;
+  }
+
+  @Override
+  public Optional<Integer> minLength() {
+    return minLength;
+  }
+
+  @Override
+  public Optional<Integer> maxLength() {
+    return maxLength;
+  }
+
+  @Override
+  public Collection<FieldMirror> objectFields() {
+    return reflector.reflect(javaType).getFields();
+  }
+
+  @Override
+  public Optional<Class<?>> elementJavaType() {
+    return elementJavaType;
+  }
+
+  @Override
+  public Optional<EnumMirror> enumMirror() {
+    return enumMirror;
+  }
+
+  @Override
+  public Optional<ValueGeneratorMirror> valueGeneratorMirror() {
+    return valueGeneratorMirror;
+  }
+}
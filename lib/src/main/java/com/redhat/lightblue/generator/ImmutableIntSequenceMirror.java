@@ -0,0 +1,32 @@
+package com.redhat.lightblue.generator;
+
+import java.util.Objects;
+import java.util.Optional;
+
+public class ImmutableIntSequenceMirror implements IntSequenceMirror {
+  private final String name;
+  private final Optional<Integer> initialValue;
+  private final boolean overwrite;
+
+  public ImmutableIntSequenceMirror(String name, Optional<Integer> initialValue,
+      boolean overwrite) {
+    this.name = Objects.requireNonNull(name, "name");
+    this.initialValue = Objects.requireNonNull(initialValue, "initialValue");
+    this.overwrite = overwrite;
+  }
+
+  @Override
+  public Optional<Integer> initialValue() {
+    return initialValue;
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public boolean isOverwrite() {
+    return overwrite;
+  }
+}
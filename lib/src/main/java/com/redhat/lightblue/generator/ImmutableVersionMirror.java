@@ -0,0 +1,43 @@
+package com.redhat.lightblue.generator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+
+public class ImmutableVersionMirror implements VersionMirror {
+  private final String version;
+  private final String changelog;
+  private final Collection<String> extendsVersions;
+
+  public ImmutableVersionMirror(String version, String changelog,
+      Collection<String> extendsVersions) {
+    this.version = Objects.requireNonNull(version, "version");
+    this.changelog = changelog;
+    this.extendsVersions = Collections.unmodifiableList(new ArrayList<>(extendsVersions));
+  }
+
+  public static ImmutableVersionMirror copyOf(VersionMirror versionMirror) {
+    if (versionMirror instanceof ImmutableVersionMirror) {
+      return (ImmutableVersionMirror) versionMirror;
+    }
+
+    return new ImmutableVersionMirror(versionMirror.getVersion(), versionMirror.getChangelog(),
+        versionMirror.getExtendsVersions());
+  }
+
+  @Override
+  public String getVersion() {
+    return version;
+  }
+
+  @Override
+  public String getChangelog() {
+    return changelog;
+  }
+
+  @Override
+  public Collection<String> getExtendsVersions() {
+    return extendsVersions;
+  }
+}
@@ -0,0 +1,283 @@
+package com.redhat.lightblue.generator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.lightblue.metadata.EntityMetadata;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A single file holding the metadata of many entities, written sequentially in place of a file
+ * per entity.
+ *
+ * <p>The {@link Format format} follows from the file name: a zip of pretty printed
+ * {@code <entity name>.json} entries, or newline delimited JSON with one compact document per
+ * line, optionally gzipped.
+ *
+ * <p>An existing bundle is read once when opened, so that its metadata can be updated. Written
+ * entities replace existing ones of the same name; the rest are copied over when the bundle is
+ * {@link #close() closed}, which then replaces the existing bundle.
+ *
+ * <p>Thread-safe.
+ */
+public final class MetadataBundle implements Closeable {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  public enum Format {
+    ZIP, NDJSON, NDJSON_GZIP;
+
+    /**
+     * @throws IllegalArgumentException If the name ends in none of {@code .zip},
+     * {@code .ndjson}, or {@code .ndjson.gz}.
+     */
+    public static Format of(Path bundleFile) {
+      String name = bundleFile.getFileName().toString();
+
+      if (name.endsWith(".zip")) {
+        return ZIP;
+      }
+
+      if (name.endsWith(".ndjson")) {
+        return NDJSON;
+      }
+
+      if (name.endsWith(".ndjson.gz")) {
+        return NDJSON_GZIP;
+      }
+
+      throw new IllegalArgumentException("Bundle must end in .zip, .ndjson, or .ndjson.gz but was "
+          + bundleFile);
+    }
+  }
+
+  private final Path bundleFile;
+  private final Format format;
+  private final MetadataJsonWriter jsonWriter;
+  private final Map<String, byte[]> existing;
+  private final Set<String> written = new HashSet<>();
+  private final Path temporary;
+  private final OutputStream out;
+  private final ZipOutputStream zipOut;
+  private boolean closed;
+
+  private MetadataBundle(Path bundleFile, MetadataJsonWriter jsonWriter,
+      Map<String, byte[]> existing, Path temporary, OutputStream out) {
+    this.bundleFile = bundleFile;
+    this.format = Format.of(bundleFile);
+    this.jsonWriter = jsonWriter;
+    this.existing = existing;
+    this.temporary = temporary;
+
+    if (format == Format.ZIP) {
+      this.zipOut = new ZipOutputStream(out, UTF_8);
+      this.out = zipOut;
+    } else {
+      this.zipOut = null;
+      this.out = out;
+    }
+  }
+
+  /**
+   * Reads the existing bundle at {@code bundleFile}, if any, and starts writing its replacement.
+   *
+   * @throws IllegalArgumentException If the name of {@code bundleFile} does not determine a
+   * {@link Format}.
+   */
+  public static MetadataBundle open(Path bundleFile, MetadataJsonWriter jsonWriter)
+      throws IOException {
+    Format format = Format.of(bundleFile);
+    Map<String, byte[]> existing = Files.isRegularFile(bundleFile)
+        ? read(bundleFile)
+        : Collections.emptyMap();
+
+    Path absolute = bundleFile.toAbsolutePath();
+    Files.createDirectories(absolute.getParent());
+    Path temporary = absolute.resolveSibling("." + absolute.getFileName() + "."
+        + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+    FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE_NEW);
+    OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+
+    if (format == Format.NDJSON_GZIP) {
+      out = new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+
+    return new MetadataBundle(absolute, jsonWriter, existing, temporary, out);
+  }
+
+  /**
+   * @return The JSON of each entity in the bundle by entity name, in the order they were written.
+   * @throws IllegalArgumentException If the name of {@code bundleFile} does not determine a
+   * {@link Format}.
+   */
+  public static Map<String, byte[]> read(Path bundleFile) throws IOException {
+    Format format = Format.of(bundleFile);
+    Map<String, byte[]> entities = new LinkedHashMap<>();
+
+    try (InputStream in = Files.newInputStream(bundleFile)) {
+      if (format == Format.ZIP) {
+        ZipInputStream zipIn = new ZipInputStream(in, UTF_8);
+
+        for (ZipEntry entry; (entry = zipIn.getNextEntry()) != null; ) {
+          String name = entry.getName();
+
+          if (!entry.isDirectory() && name.endsWith(".json")) {
+            entities.put(name.substring(0, name.length() - ".json".length()), readAll(zipIn));
+          }
+        }
+      } else {
+        InputStream lines = format == Format.NDJSON_GZIP
+            ? new GZIPInputStream(in, BUFFER_SIZE)
+            : in;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(lines, UTF_8),
+            BUFFER_SIZE);
+
+        for (String line; (line = reader.readLine()) != null; ) {
+          if (line.trim().isEmpty()) {
+            continue;
+          }
+
+          String entityName = mapper.readTree(line).path("entityInfo").path("name").asText();
+          entities.put(entityName, line.getBytes(UTF_8));
+        }
+      }
+    }
+
+    return entities;
+  }
+
+  /**
+   * @return The JSON of the entity in the bundle as it was when opened.
+   */
+  public Optional<byte[]> existing(String entityName) {
+    byte[] json = existing.get(entityName);
+    return json == null ? Optional.empty() : Optional.of(json.clone());
+  }
+
+  /**
+   * @return Whether the entity's JSON differs from that in the bundle when it was opened.
+   * @throws IllegalStateException If the entity was already written.
+   */
+  public boolean write(String entityName, EntityMetadata metadata) throws IOException {
+    // Rendered outside the lock, so that only the sequential write is serialized
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(json)) {
+      if (format == Format.ZIP) {
+        generator.setPrettyPrinter(new DefaultPrettyPrinter());
+      }
+
+      jsonWriter.write(metadata, generator);
+    }
+
+    byte[] bytes = json.toByteArray();
+
+    synchronized (this) {
+      ensureOpen();
+
+      if (!written.add(entityName)) {
+        throw new IllegalStateException(entityName + " was already written to " + bundleFile);
+      }
+
+      writeEntry(entityName, bytes);
+    }
+
+    return !Arrays.equals(bytes, existing.get(entityName));
+  }
+
+  /**
+   * Copies existing entities which were not written over, and replaces the existing bundle.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+
+    try {
+      for (Map.Entry<String, byte[]> entity : existing.entrySet()) {
+        if (!written.contains(entity.getKey())) {
+          writeEntry(entity.getKey(), entity.getValue());
+        }
+      }
+
+      out.close();
+
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+
+      try {
+        Files.move(temporary, bundleFile, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, bundleFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      out.close();
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private void writeEntry(String entityName, byte[] json) throws IOException {
+    if (zipOut != null) {
+      zipOut.putNextEntry(new ZipEntry(entityName + ".json"));
+      zipOut.write(json);
+      zipOut.closeEntry();
+    } else {
+      out.write(json);
+      out.write('\n');
+    }
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException(bundleFile + " is closed");
+    }
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+
+    for (int read; (read = in.read(buffer)) != -1; ) {
+      bytes.write(buffer, 0, read);
+    }
+
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,102 @@
+package com.redhat.lightblue.generator;
+
+import com.redhat.lightblue.metadata.EntityMetadata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes entity metadata files so that they are never seen partially written, and are left alone
+ * entirely if their content would not change.
+ *
+ * <p>Metadata is rendered to a buffer which is reused by each thread, and compared to the existing
+ * file. Only if they differ is the buffer written to a temporary file alongside it, which is
+ * synced to disk and then moved over the existing file.
+ *
+ * <p>Thread-safe.
+ */
+public class MetadataFileWriter {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final MetadataJsonWriter jsonWriter;
+  private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+  public MetadataFileWriter(MetadataJsonWriter jsonWriter) {
+    this.jsonWriter = Objects.requireNonNull(jsonWriter, "jsonWriter");
+  }
+
+  /**
+   * @return Whether {@code metadataFile} was written, as opposed to already having this content.
+   */
+  public boolean write(EntityMetadata metadata, Path metadataFile) throws IOException {
+    Buffer buffer = buffers.get();
+    buffer.reset();
+
+    try (Writer writer = new OutputStreamWriter(buffer, UTF_8)) {
+      jsonWriter.write(metadata, writer);
+    }
+
+    if (hasContent(metadataFile, buffer)) {
+      return false;
+    }
+
+    Path temporary = metadataFile.resolveSibling("." + metadataFile.getFileName() + "."
+        + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+
+    try {
+      // Unlike Files.createTempFile, creates the file with the same permissions as any other
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+          StandardOpenOption.CREATE_NEW)) {
+        ByteBuffer bytes = buffer.contents();
+
+        while (bytes.hasRemaining()) {
+          channel.write(bytes);
+        }
+
+        channel.force(true);
+      }
+
+      try {
+        Files.move(temporary, metadataFile, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, metadataFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+
+    return true;
+  }
+
+  private static boolean hasContent(Path file, Buffer buffer) throws IOException {
+    if (!Files.isRegularFile(file) || Files.size(file) != buffer.size()) {
+      return false;
+    }
+
+    return buffer.contents().equals(ByteBuffer.wrap(Files.readAllBytes(file)));
+  }
+
+  /** Exposes its array, so its contents are not copied. */
+  private static final class Buffer extends ByteArrayOutputStream {
+    Buffer() {
+      super(8192);
+    }
+
+    ByteBuffer contents() {
+      return ByteBuffer.wrap(buf, 0, count);
+    }
+  }
+}
@@ -29,54 +29,212 @@ import com.redhat.lightblue.metadata.constraints.IdentityConstraint;
 import com.redhat.lightblue.metadata.constraints.RequiredConstraint;
 import com.redhat.lightblue.metadata.constraints.StringLengthConstraint;
 import com.redhat.lightblue.metadata.types.ArrayType;
-import com.redhat.lightblue.metadata.types.BigDecimalType;
-import com.redhat.lightblue.metadata.types.BigIntegerType;
-import com.redhat.lightblue.metadata.types.BinaryType;
-import com.redhat.lightblue.metadata.types.BooleanType;
-import com.redhat.lightblue.metadata.types.DateType;
-import com.redhat.lightblue.metadata.types.DoubleType;
-import com.redhat.lightblue.metadata.types.IntegerType;
 import com.redhat.lightblue.metadata.types.ObjectType;
-import com.redhat.lightblue.metadata.types.StringType;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.time.temporal.Temporal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 public class MetadataGenerator {
-  private final Reflector reflector;
+  /** Maximum depth which does not limit the nesting of object fields. */
+  public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
 
+  private final Reflector reflector;
+  private final TypeMappers typeMappers;
+  private final int maxDepth;
+  private final RecursionPolicy recursionPolicy;
+
+  /**
+   * Creates a generator which does not limit the depth of nested objects, and fails on recursive
+   * object types.
+   */
   public MetadataGenerator(Reflector reflector) {
-    this.reflector = reflector;
+    this(reflector, UNLIMITED_DEPTH, RecursionPolicy.FAIL);
+  }
+
+  /**
+   * @param maxDepth The maximum number of objects which may be nested within each other below an
+   *                 entity. An entity with only simple fields has a depth of 0; an entity with an
+   *                 object field, or an array of objects, whose fields are simple has a depth of 1.
+   * @param recursionPolicy What to do with object fields which are nested deeper than
+   *                        {@code maxDepth}, or whose type is the same as an enclosing object's
+   *                        type.
+   */
+  public MetadataGenerator(Reflector reflector, int maxDepth, RecursionPolicy recursionPolicy) {
+    this(reflector, TypeMappers.defaults(), maxDepth, recursionPolicy);
+  }
+
+  /**
+   * Like {@link #MetadataGenerator(Reflector)}, resolving the lightblue type of each property
+   * with {@code typeMappers} instead of only the default mappings.
+   */
+  public MetadataGenerator(Reflector reflector, TypeMappers typeMappers) {
+    this(reflector, typeMappers, UNLIMITED_DEPTH, RecursionPolicy.FAIL);
+  }
+
+  /**
+   * @see #MetadataGenerator(Reflector, int, RecursionPolicy)
+   */
+  public MetadataGenerator(Reflector reflector, TypeMappers typeMappers, int maxDepth,
+      RecursionPolicy recursionPolicy) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("maxDepth must not be negative but was " + maxDepth);
+    }
+
+    this.reflector = Objects.requireNonNull(reflector, "reflector");
+    this.typeMappers = Objects.requireNonNull(typeMappers, "typeMappers");
+    this.maxDepth = maxDepth;
+    this.recursionPolicy = Objects.requireNonNull(recursionPolicy, "recursionPolicy");
   }
 
   public EntityMetadata generateMetadata(Class<?> entity) {
-    EntityInfo info = generateInfo(entity);
-    EntitySchema schema = generateSchema(entity);
-    return new EntityMetadata(info, schema);
+    return generateMetadata(Optional.of(entity), reflector.reflect(entity), new SubtreeMemo());
+  }
+
+  /**
+   * Like {@link #generateMetadata(Class)}, for an entity which has already been reflected upon,
+   * for example by a {@link Reflector} which does not require the entity class to be loaded.
+   *
+   * <p>Since the entity's class is not known, a field whose type is the entity's own type is only
+   * recognized as recursive one level further down.
+   */
+  public EntityMetadata generateMetadata(BeanMirror beanMirror) {
+    return generateMetadata(Optional.empty(), beanMirror, new SubtreeMemo());
   }
 
   public EntityMetadata updateMetadata(EntityMetadata original, Class<?> entity) {
-    BeanMirror beanMirror = reflector.reflect(entity);
+    return updateMetadata(original, Optional.of(entity), reflector.reflect(entity),
+        new SubtreeMemo());
+  }
 
-    EntityInfo info = generateInfo(beanMirror, Optional.of(original.getEntityInfo()));
-    EntitySchema schema = generateSchema(beanMirror, Optional.of(original.getEntitySchema()));
+  /**
+   * @see #generateMetadata(BeanMirror)
+   */
+  public EntityMetadata updateMetadata(EntityMetadata original, BeanMirror beanMirror) {
+    return updateMetadata(original, Optional.empty(), beanMirror, new SubtreeMemo());
+  }
 
-    return new EntityMetadata(info, schema);
+  /**
+   * Generates metadata for each entity using the {@link ForkJoinPool#commonPool() common pool}.
+   *
+   * @see #generateAll(Collection, Executor)
+   */
+  public List<GenerationResult> generateAll(Collection<Class<?>> entities) {
+    return generateAll(entities, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Generates metadata for each entity concurrently, as tasks run by {@code executor}. Tasks share
+   * this generator's {@link Reflector}, which should therefore be thread-safe; wrap it in a
+   * {@link CachingReflector} so that types shared between entities are only reflected on once.
+   * Fields generated for object types embedded by several entities are likewise generated once
+   * per batch and copied.
+   *
+   * @return One result per entity, in the iteration order of {@code entities}. Failing to
+   * generate metadata for one entity does not stop the others.
+   */
+  public List<GenerationResult> generateAll(Collection<Class<?>> entities, Executor executor) {
+    List<CompletableFuture<GenerationResult>> results = new ArrayList<>(entities.size());
+    Batch batch = batch(executor);
+
+    for (Class<?> entity : entities) {
+      results.add(batch.generate(entity));
+    }
+
+    return joinAll(results);
+  }
+
+  /**
+   * Updates metadata for each entity using the {@link ForkJoinPool#commonPool() common pool}.
+   *
+   * @see #updateAll(Map, Executor)
+   */
+  public List<GenerationResult> updateAll(Map<Class<?>, EntityMetadata> originals) {
+    return updateAll(originals, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Like {@link #generateAll(Collection, Executor)}, but updates each entity's original metadata
+   * as in {@link #updateMetadata(EntityMetadata, Class)}.
+   *
+   * @return One result per entry, in the iteration order of {@code originals}.
+   */
+  public List<GenerationResult> updateAll(Map<Class<?>, EntityMetadata> originals,
+      Executor executor) {
+    List<CompletableFuture<GenerationResult>> results = new ArrayList<>(originals.size());
+    Batch batch = batch(executor);
+
+    for (Map.Entry<Class<?>, EntityMetadata> original : originals.entrySet()) {
+      results.add(batch.update(original.getValue(), original.getKey()));
+    }
+
+    return joinAll(results);
+  }
+
+  /**
+   * Starts a batch to which entities may be submitted one at a time, for example as they are
+   * discovered, rather than all at once as with {@link #generateAll(Collection, Executor)}.
+   * Entities in the same batch share generated fields like those of {@code generateAll}.
+   */
+  public Batch batch(Executor executor) {
+    return new Batch(executor);
+  }
+
+  /**
+   * Entities whose metadata is generated concurrently, as tasks run by an executor.
+   *
+   * <p>Thread-safe.
+   */
+  public final class Batch {
+    private final Executor executor;
+    private final SubtreeMemo subtrees = new SubtreeMemo();
+
+    private Batch(Executor executor) {
+      this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    /**
+     * @return Completes with the entity's result once generated. Never completes exceptionally
+     * for a runtime exception, which is returned as a failed result instead.
+     */
+    public CompletableFuture<GenerationResult> generate(Class<?> entity) {
+      return CompletableFuture.supplyAsync(
+          () -> generateOne(entity,
+              () -> generateMetadata(Optional.of(entity), reflector.reflect(entity), subtrees)),
+          executor);
+    }
+
+    /**
+     * @see #generate(Class)
+     * @see MetadataGenerator#updateMetadata(EntityMetadata, Class)
+     */
+    public CompletableFuture<GenerationResult> update(EntityMetadata original, Class<?> entity) {
+      return CompletableFuture.supplyAsync(
+          () -> generateOne(entity,
+              () -> updateMetadata(original, Optional.of(entity), reflector.reflect(entity),
+                  subtrees)),
+          executor);
+    }
   }
 
   public EntityInfo generateInfo(Class<?> entity) {
     BeanMirror beanMirror = reflector.reflect(entity);
-    return generateInfo(beanMirror, Optional.empty());
+    return generate(Optional.of(entity), beanMirror, Optional.empty(), Optional.empty(),
+        new SubtreeMemo()).getEntityInfo();
   }
 
   public EntityInfo updateInfo(EntityInfo info, Class<?> entity) {
@@ -87,12 +245,14 @@ public class MetadataGenerator {
           + "generated entity info.");
     }
 
-    return generateInfo(beanMirror, Optional.of(info));
+    return generate(Optional.of(entity), beanMirror, Optional.of(info), Optional.empty(),
+        new SubtreeMemo()).getEntityInfo();
   }
 
   public EntitySchema generateSchema(Class<?> entity) {
     BeanMirror beanMirror = reflector.reflect(entity);
-    return generateSchema(beanMirror, Optional.empty());
+    return generate(Optional.of(entity), beanMirror, Optional.empty(), Optional.empty(),
+        new SubtreeMemo()).getEntitySchema();
   }
 
   public EntitySchema updateSchema(EntitySchema schema, Class<?> entity) {
@@ -103,31 +263,88 @@ public class MetadataGenerator {
           + "generated entity schema.");
     }
 
-    return generateSchema(beanMirror, Optional.of(schema));
+    return generate(Optional.of(entity), beanMirror, Optional.empty(), Optional.of(schema),
+        new SubtreeMemo()).getEntitySchema();
   }
 
-  private EntityInfo generateInfo(BeanMirror beanMirror, Optional<EntityInfo> maybeOriginal) {
-    EntityInfo info = new EntityInfo(beanMirror.getEntityName());
-    Enums enums = info.getEnums();
+  private EntityMetadata generateMetadata(Optional<Class<?>> entity, BeanMirror beanMirror,
+      SubtreeMemo subtrees) {
+    return generate(entity, beanMirror, Optional.empty(), Optional.empty(), subtrees);
+  }
 
-    for (FieldMirror fieldMirror : beanMirror.getFields()) {
-      if (fieldMirror.javaType().isEnum()) {
-        EnumMirror enumMirror = fieldMirror.enumMirror().get();
+  private EntityMetadata updateMetadata(EntityMetadata original, Optional<Class<?>> entity,
+      BeanMirror beanMirror, SubtreeMemo subtrees) {
+    return generate(entity, beanMirror, Optional.of(original.getEntityInfo()),
+        Optional.of(original.getEntitySchema()), subtrees);
+  }
+
+  /**
+   * Walks the entity's bean graph once, building the schema's fields and collecting the enums of
+   * fields at any depth for the info.
+   */
+  private EntityMetadata generate(Optional<Class<?>> entity, BeanMirror beanMirror,
+      Optional<EntityInfo> maybeOriginalInfo, Optional<EntitySchema> maybeOriginalSchema,
+      SubtreeMemo subtrees) {
+    EntitySchema schema = generateSchema(beanMirror, maybeOriginalSchema);
+    Frame root = Frame.root(entity, beanMirror, schema.getFields(),
+        maybeOriginalSchema.map(EntitySchema::getFields));
+
+    addFields(root, subtrees);
 
-        Enum generatedEnum = new Enum(enumMirror.name());
-        Set<EnumValue> enumValues = new HashSet<>();
+    EntityInfo info = generateInfo(beanMirror.getEntityName(), root.enums.values(),
+        maybeOriginalInfo);
+
+    return new EntityMetadata(info, schema);
+  }
 
-        for (EnumValueMirror enumValueMirror : enumMirror.values()) {
-          String enumName = enumValueMirror.name();
-          String enumDescription = enumValueMirror.description().orElse(null);
-          enumValues.add(new EnumValue(enumName, enumDescription));
+  private static GenerationResult generateOne(Class<?> entity,
+      Supplier<EntityMetadata> generator) {
+    try {
+      return GenerationResult.success(entity, generator.get());
+    } catch (RuntimeException e) {
+      return GenerationResult.failure(entity, e);
+    }
+  }
+
+  private static List<GenerationResult> joinAll(
+      List<CompletableFuture<GenerationResult>> futures) {
+    List<GenerationResult> results = new ArrayList<>(futures.size());
+
+    for (CompletableFuture<GenerationResult> future : futures) {
+      try {
+        results.add(future.join());
+      } catch (CompletionException e) {
+        // generateOne catches runtime exceptions, so only errors get here
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
         }
 
-        generatedEnum.setValues(enumValues);
-        enums.addEnum(generatedEnum);
+        throw e;
       }
     }
 
+    return results;
+  }
+
+  private EntityInfo generateInfo(String entityName, Collection<EnumMirror> enumMirrors,
+      Optional<EntityInfo> maybeOriginal) {
+    EntityInfo info = new EntityInfo(entityName);
+    Enums enums = info.getEnums();
+
+    for (EnumMirror enumMirror : enumMirrors) {
+      Enum generatedEnum = new Enum(enumMirror.name());
+      Set<EnumValue> enumValues = new HashSet<>();
+
+      for (EnumValueMirror enumValueMirror : enumMirror.values()) {
+        String enumName = enumValueMirror.name();
+        String enumDescription = enumValueMirror.description().orElse(null);
+        enumValues.add(new EnumValue(enumName, enumDescription));
+      }
+
+      generatedEnum.setValues(enumValues);
+      enums.addEnum(generatedEnum);
+    }
+
     maybeOriginal.ifPresent(original -> {
       info.getIndexes().setIndexes(original.getIndexes().getIndexes());
       info.getHooks().setHooks(original.getHooks().getHooks());
@@ -138,7 +355,11 @@ public class MetadataGenerator {
     return info;
   }
 
-  private EntitySchema generateSchema(BeanMirror beanMirror, Optional<EntitySchema> maybeOriginal) {
+  /**
+   * Generates the schema, without fields.
+   */
+  private EntitySchema generateSchema(BeanMirror beanMirror,
+      Optional<EntitySchema> maybeOriginal) {
     EntitySchema schema = new EntitySchema(beanMirror.getEntityName());
     schema.setStatus(MetadataStatus.ACTIVE);
 
@@ -165,19 +386,74 @@ public class MetadataGenerator {
           new Version(versionMirror.getVersion(), extendsVersionsArr, versionMirror.getChangelog()));
     });
 
-    addFieldsFromBeanMirror(beanMirror, schema.getFields(),
-        maybeOriginal.map(EntitySchema::getFields));
-
     return schema;
   }
 
-  private void addFieldsFromBeanMirror(BeanMirror beanMirror, Fields fields,
-      Optional<Fields> maybeOriginal) {
+  /**
+   * Adds fields for the root frame and every object nested within it. Nested objects are visited
+   * depth first from an explicit stack, rather than by recursion, so deep object graphs do not
+   * exhaust the thread's stack.
+   */
+  private void addFields(Frame root, SubtreeMemo subtrees) {
+    Deque<Frame> stack = new ArrayDeque<>();
+    stack.push(root);
+
+    while (!stack.isEmpty()) {
+      Frame frame = stack.pop();
+
+      if (frame.expanded) {
+        frame.complete(subtrees);
+        continue;
+      }
+
+      if (frame.type.isPresent()) {
+        Optional<SubtreeMemo.Subtree> copied = subtrees.copyInto(frame.fields,
+            frame.type.get(), frame.maybeOriginal, maxDepth - frame.depth);
+
+        if (copied.isPresent()) {
+          frame.height = copied.get().height();
+          copied.get().enums().forEach(frame::addEnum);
+          frame.complete(subtrees);
+          continue;
+        }
+      }
+
+      // Revisit the frame once all of its nested frames are complete
+      frame.expanded = true;
+      stack.push(frame);
+
+      List<Frame> nested = addFieldsFromBeanMirror(frame);
+
+      for (int i = nested.size() - 1; i >= 0; i--) {
+        stack.push(nested.get(i));
+      }
+    }
+  }
+
+  /**
+   * Adds the frame's fields, leaving the fields of nested objects to the returned frames.
+   */
+  private List<Frame> addFieldsFromBeanMirror(Frame frame) {
+    BeanMirror beanMirror = frame.beanMirror.orElseGet(() -> reflector.reflect(frame.type.get()));
+    Optional<Fields> maybeOriginal = frame.maybeOriginal;
+    List<Frame> nested = new ArrayList<>();
+
     for (FieldMirror fieldMirror : beanMirror.getFields()) {
       String name = fieldMirror.name();
       Optional<Field> maybeOriginalField = maybeOriginal.map(o -> o.getField(name));
 
-      Field field = getFieldFromFieldMirror(fieldMirror, maybeOriginalField);
+      Optional<Field> maybeField = getFieldFromFieldMirror(fieldMirror, maybeOriginalField, frame,
+          nested);
+
+      if (!maybeField.isPresent()) {
+        continue;
+      }
+
+      if (fieldMirror.javaType().isEnum()) {
+        frame.addEnum(fieldMirror.enumMirror().get());
+      }
+
+      Field field = maybeField.get();
       field.setConstraints(getConstraintsForBeanField(fieldMirror));
       fieldMirror.description().ifPresent(field::setDescription);
 
@@ -195,27 +471,35 @@ public class MetadataGenerator {
         access.getUpdate().setRoles(originalAccess.getUpdate());
       });
 
-      fields.addNew(field);
+      frame.fields.addNew(field);
     }
+
+    return nested;
   }
 
-  private Field getFieldFromFieldMirror(FieldMirror fieldMirror, Optional<Field> maybeOriginal) {
+  /**
+   * @return The field, or empty if it is omitted per the {@link RecursionPolicy}.
+   */
+  private Optional<Field> getFieldFromFieldMirror(FieldMirror fieldMirror,
+      Optional<Field> maybeOriginal, Frame frame, List<Frame> nested) {
     Class<?> javaType = fieldMirror.javaType();
     String name = fieldMirror.name();
 
-    Type type = getTypeForClass(javaType);
+    Type type = typeMappers.typeOf(javaType);
 
     if (isSimpleFieldType(type)) {
       // Ignore original in this case
-      return new SimpleField(name, type);
+      return Optional.of(new SimpleField(name, type));
     }
 
     if (ArrayType.TYPE.equals(type)) {
-      Class<?> elementJavaType = fieldMirror.elementJavaType().get();
-      Type arrayElementType = getTypeForClass(elementJavaType);
+      Class<?> elementJavaType = javaType.isArray()
+          ? javaType.getComponentType()
+          : fieldMirror.elementJavaType().get();
+      Type arrayElementType = typeMappers.typeOf(elementJavaType);
 
       if (isSimpleFieldType(arrayElementType)) {
-        return new ArrayField(name, new SimpleArrayElement(arrayElementType));
+        return Optional.of(new ArrayField(name, new SimpleArrayElement(arrayElementType)));
       }
 
       if (ObjectType.TYPE.equals(arrayElementType)) {
@@ -238,10 +522,12 @@ public class MetadataGenerator {
           return Optional.of(originalObjectElement.getFields());
         });
 
-        addFieldsFromBeanMirror(reflector.reflect(elementJavaType), arrayElement.getFields(),
-            maybeOriginalElementFields);
+        if (!addNestedFrame(frame, name + ".*", elementJavaType, arrayElement.getFields(),
+            maybeOriginalElementFields, nested)) {
+          return Optional.empty();
+        }
 
-        return new ArrayField(name, arrayElement);
+        return Optional.of(new ArrayField(name, arrayElement));
       }
 
       throw new UnsupportedOperationException("Unsupported array element type: " + arrayElementType);
@@ -259,10 +545,46 @@ public class MetadataGenerator {
       return Optional.of(originalObject.getFields());
     });
 
-    addFieldsFromBeanMirror(reflector.reflect(javaType), objectField.getFields(),
-        maybeOriginalObjectFields);
+    if (!addNestedFrame(frame, name, javaType, objectField.getFields(), maybeOriginalObjectFields,
+        nested)) {
+      return Optional.empty();
+    }
 
-    return objectField;
+    return Optional.of(objectField);
+  }
+
+  /**
+   * Adds a frame to generate the fields of an object nested within {@code parent}, unless it is
+   * too deep or recursive, in which case the {@link RecursionPolicy} applies.
+   *
+   * @return False if the object's field should be omitted.
+   */
+  private boolean addNestedFrame(Frame parent, String relativePath, Class<?> type, Fields fields,
+      Optional<Fields> maybeOriginal, List<Frame> nested) {
+    Frame frame = parent.nested(relativePath, type, fields, maybeOriginal);
+
+    final String problem;
+
+    if (frame.depth > maxDepth) {
+      problem = "it is nested deeper than the maximum depth of " + maxDepth;
+    } else if (parent.isWithin(type)) {
+      problem = "its type is recursive: " + type.getName();
+    } else {
+      nested.add(frame);
+      return true;
+    }
+
+    switch (recursionPolicy) {
+      case EMPTY_OBJECT:
+        parent.markTruncated();
+        return true;
+      case OMIT:
+        parent.markTruncated();
+        return false;
+      default:
+        throw new IllegalArgumentException("Cannot generate field " + frame.path + " because "
+            + problem);
+    }
   }
 
   private Collection<FieldConstraint> getConstraintsForBeanField(FieldMirror fieldMirror) {
@@ -343,49 +665,93 @@ public class MetadataGenerator {
     });
   }
 
-  private Type getTypeForClass(Class<?> type) {
-    if (type.equals(String.class) || type.isEnum()) {
-      return StringType.TYPE;
-    }
-
-    if (type.equals(boolean.class) || type.equals(Boolean.class)) {
-      return BooleanType.TYPE;
-    }
+  private static boolean isSimpleFieldType(Type type) {
+    return !(type.equals(ObjectType.TYPE) || type.equals(ArrayType.TYPE));
+  }
 
-    if (type.equals(Date.class) || Temporal.class.isAssignableFrom(type)) {
-      return DateType.TYPE;
+  /**
+   * An object whose fields are to be generated: either an entity, or an object nested within
+   * one.
+   */
+  private static final class Frame {
+    /** Empty only for an entity reflected on without its class. */
+    final Optional<Class<?>> type;
+    /** Present only for the entity. */
+    final Optional<BeanMirror> beanMirror;
+    final Optional<Frame> parent;
+    final String path;
+    final int depth;
+    final Fields fields;
+    final Optional<Fields> maybeOriginal;
+    /** Enums of fields within this frame at any depth, by name. */
+    final Map<String, EnumMirror> enums = new LinkedHashMap<>();
+
+    boolean expanded = false;
+    /** Whether any object within this frame was cut short by the {@link RecursionPolicy}. */
+    boolean truncated = false;
+    /** Depth of the most deeply nested object within this frame, relative to it. */
+    int height = 0;
+
+    private Frame(Optional<Class<?>> type, Optional<BeanMirror> beanMirror,
+        Optional<Frame> parent, String path, int depth, Fields fields,
+        Optional<Fields> maybeOriginal) {
+      this.type = type;
+      this.beanMirror = beanMirror;
+      this.parent = parent;
+      this.path = path;
+      this.depth = depth;
+      this.fields = fields;
+      this.maybeOriginal = maybeOriginal;
     }
 
-    if (type.equals(BigDecimal.class)) {
-      return BigDecimalType.TYPE;
+    static Frame root(Optional<Class<?>> entity, BeanMirror beanMirror, Fields fields,
+        Optional<Fields> maybeOriginal) {
+      return new Frame(entity, Optional.of(beanMirror), Optional.empty(), "", 0, fields,
+          maybeOriginal);
     }
 
-    if (type.equals(BigInteger.class)) {
-      return BigIntegerType.TYPE;
+    Frame nested(String relativePath, Class<?> type, Fields fields,
+        Optional<Fields> maybeOriginal) {
+      return new Frame(Optional.of(type), Optional.empty(), Optional.of(this),
+          path.isEmpty() ? relativePath : path + "." + relativePath, depth + 1, fields,
+          maybeOriginal);
     }
 
-    if (type.equals(byte[].class)) {
-      return BinaryType.TYPE;
-    }
+    boolean isWithin(Class<?> type) {
+      for (Optional<Frame> frame = Optional.of(this); frame.isPresent();
+          frame = frame.get().parent) {
+        if (frame.get().type.equals(Optional.of(type))) {
+          return true;
+        }
+      }
 
-    if (type.equals(double.class) || type.equals(Double.class)) {
-      return DoubleType.TYPE;
+      return false;
     }
 
-    if (type.equals(int.class) || type.equals(Integer.class)) {
-      return IntegerType.TYPE;
+    void addEnum(EnumMirror enumMirror) {
+      enums.putIfAbsent(enumMirror.name(), enumMirror);
     }
 
-    if (Iterable.class.isAssignableFrom(type)) {
-      return ArrayType.TYPE;
+    void markTruncated() {
+      for (Optional<Frame> frame = Optional.of(this); frame.isPresent() && !frame.get().truncated;
+          frame = frame.get().parent) {
+        frame.get().truncated = true;
+      }
     }
 
-    // TODO: Reference type, UUID type
-
-    return ObjectType.TYPE;
-  }
+    /**
+     * Called once the fields of this frame and every frame nested within it are generated.
+     */
+    void complete(SubtreeMemo subtrees) {
+      parent.ifPresent(p -> {
+        p.height = Math.max(p.height, height + 1);
+        enums.values().forEach(p::addEnum);
+      });
 
-  private static boolean isSimpleFieldType(Type type) {
-    return !(type.equals(ObjectType.TYPE) || type.equals(ArrayType.TYPE));
+      // Truncated fields depend on where the object is nested, so may not be reused elsewhere
+      if (parent.isPresent() && !truncated) {
+        subtrees.remember(fields, type.get(), maybeOriginal, height, enums.values());
+      }
+    }
   }
 }
@@ -0,0 +1,245 @@
+package com.redhat.lightblue.generator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.redhat.lightblue.metadata.ArrayElement;
+import com.redhat.lightblue.metadata.ArrayField;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.EntitySchema;
+import com.redhat.lightblue.metadata.Field;
+import com.redhat.lightblue.metadata.FieldConstraint;
+import com.redhat.lightblue.metadata.Fields;
+import com.redhat.lightblue.metadata.MetadataObject;
+import com.redhat.lightblue.metadata.ObjectArrayElement;
+import com.redhat.lightblue.metadata.ObjectField;
+import com.redhat.lightblue.metadata.ReferenceField;
+import com.redhat.lightblue.metadata.SimpleField;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes entity metadata as JSON directly to a {@link JsonGenerator}, producing the same output as
+ * converting it with {@link JSONMetadataParser#convert(EntityMetadata)} and writing the resulting
+ * tree.
+ *
+ * <p>Fields, which make up the bulk of a schema, are streamed as they are visited, so no tree of
+ * the whole entity is ever built. Only the parts of each object which lightblue's parser
+ * extensions are responsible for, like constraints, value generators, properties, and the entity
+ * info, are still converted with {@code parser}, one object at a time.
+ */
+public class MetadataJsonWriter {
+  /** Creates the nodes this writer fills in, rather than the parser's own extensions. */
+  private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+  /** Marks where a streamed member goes among the members converted by the parser. */
+  private static final JsonNode STREAMED = FACTORY.textNode("streamed");
+
+  private final JSONMetadataParser parser;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  public MetadataJsonWriter(JSONMetadataParser parser) {
+    this.parser = parser;
+  }
+
+  /**
+   * Writes {@code metadata} to {@code out} with the default pretty printer, like
+   * {@code new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(out, json)} would. Does
+   * not close {@code out}.
+   */
+  public void write(EntityMetadata metadata, Writer out) throws IOException {
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setPrettyPrinter(new DefaultPrettyPrinter());
+      write(metadata, generator);
+    }
+  }
+
+  public void write(EntityMetadata metadata, JsonGenerator generator) throws IOException {
+    // Providers are not thread-safe, so get one per entity rather than per member
+    SerializerProvider provider = mapper.getSerializerProviderInstance();
+    ObjectNode node = FACTORY.objectNode();
+    node.set("entityInfo", parser.convert(metadata.getEntityInfo()));
+    node.set("schema", STREAMED);
+    convertProperties(metadata, node);
+
+    writeObject(node, generator, provider,
+        () -> writeSchema(metadata.getEntitySchema(), generator, provider));
+  }
+
+  private void writeSchema(EntitySchema schema, JsonGenerator generator,
+      SerializerProvider provider) throws IOException {
+    ObjectNode node = FACTORY.objectNode();
+
+    if (schema.getName() != null) {
+      node.put("name", schema.getName());
+    }
+
+    node.set("version", parser.convert(schema.getVersion()));
+    node.set("status", parser.convert(schema.getStatus(), schema.getStatusChangeLog()));
+    node.set("access", parser.convert(schema.getAccess()));
+    node.set("fields", STREAMED);
+    parser.convertEntityConstraints(node, schema.getConstraints());
+    convertProperties(schema, node);
+
+    writeObject(node, generator, provider,
+        () -> writeFields(schema.getFields(), generator, provider));
+  }
+
+  private void writeFields(Fields fields, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    generator.writeStartObject();
+
+    for (Iterator<Field> i = fields.getFields(); i.hasNext(); ) {
+      Field field = i.next();
+      generator.writeFieldName(field.getName());
+      writeField(field, generator, provider);
+    }
+
+    generator.writeEndObject();
+  }
+
+  private void writeField(Field field, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    StreamedMember nested = () -> {};
+    String nestedName = null;
+
+    if (field instanceof ArrayField) {
+      nestedName = "items";
+      nested = () -> writeArrayElement(((ArrayField) field).getElement(), generator, provider);
+    } else if (field instanceof ObjectField) {
+      nestedName = "fields";
+      nested = () -> writeFields(((ObjectField) field).getFields(), generator, provider);
+    }
+
+    Map<String, Object> properties = field.getProperties();
+
+    if (properties.containsKey("type") || properties.containsKey("description")
+        || (nestedName != null && properties.containsKey(nestedName))) {
+      // A property replaces a member in place, so everything has to be converted up front
+      ObjectNode node = FACTORY.objectNode();
+      node.put("type", field.getType().getName());
+      node.put("description", field.getDescription());
+
+      if (nestedName != null) {
+        node.set(nestedName, STREAMED);
+      }
+
+      convertTrailingMembers(field, parser.convert(field.getAccess()), field.getConstraints(),
+          node);
+      writeObject(node, generator, provider, nested);
+      return;
+    }
+
+    generator.writeStartObject();
+    generator.writeStringField("type", field.getType().getName());
+    generator.writeStringField("description", field.getDescription());
+
+    if (nestedName != null) {
+      generator.writeFieldName(nestedName);
+      nested.write();
+    }
+
+    JsonNode access = parser.convert(field.getAccess());
+    // Copied by every call
+    List<FieldConstraint> constraints = field.getConstraints();
+
+    // Most generated fields have none of these, and need no node at all
+    if (field instanceof ReferenceField || access != null || !constraints.isEmpty()
+        || !properties.isEmpty() || (field instanceof SimpleField
+            && ((SimpleField) field).getValueGenerator() != null)) {
+      ObjectNode node = FACTORY.objectNode();
+      convertTrailingMembers(field, access, constraints, node);
+      writeMembers(node, generator, provider, () -> {});
+    }
+
+    generator.writeEndObject();
+  }
+
+  /**
+   * Converts the members which follow the type, description, and nested fields or items of a
+   * field, in the same order as {@link JSONMetadataParser#convert(Fields)}.
+   */
+  private void convertTrailingMembers(Field field, JsonNode access,
+      List<FieldConstraint> constraints, ObjectNode node) {
+    if (field instanceof ReferenceField) {
+      ReferenceField reference = (ReferenceField) field;
+      node.put("entity", reference.getEntityName());
+      node.put("versionValue", reference.getVersionValue());
+      parser.putProjection(node, "projection", reference.getProjection());
+      parser.putQuery(node, "query", reference.getQuery());
+      parser.putSort(node, "sort", reference.getSort());
+    } else if (field instanceof SimpleField) {
+      parser.convertValueGenerator(((SimpleField) field).getValueGenerator(), node);
+    }
+
+    if (access != null) {
+      node.set("access", access);
+    }
+
+    parser.convertFieldConstraints(node, constraints);
+    convertProperties(field, node);
+  }
+
+  private void writeArrayElement(ArrayElement element, JsonGenerator generator,
+      SerializerProvider provider) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("type", element.getType().getName());
+
+    if (element instanceof ObjectArrayElement) {
+      generator.writeFieldName("fields");
+      writeFields(((ObjectArrayElement) element).getFields(), generator, provider);
+    }
+
+    generator.writeEndObject();
+  }
+
+  /**
+   * Equivalent to the parser's own (private) conversion of properties, which uses the same
+   * property parsers.
+   */
+  private void convertProperties(MetadataObject object, JsonNode node) {
+    for (Map.Entry<String, Object> property : object.getProperties().entrySet()) {
+      parser.getExtensions().getPropertyParser(property.getKey())
+          .convertProperty(parser, node, property.getKey(), property.getValue());
+    }
+  }
+
+  /**
+   * Writes the members of {@code node} in order, running {@code streamed} in place of the member
+   * marked {@link #STREAMED}. If a property replaced that member, the property is written instead,
+   * as it would be in the converted tree.
+   */
+  private static void writeObject(ObjectNode node, JsonGenerator generator,
+      SerializerProvider provider, StreamedMember streamed) throws IOException {
+    generator.writeStartObject();
+    writeMembers(node, generator, provider, streamed);
+    generator.writeEndObject();
+  }
+
+  private static void writeMembers(ObjectNode node, JsonGenerator generator,
+      SerializerProvider provider, StreamedMember streamed) throws IOException {
+    for (Iterator<Map.Entry<String, JsonNode>> i = node.fields(); i.hasNext(); ) {
+      Map.Entry<String, JsonNode> member = i.next();
+      generator.writeFieldName(member.getKey());
+
+      if (member.getValue() == STREAMED) {
+        streamed.write();
+      } else {
+        member.getValue().serialize(generator, provider);
+      }
+    }
+  }
+
+  private interface StreamedMember {
+    void write() throws IOException;
+  }
+}
@@ -0,0 +1,355 @@
+package com.redhat.lightblue.generator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.lightblue.generator.classfile.EntityScanner;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Generates metadata for many entities in parallel, and writes it to files or a
+ * {@link MetadataBundle}, updating metadata which was written before.
+ *
+ * <p>Each entity succeeds or fails on its own: whatever one throws is logged, and counted as a
+ * {@link Outcome#FAILED failure}, while the rest are still written.
+ */
+public class MetadataPipeline {
+  /** Files written at once; more rarely helps, since each is synced to disk. */
+  private static final int WRITER_THREADS = 2;
+  /** Rendered entities waiting to be written before generating threads write their own. */
+  private static final int MAX_PENDING_WRITES = 64;
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final JSONMetadataParser parser;
+  private final MetadataFileWriter fileWriter;
+  private final int threads;
+  private final Log log;
+
+  /**
+   * @param parser Parses metadata which was written before, to update it.
+   * @param threads How many entities are generated at once.
+   */
+  public MetadataPipeline(JSONMetadataParser parser, MetadataFileWriter fileWriter, int threads,
+      Log log) {
+    this.parser = parser;
+    this.fileWriter = fileWriter;
+    this.threads = threads;
+    this.log = log;
+  }
+
+  /**
+   * Generates and writes metadata for {@code entityClasses}, and those {@code scanner} finds in
+   * {@code roots}, if any.
+   *
+   * @param classLoader Loads the entities and their type mappers.
+   * @param manifest Skips entities which are unchanged, and records those which are written.
+   *                 Saved once all are, even if some failed.
+   * @param bundle Where metadata is written instead of to files in {@code outputDirectory}.
+   * @param trackEmbedded Whether to find the classes each entity embeds even without a manifest.
+   */
+  public Pass generate(ClassLoader classLoader, Reflector reflector,
+      Collection<String> entityClasses, Optional<EntityScanner> scanner, List<Path> roots,
+      Path outputDirectory, Optional<FingerprintManifest> manifest,
+      Optional<MetadataBundle> bundle, boolean trackEmbedded) throws IOException {
+    // Mappers packaged with the entities take precedence over the defaults
+    TypeMappers typeMappers = TypeMappers.load(classLoader);
+    MetadataGenerator generator = new MetadataGenerator(reflector, typeMappers);
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    // Overlaps writing with generating; once full, generating threads are slowed by writing
+    ExecutorService writers = new ThreadPoolExecutor(WRITER_THREADS, WRITER_THREADS, 0,
+        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING_WRITES),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    MetadataGenerator.Batch batch = generator.batch(pool);
+    Set<String> submitted = ConcurrentHashMap.newKeySet();
+    Queue<CompletableFuture<Outcome>> outcomes = new ConcurrentLinkedQueue<>();
+    Map<String, Set<String>> embedded = new ConcurrentHashMap<>();
+
+    // Called by scanning threads too, so entities are generated while others are still being found
+    Consumer<String> submit = className -> {
+      if (!submitted.add(className)) {
+        return;
+      }
+
+      if (manifest.isPresent() && manifest.get().isUnchanged(className)) {
+        outcomes.add(CompletableFuture.completedFuture(Outcome.SKIPPED));
+        return;
+      }
+
+      outcomes.add(generateAndWrite(className, classLoader, reflector, batch, outputDirectory,
+          bundle, writers)
+          .thenApply(outcome -> {
+            if (outcome.written && (manifest.isPresent() || trackEmbedded)) {
+              try {
+                Set<String> classNames = FingerprintManifest.embeddedClassNames(outcome.entity,
+                    reflector, typeMappers);
+                embedded.put(className, classNames);
+                manifest.ifPresent(m -> m.record(className, outcome.metadataJsonPath, classNames));
+              } catch (RuntimeException e) {
+                // Such as from reflecting on embedded types
+                log.error("Failed to find the classes embedded in " + className, e);
+                return Outcome.FAILED;
+              }
+            }
+
+            return outcome.outcome;
+          }));
+    };
+
+    boolean scanFailed = false;
+    Map<Outcome, Integer> counts = new EnumMap<>(Outcome.class);
+
+    try {
+      entityClasses.forEach(submit);
+
+      if (scanner.isPresent()) {
+        try {
+          scanner.get().scan(roots, pool, submit).join();
+        } catch (CompletionException e) {
+          scanFailed = true;
+          log.error("Failed to scan " + roots + " for entity classes", e.getCause());
+        }
+      }
+
+      // Nothing is submitted once scanning is done
+      for (CompletableFuture<Outcome> outcome : outcomes) {
+        counts.merge(outcome.join(), 1, Integer::sum);
+      }
+    } finally {
+      pool.shutdown();
+      writers.shutdown();
+
+      if (manifest.isPresent()) {
+        // Even after failures, so that entities which were written are skipped next time
+        manifest.get().save();
+      }
+    }
+
+    return new Pass(counts, scanFailed, embedded);
+  }
+
+  /**
+   * @return Completes with whether, and where, the entity's metadata was written.
+   */
+  private CompletableFuture<WriteResult> generateAndWrite(String className,
+      ClassLoader classLoader, Reflector reflector, MetadataGenerator.Batch batch,
+      Path outputDirectory, Optional<MetadataBundle> bundle, Executor writers) {
+    Class<?> entity;
+    String entityName;
+    Path metadataJsonPath;
+    Optional<EntityMetadata> existing;
+
+    try {
+      // Loading a class does not initialize it; only reflecting with JavaBeansReflector may
+      entity = Class.forName(className, false, classLoader);
+      entityName = reflector.reflect(entity).getEntityName();
+      metadataJsonPath = outputDirectory.resolve(entityName + ".json").toAbsolutePath();
+      existing = bundle.isPresent()
+          ? parseExistingMetadata(entityName + " in bundle", bundle.get().existing(entityName))
+          : readExistingMetadata(metadataJsonPath);
+    } catch (ClassNotFoundException | LinkageError | RuntimeException e) {
+      log.error("Failed to generate metadata for " + className, e);
+      return CompletableFuture.completedFuture(WriteResult.FAILED);
+    }
+
+    CompletableFuture<GenerationResult> result = existing.isPresent()
+        ? batch.update(existing.get(), entity)
+        : batch.generate(entity);
+    Outcome changed = existing.isPresent() ? Outcome.UPDATED : Outcome.CREATED;
+
+    // One entity which cannot be written fails alone, rather than the whole run
+    return result.thenApplyAsync(r -> {
+      Outcome outcome = bundle.isPresent()
+          ? write(r, entityName, bundle.get(), changed)
+          : write(r, metadataJsonPath, changed);
+      return outcome == Outcome.FAILED
+          ? WriteResult.FAILED
+          : new WriteResult(outcome, entity, metadataJsonPath);
+    }, writers).exceptionally(e -> {
+      log.error("Failed to generate metadata for " + className, e);
+      return WriteResult.FAILED;
+    });
+  }
+
+  /**
+   * @param changed The outcome if the file's content changes.
+   */
+  private Outcome write(GenerationResult result, Path metadataJsonPath, Outcome changed) {
+    if (!result.isSuccess()) {
+      log.error("Failed to generate metadata for " + result.entity().getName(),
+          result.failure().get());
+      return Outcome.FAILED;
+    }
+
+    try {
+      if (!fileWriter.write(result.metadata().get(), metadataJsonPath)) {
+        log.info("Unchanged " + metadataJsonPath);
+        return Outcome.UNCHANGED;
+      }
+    } catch (IOException | RuntimeException e) {
+      // Such as from converting metadata the parser cannot represent
+      log.error("Failed to write " + metadataJsonPath, e);
+      return Outcome.FAILED;
+    }
+
+    log.info("Wrote " + metadataJsonPath);
+    return changed;
+  }
+
+  /**
+   * @param changed The outcome if the entity's content in the bundle changes.
+   */
+  private Outcome write(GenerationResult result, String entityName, MetadataBundle bundle,
+      Outcome changed) {
+    if (!result.isSuccess()) {
+      log.error("Failed to generate metadata for " + result.entity().getName(),
+          result.failure().get());
+      return Outcome.FAILED;
+    }
+
+    try {
+      if (!bundle.write(entityName, result.metadata().get())) {
+        log.info("Unchanged " + entityName + " in bundle");
+        return Outcome.UNCHANGED;
+      }
+    } catch (IOException | RuntimeException e) {
+      // Such as another class having written the same entity name
+      log.error("Failed to write " + entityName + " to bundle", e);
+      return Outcome.FAILED;
+    }
+
+    log.info("Wrote " + entityName + " to bundle");
+    return changed;
+  }
+
+  private Optional<EntityMetadata> readExistingMetadata(Path metadataJsonPath) {
+    if (!Files.exists(metadataJsonPath)) {
+      return Optional.empty();
+    }
+
+    try {
+      return parseExistingMetadata(metadataJsonPath.toString(),
+          Optional.of(Files.readAllBytes(metadataJsonPath)));
+    } catch (IOException e) {
+      log.warn("Failed to read existing metadata in " + metadataJsonPath
+          + "; generating new metadata instead of updating", e);
+      return Optional.empty();
+    }
+  }
+
+  private Optional<EntityMetadata> parseExistingMetadata(String location,
+      Optional<byte[]> json) {
+    if (!json.isPresent()) {
+      return Optional.empty();
+    }
+
+    log.info(location + " already exists, updating...");
+
+    try {
+      JsonNode existingJsonNode = mapper.readTree(json.get());
+      return Optional.of(parser.parseEntityMetadata(existingJsonNode));
+    } catch (Exception e) {
+      log.warn("Failed to parse existing metadata in " + location
+          + "; generating new metadata instead of updating", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Where a pipeline reports its progress and failures, as a command line or build tool does.
+   */
+  public interface Log {
+    /** Progress, such as each file written. */
+    void info(String message);
+
+    /** A failure which is recovered from, such as existing metadata which cannot be parsed. */
+    void warn(String message, Throwable cause);
+
+    /** A failure which fails an entity, or the whole pass. */
+    void error(String message, Throwable cause);
+  }
+
+  public enum Outcome {
+    CREATED, UPDATED, UNCHANGED, SKIPPED, FAILED
+  }
+
+  public static final class Pass {
+    private final Map<Outcome, Integer> counts;
+    private final boolean scanFailed;
+    private final Map<String, Set<String>> embedded;
+
+    Pass(Map<Outcome, Integer> counts, boolean scanFailed, Map<String, Set<String>> embedded) {
+      this.counts = counts;
+      this.scanFailed = scanFailed;
+      this.embedded = embedded;
+    }
+
+    public int count(Outcome outcome) {
+      return counts.getOrDefault(outcome, 0);
+    }
+
+    /**
+     * @return Whether any entity failed, or scanning for them did.
+     */
+    public boolean failed() {
+      return scanFailed || count(Outcome.FAILED) > 0;
+    }
+
+    /**
+     * @return Entity class names by the classes they embed, including themselves, for the entities
+     * which were written while a manifest was kept or embedded classes were tracked.
+     */
+    public Map<String, Set<String>> embedded() {
+      return embedded;
+    }
+
+    /**
+     * @return How many entities had each outcome, such as
+     * {@code Created 2, updated 0, unchanged 1, skipped 0, failed 0}.
+     */
+    public String summary() {
+      return "Created " + count(Outcome.CREATED) + ", updated " + count(Outcome.UPDATED)
+          + ", unchanged " + count(Outcome.UNCHANGED) + ", skipped " + count(Outcome.SKIPPED)
+          + ", failed " + count(Outcome.FAILED);
+    }
+  }
+
+  private static final class WriteResult {
+    static final WriteResult FAILED = new WriteResult(Outcome.FAILED, null, null);
+
+    final Outcome outcome;
+    final boolean written;
+    final Class<?> entity;
+    final Path metadataJsonPath;
+
+    WriteResult(Outcome outcome, Class<?> entity, Path metadataJsonPath) {
+      this.outcome = outcome;
+      this.written = outcome != Outcome.FAILED;
+      this.entity = entity;
+      this.metadataJsonPath = metadataJsonPath;
+    }
+  }
+}
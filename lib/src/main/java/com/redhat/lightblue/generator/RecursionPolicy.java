@@ -0,0 +1,23 @@
+package com.redhat.lightblue.generator;
+
+/**
+ * What {@link MetadataGenerator} does with an object field which is nested deeper than its
+ * maximum depth, or whose type is the same as the type of an object which encloses it (such as
+ * {@code Category.parent}).
+ */
+public enum RecursionPolicy {
+  /**
+   * Throw an {@link IllegalArgumentException} naming the path of the offending field.
+   */
+  FAIL,
+
+  /**
+   * Generate the field as an object, or array of objects, without any fields.
+   */
+  EMPTY_OBJECT,
+
+  /**
+   * Leave the field out.
+   */
+  OMIT
+}
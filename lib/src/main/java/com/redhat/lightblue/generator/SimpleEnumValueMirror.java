@@ -17,6 +17,11 @@ public class SimpleEnumValueMirror implements EnumValueMirror {
     return Enum.valueOf(enumClass, field.getName()).toString();
   }
 
+  @Override
+  public String constantName() {
+    return field.getName();
+  }
+
   @Override
   public Optional<String> description() {
     return Optional.ofNullable(field.getAnnotation(Description.class))
@@ -0,0 +1,157 @@
+package com.redhat.lightblue.generator;
+
+import com.redhat.lightblue.metadata.ArrayElement;
+import com.redhat.lightblue.metadata.ArrayField;
+import com.redhat.lightblue.metadata.Field;
+import com.redhat.lightblue.metadata.Fields;
+import com.redhat.lightblue.metadata.ObjectArrayElement;
+import com.redhat.lightblue.metadata.ObjectField;
+import com.redhat.lightblue.metadata.SimpleArrayElement;
+import com.redhat.lightblue.metadata.SimpleField;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the fields generated for nested object types during one generation run, so that a
+ * type embedded many times is only generated once and then copied.
+ *
+ * <p>Lightblue fields point to their parents, so generated trees cannot be shared outright.
+ * Copies share everything below the tree's nodes instead: types, constraints, and value
+ * generators.
+ *
+ * <p>Thread-safe, so that one run may span many entities generated concurrently.
+ */
+final class SubtreeMemo {
+  private final ConcurrentMap<Key, Subtree> generated = new ConcurrentHashMap<>();
+
+  /**
+   * Copies previously generated fields for {@code type} into {@code target}.
+   *
+   * @param original The original fields which the remembered fields were updated from, if any.
+   * Compared by identity.
+   * @param maxHeight Only copy fields whose objects are nested at most this deep.
+   * @return The remembered subtree which was copied, or empty if none was suitable.
+   */
+  Optional<Subtree> copyInto(Fields target, Class<?> type, Optional<Fields> original,
+      int maxHeight) {
+    Subtree remembered = generated.get(new Key(type, original.orElse(null)));
+
+    if (remembered == null || remembered.height > maxHeight) {
+      return Optional.empty();
+    }
+
+    copyFields(remembered.fields, target);
+    return Optional.of(remembered);
+  }
+
+  /**
+   * @param fields Completely generated fields, which must not be modified afterwards.
+   * @param height How deeply objects are nested within {@code fields}; 0 if none are.
+   * @param enums Enums of fields at any depth within {@code fields}.
+   */
+  void remember(Fields fields, Class<?> type, Optional<Fields> original, int height,
+      Collection<EnumMirror> enums) {
+    generated.putIfAbsent(new Key(type, original.orElse(null)),
+        new Subtree(fields, height, new ArrayList<>(enums)));
+  }
+
+  private static void copyFields(Fields source, Fields target) {
+    for (Iterator<Field> fields = source.getFields(); fields.hasNext(); ) {
+      target.addNew(copyField(fields.next()));
+    }
+  }
+
+  private static Field copyField(Field source) {
+    final Field copy;
+
+    if (source instanceof SimpleField) {
+      copy = new SimpleField(source.getName());
+    } else if (source instanceof ObjectField) {
+      ObjectField objectField = new ObjectField(source.getName());
+      copyFields(((ObjectField) source).getFields(), objectField.getFields());
+      copy = objectField;
+    } else if (source instanceof ArrayField) {
+      copy = new ArrayField(source.getName(), copyElement(((ArrayField) source).getElement()));
+    } else {
+      throw new IllegalArgumentException("Unsupported field: " + source);
+    }
+
+    copy.shallowCopyFrom(source);
+    return copy;
+  }
+
+  private static ArrayElement copyElement(ArrayElement source) {
+    final ArrayElement copy;
+
+    if (source instanceof SimpleArrayElement) {
+      SimpleArrayElement simpleElement = new SimpleArrayElement(source.getType());
+      simpleElement.setConstraints(((SimpleArrayElement) source).getConstraints());
+      copy = simpleElement;
+    } else if (source instanceof ObjectArrayElement) {
+      ObjectArrayElement objectElement = new ObjectArrayElement();
+      copyFields(((ObjectArrayElement) source).getFields(), objectElement.getFields());
+      copy = objectElement;
+    } else {
+      throw new IllegalArgumentException("Unsupported array element: " + source);
+    }
+
+    copy.getProperties().putAll(source.getProperties());
+    return copy;
+  }
+
+  static final class Subtree {
+    private final Fields fields;
+    private final int height;
+    private final List<EnumMirror> enums;
+
+    private Subtree(Fields fields, int height, List<EnumMirror> enums) {
+      this.fields = fields;
+      this.height = height;
+      this.enums = enums;
+    }
+
+    int height() {
+      return height;
+    }
+
+    List<EnumMirror> enums() {
+      return enums;
+    }
+  }
+
+  private static final class Key {
+    private final Class<?> type;
+    private final Fields original;
+
+    Key(Class<?> type, Fields original) {
+      this.type = type;
+      this.original = original;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      Key key = (Key) o;
+      return type == key.type && original == key.original;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, System.identityHashCode(original));
+    }
+  }
+}
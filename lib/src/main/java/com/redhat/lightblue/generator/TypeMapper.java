@@ -0,0 +1,23 @@
+package com.redhat.lightblue.generator;
+
+import com.redhat.lightblue.metadata.Type;
+
+import java.util.Optional;
+
+/**
+ * Maps java types of bean properties to lightblue types.
+ *
+ * <p>Mappers may be passed to {@link TypeMappers} directly, or discovered by
+ * {@link TypeMappers#load(ClassLoader)} when listed in
+ * {@code META-INF/services/com.redhat.lightblue.generator.TypeMapper}. Either way they take
+ * precedence over the default mappings, so may also be used to override them.
+ */
+public interface TypeMapper {
+  /**
+   * @return The lightblue type for {@code javaType}, or empty to leave it to the next mapper.
+   * Return {@link com.redhat.lightblue.metadata.types.ObjectType} to generate fields from the
+   * type's bean properties, or {@link com.redhat.lightblue.metadata.types.ArrayType} for a
+   * collection.
+   */
+  Optional<Type> typeOf(Class<?> javaType);
+}
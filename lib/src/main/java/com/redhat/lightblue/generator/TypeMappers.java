@@ -0,0 +1,72 @@
+package com.redhat.lightblue.generator;
+
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.ObjectType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.ServiceLoader;
+
+/**
+ * Resolves java types to lightblue types by consulting {@link TypeMapper}s in order, followed by
+ * the default mappings. Types no mapper recognizes are objects. Each java type is resolved once;
+ * later lookups of the same type are answered from a {@link ClassValue}.
+ *
+ * <p>Thread-safe, provided the mappers are.
+ */
+public final class TypeMappers {
+  private final List<TypeMapper> mappers;
+
+  private final ClassValue<Type> types = new ClassValue<Type>() {
+    @Override
+    protected Type computeValue(Class<?> javaType) {
+      for (TypeMapper mapper : mappers) {
+        Optional<Type> type = mapper.typeOf(javaType);
+
+        if (type.isPresent()) {
+          return type.get();
+        }
+      }
+
+      return ObjectType.TYPE;
+    }
+  };
+
+  /**
+   * @param mappers Consulted in iteration order, before the default mappings.
+   */
+  public TypeMappers(Iterable<? extends TypeMapper> mappers) {
+    List<TypeMapper> list = new ArrayList<>();
+    mappers.forEach(list::add);
+    list.add(DefaultTypeMapper.INSTANCE);
+    this.mappers = Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Only the default mappings.
+   */
+  public static TypeMappers defaults() {
+    return new TypeMappers(Collections.emptyList());
+  }
+
+  /**
+   * {@link TypeMapper}s discovered from {@code classLoader} using {@link ServiceLoader}, followed by
+   * the default mappings.
+   */
+  public static TypeMappers load(ClassLoader classLoader) {
+    return new TypeMappers(ServiceLoader.load(TypeMapper.class, classLoader));
+  }
+
+  public Type typeOf(Class<?> javaType) {
+    return types.get(javaType);
+  }
+
+  /**
+   * @return The mappers in the order they are consulted, ending with the default mappings.
+   */
+  List<TypeMapper> mappers() {
+    return mappers;
+  }
+}
@@ -0,0 +1,344 @@
+package com.redhat.lightblue.generator.classfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The parts of a class file needed to mirror a bean: its name and super class, its fields and
+ * methods with their descriptors and generic signatures, and runtime-visible annotations.
+ *
+ * <p>Parsing a class file does not load or initialize the class it describes.
+ *
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-4.html">The class File
+ *     Format</a>
+ */
+public class ClassFile {
+  private static final int MAGIC = 0xCAFEBABE;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+
+  private final int access;
+  private final String name;
+  private final Optional<String> superName;
+  private final List<ClassMember> fields;
+  private final List<ClassMember> methods;
+  private final List<ClassFileAnnotation> annotations;
+
+  private ClassFile(int access, String name, Optional<String> superName, List<ClassMember> fields,
+      List<ClassMember> methods, List<ClassFileAnnotation> annotations) {
+    this.access = access;
+    this.name = name;
+    this.superName = superName;
+    this.fields = Collections.unmodifiableList(fields);
+    this.methods = Collections.unmodifiableList(methods);
+    this.annotations = Collections.unmodifiableList(annotations);
+  }
+
+  /**
+   * @throws IOException If the bytes are not a well formed class file.
+   */
+  public static ClassFile parse(byte[] bytes) throws IOException {
+    return new Parser(bytes).parse();
+  }
+
+  public int access() {
+    return access;
+  }
+
+  public boolean isEnum() {
+    return (access & ClassMember.ACC_ENUM) != 0;
+  }
+
+  /**
+   * @return Whether this is an interface or annotation type.
+   */
+  public boolean isInterface() {
+    return (access & ClassMember.ACC_INTERFACE) != 0;
+  }
+
+  /**
+   * @return The binary name of the class, as in {@link Class#getName()}.
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * @return The binary name of the super class. Empty only for {@link Object}.
+   */
+  public Optional<String> superName() {
+    return superName;
+  }
+
+  public List<ClassMember> fields() {
+    return fields;
+  }
+
+  public List<ClassMember> methods() {
+    return methods;
+  }
+
+  public List<ClassFileAnnotation> annotations() {
+    return annotations;
+  }
+
+  public Optional<ClassFileAnnotation> annotation(
+      Class<? extends java.lang.annotation.Annotation> annotationType) {
+    for (ClassFileAnnotation annotation : annotations) {
+      if (annotation.isOfType(annotationType)) {
+        return Optional.of(annotation);
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  public boolean isAnnotationPresent(
+      Class<? extends java.lang.annotation.Annotation> annotationType) {
+    return annotation(annotationType).isPresent();
+  }
+
+  /**
+   * @param internalName A name like {@code java/lang/String}.
+   * @return A binary name like {@code java.lang.String}.
+   */
+  static String toBinaryName(String internalName) {
+    return internalName.replace('/', '.');
+  }
+
+  private static class Parser {
+    private final DataInputStream in;
+    private Object[] constants;
+
+    Parser(byte[] bytes) {
+      this.in = new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    ClassFile parse() throws IOException {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a class file");
+      }
+
+      in.readUnsignedShort(); // minor version
+      in.readUnsignedShort(); // major version
+      readConstantPool();
+
+      int access = in.readUnsignedShort();
+      String name = toBinaryName(className(in.readUnsignedShort()));
+      int superIndex = in.readUnsignedShort();
+      Optional<String> superName = superIndex == 0
+          ? Optional.empty()
+          : Optional.of(toBinaryName(className(superIndex)));
+
+      int interfaceCount = in.readUnsignedShort();
+      in.skipBytes(interfaceCount * 2);
+
+      List<ClassMember> fields = readMembers();
+      List<ClassMember> methods = readMembers();
+      List<ClassFileAnnotation> annotations = new ArrayList<>();
+      readAttributes(annotations);
+
+      return new ClassFile(access, name, superName, fields, methods, annotations);
+    }
+
+    private void readConstantPool() throws IOException {
+      int count = in.readUnsignedShort();
+      constants = new Object[count];
+
+      for (int i = 1; i < count; i++) {
+        int tag = in.readUnsignedByte();
+
+        switch (tag) {
+          case CONSTANT_UTF8:
+            constants[i] = in.readUTF();
+            break;
+          case CONSTANT_INTEGER:
+            constants[i] = in.readInt();
+            break;
+          case CONSTANT_FLOAT:
+            constants[i] = in.readFloat();
+            break;
+          case CONSTANT_LONG:
+            constants[i] = in.readLong();
+            i++;
+            break;
+          case CONSTANT_DOUBLE:
+            constants[i] = in.readDouble();
+            i++;
+            break;
+          case CONSTANT_CLASS:
+          case CONSTANT_STRING:
+          case CONSTANT_METHOD_TYPE:
+          case CONSTANT_MODULE:
+          case CONSTANT_PACKAGE:
+            // Keep the index of the referenced utf8 constant
+            constants[i] = new Reference(in.readUnsignedShort());
+            break;
+          case CONSTANT_FIELDREF:
+          case CONSTANT_METHODREF:
+          case CONSTANT_INTERFACE_METHODREF:
+          case CONSTANT_NAME_AND_TYPE:
+          case CONSTANT_DYNAMIC:
+          case CONSTANT_INVOKE_DYNAMIC:
+            in.skipBytes(4);
+            break;
+          case CONSTANT_METHOD_HANDLE:
+            in.skipBytes(3);
+            break;
+          default:
+            throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+        }
+      }
+    }
+
+    private List<ClassMember> readMembers() throws IOException {
+      int count = in.readUnsignedShort();
+      List<ClassMember> members = new ArrayList<>(count);
+
+      for (int i = 0; i < count; i++) {
+        int access = in.readUnsignedShort();
+        String name = utf8(in.readUnsignedShort());
+        String descriptor = utf8(in.readUnsignedShort());
+        List<ClassFileAnnotation> annotations = new ArrayList<>();
+        Optional<String> signature = readAttributes(annotations);
+
+        members.add(new ClassMember(access, name, descriptor, signature, annotations));
+      }
+
+      return members;
+    }
+
+    /**
+     * Reads an attributes table, adding any runtime-visible annotations to the provided list.
+     *
+     * @return The value of the signature attribute, if present.
+     */
+    private Optional<String> readAttributes(List<ClassFileAnnotation> annotations)
+        throws IOException {
+      int count = in.readUnsignedShort();
+      Optional<String> signature = Optional.empty();
+
+      for (int i = 0; i < count; i++) {
+        String attributeName = utf8(in.readUnsignedShort());
+        int length = in.readInt();
+
+        if ("RuntimeVisibleAnnotations".equals(attributeName)) {
+          int annotationCount = in.readUnsignedShort();
+
+          for (int a = 0; a < annotationCount; a++) {
+            annotations.add(readAnnotation());
+          }
+        } else if ("Signature".equals(attributeName)) {
+          signature = Optional.of(utf8(in.readUnsignedShort()));
+        } else {
+          in.skipBytes(length);
+        }
+      }
+
+      return signature;
+    }
+
+    private ClassFileAnnotation readAnnotation() throws IOException {
+      String typeDescriptor = utf8(in.readUnsignedShort());
+      int pairCount = in.readUnsignedShort();
+      Map<String, Object> values = new LinkedHashMap<>();
+
+      for (int i = 0; i < pairCount; i++) {
+        String elementName = utf8(in.readUnsignedShort());
+        values.put(elementName, readElementValue());
+      }
+
+      // Descriptor is like Lcom/acme/Foo;
+      String typeName = toBinaryName(typeDescriptor.substring(1, typeDescriptor.length() - 1));
+      return new ClassFileAnnotation(typeName, values);
+    }
+
+    private Object readElementValue() throws IOException {
+      int tag = in.readUnsignedByte();
+
+      switch (tag) {
+        case 'B':
+        case 'C':
+        case 'I':
+        case 'S':
+        case 'J':
+        case 'F':
+        case 'D':
+          return constants[in.readUnsignedShort()];
+        case 'Z':
+          return ((Integer) constants[in.readUnsignedShort()]) != 0;
+        case 's':
+          return utf8(in.readUnsignedShort());
+        case 'e':
+          in.readUnsignedShort(); // enum type descriptor
+          return utf8(in.readUnsignedShort());
+        case 'c':
+          return utf8(in.readUnsignedShort());
+        case '@':
+          return readAnnotation();
+        case '[':
+          int count = in.readUnsignedShort();
+          List<Object> values = new ArrayList<>(count);
+
+          for (int i = 0; i < count; i++) {
+            values.add(readElementValue());
+          }
+
+          return Collections.unmodifiableList(values);
+        default:
+          throw new IOException("Unknown annotation element value tag " + (char) tag);
+      }
+    }
+
+    private String utf8(int index) throws IOException {
+      Object constant = constants[index];
+
+      if (!(constant instanceof String)) {
+        throw new IOException("Expected utf8 constant at index " + index);
+      }
+
+      return (String) constant;
+    }
+
+    private String className(int index) throws IOException {
+      Object constant = constants[index];
+
+      if (!(constant instanceof Reference)) {
+        throw new IOException("Expected class constant at index " + index);
+      }
+
+      return utf8(((Reference) constant).index);
+    }
+  }
+
+  private static class Reference {
+    final int index;
+
+    Reference(int index) {
+      this.index = index;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.redhat.lightblue.generator.classfile;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A runtime-visible annotation as read from a class file.
+ *
+ * <p>Element values are represented as {@link Integer} (for all integral and {@code char}
+ * values), {@link Long}, {@link Float}, {@link Double}, {@link Boolean}, {@link String} (for
+ * strings, enum constant names, and class descriptors), {@link ClassFileAnnotation}, or a
+ * {@link List} of those. Only explicitly specified values are present; defaults declared by the
+ * annotation type are not.
+ */
+public class ClassFileAnnotation {
+  private final String typeName;
+  private final Map<String, Object> values;
+
+  ClassFileAnnotation(String typeName, Map<String, Object> values) {
+    this.typeName = typeName;
+    this.values = Collections.unmodifiableMap(values);
+  }
+
+  /**
+   * @return The binary name of the annotation type, as in {@link Class#getName()}.
+   */
+  public String typeName() {
+    return typeName;
+  }
+
+  public boolean isOfType(Class<? extends java.lang.annotation.Annotation> annotationType) {
+    return typeName.equals(annotationType.getName());
+  }
+
+  public Map<String, Object> values() {
+    return values;
+  }
+
+  public Optional<Object> value(String name) {
+    return Optional.ofNullable(values.get(name));
+  }
+
+  public Optional<String> stringValue(String name) {
+    return value(name).map(String.class::cast);
+  }
+
+  public Optional<Integer> intValue(String name) {
+    return value(name).map(Integer.class::cast);
+  }
+
+  public Optional<Boolean> booleanValue(String name) {
+    return value(name).map(Boolean.class::cast);
+  }
+
+  @SuppressWarnings("unchecked")
+  public Optional<List<String>> stringsValue(String name) {
+    return value(name).map(v -> v instanceof List ? (List<String>) v
+        : Collections.singletonList((String) v));
+  }
+}
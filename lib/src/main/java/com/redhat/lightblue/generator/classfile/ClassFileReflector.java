@@ -0,0 +1,443 @@
+package com.redhat.lightblue.generator.classfile;
+
+import com.redhat.lightblue.generator.BeanMirror;
+import com.redhat.lightblue.generator.CurrentTime;
+import com.redhat.lightblue.generator.CurrentTimeMirror;
+import com.redhat.lightblue.generator.Description;
+import com.redhat.lightblue.generator.ElementIdentity;
+import com.redhat.lightblue.generator.EntityName;
+import com.redhat.lightblue.generator.EnumMirror;
+import com.redhat.lightblue.generator.EnumValueMirror;
+import com.redhat.lightblue.generator.FieldMirror;
+import com.redhat.lightblue.generator.Identity;
+import com.redhat.lightblue.generator.ImmutableBeanMirror;
+import com.redhat.lightblue.generator.ImmutableEnumMirror;
+import com.redhat.lightblue.generator.ImmutableEnumValueMirror;
+import com.redhat.lightblue.generator.ImmutableFieldMirror;
+import com.redhat.lightblue.generator.ImmutableIntSequenceMirror;
+import com.redhat.lightblue.generator.ImmutableVersionMirror;
+import com.redhat.lightblue.generator.IntSequence;
+import com.redhat.lightblue.generator.MaxItems;
+import com.redhat.lightblue.generator.MaxLength;
+import com.redhat.lightblue.generator.MinItems;
+import com.redhat.lightblue.generator.MinLength;
+import com.redhat.lightblue.generator.MirrorException;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.Required;
+import com.redhat.lightblue.generator.Transient;
+import com.redhat.lightblue.generator.UuidMirror;
+import com.redhat.lightblue.generator.Uuid;
+import com.redhat.lightblue.generator.ValueGeneratorMirror;
+import com.redhat.lightblue.generator.Version;
+import com.redhat.lightblue.generator.VersionMirror;
+
+import java.beans.Introspector;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Mirrors beans by parsing their class files, rather than loading them and using reflection.
+ *
+ * <p>Beans reflected on {@link #reflect(String) by name} are never loaded or initialized. Types of
+ * their properties are loaded so that they may be returned from {@link FieldMirror#javaType()},
+ * but are not initialized; in particular, enum values are read from the enum's class file, so enum
+ * static initializers are not run.
+ *
+ * <p>Differences from {@link com.redhat.lightblue.generator.javabeans.JavaBeansReflector}:
+ * <ul>
+ *   <li>{@link Version#preferImplementationVersion()} is not supported; {@link Version#value()}
+ *   is always used.</li>
+ *   <li>Enum value names are their constant names, rather than their {@code toString()}.</li>
+ * </ul>
+ *
+ * <p>Thread-safe. Parsed class files are cached for the lifetime of the reflector.
+ */
+public class ClassFileReflector implements Reflector {
+  private final ClassLoader classLoader;
+  private final ConcurrentMap<String, ClassFile> classFiles = new ConcurrentHashMap<>();
+
+  /**
+   * @param classLoader Used to find class files as resources, and to load property types.
+   */
+  public ClassFileReflector(ClassLoader classLoader) {
+    this.classLoader = Objects.requireNonNull(classLoader, "classLoader");
+  }
+
+  @Override
+  public BeanMirror reflect(Class<?> bean) {
+    return reflect(bean.getName());
+  }
+
+  /**
+   * @param className The binary name of the bean class, as in {@link Class#getName()}.
+   */
+  public BeanMirror reflect(String className) {
+    ClassFile classFile = classFile(className);
+
+    String entityName = classFile.annotation(EntityName.class)
+        .flatMap(a -> a.stringValue("value"))
+        .orElse(Introspector.decapitalize(simpleName(className)));
+
+    Optional<VersionMirror> version = classFile.annotation(Version.class)
+        .map(ClassFileReflector::versionMirror);
+
+    return new ImmutableBeanMirror(entityName, version, fieldMirrors(classFile));
+  }
+
+  /**
+   * @param className The binary name of a class, as in {@link Class#getName()}.
+   * @throws MirrorException If the class file cannot be found or parsed.
+   */
+  public ClassFile classFile(String className) {
+    ClassFile classFile = classFiles.get(className);
+
+    if (classFile != null) {
+      return classFile;
+    }
+
+    classFile = readClassFile(className);
+    ClassFile existing = classFiles.putIfAbsent(className, classFile);
+
+    return existing == null ? classFile : existing;
+  }
+
+  private ClassFile readClassFile(String className) {
+    try {
+      return ClassFile.parse(readBytes(classLoader, className));
+    } catch (IOException e) {
+      throw new MirrorException(e);
+    }
+  }
+
+  /**
+   * @throws MirrorException If the class file cannot be found or read.
+   */
+  static byte[] readBytes(ClassLoader classLoader, String className) {
+    String resourceName = className.replace('.', '/') + ".class";
+
+    try (InputStream in = classLoader.getResourceAsStream(resourceName)) {
+      if (in == null) {
+        throw new MirrorException(new ClassNotFoundException(className));
+      }
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+
+      while ((read = in.read(buffer)) != -1) {
+        bytes.write(buffer, 0, read);
+      }
+
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new MirrorException(e);
+    }
+  }
+
+  private List<FieldMirror> fieldMirrors(ClassFile classFile) {
+    Map<String, ClassMember> getters = new TreeMap<>();
+    Map<String, List<ClassMember>> setters = new TreeMap<>();
+
+    for (ClassMember method : publicInstanceMethods(classFile)) {
+      String methodName = method.name();
+      String descriptor = method.descriptor();
+
+      if (methodName.startsWith("is") && methodName.length() > 2 && descriptor.equals("()Z")) {
+        // "is" getters take precedence over "get" getters, as with Introspector
+        getters.put(Introspector.decapitalize(methodName.substring(2)), method);
+      } else if (methodName.startsWith("get") && methodName.length() > 3
+          && descriptor.startsWith("()") && !descriptor.equals("()V")) {
+        getters.putIfAbsent(Introspector.decapitalize(methodName.substring(3)), method);
+      } else if (methodName.startsWith("set") && methodName.length() > 3
+          && descriptor.endsWith(")V") && isSingleParameter(descriptor)) {
+        setters.computeIfAbsent(Introspector.decapitalize(methodName.substring(3)),
+            k -> new ArrayList<>()).add(method);
+      }
+    }
+
+    Map<String, FieldMirror> fieldMirrors = new TreeMap<>();
+
+    for (Map.Entry<String, ClassMember> getter : getters.entrySet()) {
+      String name = getter.getKey();
+      ClassMember readMethod = getter.getValue();
+
+      if (readMethod.isAnnotationPresent(Transient.class)) {
+        continue;
+      }
+
+      String typeDescriptor = returnDescriptor(readMethod.descriptor());
+      Optional<ClassMember> writeMethod = setters.getOrDefault(name, Collections.emptyList())
+          .stream()
+          .filter(setter -> parameterDescriptor(setter.descriptor()).equals(typeDescriptor))
+          .findFirst();
+
+      fieldMirrors.put(name, fieldMirror(name, typeDescriptor, Optional.of(readMethod),
+          writeMethod));
+    }
+
+    for (Map.Entry<String, List<ClassMember>> setter : setters.entrySet()) {
+      String name = setter.getKey();
+
+      if (getters.containsKey(name)) {
+        continue;
+      }
+
+      ClassMember writeMethod = setter.getValue().get(0);
+      fieldMirrors.put(name, fieldMirror(name, parameterDescriptor(writeMethod.descriptor()),
+          Optional.empty(), Optional.of(writeMethod)));
+    }
+
+    return new ArrayList<>(fieldMirrors.values());
+  }
+
+  /**
+   * Public, non-static methods of the class and its super classes, excluding those declared by
+   * {@link Object}. Overridden methods are only included once.
+   */
+  private Iterable<ClassMember> publicInstanceMethods(ClassFile classFile) {
+    Map<String, ClassMember> methods = new LinkedHashMap<>();
+    Optional<ClassFile> current = Optional.of(classFile);
+
+    while (current.isPresent()) {
+      for (ClassMember method : current.get().methods()) {
+        if (method.isPublic() && !method.isStatic() && !method.isSynthetic()) {
+          methods.putIfAbsent(method.name() + method.descriptor(), method);
+        }
+      }
+
+      current = current.get().superName()
+          .filter(superName -> !superName.equals(Object.class.getName()))
+          .map(this::classFile);
+    }
+
+    return methods.values();
+  }
+
+  private FieldMirror fieldMirror(String name, String typeDescriptor,
+      Optional<ClassMember> readMethod, Optional<ClassMember> writeMethod) {
+    Class<?> javaType = resolve(typeDescriptor);
+
+    Optional<String> description = onWriteMethod(writeMethod, Description.class)
+        .flatMap(a -> a.stringValue("value"));
+
+    return new ImmutableFieldMirror(
+        name,
+        javaType,
+        description,
+        onWriteMethod(writeMethod, Required.class).isPresent(),
+        onEitherMethod(readMethod, writeMethod, Identity.class),
+        onEitherMethod(readMethod, writeMethod, ElementIdentity.class),
+        onWriteMethod(writeMethod, MinItems.class).flatMap(a -> a.intValue("value")),
+        onWriteMethod(writeMethod, MaxItems.class).flatMap(a -> a.intValue("value")),
+        onWriteMethod(writeMethod, MinLength.class).flatMap(a -> a.intValue("value")),
+        onWriteMethod(writeMethod, MaxLength.class).flatMap(a -> a.intValue("value")),
+        readMethod.flatMap(m -> m.signature()).flatMap(this::elementJavaType),
+        javaType.isEnum() ? Optional.of(enumMirror(javaType)) : Optional.empty(),
+        valueGeneratorMirror(writeMethod),
+        this);
+  }
+
+  private EnumMirror enumMirror(Class<?> enumClass) {
+    Set<EnumValueMirror> values = new LinkedHashSet<>();
+
+    for (ClassMember field : classFile(enumClass.getName()).fields()) {
+      if (field.isEnumConstant()) {
+        Optional<String> description = field.annotation(Description.class)
+            .flatMap(a -> a.stringValue("value"));
+        values.add(new ImmutableEnumValueMirror(field.name(), description));
+      }
+    }
+
+    return new ImmutableEnumMirror(Introspector.decapitalize(enumClass.getSimpleName()), values);
+  }
+
+  private static Optional<ValueGeneratorMirror> valueGeneratorMirror(
+      Optional<ClassMember> writeMethod) {
+    Optional<ClassFileAnnotation> uuid = onWriteMethod(writeMethod, Uuid.class);
+
+    if (uuid.isPresent()) {
+      boolean overwrite = uuid.get().booleanValue("overwrite").orElse(false);
+      return Optional.of((UuidMirror) () -> overwrite);
+    }
+
+    Optional<ClassFileAnnotation> intSequence = onWriteMethod(writeMethod, IntSequence.class);
+
+    if (intSequence.isPresent()) {
+      Optional<Integer> initialValue = intSequence.get().intValue("initialValue")
+          .filter(i -> i != IntSequence.INITIAL_VALUE_UNSET);
+
+      return Optional.of(new ImmutableIntSequenceMirror(
+          intSequence.get().stringValue("name").get(),
+          initialValue,
+          intSequence.get().booleanValue("overwrite").orElse(false)));
+    }
+
+    Optional<ClassFileAnnotation> currentTime = onWriteMethod(writeMethod, CurrentTime.class);
+
+    if (currentTime.isPresent()) {
+      boolean overwrite = currentTime.get().booleanValue("overwrite").orElse(false);
+      return Optional.of((CurrentTimeMirror) () -> overwrite);
+    }
+
+    return Optional.empty();
+  }
+
+  private static VersionMirror versionMirror(ClassFileAnnotation version) {
+    return new ImmutableVersionMirror(
+        version.stringValue("value").get(),
+        version.stringValue("changelog").get(),
+        version.stringsValue("extendsVersions").orElse(Collections.emptyList()));
+  }
+
+  private static Optional<ClassFileAnnotation> onWriteMethod(Optional<ClassMember> writeMethod,
+      Class<? extends Annotation> annotationType) {
+    return writeMethod.flatMap(m -> m.annotation(annotationType));
+  }
+
+  private static boolean onEitherMethod(Optional<ClassMember> readMethod,
+      Optional<ClassMember> writeMethod, Class<? extends Annotation> annotationType) {
+    return onWriteMethod(writeMethod, annotationType).isPresent()
+        || readMethod.flatMap(m -> m.annotation(annotationType)).isPresent();
+  }
+
+  /**
+   * Finds the first type argument of a getter's generic return type, if it is a class. This
+   * matches what {@code JavaBeansFieldMirror} is able to resolve.
+   *
+   * @param signature A generic method signature like
+   *                  {@code ()Ljava/util/List<Lcom/acme/Address;>;}
+   */
+  private Optional<Class<?>> elementJavaType(String signature) {
+    String returnSignature = signature.substring(signature.indexOf(')') + 1);
+
+    if (!returnSignature.startsWith("L")) {
+      return Optional.empty();
+    }
+
+    int typeArgumentsStart = returnSignature.indexOf('<');
+
+    if (typeArgumentsStart < 0 || returnSignature.indexOf('.') >= 0) {
+      return Optional.empty();
+    }
+
+    String firstArgument = returnSignature.substring(typeArgumentsStart + 1);
+    int end = firstArgument.indexOf(';');
+    int nestedArguments = firstArgument.indexOf('<');
+
+    if (end < 0 || (nestedArguments >= 0 && nestedArguments < end)) {
+      return Optional.empty();
+    }
+
+    int dimensions = 0;
+
+    while (firstArgument.charAt(dimensions) == '[') {
+      dimensions++;
+    }
+
+    char kind = firstArgument.charAt(dimensions);
+
+    if (kind == 'L') {
+      return Optional.of(resolve(firstArgument.substring(0, end + 1)));
+    }
+
+    if (dimensions > 0 && kind != 'T') {
+      // Array of primitives
+      return Optional.of(resolve(firstArgument.substring(0, dimensions + 1)));
+    }
+
+    // Wildcard or type variable
+    return Optional.empty();
+  }
+
+  /**
+   * Loads, but does not initialize, the class for a field descriptor.
+   */
+  private Class<?> resolve(String descriptor) {
+    switch (descriptor.charAt(0)) {
+      case 'Z':
+        return boolean.class;
+      case 'B':
+        return byte.class;
+      case 'C':
+        return char.class;
+      case 'S':
+        return short.class;
+      case 'I':
+        return int.class;
+      case 'J':
+        return long.class;
+      case 'F':
+        return float.class;
+      case 'D':
+        return double.class;
+      case 'V':
+        return void.class;
+      default:
+        break;
+    }
+
+    String className = descriptor.charAt(0) == 'L'
+        ? ClassFile.toBinaryName(descriptor.substring(1, descriptor.length() - 1))
+        : ClassFile.toBinaryName(descriptor);
+
+    try {
+      return Class.forName(className, false, classLoader);
+    } catch (ClassNotFoundException e) {
+      throw new MirrorException(e);
+    }
+  }
+
+  private static String returnDescriptor(String methodDescriptor) {
+    return methodDescriptor.substring(methodDescriptor.indexOf(')') + 1);
+  }
+
+  private static String parameterDescriptor(String methodDescriptor) {
+    return methodDescriptor.substring(1, methodDescriptor.indexOf(')'));
+  }
+
+  private static boolean isSingleParameter(String methodDescriptor) {
+    String parameters = parameterDescriptor(methodDescriptor);
+    int i = 0;
+
+    while (i < parameters.length() && parameters.charAt(i) == '[') {
+      i++;
+    }
+
+    if (i >= parameters.length()) {
+      return false;
+    }
+
+    int end = parameters.charAt(i) == 'L' ? parameters.indexOf(';', i) + 1 : i + 1;
+    return end == parameters.length();
+  }
+
+  /**
+   * Matches {@link Class#getSimpleName()} for top level, member, and local classes.
+   */
+  private static String simpleName(String className) {
+    String simpleBinaryName = className.substring(
+        Math.max(className.lastIndexOf('.'), className.lastIndexOf('$')) + 1);
+    int start = 0;
+
+    while (start < simpleBinaryName.length()
+        && Character.isDigit(simpleBinaryName.charAt(start))) {
+      start++;
+    }
+
+    return simpleBinaryName.substring(start);
+  }
+}
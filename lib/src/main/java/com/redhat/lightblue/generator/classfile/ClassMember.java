@@ -0,0 +1,89 @@
+package com.redhat.lightblue.generator.classfile;
+
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A field or method as read from a class file.
+ */
+public class ClassMember {
+  static final int ACC_BRIDGE = 0x0040;
+  static final int ACC_INTERFACE = 0x0200;
+  static final int ACC_SYNTHETIC = 0x1000;
+  static final int ACC_ENUM = 0x4000;
+
+  private final int access;
+  private final String name;
+  private final String descriptor;
+  private final Optional<String> signature;
+  private final List<ClassFileAnnotation> annotations;
+
+  ClassMember(int access, String name, String descriptor, Optional<String> signature,
+      List<ClassFileAnnotation> annotations) {
+    this.access = access;
+    this.name = name;
+    this.descriptor = descriptor;
+    this.signature = signature;
+    this.annotations = Collections.unmodifiableList(annotations);
+  }
+
+  public int access() {
+    return access;
+  }
+
+  public boolean isPublic() {
+    return Modifier.isPublic(access);
+  }
+
+  public boolean isStatic() {
+    return Modifier.isStatic(access);
+  }
+
+  public boolean isSynthetic() {
+    return (access & (ACC_SYNTHETIC | ACC_BRIDGE)) != 0;
+  }
+
+  public boolean isEnumConstant() {
+    return (access & ACC_ENUM) != 0;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  /**
+   * @return The JVM type descriptor, for example {@code (Ljava/lang/String;)V}.
+   */
+  public String descriptor() {
+    return descriptor;
+  }
+
+  /**
+   * @return The generic signature, if the member has a generic type.
+   */
+  public Optional<String> signature() {
+    return signature;
+  }
+
+  public List<ClassFileAnnotation> annotations() {
+    return annotations;
+  }
+
+  public Optional<ClassFileAnnotation> annotation(
+      Class<? extends java.lang.annotation.Annotation> annotationType) {
+    for (ClassFileAnnotation annotation : annotations) {
+      if (annotation.isOfType(annotationType)) {
+        return Optional.of(annotation);
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  public boolean isAnnotationPresent(
+      Class<? extends java.lang.annotation.Annotation> annotationType) {
+    return annotation(annotationType).isPresent();
+  }
+}
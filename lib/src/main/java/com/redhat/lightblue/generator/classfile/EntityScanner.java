@@ -0,0 +1,148 @@
+package com.redhat.lightblue.generator.classfile;
+
+import com.redhat.lightblue.generator.EntityName;
+import com.redhat.lightblue.generator.Version;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Finds entity classes, which are those annotated with {@link EntityName} or {@link Version}, in
+ * jars and directories of class files. Class files are parsed rather than loaded, so scanning
+ * does not load or initialize any class.
+ *
+ * <p>Thread-safe.
+ */
+public class EntityScanner {
+  private final List<String> packageDirectories;
+
+  /**
+   * @param packageNames Only classes in these packages, or their subpackages, are scanned. If
+   *                     empty, all classes are.
+   */
+  public EntityScanner(Collection<String> packageNames) {
+    List<String> directories = new ArrayList<>();
+
+    // Sorted, so that a subpackage is skipped when its parent package is already scanned
+    for (String packageName : new TreeSet<>(packageNames)) {
+      String directory = packageName.replace('.', '/') + "/";
+
+      if (directories.stream().noneMatch(directory::startsWith)) {
+        directories.add(directory);
+      }
+    }
+
+    this.packageDirectories = Collections.unmodifiableList(directories);
+  }
+
+  /**
+   * Scans each root as a task run by {@code executor}, and parses each class file as another, so
+   * that large jars are scanned in parallel too. Entities are passed to {@code onEntity} as soon as
+   * they are found, on whichever thread found them, so it must be thread-safe.
+   *
+   * @param roots Jars, or directories of class files.
+   * @return Completes once all roots have been scanned; exceptionally if a root or class file could
+   * not be read.
+   */
+  public CompletableFuture<Void> scan(Collection<Path> roots, Executor executor,
+      Consumer<String> onEntity) {
+    List<CompletableFuture<Void>> scanned = new ArrayList<>(roots.size());
+
+    for (Path root : roots) {
+      scanned.add(CompletableFuture
+          .supplyAsync(() -> scanRoot(root, executor, onEntity), executor)
+          .thenCompose(Function.identity()));
+    }
+
+    return CompletableFuture.allOf(scanned.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private CompletableFuture<Void> scanRoot(Path root, Executor executor,
+      Consumer<String> onEntity) {
+    try {
+      if (Files.isDirectory(root)) {
+        return scanTree(root, executor, onEntity);
+      }
+
+      FileSystem jar = FileSystems.newFileSystem(root, (ClassLoader) null);
+
+      // Class files are read from the jar until the last of them is parsed
+      return scanTree(jar.getPath("/"), executor, onEntity)
+          .whenComplete((ignored, e) -> {
+            try {
+              jar.close();
+            } catch (IOException closeException) {
+              throw new UncheckedIOException(closeException);
+            }
+          });
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to scan " + root, e);
+    }
+  }
+
+  private CompletableFuture<Void> scanTree(Path root, Executor executor,
+      Consumer<String> onEntity) throws IOException {
+    List<CompletableFuture<Void>> parsed = new ArrayList<>();
+    List<Path> starts = new ArrayList<>();
+
+    if (packageDirectories.isEmpty()) {
+      starts.add(root);
+    } else {
+      for (String packageDirectory : packageDirectories) {
+        starts.add(root.resolve(packageDirectory));
+      }
+    }
+
+    for (Path start : starts) {
+      if (!Files.isDirectory(start)) {
+        continue;
+      }
+
+      try (Stream<Path> files = Files.walk(start)) {
+        files
+            .filter(file -> isClassFile(root.relativize(file).toString()))
+            .forEach(file -> parsed.add(
+                CompletableFuture.runAsync(() -> parse(file, onEntity), executor)));
+      }
+    }
+
+    return CompletableFuture.allOf(parsed.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private static boolean isClassFile(String relativePath) {
+    return relativePath.endsWith(".class")
+        && !relativePath.endsWith("module-info.class")
+        && !relativePath.endsWith("package-info.class")
+        // Versioned copies of classes in multi-release jars
+        && !relativePath.startsWith("META-INF");
+  }
+
+  private static void parse(Path file, Consumer<String> onEntity) {
+    ClassFile classFile;
+
+    try {
+      classFile = ClassFile.parse(Files.readAllBytes(file));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read class file " + file.toUri(), e);
+    }
+
+    if (!classFile.isInterface() && (classFile.isAnnotationPresent(EntityName.class)
+        || classFile.isAnnotationPresent(Version.class))) {
+      onEntity.accept(classFile.name());
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package com.redhat.lightblue.generator.classfile;
+
+import com.redhat.lightblue.generator.BeanMirror;
+import com.redhat.lightblue.generator.FieldMirror;
+import com.redhat.lightblue.generator.ImmutableBeanMirror;
+import com.redhat.lightblue.generator.MirrorException;
+import com.redhat.lightblue.generator.Reflector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link ClassFileReflector} which answers from a persistent index of mirrors where it can, and
+ * records the mirrors it does reflect on so that the index can be {@link #save() saved} for the
+ * next run.
+ *
+ * <p>Each entry of the index records the CRC-32 of the class files it was read from: the bean's
+ * own, those of its super classes, and those of enums it refers to. An entry is used if these are
+ * unchanged, in which case no class file is parsed. If every root of the class path is a jar whose
+ * size and modification time are the same as when the index was saved, entries are used without
+ * even reading class files. Either way, types of properties are still loaded, since
+ * {@link FieldMirror#javaType()} requires them.
+ *
+ * <p>Thread-safe.
+ */
+public class IndexedReflector implements Reflector {
+  /** Stamp of roots which cannot be trusted to be unchanged, like directories. */
+  private static final long UNTRUSTED = 0;
+
+  private final ClassLoader classLoader;
+  private final ClassFileReflector classFileReflector;
+  private final Path indexFile;
+  private final long stamp;
+  private final Optional<MirrorIndex> index;
+  private final boolean trusted;
+  private final ConcurrentMap<String, byte[]> reflected = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * @param classLoader Used to find class files as resources, and to load property types.
+   * @param roots The jars or class directories which {@code classLoader} searches for beans.
+   * @param indexFile Where the index is read from, if it exists, and {@link #save() saved} to.
+   * @throws IOException If an existing index cannot be read.
+   */
+  public IndexedReflector(ClassLoader classLoader, Collection<Path> roots, Path indexFile)
+      throws IOException {
+    this.classLoader = Objects.requireNonNull(classLoader, "classLoader");
+    this.classFileReflector = new ClassFileReflector(classLoader);
+    this.indexFile = Objects.requireNonNull(indexFile, "indexFile");
+    this.stamp = stamp(roots);
+    this.index = MirrorIndex.read(indexFile);
+    this.trusted = stamp != UNTRUSTED && index.map(i -> i.stamp() == stamp).orElse(false);
+  }
+
+  @Override
+  public BeanMirror reflect(Class<?> bean) {
+    return reflect(bean.getName());
+  }
+
+  /**
+   * @param className The binary name of the bean class, as in {@link Class#getName()}.
+   */
+  public BeanMirror reflect(String className) {
+    Optional<ByteBuffer> maybeEntry = index.flatMap(i -> i.entry(className));
+
+    if (maybeEntry.isPresent()) {
+      ByteBuffer entry = maybeEntry.get();
+      Map<String, Long> dependencies = MirrorIndex.decodeDependencies(entry);
+
+      if (trusted || isCurrent(dependencies)) {
+        hits.increment();
+
+        if (!trusted) {
+          reflected.putIfAbsent(className, copyOf(entry));
+        }
+
+        return MirrorIndex.decodeMirror(entry, classLoader, this);
+      }
+    }
+
+    misses.increment();
+    BeanMirror beanMirror = ImmutableBeanMirror.copyOf(classFileReflector.reflect(className),
+        this);
+    reflected.put(className, MirrorIndex.encode(dependencies(className, beanMirror), beanMirror));
+    return beanMirror;
+  }
+
+  /**
+   * Saves the mirrors reflected on so far, along with those of the existing index which are still
+   * known to be current, replacing the existing index.
+   */
+  public void save() throws IOException {
+    Map<String, byte[]> entries = new TreeMap<>();
+
+    // Entries not looked up are only known to be current if the class path is unchanged
+    if (trusted) {
+      for (String className : index.get().classNames()) {
+        entries.put(className, copyOf(index.get().entry(className).get()));
+      }
+    }
+
+    entries.putAll(reflected);
+    MirrorIndex.write(indexFile, stamp, entries);
+  }
+
+  /**
+   * @return The number of mirrors answered from the index.
+   */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * @return The number of mirrors which had to be read from class files.
+   */
+  public long missCount() {
+    return misses.sum();
+  }
+
+  private boolean isCurrent(Map<String, Long> dependencies) {
+    try {
+      for (Map.Entry<String, Long> dependency : dependencies.entrySet()) {
+        if (crc(dependency.getKey()) != dependency.getValue()) {
+          return false;
+        }
+      }
+    } catch (MirrorException e) {
+      // A class file the entry was read from no longer exists
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Class files which the mirror of {@code className} was read from, other than those of the
+   * platform, which cannot change between runs.
+   */
+  private Map<String, Long> dependencies(String className, BeanMirror beanMirror) {
+    Map<String, Long> dependencies = new LinkedHashMap<>();
+    Optional<String> current = Optional.of(className);
+
+    while (current.isPresent() && !current.get().startsWith("java.")) {
+      dependencies.put(current.get(), crc(current.get()));
+      current = classFileReflector.classFile(current.get()).superName();
+    }
+
+    for (FieldMirror field : beanMirror.getFields()) {
+      Class<?> javaType = field.javaType();
+
+      if (javaType.isEnum() && javaType.getClassLoader() != null) {
+        dependencies.put(javaType.getName(), crc(javaType.getName()));
+      }
+    }
+
+    return dependencies;
+  }
+
+  private long crc(String className) {
+    CRC32 crc = new CRC32();
+    crc.update(ClassFileReflector.readBytes(classLoader, className));
+    return crc.getValue();
+  }
+
+  private static byte[] copyOf(ByteBuffer entry) {
+    ByteBuffer whole = entry.duplicate();
+    whole.rewind();
+    byte[] bytes = new byte[whole.remaining()];
+    whole.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Combines the size and modification time of each root, or is {@link #UNTRUSTED} if any root is
+   * not a regular file, since a directory's modification time does not reflect changes to files
+   * nested within it.
+   */
+  private static long stamp(Collection<Path> roots) throws IOException {
+    if (roots.isEmpty()) {
+      return UNTRUSTED;
+    }
+
+    long stamp = 17;
+
+    for (Path root : roots) {
+      if (!Files.isRegularFile(root)) {
+        return UNTRUSTED;
+      }
+
+      stamp = 31 * stamp + root.toAbsolutePath().toString().hashCode();
+      stamp = 31 * stamp + Files.size(root);
+      stamp = 31 * stamp + Files.getLastModifiedTime(root).toMillis();
+    }
+
+    return stamp == UNTRUSTED ? 1 : stamp;
+  }
+}
@@ -0,0 +1,438 @@
+package com.redhat.lightblue.generator.classfile;
+
+import com.redhat.lightblue.generator.BeanMirror;
+import com.redhat.lightblue.generator.CurrentTimeMirror;
+import com.redhat.lightblue.generator.EnumMirror;
+import com.redhat.lightblue.generator.EnumValueMirror;
+import com.redhat.lightblue.generator.FieldMirror;
+import com.redhat.lightblue.generator.ImmutableBeanMirror;
+import com.redhat.lightblue.generator.ImmutableEnumMirror;
+import com.redhat.lightblue.generator.ImmutableEnumValueMirror;
+import com.redhat.lightblue.generator.ImmutableFieldMirror;
+import com.redhat.lightblue.generator.ImmutableIntSequenceMirror;
+import com.redhat.lightblue.generator.ImmutableVersionMirror;
+import com.redhat.lightblue.generator.IntSequenceMirror;
+import com.redhat.lightblue.generator.MirrorException;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.UuidMirror;
+import com.redhat.lightblue.generator.ValueGeneratorMirror;
+import com.redhat.lightblue.generator.VersionMirror;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A file of bean mirrors, each stored with the CRC-32 of every class file it was read from, so
+ * that stale entries can be told apart without parsing anything.
+ *
+ * <p>The file is memory-mapped. Only the table of class names is read up front; entries are
+ * decoded from the mapping when looked up.
+ *
+ * <pre>
+ * int magic, int format, long stamp, int entry count
+ * entry count * (string class name, int entry offset, int entry length)
+ * entries: int dependency count, dependency count * (string class name, long crc), mirror
+ * </pre>
+ *
+ * <p>Strings are an int byte length followed by UTF-8 bytes; optional values are preceded by a
+ * presence byte.
+ */
+final class MirrorIndex {
+  private static final int MAGIC = 0x4C424D49;
+  private static final int FORMAT = 2;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final byte NO_GENERATOR = 0;
+  private static final byte UUID_GENERATOR = 1;
+  private static final byte INT_SEQUENCE_GENERATOR = 2;
+  private static final byte CURRENT_TIME_GENERATOR = 3;
+
+  private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+  static {
+    for (Class<?> primitive : new Class<?>[] {boolean.class, byte.class, char.class, short.class,
+        int.class, long.class, float.class, double.class, void.class}) {
+      PRIMITIVES.put(primitive.getName(), primitive);
+    }
+  }
+
+  private final long stamp;
+  private final ByteBuffer entries;
+  private final Map<String, Slice> slices;
+
+  private MirrorIndex(long stamp, ByteBuffer entries, Map<String, Slice> slices) {
+    this.stamp = stamp;
+    this.entries = entries;
+    this.slices = slices;
+  }
+
+  /**
+   * @return Empty if there is no index at {@code indexFile}, or it is not a complete index in this
+   * format.
+   */
+  static Optional<MirrorIndex> read(Path indexFile) throws IOException {
+    if (!Files.isRegularFile(indexFile)) {
+      return Optional.empty();
+    }
+
+    MappedByteBuffer mapped;
+
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      // The mapping outlives the channel
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if (mapped.remaining() < 20 || mapped.getInt() != MAGIC || mapped.getInt() != FORMAT) {
+      return Optional.empty();
+    }
+
+    try {
+      long stamp = mapped.getLong();
+      int count = mapped.getInt();
+      Map<String, Slice> slices = new HashMap<>(count * 2);
+
+      for (int i = 0; i < count; i++) {
+        slices.put(getString(mapped), new Slice(mapped.getInt(), mapped.getInt()));
+      }
+
+      return Optional.of(new MirrorIndex(stamp, mapped.slice(), slices));
+    } catch (BufferUnderflowException | NegativeArraySizeException e) {
+      // Corrupt; it is replaced when next saved
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Writes to a temporary file which then replaces {@code indexFile}, so that readers never see a
+   * partially written index.
+   */
+  static void write(Path indexFile, long stamp, Map<String, byte[]> entries) throws IOException {
+    ByteArrayOutputStream table = new ByteArrayOutputStream();
+    DataOutputStream tableOut = new DataOutputStream(table);
+    int offset = 0;
+
+    for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+      putString(tableOut, entry.getKey());
+      tableOut.writeInt(offset);
+      tableOut.writeInt(entry.getValue().length);
+      offset += entry.getValue().length;
+    }
+
+    Path directory = indexFile.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temporary = Files.createTempFile(directory, indexFile.getFileName().toString(), ".tmp");
+
+    try {
+      try (OutputStream out = Files.newOutputStream(temporary);
+           DataOutputStream dataOut = new DataOutputStream(out)) {
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(FORMAT);
+        dataOut.writeLong(stamp);
+        dataOut.writeInt(entries.size());
+        table.writeTo(dataOut);
+
+        for (byte[] entry : entries.values()) {
+          dataOut.write(entry);
+        }
+      }
+
+      Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  long stamp() {
+    return stamp;
+  }
+
+  Set<String> classNames() {
+    return Collections.unmodifiableSet(slices.keySet());
+  }
+
+  /**
+   * @return A view of the encoded entry, positioned at its start.
+   */
+  Optional<ByteBuffer> entry(String className) {
+    Slice slice = slices.get(className);
+
+    if (slice == null) {
+      return Optional.empty();
+    }
+
+    ByteBuffer entry = entries.duplicate();
+    entry.position(slice.offset);
+    entry.limit(slice.offset + slice.length);
+    return Optional.of(entry.slice());
+  }
+
+  static byte[] encode(Map<String, Long> dependencies, BeanMirror beanMirror) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(dependencies.size());
+
+      for (Map.Entry<String, Long> dependency : dependencies.entrySet()) {
+        putString(out, dependency.getKey());
+        out.writeLong(dependency.getValue());
+      }
+
+      putString(out, beanMirror.getEntityName());
+      putOptional(out, beanMirror.getVersion(), MirrorIndex::putVersion);
+      out.writeInt(beanMirror.getFields().size());
+
+      for (FieldMirror field : beanMirror.getFields()) {
+        putField(out, field);
+      }
+    } catch (IOException e) {
+      // Not thrown by byte array streams
+      throw new MirrorException(e);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @param entry As returned by {@link #entry(String)}; its position is advanced past the
+   *              dependencies.
+   * @return Class names and CRCs of the class files the entry was read from.
+   */
+  static Map<String, Long> decodeDependencies(ByteBuffer entry) {
+    int count = entry.getInt();
+    Map<String, Long> dependencies = new LinkedHashMap<>(count * 2);
+
+    for (int i = 0; i < count; i++) {
+      dependencies.put(getString(entry), entry.getLong());
+    }
+
+    return dependencies;
+  }
+
+  /**
+   * @param entry Positioned after the dependencies, as left by {@link #decodeDependencies}.
+   * @param reflector Resolves nested object fields of the mirror.
+   * @throws MirrorException If a type of the mirror's properties cannot be loaded.
+   */
+  static BeanMirror decodeMirror(ByteBuffer entry, ClassLoader classLoader, Reflector reflector) {
+    String entityName = getString(entry);
+    Optional<VersionMirror> version = getOptional(entry, MirrorIndex::getVersion);
+    int fieldCount = entry.getInt();
+    List<FieldMirror> fields = new ArrayList<>(fieldCount);
+
+    for (int i = 0; i < fieldCount; i++) {
+      fields.add(getField(entry, classLoader, reflector));
+    }
+
+    return new ImmutableBeanMirror(entityName, version, fields);
+  }
+
+  private static void putVersion(DataOutputStream out, VersionMirror version) throws IOException {
+    putString(out, version.getVersion());
+    putOptional(out, Optional.ofNullable(version.getChangelog()), MirrorIndex::putString);
+    out.writeInt(version.getExtendsVersions().size());
+
+    for (String extendsVersion : version.getExtendsVersions()) {
+      putString(out, extendsVersion);
+    }
+  }
+
+  private static VersionMirror getVersion(ByteBuffer in) {
+    String version = getString(in);
+    String changelog = getOptional(in, MirrorIndex::getString).orElse(null);
+    int count = in.getInt();
+    List<String> extendsVersions = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      extendsVersions.add(getString(in));
+    }
+
+    return new ImmutableVersionMirror(version, changelog, extendsVersions);
+  }
+
+  private static void putField(DataOutputStream out, FieldMirror field) throws IOException {
+    putString(out, field.name());
+    putString(out, field.javaType().getName());
+    putOptional(out, field.description(), MirrorIndex::putString);
+    out.writeBoolean(field.isRequired());
+    out.writeBoolean(field.isIdentifying());
+    out.writeBoolean(field.isElementIdentifying());
+    putOptional(out, field.minItems(), DataOutputStream::writeInt);
+    putOptional(out, field.maxItems(), DataOutputStream::writeInt);
+    putOptional(out, field.minLength(), DataOutputStream::writeInt);
+    putOptional(out, field.maxLength(), DataOutputStream::writeInt);
+    putOptional(out, field.elementJavaType().map(Class::getName), MirrorIndex::putString);
+    putOptional(out, field.enumMirror(), MirrorIndex::putEnum);
+    putValueGenerator(out, field.valueGeneratorMirror());
+  }
+
+  private static FieldMirror getField(ByteBuffer in, ClassLoader classLoader,
+      Reflector reflector) {
+    return new ImmutableFieldMirror(
+        getString(in),
+        load(getString(in), classLoader),
+        getOptional(in, MirrorIndex::getString),
+        in.get() != 0,
+        in.get() != 0,
+        in.get() != 0,
+        getOptional(in, ByteBuffer::getInt),
+        getOptional(in, ByteBuffer::getInt),
+        getOptional(in, ByteBuffer::getInt),
+        getOptional(in, ByteBuffer::getInt),
+        getOptional(in, MirrorIndex::getString).map(name -> load(name, classLoader)),
+        getOptional(in, MirrorIndex::getEnum),
+        getValueGenerator(in),
+        reflector);
+  }
+
+  private static void putEnum(DataOutputStream out, EnumMirror enumMirror) throws IOException {
+    putString(out, enumMirror.name());
+    out.writeInt(enumMirror.values().size());
+
+    for (EnumValueMirror value : enumMirror.values()) {
+      putString(out, value.name());
+      putString(out, value.constantName());
+      putOptional(out, value.description(), MirrorIndex::putString);
+    }
+  }
+
+  private static EnumMirror getEnum(ByteBuffer in) {
+    String name = getString(in);
+    int count = in.getInt();
+    Set<EnumValueMirror> values = new LinkedHashSet<>(count * 2);
+
+    for (int i = 0; i < count; i++) {
+      values.add(new ImmutableEnumValueMirror(getString(in), getString(in),
+          getOptional(in, MirrorIndex::getString)));
+    }
+
+    return new ImmutableEnumMirror(name, values);
+  }
+
+  private static void putValueGenerator(DataOutputStream out,
+      Optional<ValueGeneratorMirror> maybeGenerator) throws IOException {
+    if (!maybeGenerator.isPresent()) {
+      out.writeByte(NO_GENERATOR);
+      return;
+    }
+
+    ValueGeneratorMirror generator = maybeGenerator.get();
+
+    if (generator instanceof UuidMirror) {
+      out.writeByte(UUID_GENERATOR);
+    } else if (generator instanceof IntSequenceMirror) {
+      IntSequenceMirror intSequence = (IntSequenceMirror) generator;
+      out.writeByte(INT_SEQUENCE_GENERATOR);
+      putString(out, intSequence.name());
+      putOptional(out, intSequence.initialValue(), DataOutputStream::writeInt);
+    } else if (generator instanceof CurrentTimeMirror) {
+      out.writeByte(CURRENT_TIME_GENERATOR);
+    } else {
+      throw new UnsupportedOperationException("Unsupported generator type "
+          + generator.getClass());
+    }
+
+    out.writeBoolean(generator.isOverwrite());
+  }
+
+  private static Optional<ValueGeneratorMirror> getValueGenerator(ByteBuffer in) {
+    byte type = in.get();
+
+    switch (type) {
+      case NO_GENERATOR:
+        return Optional.empty();
+      case UUID_GENERATOR: {
+        boolean overwrite = in.get() != 0;
+        return Optional.of((UuidMirror) () -> overwrite);
+      }
+      case INT_SEQUENCE_GENERATOR: {
+        String name = getString(in);
+        Optional<Integer> initialValue = getOptional(in, ByteBuffer::getInt);
+        return Optional.of(new ImmutableIntSequenceMirror(name, initialValue, in.get() != 0));
+      }
+      case CURRENT_TIME_GENERATOR: {
+        boolean overwrite = in.get() != 0;
+        return Optional.of((CurrentTimeMirror) () -> overwrite);
+      }
+      default:
+        throw new IllegalArgumentException("Unknown generator type in index: " + type);
+    }
+  }
+
+  /**
+   * Loads, but does not initialize, a class by its {@link Class#getName() name}.
+   */
+  private static Class<?> load(String name, ClassLoader classLoader) {
+    Class<?> primitive = PRIMITIVES.get(name);
+
+    if (primitive != null) {
+      return primitive;
+    }
+
+    try {
+      return Class.forName(name, false, classLoader);
+    } catch (ClassNotFoundException e) {
+      throw new MirrorException(e);
+    }
+  }
+
+  private static void putString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String getString(ByteBuffer in) {
+    byte[] bytes = new byte[in.getInt()];
+    in.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static <T> void putOptional(DataOutputStream out, Optional<T> value, Put<T> put)
+      throws IOException {
+    out.writeBoolean(value.isPresent());
+
+    if (value.isPresent()) {
+      put.put(out, value.get());
+    }
+  }
+
+  private static <T> Optional<T> getOptional(ByteBuffer in, Function<ByteBuffer, T> get) {
+    return in.get() != 0 ? Optional.of(get.apply(in)) : Optional.empty();
+  }
+
+  private interface Put<T> {
+    void put(DataOutputStream out, T value) throws IOException;
+  }
+
+  private static final class Slice {
+    final int offset;
+    final int length;
+
+    Slice(int offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
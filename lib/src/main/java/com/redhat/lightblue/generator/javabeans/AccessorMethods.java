@@ -0,0 +1,99 @@
+package com.redhat.lightblue.generator.javabeans;
+
+import java.beans.Introspector;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Discovers bean properties from public accessor methods without the {@link Introspector}. Public
+ * so that code which reads and writes beans pairs their accessors by the same rules as their
+ * mirrors.
+ *
+ * @see PropertyDiscovery#ACCESSOR_METHODS
+ */
+public final class AccessorMethods {
+  private static final ClassValue<List<JavaBeansProperty>> PROPERTIES =
+      new ClassValue<List<JavaBeansProperty>>() {
+        @Override
+        protected List<JavaBeansProperty> computeValue(Class<?> type) {
+          return Collections.unmodifiableList(discover(type));
+        }
+      };
+
+  private AccessorMethods() {}
+
+  /**
+   * @return The properties of {@code bean} sorted by name, each with a setter only if it takes exactly
+   * the type its getter returns. Cached per class.
+   */
+  public static List<JavaBeansProperty> properties(Class<?> bean) {
+    return PROPERTIES.get(bean);
+  }
+
+  private static List<JavaBeansProperty> discover(Class<?> bean) {
+    Map<String, Method> getters = new TreeMap<>();
+    Map<String, List<Method>> setters = new TreeMap<>();
+
+    for (Method method : bean.getMethods()) {
+      Class<?> declaringClass = method.getDeclaringClass();
+
+      if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.isSynthetic()
+          || declaringClass == Object.class || declaringClass.isInterface()) {
+        continue;
+      }
+
+      String name = method.getName();
+      Class<?> returnType = method.getReturnType();
+      int parameterCount = method.getParameterCount();
+
+      if (parameterCount == 0 && returnType == boolean.class && isPrefixed(name, "is")) {
+        // "is" getters take precedence over "get" getters
+        getters.put(Introspector.decapitalize(name.substring(2)), method);
+      } else if (parameterCount == 0 && returnType != void.class && isPrefixed(name, "get")) {
+        getters.putIfAbsent(Introspector.decapitalize(name.substring(3)), method);
+      } else if (parameterCount == 1 && returnType == void.class && isPrefixed(name, "set")) {
+        setters.computeIfAbsent(Introspector.decapitalize(name.substring(3)),
+            k -> new ArrayList<>()).add(method);
+      }
+    }
+
+    Map<String, JavaBeansProperty> properties = new TreeMap<>();
+
+    for (Map.Entry<String, Method> getter : getters.entrySet()) {
+      String name = getter.getKey();
+      Method readMethod = getter.getValue();
+      Class<?> type = readMethod.getReturnType();
+      Method writeMethod = null;
+
+      for (Method setter : setters.getOrDefault(name, Collections.emptyList())) {
+        if (setter.getParameterTypes()[0] == type) {
+          writeMethod = setter;
+          break;
+        }
+      }
+
+      properties.put(name, new JavaBeansProperty(name, type, readMethod, writeMethod));
+    }
+
+    for (Map.Entry<String, List<Method>> setter : setters.entrySet()) {
+      String name = setter.getKey();
+
+      if (!properties.containsKey(name)) {
+        Method writeMethod = setter.getValue().get(0);
+        properties.put(name, new JavaBeansProperty(name, writeMethod.getParameterTypes()[0],
+            null, writeMethod));
+      }
+    }
+
+    return new ArrayList<>(properties.values());
+  }
+
+  private static boolean isPrefixed(String methodName, String prefix) {
+    return methodName.length() > prefix.length() && methodName.startsWith(prefix);
+  }
+}
@@ -4,16 +4,11 @@ import com.redhat.lightblue.generator.AnnotationVersionMirror;
 import com.redhat.lightblue.generator.BeanMirror;
 import com.redhat.lightblue.generator.EntityName;
 import com.redhat.lightblue.generator.FieldMirror;
-import com.redhat.lightblue.generator.MirrorException;
 import com.redhat.lightblue.generator.Reflector;
 import com.redhat.lightblue.generator.Transient;
 import com.redhat.lightblue.generator.VersionMirror;
 
-import java.beans.BeanInfo;
-import java.beans.IntrospectionException;
 import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -21,10 +16,17 @@ import java.util.stream.Collectors;
 public class JavaBeansBeanMirror implements BeanMirror {
   private final Class<?> bean;
   private final Reflector reflector;
+  private final PropertyDiscovery propertyDiscovery;
 
   public JavaBeansBeanMirror(Class<?> bean, Reflector reflector) {
+    this(bean, reflector, PropertyDiscovery.INTROSPECTOR);
+  }
+
+  public JavaBeansBeanMirror(Class<?> bean, Reflector reflector,
+      PropertyDiscovery propertyDiscovery) {
     this.bean = bean;
     this.reflector = reflector;
+    this.propertyDiscovery = propertyDiscovery;
   }
 
   @Override
@@ -47,20 +49,14 @@ public class JavaBeansBeanMirror implements BeanMirror {
 
   @Override
   public Collection<FieldMirror> getFields() {
-    try {
-      BeanInfo info = Introspector.getBeanInfo(bean, Object.class);
-      PropertyDescriptor[] properties = info.getPropertyDescriptors();
-
-      return Arrays.stream(properties)
-          .filter(p -> !p.getReadMethod().isAnnotationPresent(Transient.class))
-          .map(this::newFieldMirror)
-          .collect(Collectors.toList());
-    } catch (IntrospectionException e) {
-      throw new MirrorException(e);
-    }
+    return propertyDiscovery.properties(bean).stream()
+        .filter(p -> !p.readMethod().isAnnotationPresent(Transient.class))
+        .map(this::newFieldMirror)
+        .collect(Collectors.toList());
   }
 
-  private JavaBeansFieldMirror newFieldMirror(PropertyDescriptor property) {
-    return new JavaBeansFieldMirror(property, reflector);
+  private JavaBeansFieldMirror newFieldMirror(JavaBeansProperty property) {
+    return new JavaBeansFieldMirror(property.name(), property.type(), property.readMethod(),
+        property.writeMethod(), reflector);
   }
 }
@@ -20,102 +20,180 @@ import com.redhat.lightblue.generator.Uuid;
 import com.redhat.lightblue.generator.ValueGeneratorMirror;
 
 import java.beans.PropertyDescriptor;
-import java.lang.reflect.Field;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
+/**
+ * Mirrors a java beans property. Annotations on the property's accessors are scanned once when the
+ * mirror is constructed; afterwards, annotation-derived queries do no reflection.
+ */
 public class JavaBeansFieldMirror implements FieldMirror {
-  private final PropertyDescriptor property;
+  private static final int REQUIRED = 1;
+  private static final int IDENTIFYING = 1 << 1;
+  private static final int ELEMENT_IDENTIFYING = 1 << 2;
+
+  private final String name;
+  private final Class<?> propertyType;
+  private final Method readMethod;
   private final Reflector reflector;
 
+  private final int flags;
+  private final Optional<Integer> minItems;
+  private final Optional<Integer> maxItems;
+  private final Optional<Integer> minLength;
+  private final Optional<Integer> maxLength;
+  private final Optional<String> description;
+  private final Optional<ValueGeneratorMirror> valueGeneratorMirror;
+
   public JavaBeansFieldMirror(PropertyDescriptor propertyDescriptor, Reflector reflector) {
-    this.property = propertyDescriptor;
+    this(propertyDescriptor.getName(), propertyDescriptor.getPropertyType(),
+        propertyDescriptor.getReadMethod(), propertyDescriptor.getWriteMethod(), reflector);
+  }
+
+  /**
+   * @param readMethod May be null for a write-only property.
+   * @param writeMethod May be null for a read-only property.
+   */
+  public JavaBeansFieldMirror(String name, Class<?> propertyType, Method readMethod,
+      Method writeMethod, Reflector reflector) {
+    this.name = name;
+    this.propertyType = propertyType;
+    this.readMethod = readMethod;
     this.reflector = reflector;
+
+    int flags = 0;
+    Integer minItems = null;
+    Integer maxItems = null;
+    Integer minLength = null;
+    Integer maxLength = null;
+    String description = null;
+    Uuid uuid = null;
+    IntSequence intSequence = null;
+    CurrentTime currentTime = null;
+
+    for (Annotation annotation : declaredAnnotations(writeMethod)) {
+      Class<? extends Annotation> annotationType = annotation.annotationType();
+
+      if (annotationType == Required.class) {
+        flags |= REQUIRED;
+      } else if (annotationType == Identity.class) {
+        flags |= IDENTIFYING;
+      } else if (annotationType == ElementIdentity.class) {
+        flags |= ELEMENT_IDENTIFYING;
+      } else if (annotationType == MinItems.class) {
+        minItems = ((MinItems) annotation).value();
+      } else if (annotationType == MaxItems.class) {
+        maxItems = ((MaxItems) annotation).value();
+      } else if (annotationType == MinLength.class) {
+        minLength = ((MinLength) annotation).value();
+      } else if (annotationType == MaxLength.class) {
+        maxLength = ((MaxLength) annotation).value();
+      } else if (annotationType == Description.class) {
+        description = ((Description) annotation).value();
+      } else if (annotationType == Uuid.class) {
+        uuid = (Uuid) annotation;
+      } else if (annotationType == IntSequence.class) {
+        intSequence = (IntSequence) annotation;
+      } else if (annotationType == CurrentTime.class) {
+        currentTime = (CurrentTime) annotation;
+      }
+    }
+
+    for (Annotation annotation : declaredAnnotations(readMethod)) {
+      Class<? extends Annotation> annotationType = annotation.annotationType();
+
+      if (annotationType == Identity.class) {
+        flags |= IDENTIFYING;
+      } else if (annotationType == ElementIdentity.class) {
+        flags |= ELEMENT_IDENTIFYING;
+      }
+    }
+
+    this.flags = flags;
+    this.minItems = Optional.ofNullable(minItems);
+    this.maxItems = Optional.ofNullable(maxItems);
+    this.minLength = Optional.ofNullable(minLength);
+    this.maxLength = Optional.ofNullable(maxLength);
+    this.description = Optional.ofNullable(description);
+
+    if (uuid != null) {
+      this.valueGeneratorMirror = Optional.of(new AnnotationUuidMirror(uuid));
+    } else if (intSequence != null) {
+      this.valueGeneratorMirror = Optional.of(new AnnotationIntSequenceMirror(intSequence));
+    } else if (currentTime != null) {
+      this.valueGeneratorMirror = Optional.of(new AnnotationCurrentTimeMirror(currentTime));
+    } else {
+      this.valueGeneratorMirror = Optional.empty();
+    }
   }
 
   @Override
   public String name() {
-    return property.getName();
+    return name;
   }
 
   @Override
   public Class<?> javaType() {
-    return property.getPropertyType();
+    return propertyType;
   }
 
   @Override
   public Optional<String> description() {
-    Description description = property.getWriteMethod().getAnnotation(Description.class);
-    return Optional.ofNullable(description)
-        .map(Description::value);
+    return description;
   }
 
   @Override
   public boolean isRequired() {
-    return property.getWriteMethod().isAnnotationPresent(Required.class);
+    return (flags & REQUIRED) != 0;
   }
 
   @Override
   public boolean isIdentifying() {
-    return property.getWriteMethod().isAnnotationPresent(Identity.class) ||
-        property.getReadMethod().isAnnotationPresent(Identity.class);
+    return (flags & IDENTIFYING) != 0;
   }
 
   @Override
   public boolean isElementIdentifying() {
-    return property.getWriteMethod().isAnnotationPresent(ElementIdentity.class) ||
-        property.getReadMethod().isAnnotationPresent(ElementIdentity.class);
+    return (flags & ELEMENT_IDENTIFYING) != 0;
   }
 
   @Override
   public Optional<Integer> minItems() {
-    MinItems minItems = property.getWriteMethod().getAnnotation(MinItems.class);
-    return Optional.ofNullable(minItems)
-        .map(MinItems::value);
+    return minItems;
   }
 
   @Override
   public Optional<Integer> maxItems() {
-    MaxItems maxItems = property.getWriteMethod().getAnnotation(MaxItems.class);
-    return Optional.ofNullable(maxItems)
-        .map(MaxItems::value);
+    return maxItems;
   }
 
   @Override
   public Optional<Integer> minLength() {
-    MinLength minLength = property.getWriteMethod().getAnnotation(MinLength.class);
-    return Optional.ofNullable(minLength)
-        .map(MinLength::value);
+    return minLength;
   }
 
   @Override
   public Optional<Integer> maxLength() {
-    MaxLength maxLength = property.getWriteMethod().getAnnotation(MaxLength.class);
-    return Optional.ofNullable(maxLength)
-        .map(MaxLength::value);
+    return maxLength;
   }
 
   @Override
   public Collection<FieldMirror> objectFields() {
-    return reflector.reflect(property.getPropertyType()).getFields();
+    return reflector.reflect(propertyType).getFields();
   }
 
   @Override
   public Optional<Class<?>> elementJavaType() {
-    java.lang.reflect.Type propertyType = property.getReadMethod().getGenericReturnType();
+    java.lang.reflect.Type returnType = readMethod.getGenericReturnType();
 
-    if (!(propertyType instanceof ParameterizedType)) {
+    if (!(returnType instanceof ParameterizedType)) {
       return Optional.empty();
     }
 
-    ParameterizedType genericPropertyType = (ParameterizedType) propertyType;
+    ParameterizedType genericPropertyType = (ParameterizedType) returnType;
 
     return Optional.of((Class<?>) genericPropertyType.getActualTypeArguments()[0]);
   }
@@ -131,26 +209,10 @@ public class JavaBeansFieldMirror implements FieldMirror {
 
   @Override
   public Optional<ValueGeneratorMirror> valueGeneratorMirror() {
-    Method writeMethod = property.getWriteMethod();
-
-    Uuid uuid = writeMethod.getAnnotation(Uuid.class);
-
-    if (uuid != null) {
-      return Optional.of(new AnnotationUuidMirror(uuid));
-    }
-
-    IntSequence intSequence = writeMethod.getAnnotation(IntSequence.class);
-
-    if (intSequence != null) {
-      return Optional.of(new AnnotationIntSequenceMirror(intSequence));
-    }
-
-    CurrentTime currentTime = writeMethod.getAnnotation(CurrentTime.class);
-
-    if (currentTime != null) {
-      return Optional.of(new AnnotationCurrentTimeMirror(currentTime));
-    }
+    return valueGeneratorMirror;
+  }
 
-    return Optional.empty();
+  private static Annotation[] declaredAnnotations(Method accessor) {
+    return accessor == null ? new Annotation[0] : accessor.getDeclaredAnnotations();
   }
 }
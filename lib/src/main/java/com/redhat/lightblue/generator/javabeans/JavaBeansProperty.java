@@ -0,0 +1,38 @@
+package com.redhat.lightblue.generator.javabeans;
+
+import java.lang.reflect.Method;
+
+/**
+ * The name, type, and accessors of a bean property, however they were discovered.
+ */
+public final class JavaBeansProperty {
+  private final String name;
+  private final Class<?> type;
+  private final Method readMethod;
+  private final Method writeMethod;
+
+  JavaBeansProperty(String name, Class<?> type, Method readMethod, Method writeMethod) {
+    this.name = name;
+    this.type = type;
+    this.readMethod = readMethod;
+    this.writeMethod = writeMethod;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public Class<?> type() {
+    return type;
+  }
+
+  /** May be null for a write-only property. */
+  public Method readMethod() {
+    return readMethod;
+  }
+
+  /** May be null for a read-only property. */
+  public Method writeMethod() {
+    return writeMethod;
+  }
+}
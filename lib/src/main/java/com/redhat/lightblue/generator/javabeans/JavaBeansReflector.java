@@ -4,8 +4,18 @@ import com.redhat.lightblue.generator.BeanMirror;
 import com.redhat.lightblue.generator.Reflector;
 
 public class JavaBeansReflector implements Reflector {
+  private final PropertyDiscovery propertyDiscovery;
+
+  public JavaBeansReflector() {
+    this(PropertyDiscovery.INTROSPECTOR);
+  }
+
+  public JavaBeansReflector(PropertyDiscovery propertyDiscovery) {
+    this.propertyDiscovery = propertyDiscovery;
+  }
+
   @Override
   public BeanMirror reflect(Class<?> bean) {
-    return new JavaBeansBeanMirror(bean, this);
+    return new JavaBeansBeanMirror(bean, this, propertyDiscovery);
   }
 }
@@ -0,0 +1,59 @@
+package com.redhat.lightblue.generator.javabeans;
+
+import com.redhat.lightblue.generator.MirrorException;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How {@link JavaBeansBeanMirror} discovers the properties of a bean.
+ */
+public enum PropertyDiscovery {
+  /**
+   * Uses {@link Introspector#getBeanInfo(Class, Class)}.
+   */
+  INTROSPECTOR {
+    @Override
+    List<JavaBeansProperty> properties(Class<?> bean) {
+      try {
+        BeanInfo info = Introspector.getBeanInfo(bean, Object.class);
+        PropertyDescriptor[] descriptors = info.getPropertyDescriptors();
+        List<JavaBeansProperty> properties = new ArrayList<>(descriptors.length);
+
+        for (PropertyDescriptor descriptor : descriptors) {
+          properties.add(new JavaBeansProperty(descriptor.getName(),
+              descriptor.getPropertyType(), descriptor.getReadMethod(),
+              descriptor.getWriteMethod()));
+        }
+
+        return properties;
+      } catch (IntrospectionException e) {
+        throw new MirrorException(e);
+      }
+    }
+  },
+
+  /**
+   * Pairs getters and setters from {@link Class#getMethods()} directly, following the same naming
+   * rules as the {@link Introspector}, and caches the result per class. This skips building
+   * {@link BeanInfo}, and the Introspector's internally synchronized cache, which is contended when
+   * many threads generate metadata at once.
+   *
+   * <p>Indexed properties are not supported.
+   */
+  ACCESSOR_METHODS {
+    @Override
+    List<JavaBeansProperty> properties(Class<?> bean) {
+      return AccessorMethods.properties(bean);
+    }
+  };
+
+  /**
+   * @return The bean's properties, excluding those declared by {@link Object}, sorted by name.
+   */
+  abstract List<JavaBeansProperty> properties(Class<?> bean);
+}
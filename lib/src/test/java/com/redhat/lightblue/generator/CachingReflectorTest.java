@@ -0,0 +1,61 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CachingReflectorTest {
+  private Extensions extensions = new Extensions();
+  private JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+  private JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+
+  CachingReflector reflector = new CachingReflector(new JavaBeansReflector());
+
+  @Before
+  public void setUp() throws Exception {
+    extensions.addDefaultExtensions();
+  }
+
+  @Test
+  public void shouldReturnSameMirrorForSameClass() {
+    BeanMirror first = reflector.reflect(ExampleTest.User.class);
+    BeanMirror second = reflector.reflect(ExampleTest.User.class);
+
+    assertSame(first, second);
+    assertEquals(1, reflector.missCount());
+    assertEquals(1, reflector.hitCount());
+  }
+
+  @Test
+  public void shouldReflectEachSharedNestedTypeOnce() {
+    MetadataGenerator generator = new MetadataGenerator(reflector);
+
+    generator.generateMetadata(ExampleTest.User.class);
+    long missesAfterFirstRun = reflector.missCount();
+    generator.generateMetadata(ExampleTest.User.class);
+
+    // User, Address, State, and PhoneNumber
+    assertEquals(4, missesAfterFirstRun);
+    assertEquals(missesAfterFirstRun, reflector.missCount());
+  }
+
+  @Test
+  public void shouldGenerateSameMetadataAsUncachedReflector() {
+    MetadataGenerator uncached = new MetadataGenerator(new JavaBeansReflector());
+    MetadataGenerator cached = new MetadataGenerator(reflector);
+
+    assertEquals(
+        parser.convert(uncached.generateMetadata(ExampleTest.User.class)),
+        parser.convert(cached.generateMetadata(ExampleTest.User.class)));
+  }
+}
@@ -0,0 +1,78 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.classfile.ClassFileReflector;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ClassFileReflectorTest {
+  private Extensions extensions = new Extensions();
+  private JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+  private JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+
+  ClassFileReflector reflector = new ClassFileReflector(getClass().getClassLoader());
+
+  @Before
+  public void setUp() throws Exception {
+    extensions.addDefaultExtensions();
+  }
+
+  @Test
+  public void shouldGenerateSameMetadataAsJavaBeansReflector() {
+    MetadataGenerator javaBeans = new MetadataGenerator(new JavaBeansReflector());
+    MetadataGenerator classFiles = new MetadataGenerator(reflector);
+
+    assertEquals(
+        parser.convert(javaBeans.generateMetadata(ExampleTest.User.class)),
+        parser.convert(classFiles.generateMetadata(ExampleTest.User.class)));
+  }
+
+  @Test
+  public void shouldNotInitializeEnumsOrEntity() {
+    MetadataGenerator generator = new MetadataGenerator(reflector);
+
+    EntityMetadata metadata = generator.generateMetadata(
+        reflector.reflect(Uninitializable.class.getName()));
+
+    assertEquals("uninitializable", metadata.getName());
+    assertEquals(2, metadata.getEntityInfo().getEnums().getEnum("color").getValues().size());
+  }
+
+  static class Uninitializable {
+    static {
+      if (true) {
+        throw new AssertionError("Entity should not be initialized");
+      }
+    }
+
+    private Color color;
+
+    public Color getColor() {
+      return color;
+    }
+
+    public void setColor(Color color) {
+      this.color = color;
+    }
+
+    enum Color {
+      red, blue;
+
+      static {
+        if (true) {
+          throw new AssertionError("Enum should not be initialized");
+        }
+      }
+    }
+  }
+}
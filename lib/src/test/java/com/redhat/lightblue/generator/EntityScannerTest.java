@@ -0,0 +1,86 @@
+package com.redhat.lightblue.generator;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import com.redhat.lightblue.generator.classfile.EntityScanner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+@RunWith(JUnit4.class)
+public class EntityScannerTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void findsAnnotatedClassesInDirectories() throws Exception {
+    Set<String> found = scan(Collections.singleton(testClasses()), "com.redhat.lightblue");
+
+    assertThat(found, hasItem(ExampleTest.User.class.getName()));
+    assertThat(found, hasItem(endsWith("NotTheEntityName")));
+    assertThat(found, not(hasItem(ExampleTest.User.Address.class.getName())));
+    assertThat(found, not(hasItem(EntityScannerTest.class.getName())));
+  }
+
+  @Test
+  public void findsAnnotatedClassesInJars() throws Exception {
+    Path jar = temporaryFolder.getRoot().toPath().resolve("entities.jar");
+
+    try (OutputStream out = Files.newOutputStream(jar);
+         JarOutputStream jarOut = new JarOutputStream(out)) {
+      for (Class<?> type : new Class<?>[] {ExampleTest.User.class, ExampleTest.class}) {
+        String entryName = type.getName().replace('.', '/') + ".class";
+        jarOut.putNextEntry(new ZipEntry(entryName));
+
+        try (InputStream classFile = type.getClassLoader().getResourceAsStream(entryName)) {
+          byte[] buffer = new byte[8192];
+
+          for (int read; (read = classFile.read(buffer)) != -1; ) {
+            jarOut.write(buffer, 0, read);
+          }
+        }
+      }
+    }
+
+    assertEquals(Collections.singleton(ExampleTest.User.class.getName()),
+        scan(Collections.singleton(jar), "com.redhat"));
+  }
+
+  @Test
+  public void skipsOtherPackages() throws Exception {
+    assertEquals(Collections.emptySet(),
+        scan(Collections.singleton(testClasses()), "com.redhat.lightblue.generator.other"));
+  }
+
+  private static Set<String> scan(Set<Path> roots, String packageName) {
+    Set<String> found = ConcurrentHashMap.newKeySet();
+    new EntityScanner(Collections.singleton(packageName))
+        .scan(roots, ForkJoinPool.commonPool(), found::add)
+        .join();
+    return found;
+  }
+
+  private static Path testClasses() throws URISyntaxException {
+    return Paths.get(EntityScannerTest.class.getProtectionDomain().getCodeSource().getLocation()
+        .toURI());
+  }
+}
@@ -0,0 +1,133 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.Type;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+@RunWith(JUnit4.class)
+public class FingerprintManifestTest {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClassLoader classLoader = getClass().getClassLoader();
+  private Path outputDirectory;
+  private Path metadataFile;
+
+  @Before
+  public void setUp() throws Exception {
+    outputDirectory = temporaryFolder.getRoot().toPath();
+    metadataFile = outputDirectory.resolve("user.json");
+    Files.write(metadataFile, "{}".getBytes(UTF_8));
+  }
+
+  @Test
+  public void findsEmbeddedTypesAndEnums() {
+    Set<String> classNames = FingerprintManifest.embeddedClassNames(ExampleTest.User.class,
+        new JavaBeansReflector(), TypeMappers.defaults());
+
+    assertEquals(new TreeSet<>(Arrays.asList(
+        ExampleTest.User.class.getName(),
+        ExampleTest.User.Address.class.getName(),
+        ExampleTest.User.Address.State.class.getName(),
+        ExampleTest.User.PhoneNumber.class.getName(),
+        ExampleTest.User.Status.class.getName())), classNames);
+  }
+
+  @Test
+  public void isUnchangedAfterSavingAndReading() throws Exception {
+    FingerprintManifest manifest = FingerprintManifest.read(outputDirectory, classLoader);
+    assertFalse(manifest.isUnchanged(ExampleTest.User.class.getName()));
+
+    manifest.record(ExampleTest.User.class.getName(), metadataFile,
+        Collections.singleton(ExampleTest.User.class.getName()));
+    manifest.save();
+
+    assertTrue(FingerprintManifest.read(outputDirectory, classLoader)
+        .isUnchanged(ExampleTest.User.class.getName()));
+  }
+
+  @Test
+  public void isChangedIfMetadataFileChanges() throws Exception {
+    FingerprintManifest manifest = FingerprintManifest.read(outputDirectory, classLoader);
+    manifest.record(ExampleTest.User.class.getName(), metadataFile,
+        Collections.singleton(ExampleTest.User.class.getName()));
+
+    Files.write(metadataFile, "{\"edited\": true}".getBytes(UTF_8));
+
+    assertFalse(manifest.isUnchanged(ExampleTest.User.class.getName()));
+  }
+
+  @Test
+  public void isChangedIfClassFileIsMissing() throws Exception {
+    FingerprintManifest manifest = FingerprintManifest.read(outputDirectory, classLoader);
+    manifest.record(ExampleTest.User.class.getName(), metadataFile,
+        Arrays.asList(ExampleTest.User.class.getName(), "com.example.Removed"));
+
+    assertFalse(manifest.isUnchanged(ExampleTest.User.class.getName()));
+  }
+
+  @Test
+  public void isChangedIfGeneratedWithOtherOptions() throws Exception {
+    FingerprintManifest manifest = FingerprintManifest.read(outputDirectory, classLoader,
+        "reflector=java-beans", TypeMappers.defaults());
+    manifest.record(ExampleTest.User.class.getName(), metadataFile,
+        Collections.singleton(ExampleTest.User.class.getName()));
+    manifest.save();
+
+    assertFalse(FingerprintManifest.read(outputDirectory, classLoader, "reflector=class-files",
+        TypeMappers.defaults()).isUnchanged(ExampleTest.User.class.getName()));
+  }
+
+  @Test
+  public void isChangedIfGeneratedWithOtherTypeMappers() throws Exception {
+    FingerprintManifest manifest = FingerprintManifest.read(outputDirectory, classLoader);
+    manifest.record(ExampleTest.User.class.getName(), metadataFile,
+        Collections.singleton(ExampleTest.User.class.getName()));
+    manifest.save();
+
+    TypeMappers typeMappers = new TypeMappers(Collections.singletonList(new TypeMapper() {
+      @Override
+      public Optional<Type> typeOf(Class<?> javaType) {
+        return Optional.empty();
+      }
+    }));
+
+    assertFalse(FingerprintManifest.read(outputDirectory, classLoader, "", typeMappers)
+        .isUnchanged(ExampleTest.User.class.getName()));
+  }
+
+  @Test
+  public void readsClassFilesThroughTheClassLoaderOfEachView() throws Exception {
+    FingerprintManifest manifest = FingerprintManifest.read(outputDirectory, classLoader);
+    manifest.record(ExampleTest.User.class.getName(), metadataFile,
+        Collections.singleton(ExampleTest.User.class.getName()));
+
+    // Finds no class files at all
+    FingerprintManifest view = manifest.withClassLoader(new URLClassLoader(new URL[0], null));
+
+    assertFalse(view.isUnchanged(ExampleTest.User.class.getName()));
+    assertTrue(manifest.isUnchanged(ExampleTest.User.class.getName()));
+  }
+}
@@ -0,0 +1,144 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.classfile.ClassFileReflector;
+import com.redhat.lightblue.generator.classfile.IndexedReflector;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+@RunWith(JUnit4.class)
+public class IndexedReflectorTest {
+  private Extensions extensions = new Extensions();
+  private JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+  private JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path indexFile;
+
+  @Before
+  public void setUp() throws Exception {
+    extensions.addDefaultExtensions();
+    indexFile = temporaryFolder.getRoot().toPath().resolve("mirrors.idx");
+  }
+
+  @Test
+  public void answersFromIndexOfClassDirectory() throws Exception {
+    ClassLoader classLoader = getClass().getClassLoader();
+    List<Path> roots = Collections.singletonList(testClasses());
+
+    IndexedReflector first = new IndexedReflector(classLoader, roots, indexFile);
+    Object expected = parser.convert(new MetadataGenerator(first)
+        .generateMetadata(ExampleTest.User.class));
+    first.save();
+
+    IndexedReflector second = new IndexedReflector(classLoader, roots, indexFile);
+    Object actual = parser.convert(new MetadataGenerator(second)
+        .generateMetadata(ExampleTest.User.class));
+
+    assertEquals(expected, actual);
+    assertEquals(first.missCount(), second.hitCount());
+    assertEquals(0, second.missCount());
+  }
+
+  @Test
+  public void generatesSameMetadataAsClassFileReflector() throws Exception {
+    ClassLoader classLoader = getClass().getClassLoader();
+    List<Path> roots = Collections.singletonList(testClasses());
+
+    IndexedReflector first = new IndexedReflector(classLoader, roots, indexFile);
+    first.reflect(ExampleTest.User.class);
+    first.save();
+
+    assertEquals(
+        parser.convert(new MetadataGenerator(new ClassFileReflector(classLoader))
+            .generateMetadata(ExampleTest.User.class)),
+        parser.convert(new MetadataGenerator(new IndexedReflector(classLoader, roots, indexFile))
+            .generateMetadata(ExampleTest.User.class)));
+  }
+
+  @Test
+  public void keepsEntriesNotLookedUpWhileJarIsUnchanged() throws Exception {
+    Path jar = jarOfExampleClasses();
+    List<Path> roots = Collections.singletonList(jar);
+
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] {jar.toUri().toURL()},
+        getClass().getClassLoader())) {
+      IndexedReflector first = new IndexedReflector(classLoader, roots, indexFile);
+      new MetadataGenerator(first).generateMetadata(ExampleTest.User.class);
+      first.save();
+
+      // Only looks up the entity itself, yet must keep its nested types for the next run
+      IndexedReflector second = new IndexedReflector(classLoader, roots, indexFile);
+      second.reflect(ExampleTest.User.class);
+      second.save();
+
+      IndexedReflector third = new IndexedReflector(classLoader, roots, indexFile);
+      new MetadataGenerator(third).generateMetadata(ExampleTest.User.class);
+
+      assertEquals(0, third.missCount());
+    }
+  }
+
+  @Test
+  public void ignoresCorruptIndex() throws Exception {
+    Files.write(indexFile, new byte[] {0x4C, 0x42, 0x4D, 0x49, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 9});
+
+    IndexedReflector reflector = new IndexedReflector(getClass().getClassLoader(),
+        Collections.singletonList(testClasses()), indexFile);
+    reflector.reflect(ExampleTest.User.class);
+
+    assertEquals(1, reflector.missCount());
+  }
+
+  private Path jarOfExampleClasses() throws Exception {
+    Path classes = testClasses();
+    Path jar = temporaryFolder.getRoot().toPath().resolve("entities.jar");
+    List<Path> classFiles;
+
+    try (Stream<Path> files = Files.list(classes.resolve("com/redhat/lightblue/generator"))) {
+      classFiles = files
+          .filter(file -> file.getFileName().toString().startsWith("ExampleTest"))
+          .collect(Collectors.toList());
+    }
+
+    try (OutputStream out = Files.newOutputStream(jar);
+         JarOutputStream jarOut = new JarOutputStream(out)) {
+      for (Path classFile : classFiles) {
+        jarOut.putNextEntry(new ZipEntry(classes.relativize(classFile).toString()));
+        jarOut.write(Files.readAllBytes(classFile));
+      }
+    }
+
+    return jar;
+  }
+
+  private static Path testClasses() throws Exception {
+    return Paths.get(IndexedReflectorTest.class.getProtectionDomain().getCodeSource()
+        .getLocation().toURI());
+  }
+}
@@ -0,0 +1,101 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.EntityInfo;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class MetadataBundleTest {
+  private Extensions extensions = new Extensions();
+  private JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+  private JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+  private ObjectMapper mapper = new ObjectMapper();
+
+  private MetadataGenerator generator = new MetadataGenerator(new JavaBeansReflector());
+  private MetadataJsonWriter jsonWriter;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Before
+  public void setUp() throws Exception {
+    extensions.addDefaultExtensions();
+    jsonWriter = new MetadataJsonWriter(parser);
+  }
+
+  @Test
+  public void zipHasPrettyPrintedEntryPerEntity() throws Exception {
+    Path bundleFile = temporaryFolder.getRoot().toPath().resolve("metadata.zip");
+    EntityMetadata user = generator.generateMetadata(ExampleTest.User.class);
+
+    try (MetadataBundle bundle = MetadataBundle.open(bundleFile, jsonWriter)) {
+      assertTrue(bundle.write("user", user));
+    }
+
+    Map<String, byte[]> entities = MetadataBundle.read(bundleFile);
+
+    assertEquals(Arrays.asList("user"), Arrays.asList(entities.keySet().toArray()));
+    assertArrayEquals(mapper.writerWithDefaultPrettyPrinter()
+        .writeValueAsBytes(parser.convert(user)), entities.get("user"));
+  }
+
+  @Test
+  public void gzippedNdjsonHasCompactLinePerEntity() throws Exception {
+    Path bundleFile = temporaryFolder.getRoot().toPath().resolve("metadata.ndjson.gz");
+    EntityMetadata user = generator.generateMetadata(ExampleTest.User.class);
+
+    try (MetadataBundle bundle = MetadataBundle.open(bundleFile, jsonWriter)) {
+      bundle.write("user", user);
+    }
+
+    assertArrayEquals(mapper.writeValueAsBytes(parser.convert(user)),
+        MetadataBundle.read(bundleFile).get("user"));
+  }
+
+  @Test
+  public void updatingKeepsEntitiesNotWrittenAndDetectsUnchangedOnes() throws Exception {
+    Path bundleFile = temporaryFolder.getRoot().toPath().resolve("metadata.ndjson");
+    EntityMetadata user = generator.generateMetadata(ExampleTest.User.class);
+    EntityMetadata other = new EntityMetadata(new EntityInfo("other"),
+        generator.generateMetadata(ExampleTest.User.class).getEntitySchema());
+
+    try (MetadataBundle bundle = MetadataBundle.open(bundleFile, jsonWriter)) {
+      bundle.write("user", user);
+      bundle.write("other", other);
+    }
+
+    try (MetadataBundle bundle = MetadataBundle.open(bundleFile, jsonWriter)) {
+      assertTrue(bundle.existing("other").isPresent());
+      assertFalse(bundle.write("user", user));
+    }
+
+    assertEquals(parser.convert(other),
+        mapper.readTree(MetadataBundle.read(bundleFile).get("other")));
+    assertArrayEquals(new String[] {"metadata.ndjson"}, temporaryFolder.getRoot().list());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsUnknownFormat() throws Exception {
+    MetadataBundle.open(temporaryFolder.getRoot().toPath().resolve("metadata.tar"), jsonWriter);
+  }
+}
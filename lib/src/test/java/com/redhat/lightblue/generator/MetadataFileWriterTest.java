@@ -0,0 +1,80 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+@RunWith(JUnit4.class)
+public class MetadataFileWriterTest {
+  private Extensions extensions = new Extensions();
+  private JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+  private JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+
+  private MetadataGenerator generator = new MetadataGenerator(new JavaBeansReflector());
+  private MetadataFileWriter writer;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path metadataFile;
+
+  @Before
+  public void setUp() throws Exception {
+    extensions.addDefaultExtensions();
+    writer = new MetadataFileWriter(new MetadataJsonWriter(parser));
+    metadataFile = temporaryFolder.getRoot().toPath().resolve("user.json");
+  }
+
+  @Test
+  public void writesSameJsonAsPrettyPrintedTree() throws Exception {
+    EntityMetadata metadata = generator.generateMetadata(ExampleTest.User.class);
+
+    assertTrue(writer.write(metadata, metadataFile));
+    assertArrayEquals(new ObjectMapper().writerWithDefaultPrettyPrinter()
+        .writeValueAsBytes(parser.convert(metadata)), Files.readAllBytes(metadataFile));
+  }
+
+  @Test
+  public void leavesFileWithSameContentAlone() throws Exception {
+    EntityMetadata metadata = generator.generateMetadata(ExampleTest.User.class);
+    writer.write(metadata, metadataFile);
+    FileTime written = FileTime.fromMillis(1000);
+    Files.setLastModifiedTime(metadataFile, written);
+
+    assertFalse(writer.write(metadata, metadataFile));
+    assertEquals(written, Files.getLastModifiedTime(metadataFile));
+  }
+
+  @Test
+  public void replacesFileWithDifferentContentAndLeavesNoTemporaryFiles() throws Exception {
+    EntityMetadata metadata = generator.generateMetadata(ExampleTest.User.class);
+    Files.write(metadataFile, "{}".getBytes("UTF-8"));
+
+    assertTrue(writer.write(metadata, metadataFile));
+    assertEquals(parser.convert(metadata),
+        new ObjectMapper().readTree(metadataFile.toFile()));
+
+    File[] files = temporaryFolder.getRoot().listFiles();
+    assertEquals(1, files.length);
+  }
+}
@@ -3,19 +3,29 @@ package com.redhat.lightblue.generator;
 import static com.redhat.lightblue.generator.matchers.GeneratorMatchers.equalToFields;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.redhat.lightblue.metadata.ArrayField;
 import com.redhat.lightblue.metadata.DataStore;
 import com.redhat.lightblue.metadata.EntityMetadata;
 import com.redhat.lightblue.metadata.EntitySchema;
+import com.redhat.lightblue.metadata.Field;
 import com.redhat.lightblue.metadata.Fields;
 import com.redhat.lightblue.metadata.Hook;
 import com.redhat.lightblue.metadata.ObjectArrayElement;
 import com.redhat.lightblue.metadata.ObjectField;
 import com.redhat.lightblue.metadata.SimpleArrayElement;
 import com.redhat.lightblue.metadata.SimpleField;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
 import com.redhat.lightblue.metadata.types.BooleanType;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
 import com.redhat.lightblue.metadata.types.DateType;
 import com.redhat.lightblue.metadata.types.IntegerType;
 import com.redhat.lightblue.metadata.types.StringType;
@@ -29,10 +39,22 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 @RunWith(JUnit4.class)
 public class MetadataGeneratorTest {
+  private static final Extensions<JsonNode> extensions = new Extensions<>();
+  static {
+    extensions.addDefaultExtensions();
+  }
+  private static final JSONMetadataParser parser = new JSONMetadataParser(extensions,
+      new DefaultTypes(), JsonNodeFactory.withExactBigDecimals(true));
+
   MetadataGenerator generator = new MetadataGenerator(new JavaBeansReflector());
 
   @Test
@@ -336,6 +358,310 @@ public class MetadataGeneratorTest {
     assertTrue(updated.getFields().has("name"));
   }
 
+  @Test
+  public void generatesAllEntitiesInOrderAndReportsFailuresPerEntity() {
+    class Valid {
+      private String name;
+
+      public String getName() {
+        return name;
+      }
+
+      public void setName(String name) {
+        this.name = name;
+      }
+    }
+
+    class Invalid {
+      private List items;
+
+      public List getItems() {
+        return items;
+      }
+
+      public void setItems(List items) {
+        this.items = items;
+      }
+    }
+
+    List<GenerationResult> results = generator.generateAll(
+        Arrays.asList(Valid.class, Invalid.class, ExampleTest.User.class),
+        ForkJoinPool.commonPool());
+
+    assertEquals(3, results.size());
+    assertEquals(Valid.class, results.get(0).entity());
+    assertEquals("valid", results.get(0).metadata().get().getName());
+    assertEquals(Invalid.class, results.get(1).entity());
+    assertFalse(results.get(1).isSuccess());
+    assertTrue(results.get(1).failure().isPresent());
+    assertEquals(ExampleTest.User.class, results.get(2).entity());
+    assertTrue(results.get(2).isSuccess());
+  }
+
+  @Test
+  public void copiesRepeatedObjectTypesWithTheirOwnParents() {
+    EntityMetadata metadata = generator.generateMetadata(ExampleTest.User.class);
+
+    ObjectField phoneNumber = (ObjectField) metadata.getFields().getField("phoneNumber");
+    ObjectField faxNumber = (ObjectField) metadata.getFields().getField("faxNumber");
+    Field phoneAreaCode = phoneNumber.getFields().getField("areaCode");
+    Field faxAreaCode = faxNumber.getFields().getField("areaCode");
+
+    assertNotSame(phoneAreaCode, faxAreaCode);
+    assertSame(phoneNumber, phoneAreaCode.getParent());
+    assertSame(faxNumber, faxAreaCode.getParent());
+    assertEquals(phoneAreaCode.getConstraints(), faxAreaCode.getConstraints());
+  }
+
+  @Test
+  public void generatesSharedTypesInBatchesAsIfEachEntityWereGeneratedAlone() {
+    List<Class<?>> entities = Arrays.asList(Customer.class, Vendor.class,
+        ExampleTest.User.class, Category.class);
+
+    for (int maxDepth : new int[] {MetadataGenerator.UNLIMITED_DEPTH, 1, 2}) {
+      for (RecursionPolicy policy : Arrays.asList(RecursionPolicy.EMPTY_OBJECT,
+          RecursionPolicy.OMIT)) {
+        String configuration = maxDepth + " " + policy;
+        MetadataGenerator shared = new MetadataGenerator(
+            new CachingReflector(new JavaBeansReflector()), maxDepth, policy);
+        Supplier<MetadataGenerator> fresh =
+            () -> new MetadataGenerator(new JavaBeansReflector(), maxDepth, policy);
+
+        List<GenerationResult> generated =
+            shared.generateAll(entities, ForkJoinPool.commonPool());
+        Map<Class<?>, EntityMetadata> originals = new LinkedHashMap<>();
+
+        for (Class<?> entity : entities) {
+          originals.put(entity, original(entity));
+        }
+
+        List<GenerationResult> updated = shared.updateAll(originals, ForkJoinPool.commonPool());
+
+        for (int i = 0; i < entities.size(); i++) {
+          Class<?> entity = entities.get(i);
+
+          assertEquals(configuration + " " + entity,
+              parser.convert(fresh.get().generateMetadata(entity)),
+              parser.convert(generated.get(i).metadata().get()));
+          assertEquals(configuration + " " + entity,
+              parser.convert(fresh.get().updateMetadata(original(entity), entity)),
+              parser.convert(updated.get(i).metadata().get()));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void failsWithPathOfRecursiveField() {
+    try {
+      generator.generateMetadata(Category.class);
+      fail("Expected recursive field to fail");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), Matchers.containsString("children.*"));
+    }
+  }
+
+  @Test
+  public void generatesEmptyObjectsForRecursiveFields() {
+    MetadataGenerator generator = new MetadataGenerator(new JavaBeansReflector(),
+        MetadataGenerator.UNLIMITED_DEPTH, RecursionPolicy.EMPTY_OBJECT);
+
+    EntityMetadata metadata = generator.generateMetadata(Category.class);
+
+    ArrayField children = (ArrayField) metadata.getFields().getField("children");
+    ObjectArrayElement element = (ObjectArrayElement) children.getElement();
+    assertEquals(0, element.getFields().getNumChildren());
+    assertTrue(metadata.getFields().has("name"));
+  }
+
+  @Test
+  public void omitsFieldsNestedDeeperThanMaxDepth() {
+    MetadataGenerator generator = new MetadataGenerator(new JavaBeansReflector(), 1,
+        RecursionPolicy.OMIT);
+
+    EntityMetadata metadata = generator.generateMetadata(ExampleTest.User.class);
+
+    ArrayField addresses = (ArrayField) metadata.getFields().getField("addresses");
+    Fields addressFields = ((ObjectArrayElement) addresses.getElement()).getFields();
+    assertTrue(addressFields.has("city"));
+    assertFalse(addressFields.has("state"));
+    assertTrue(metadata.getFields().has("phoneNumber"));
+  }
+
+  @Test
+  public void collectsEnumsOfNestedFieldsOnce() {
+    class Owner {
+      private Pet pet;
+      private List<Pet> pets;
+
+      public Pet getPet() {
+        return pet;
+      }
+
+      public void setPet(Pet pet) {
+        this.pet = pet;
+      }
+
+      public List<Pet> getPets() {
+        return pets;
+      }
+
+      public void setPets(List<Pet> pets) {
+        this.pets = pets;
+      }
+    }
+
+    EntityMetadata metadata = generator.generateMetadata(Owner.class);
+
+    assertEquals(1, metadata.getEntityInfo().getEnums().getEnums().size());
+    assertEquals(2, metadata.getEntityInfo().getEnums().getEnum("species").getValues().size());
+  }
+
+  static class Pet {
+    private Species species;
+
+    public Species getSpecies() {
+      return species;
+    }
+
+    public void setSpecies(Species species) {
+      this.species = species;
+    }
+
+    enum Species {
+      cat, dog
+    }
+  }
+
+  /**
+   * @return Metadata of {@code entity} as if generated before its types were limited, so that
+   * updating it both keeps and truncates subtrees, with roles of its own on every field, which
+   * updating keeps.
+   */
+  private static EntityMetadata original(Class<?> entity) {
+    EntityMetadata original = new MetadataGenerator(new JavaBeansReflector(),
+        MetadataGenerator.UNLIMITED_DEPTH, RecursionPolicy.EMPTY_OBJECT).generateMetadata(entity);
+    setFindRoles(original.getFields(), entity.getSimpleName());
+    return original;
+  }
+
+  private static void setFindRoles(Fields fields, String role) {
+    for (Iterator<Field> i = fields.getFields(); i.hasNext(); ) {
+      Field field = i.next();
+      field.getAccess().getFind().setRoles(role);
+
+      if (field instanceof ObjectField) {
+        setFindRoles(((ObjectField) field).getFields(), role);
+      } else if (field instanceof ArrayField
+          && ((ArrayField) field).getElement() instanceof ObjectArrayElement) {
+        setFindRoles(((ObjectArrayElement) ((ArrayField) field).getElement()).getFields(), role);
+      }
+    }
+  }
+
+  static class Category {
+    private String name;
+    private List<Category> children;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public List<Category> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Category> children) {
+      this.children = children;
+    }
+  }
+
+  static class Customer {
+    private ExampleTest.User.Address home;
+    private List<ExampleTest.User.Address> previousAddresses;
+    private ExampleTest.User.PhoneNumber phoneNumber;
+    private Category interest;
+
+    public ExampleTest.User.Address getHome() {
+      return home;
+    }
+
+    public void setHome(ExampleTest.User.Address home) {
+      this.home = home;
+    }
+
+    public List<ExampleTest.User.Address> getPreviousAddresses() {
+      return previousAddresses;
+    }
+
+    public void setPreviousAddresses(List<ExampleTest.User.Address> previousAddresses) {
+      this.previousAddresses = previousAddresses;
+    }
+
+    public ExampleTest.User.PhoneNumber getPhoneNumber() {
+      return phoneNumber;
+    }
+
+    public void setPhoneNumber(ExampleTest.User.PhoneNumber phoneNumber) {
+      this.phoneNumber = phoneNumber;
+    }
+
+    public Category getInterest() {
+      return interest;
+    }
+
+    public void setInterest(Category interest) {
+      this.interest = interest;
+    }
+  }
+
+  /** Embeds the types {@link Customer} does, one level deeper. */
+  static class Vendor {
+    private Site site;
+    private ExampleTest.User.PhoneNumber faxNumber;
+
+    public Site getSite() {
+      return site;
+    }
+
+    public void setSite(Site site) {
+      this.site = site;
+    }
+
+    public ExampleTest.User.PhoneNumber getFaxNumber() {
+      return faxNumber;
+    }
+
+    public void setFaxNumber(ExampleTest.User.PhoneNumber faxNumber) {
+      this.faxNumber = faxNumber;
+    }
+  }
+
+  static class Site {
+    private ExampleTest.User.Address address;
+    private List<Category> categories;
+
+    public ExampleTest.User.Address getAddress() {
+      return address;
+    }
+
+    public void setAddress(ExampleTest.User.Address address) {
+      this.address = address;
+    }
+
+    public List<Category> getCategories() {
+      return categories;
+    }
+
+    public void setCategories(List<Category> categories) {
+      this.categories = categories;
+    }
+  }
+
   static class TestDataStore implements DataStore {
     @Override
     public String getBackend() {
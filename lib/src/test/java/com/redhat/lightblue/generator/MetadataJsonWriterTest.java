@@ -0,0 +1,71 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.ArrayField;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.ReferenceField;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import com.redhat.lightblue.query.Projection;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.StringWriter;
+
+@RunWith(JUnit4.class)
+public class MetadataJsonWriterTest {
+  private Extensions extensions = new Extensions();
+  private JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+  private JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+
+  private MetadataGenerator generator = new MetadataGenerator(new JavaBeansReflector());
+
+  @Before
+  public void setUp() throws Exception {
+    extensions.addDefaultExtensions();
+  }
+
+  @Test
+  public void writesSameJsonAsConvertedTree() throws Exception {
+    assertSameJson(generator.generateMetadata(ExampleTest.User.class));
+  }
+
+  @Test
+  public void writesSameJsonForPartsGeneratorDoesNotProduce() throws Exception {
+    EntityMetadata metadata = generator.generateMetadata(ExampleTest.User.class);
+    metadata.getProperties().put("owner", "accounts");
+    metadata.getEntitySchema().getProperties().put("tags", "users");
+    metadata.getEntitySchema().getAccess().getFind().setRoles("anyone");
+
+    ArrayField addresses = (ArrayField) metadata.getFields().getField("addresses");
+    addresses.getProperties().put("items", "A property named like a streamed member");
+    addresses.getAccess().getFind().setRoles("admin");
+
+    ReferenceField manager = new ReferenceField("manager");
+    manager.setEntityName("user");
+    manager.setVersionValue("1.0.0");
+    manager.setProjection(Projection.fromJson(factory.objectNode()
+        .put("field", "*")
+        .put("include", true)));
+    metadata.getFields().addNew(manager);
+
+    assertSameJson(metadata);
+  }
+
+  private void assertSameJson(EntityMetadata metadata) throws Exception {
+    StringWriter streamed = new StringWriter();
+    new MetadataJsonWriter(parser).write(metadata, streamed);
+
+    assertEquals(
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+            .writeValueAsString(parser.convert(metadata)),
+        streamed.toString());
+  }
+}
@@ -0,0 +1,132 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.entities.SimpleUser;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@RunWith(JUnit4.class)
+public class MetadataPipelineTest {
+  private Extensions extensions = new Extensions();
+  private JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+  private JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+
+  private Reflector reflector = new CachingReflector(new JavaBeansReflector());
+  private List<String> errors = new CopyOnWriteArrayList<>();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path outputDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    extensions.addDefaultExtensions();
+    outputDirectory = temporaryFolder.getRoot().toPath();
+  }
+
+  @Test
+  public void countsEntitiesWhichCannotBeWrittenAsFailedAndWritesTheRest() throws Exception {
+    MetadataPipeline.Pass pass = pipeline(new FailingFileWriter("user.json")).generate(
+        getClass().getClassLoader(), reflector,
+        Arrays.asList(ExampleTest.User.class.getName(), SimpleUser.class.getName()),
+        Optional.empty(), Collections.emptyList(), outputDirectory, Optional.empty(),
+        Optional.empty(), false);
+
+    assertEquals("Created 1, updated 0, unchanged 0, skipped 0, failed 1", pass.summary());
+    assertTrue(pass.failed());
+    assertEquals(Collections.singletonList("Failed to write "
+        + outputDirectory.resolve("user.json").toAbsolutePath()), errors);
+    assertTrue(Files.isRegularFile(outputDirectory.resolve("simpleUser.json")));
+    assertFalse(Files.exists(outputDirectory.resolve("user.json")));
+  }
+
+  @Test
+  public void savesManifestEvenIfEntitiesFail() throws Exception {
+    List<String> entities =
+        Arrays.asList(ExampleTest.User.class.getName(), SimpleUser.class.getName());
+    FingerprintManifest manifest =
+        FingerprintManifest.read(outputDirectory, getClass().getClassLoader());
+    pipeline(new FailingFileWriter("user.json")).generate(getClass().getClassLoader(),
+        reflector, entities, Optional.empty(), Collections.emptyList(), outputDirectory,
+        Optional.of(manifest), Optional.empty(), false);
+
+    MetadataPipeline.Pass pass = pipeline(new FailingFileWriter("user.json")).generate(
+        getClass().getClassLoader(), reflector, entities, Optional.empty(),
+        Collections.emptyList(), outputDirectory,
+        Optional.of(FingerprintManifest.read(outputDirectory, getClass().getClassLoader())),
+        Optional.empty(), false);
+
+    assertEquals("Created 0, updated 0, unchanged 0, skipped 1, failed 1", pass.summary());
+  }
+
+  @Test
+  public void tracksTheClassesEachWrittenEntityEmbeds() throws Exception {
+    MetadataPipeline.Pass pass = pipeline(new MetadataFileWriter(new MetadataJsonWriter(parser)))
+        .generate(getClass().getClassLoader(), reflector,
+            Collections.singletonList(ExampleTest.User.class.getName()), Optional.empty(),
+            Collections.emptyList(), outputDirectory, Optional.empty(), Optional.empty(), true);
+
+    assertFalse(pass.failed());
+    assertTrue(pass.embedded().get(ExampleTest.User.class.getName())
+        .contains(ExampleTest.User.Address.class.getName()));
+  }
+
+  private MetadataPipeline pipeline(MetadataFileWriter fileWriter) {
+    return new MetadataPipeline(parser, fileWriter, 2, new MetadataPipeline.Log() {
+      @Override
+      public void info(String message) {
+      }
+
+      @Override
+      public void warn(String message, Throwable cause) {
+      }
+
+      @Override
+      public void error(String message, Throwable cause) {
+        errors.add(message);
+      }
+    });
+  }
+
+  /** Throws what a writer is not expected to, as a bug in converting some metadata might. */
+  private final class FailingFileWriter extends MetadataFileWriter {
+    private final String failingFileName;
+
+    FailingFileWriter(String failingFileName) {
+      super(new MetadataJsonWriter(parser));
+      this.failingFileName = failingFileName;
+    }
+
+    @Override
+    public boolean write(EntityMetadata metadata, Path metadataFile) throws IOException {
+      if (metadataFile.getFileName().toString().equals(failingFileName)) {
+        throw new IllegalStateException("Cannot write " + metadataFile);
+      }
+
+      return super.write(metadata, metadataFile);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.generator.javabeans.PropertyDiscovery;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(JUnit4.class)
+public class PropertyDiscoveryTest {
+  private Extensions extensions = new Extensions();
+  private JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+  private JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+
+  JavaBeansReflector introspector = new JavaBeansReflector(PropertyDiscovery.INTROSPECTOR);
+  JavaBeansReflector accessorMethods = new JavaBeansReflector(PropertyDiscovery.ACCESSOR_METHODS);
+
+  @Before
+  public void setUp() throws Exception {
+    extensions.addDefaultExtensions();
+  }
+
+  @Test
+  public void shouldGenerateSameMetadataAsIntrospector() {
+    assertEquals(
+        parser.convert(
+            new MetadataGenerator(introspector).generateMetadata(ExampleTest.User.class)),
+        parser.convert(
+            new MetadataGenerator(accessorMethods).generateMetadata(ExampleTest.User.class)));
+  }
+
+  @Test
+  public void shouldDiscoverSamePropertiesAsIntrospector() {
+    assertEquals(describe(introspector, Child.class), describe(accessorMethods, Child.class));
+  }
+
+  private static List<String> describe(Reflector reflector, Class<?> bean) {
+    return reflector.reflect(bean).getFields().stream()
+        .map(f -> f.name() + ":" + f.javaType().getName() + ":" + f.isRequired())
+        .collect(Collectors.toList());
+  }
+
+  public static class Parent {
+    public Number getValue() {
+      return 1;
+    }
+
+    public boolean isActive() {
+      return true;
+    }
+
+    public boolean getActive() {
+      return true;
+    }
+
+    public String getReadOnly() {
+      return "";
+    }
+
+    public static String getStatic() {
+      return "";
+    }
+  }
+
+  public static class Child extends Parent {
+    @Override
+    public Integer getValue() {
+      return 1;
+    }
+
+    @Required
+    public void setValue(Integer value) {
+    }
+
+    public void setValue(String value) {
+    }
+
+    @Required
+    public void setActive(boolean active) {
+    }
+
+    public String getURL() {
+      return "";
+    }
+
+    public void setURL(String url) {
+    }
+
+    public String get() {
+      return "";
+    }
+
+    public String getTransient() {
+      return "";
+    }
+  }
+}
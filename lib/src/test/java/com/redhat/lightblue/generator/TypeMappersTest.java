@@ -0,0 +1,149 @@
+package com.redhat.lightblue.generator;
+
+import static org.junit.Assert.assertEquals;
+
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.ArrayField;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.ObjectArrayElement;
+import com.redhat.lightblue.metadata.SimpleArrayElement;
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.DateType;
+import com.redhat.lightblue.metadata.types.DoubleType;
+import com.redhat.lightblue.metadata.types.IntegerType;
+import com.redhat.lightblue.metadata.types.ObjectType;
+import com.redhat.lightblue.metadata.types.StringType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class TypeMappersTest {
+  @Test
+  public void mapsWideningPrimitivesAndUuids() {
+    EntityMetadata metadata = new MetadataGenerator(new JavaBeansReflector())
+        .generateMetadata(Measurement.class);
+
+    assertEquals(IntegerType.TYPE, metadata.getFields().getField("count").getType());
+    assertEquals(DoubleType.TYPE, metadata.getFields().getField("ratio").getType());
+    assertEquals(StringType.TYPE, metadata.getFields().getField("id").getType());
+    assertEquals(DateType.TYPE, metadata.getFields().getField("takenAt").getType());
+  }
+
+  @Test
+  public void mapsJavaArraysByComponentType() {
+    EntityMetadata metadata = new MetadataGenerator(new JavaBeansReflector())
+        .generateMetadata(Measurement.class);
+
+    ArrayField samples = (ArrayField) metadata.getFields().getField("samples");
+    assertEquals(IntegerType.TYPE, ((SimpleArrayElement) samples.getElement()).getType());
+
+    ArrayField history = (ArrayField) metadata.getFields().getField("history");
+    assertEquals(IntegerType.TYPE, ((ObjectArrayElement) history.getElement()).getFields()
+        .getField("value").getType());
+  }
+
+  @Test
+  public void consultsCustomMappersBeforeDefaults() {
+    TypeMapper instantsAsStrings = javaType -> Instant.class.equals(javaType)
+        ? Optional.of(StringType.TYPE)
+        : Optional.empty();
+
+    EntityMetadata metadata = new MetadataGenerator(new JavaBeansReflector(),
+        new TypeMappers(Collections.singletonList(instantsAsStrings)))
+        .generateMetadata(Measurement.class);
+
+    assertEquals(StringType.TYPE, metadata.getFields().getField("takenAt").getType());
+  }
+
+  @Test
+  public void resolvesEachTypeOnce() {
+    AtomicInteger calls = new AtomicInteger();
+    TypeMappers typeMappers = new TypeMappers(Collections.singletonList(javaType -> {
+      calls.incrementAndGet();
+      return Optional.empty();
+    }));
+
+    Type first = typeMappers.typeOf(Measurement.class);
+    Type second = typeMappers.typeOf(Measurement.class);
+
+    assertEquals(ObjectType.TYPE, first);
+    assertEquals(ObjectType.TYPE, second);
+    assertEquals(1, calls.get());
+  }
+
+  public static class Measurement {
+    private UUID id;
+    private long count;
+    private float ratio;
+    private Instant takenAt;
+    private short[] samples;
+    private Reading[] history;
+
+    public UUID getId() {
+      return id;
+    }
+
+    public void setId(UUID id) {
+      this.id = id;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public void setCount(long count) {
+      this.count = count;
+    }
+
+    public float getRatio() {
+      return ratio;
+    }
+
+    public void setRatio(float ratio) {
+      this.ratio = ratio;
+    }
+
+    public Instant getTakenAt() {
+      return takenAt;
+    }
+
+    public void setTakenAt(Instant takenAt) {
+      this.takenAt = takenAt;
+    }
+
+    public short[] getSamples() {
+      return samples;
+    }
+
+    public void setSamples(short[] samples) {
+      this.samples = samples;
+    }
+
+    public Reading[] getHistory() {
+      return history;
+    }
+
+    public void setHistory(Reading[] history) {
+      this.history = history;
+    }
+  }
+
+  public static class Reading {
+    private Long value;
+
+    public Long getValue() {
+      return value;
+    }
+
+    public void setValue(Long value) {
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package com.redhat.lightblue.generator.maven;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.CachingReflector;
+import com.redhat.lightblue.generator.FingerprintManifest;
+import com.redhat.lightblue.generator.MetadataFileWriter;
+import com.redhat.lightblue.generator.MetadataJsonWriter;
+import com.redhat.lightblue.generator.MetadataPipeline;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.TypeMappers;
+import com.redhat.lightblue.generator.classfile.ClassFileReflector;
+import com.redhat.lightblue.generator.classfile.EntityScanner;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import com.redhat.lightblue.mongo.metadata.MongoDataStoreParser;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Generates lightblue metadata for the project's entity classes, within the build's JVM.
+ *
+ * <p>Entities are those listed in {@link #entityClasses}, and those annotated with
+ * {@link com.redhat.lightblue.generator.EntityName} or
+ * {@link com.redhat.lightblue.generator.Version} which are found by scanning the compiled classes,
+ * limited to {@link #packages} if any are given. The scan is skipped when only entity classes are
+ * listed.
+ *
+ * <p>Entities whose classes are unchanged since their metadata was last generated are skipped,
+ * using a {@link FingerprintManifest} kept in the output directory. In IDE builds, nothing is done
+ * at all unless the build context reports changed class files.
+ *
+ * <p>Each execution keeps its own class loader, reflector, and threads, so that projects may be
+ * built in parallel, as long as they do not share an output directory.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true,
+    requiresDependencyResolution = ResolutionScope.COMPILE)
+public class GenerateMetadataMojo extends AbstractMojo {
+  @Parameter(defaultValue = "${project}", readonly = true, required = true)
+  private MavenProject project;
+
+  @Component
+  private BuildContext buildContext;
+
+  @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+  private File classesDirectory;
+
+  @Parameter(property = "lightblue.generator.outputDirectory",
+      defaultValue = "${project.build.directory}/lightblue-metadata", required = true)
+  private File outputDirectory;
+
+  /** Fully qualified names of entity classes to generate metadata for. */
+  @Parameter
+  private List<String> entityClasses;
+
+  /** Packages, including their subpackages, to scan for entity classes. */
+  @Parameter
+  private List<String> packages;
+
+  /**
+   * Reflect on class files rather than with JavaBeans, so that entity classes are never
+   * initialized.
+   */
+  @Parameter(property = "lightblue.generator.readClassFiles", defaultValue = "false")
+  private boolean readClassFiles;
+
+  /** Skip entities whose classes are unchanged since their metadata was generated. */
+  @Parameter(property = "lightblue.generator.incremental", defaultValue = "true")
+  private boolean incremental;
+
+  @Parameter(property = "lightblue.generator.threads", defaultValue = "1")
+  private int threads;
+
+  @Parameter(property = "lightblue.generator.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    if (skip) {
+      getLog().info("Skipping lightblue metadata generation");
+      return;
+    }
+
+    if (!classesDirectory.isDirectory()) {
+      getLog().info("No classes in " + classesDirectory + " to generate metadata for");
+      return;
+    }
+
+    if (buildContext.isIncremental() && !buildContext.hasDelta(classesDirectory)) {
+      getLog().info("No classes changed; not generating metadata");
+      return;
+    }
+
+    Path outputPath = outputDirectory.toPath().toAbsolutePath();
+
+    try {
+      Files.createDirectories(outputPath);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed to create " + outputPath, e);
+    }
+
+    MetadataPipeline.Pass pass;
+
+    try (URLClassLoader classLoader = newClassLoader()) {
+      pass = generate(classLoader, outputPath);
+    } catch (IOException | RuntimeException e) {
+      throw new MojoExecutionException("Failed to generate metadata", e);
+    } finally {
+      buildContext.refresh(outputDirectory);
+    }
+
+    if (pass.count(MetadataPipeline.Outcome.FAILED) > 0) {
+      throw new MojoFailureException("Failed to generate metadata for "
+          + pass.count(MetadataPipeline.Outcome.FAILED) + " entities; see the log for details");
+    }
+
+    if (pass.failed()) {
+      throw new MojoFailureException("Failed to scan " + classesDirectory
+          + " for entity classes; see the log for details");
+    }
+  }
+
+  private MetadataPipeline.Pass generate(ClassLoader classLoader, Path outputPath)
+      throws IOException {
+    Reflector reflector = new CachingReflector(readClassFiles
+        ? new ClassFileReflector(classLoader)
+        : new JavaBeansReflector());
+    // Named as by the command line, so that either may generate into the same directory
+    Optional<FingerprintManifest> manifest = incremental
+        ? Optional.of(FingerprintManifest.read(outputPath, classLoader,
+            readClassFiles ? "reflector=class-files" : "reflector=java-beans",
+            TypeMappers.load(classLoader)))
+        : Optional.empty();
+    List<String> entities = entityClasses == null ? Collections.emptyList() : entityClasses;
+    Optional<EntityScanner> scanner = packages != null || entities.isEmpty()
+        ? Optional.of(new EntityScanner(packages == null ? Collections.emptyList() : packages))
+        : Optional.empty();
+
+    MetadataPipeline pipeline =
+        new MetadataPipeline(Parsing.parser, Parsing.metadataWriter, threads, new BuildLog());
+    MetadataPipeline.Pass pass = pipeline.generate(classLoader, reflector, entities, scanner,
+        Collections.singletonList(classesDirectory.toPath()), outputPath, manifest,
+        Optional.empty(), false);
+
+    getLog().info(pass.summary() + " lightblue metadata files in " + outputPath);
+    return pass;
+  }
+
+  /**
+   * The project's classes and compile dependencies, delegating to the plugin's class loader first
+   * so that the generator's annotations are the same classes as those it looks for.
+   */
+  private URLClassLoader newClassLoader() throws MojoExecutionException {
+    List<String> elements;
+
+    try {
+      elements = project.getCompileClasspathElements();
+    } catch (DependencyResolutionRequiredException e) {
+      throw new MojoExecutionException("Compile dependencies of " + project.getId()
+          + " are not resolved", e);
+    }
+
+    URL[] urls = new URL[elements.size() + 1];
+
+    try {
+      urls[0] = classesDirectory.toURI().toURL();
+
+      for (int i = 0; i < elements.size(); i++) {
+        urls[i + 1] = Paths.get(elements.get(i)).toUri().toURL();
+      }
+    } catch (MalformedURLException e) {
+      // Not thrown for file URIs
+      throw new IllegalArgumentException(e);
+    }
+
+    return new URLClassLoader(urls, getClass().getClassLoader());
+  }
+
+  /**
+   * Shared by every execution in the build, including those of projects built in parallel, which
+   * these are all safe for.
+   */
+  private static final class Parsing {
+    static final Extensions<JsonNode> extensions = new Extensions<>();
+    static {
+      extensions.addDefaultExtensions();
+      extensions.registerDataStoreParser("mongo", new MongoDataStoreParser<>());
+    }
+    static final JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+    static final JSONMetadataParser parser =
+        new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+    static final MetadataFileWriter metadataWriter =
+        new MetadataFileWriter(new MetadataJsonWriter(parser));
+  }
+
+  /** Logs progress only when debugging, since the summary is logged once all are written. */
+  private final class BuildLog implements MetadataPipeline.Log {
+    @Override
+    public void info(String message) {
+      getLog().debug(message);
+    }
+
+    @Override
+    public void warn(String message, Throwable cause) {
+      getLog().warn(message, cause);
+    }
+
+    @Override
+    public void error(String message, Throwable cause) {
+      getLog().error(message, cause);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.redhat.lightblue.generator.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.redhat.lightblue.generator.FingerprintManifest;
+import com.redhat.lightblue.generator.entities.SimpleUser;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class GenerateMetadataMojoTest {
+  /** Class files of lib's test entities, with the types they embed. */
+  private static final List<String> ENTITY_CLASS_FILES = Arrays.asList(
+      "com/redhat/lightblue/generator/ExampleTest$User.class",
+      "com/redhat/lightblue/generator/ExampleTest$User$Address.class",
+      "com/redhat/lightblue/generator/ExampleTest$User$Address$State.class",
+      "com/redhat/lightblue/generator/ExampleTest$User$PhoneNumber.class",
+      "com/redhat/lightblue/generator/ExampleTest$User$Status.class",
+      "com/redhat/lightblue/generator/entities/SimpleUser.class");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<String> summaries = new ArrayList<>();
+
+  private Path classesDirectory;
+  private Path outputDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    classesDirectory = temporaryFolder.newFolder("classes").toPath();
+    outputDirectory = temporaryFolder.getRoot().toPath().resolve("metadata");
+
+    for (String classFile : ENTITY_CLASS_FILES) {
+      Path target = classesDirectory.resolve(classFile);
+      Files.createDirectories(target.getParent());
+
+      try (InputStream in = getClass().getClassLoader().getResourceAsStream(classFile)) {
+        Files.copy(in, target);
+      }
+    }
+  }
+
+  @Test
+  public void createsThenSkipsThenLeavesUnchanged() throws Exception {
+    mojo(SimpleUser.class.getName()).execute();
+    assertEquals("Created 2, updated 0, unchanged 0, skipped 0, failed 0", lastSummary());
+    assertTrue(Files.isRegularFile(outputDirectory.resolve("user.json")));
+    assertTrue(Files.isRegularFile(outputDirectory.resolve("simpleUser.json")));
+
+    mojo(SimpleUser.class.getName()).execute();
+    assertEquals("Created 0, updated 0, unchanged 0, skipped 2, failed 0", lastSummary());
+
+    Files.delete(outputDirectory.resolve(FingerprintManifest.FILE_NAME));
+    mojo(SimpleUser.class.getName()).execute();
+    assertEquals("Created 0, updated 0, unchanged 2, skipped 0, failed 0", lastSummary());
+  }
+
+  @Test
+  public void failsAfterGeneratingTheRest() throws Exception {
+    try {
+      mojo(SimpleUser.class.getName(), "com.example.Missing").execute();
+    } catch (MojoFailureException e) {
+      assertEquals("Created 2, updated 0, unchanged 0, skipped 0, failed 1", lastSummary());
+      return;
+    }
+
+    throw new AssertionError("Expected the missing entity to fail the build");
+  }
+
+  /**
+   * @return A mojo which generates the listed entities, and those found by scanning lib's test
+   * entities.
+   */
+  private GenerateMetadataMojo mojo(String... entityClasses) throws Exception {
+    GenerateMetadataMojo mojo = new GenerateMetadataMojo();
+    set(mojo, "project", new MavenProject() {
+      @Override
+      public List<String> getCompileClasspathElements() {
+        return Collections.emptyList();
+      }
+    });
+    set(mojo, "buildContext", new DefaultBuildContext());
+    set(mojo, "classesDirectory", classesDirectory.toFile());
+    set(mojo, "outputDirectory", outputDirectory.toFile());
+    set(mojo, "entityClasses", Arrays.asList(entityClasses));
+    set(mojo, "packages", Collections.singletonList("com.redhat.lightblue.generator"));
+    set(mojo, "incremental", true);
+    set(mojo, "threads", 2);
+    mojo.setLog(new SystemStreamLog() {
+      @Override
+      public void info(CharSequence content) {
+        summaries.add(content.toString());
+        super.info(content);
+      }
+    });
+    return mojo;
+  }
+
+  /**
+   * @return The counts of outcomes from the last summary logged, without where they were written.
+   */
+  private String lastSummary() {
+    String summary = summaries.get(summaries.size() - 1);
+    return summary.substring(0, summary.indexOf(" lightblue metadata files"));
+  }
+
+  private static void set(GenerateMetadataMojo mojo, String name, Object value) throws Exception {
+    Field field = GenerateMetadataMojo.class.getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(mojo, value);
+  }
+}
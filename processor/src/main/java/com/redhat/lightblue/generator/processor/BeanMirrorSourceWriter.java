@@ -0,0 +1,280 @@
+package com.redhat.lightblue.generator.processor;
+
+import com.redhat.lightblue.generator.Description;
+import com.redhat.lightblue.generator.GeneratedReflector;
+import com.redhat.lightblue.generator.IntSequence;
+import com.redhat.lightblue.generator.Version;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Writes the source of a {@link com.redhat.lightblue.generator.BeanMirror} implementation for a
+ * bean, which {@link GeneratedReflector} will find at runtime.
+ */
+class BeanMirrorSourceWriter {
+  private static final String LIB = "com.redhat.lightblue.generator.";
+
+  private final Elements elements;
+  private final Types types;
+
+  BeanMirrorSourceWriter(Elements elements, Types types) {
+    this.elements = elements;
+    this.types = types;
+  }
+
+  /**
+   * @return The binary name of the generated mirror class for the bean.
+   */
+  String mirrorClassName(TypeElement bean) {
+    return GeneratedReflector.mirrorClassName(elements.getBinaryName(bean).toString());
+  }
+
+  /**
+   * Generated mirrors refer to property types with class literals, so they can only be generated
+   * when all such types are accessible from the bean's package.
+   *
+   * @return The first property type which is not accessible, if any.
+   */
+  Optional<TypeMirror> findInaccessibleType(BeanModel bean) {
+    PackageElement beanPackage = elements.getPackageOf(bean.element());
+
+    for (PropertyModel property : bean.properties()) {
+      if (!isAccessibleFrom(property.type(), beanPackage)) {
+        return Optional.of(property.type());
+      }
+
+      Optional<TypeMirror> elementType = property.elementType();
+
+      if (elementType.isPresent() && !isAccessibleFrom(elementType.get(), beanPackage)) {
+        return elementType;
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  void write(BeanModel bean, Writer out) throws IOException {
+    String mirrorClassName = mirrorClassName(bean.element());
+    int packageEnd = mirrorClassName.lastIndexOf('.');
+
+    if (packageEnd > 0) {
+      out.write("package " + mirrorClassName.substring(0, packageEnd) + ";\n\n");
+    }
+
+    out.write("/**\n"
+        + " * Generated by " + MetadataProcessor.class.getName() + " for {@link "
+        + bean.element().getQualifiedName() + "}.\n"
+        + " */\n");
+    out.write("public final class " + mirrorClassName.substring(packageEnd + 1) + " extends "
+        + LIB + "ImmutableBeanMirror {\n");
+    out.write("  public " + mirrorClassName.substring(packageEnd + 1) + "(" + LIB
+        + "Reflector reflector) {\n");
+    out.write("    super(" + literal(bean.entityName()) + ",\n");
+    out.write("        " + versionMirror(bean.version()) + ",\n");
+    out.write("        java.util.Arrays.<" + LIB + "FieldMirror>asList(");
+
+    List<String> fieldMirrors = new ArrayList<>();
+
+    for (PropertyModel property : bean.properties()) {
+      fieldMirrors.add(fieldMirror(property));
+    }
+
+    out.write(String.join(",", fieldMirrors));
+    out.write("));\n");
+    out.write("  }\n");
+    out.write("}\n");
+  }
+
+  private String versionMirror(Optional<Version> maybeVersion) {
+    if (!maybeVersion.isPresent()) {
+      return optionalEmpty(LIB + "VersionMirror");
+    }
+
+    Version version = maybeVersion.get();
+    List<String> extendsVersions = new ArrayList<>();
+
+    for (String extendsVersion : version.extendsVersions()) {
+      extendsVersions.add(literal(extendsVersion));
+    }
+
+    return optionalOf(LIB + "VersionMirror", "new " + LIB + "ImmutableVersionMirror("
+        + literal(version.value()) + ", " + literal(version.changelog()) + ", "
+        + "java.util.Arrays.<java.lang.String>asList(" + String.join(", ", extendsVersions)
+        + "))");
+  }
+
+  private String fieldMirror(PropertyModel property) {
+    return "\n            new " + LIB + "ImmutableFieldMirror(\n"
+        + "                " + literal(property.name()) + ",\n"
+        + "                " + classLiteral(property.type()) + ",\n"
+        + "                " + optionalString(property.description()) + ",\n"
+        + "                " + property.isRequired() + ",\n"
+        + "                " + property.isIdentifying() + ",\n"
+        + "                " + property.isElementIdentifying() + ",\n"
+        + "                " + optionalInteger(property.minItems()) + ",\n"
+        + "                " + optionalInteger(property.maxItems()) + ",\n"
+        + "                " + optionalInteger(property.minLength()) + ",\n"
+        + "                " + optionalInteger(property.maxLength()) + ",\n"
+        + "                " + elementJavaType(property.elementType()) + ",\n"
+        + "                " + enumMirror(property.enumElement()) + ",\n"
+        + "                " + valueGeneratorMirror(property) + ",\n"
+        + "                reflector)";
+  }
+
+  private String elementJavaType(Optional<TypeMirror> elementType) {
+    if (!elementType.isPresent()) {
+      return optionalEmpty("java.lang.Class<?>");
+    }
+
+    return optionalOf("java.lang.Class<?>", classLiteral(elementType.get()));
+  }
+
+  private String enumMirror(Optional<TypeElement> maybeEnumElement) {
+    if (!maybeEnumElement.isPresent()) {
+      return optionalEmpty(LIB + "EnumMirror");
+    }
+
+    TypeElement enumElement = maybeEnumElement.get();
+    List<String> values = new ArrayList<>();
+
+    for (VariableElement constant : ElementFilter.fieldsIn(enumElement.getEnclosedElements())) {
+      if (constant.getKind() != ElementKind.ENUM_CONSTANT) {
+        continue;
+      }
+
+      Optional<String> description = Optional
+          .ofNullable(constant.getAnnotation(Description.class))
+          .map(Description::value);
+
+      values.add("new " + LIB + "ImmutableEnumValueMirror("
+          + literal(constant.getSimpleName().toString()) + ", " + optionalString(description)
+          + ")");
+    }
+
+    return optionalOf(LIB + "EnumMirror", "new " + LIB + "ImmutableEnumMirror("
+        + literal(ElementMetadataGenerator.enumName(enumElement)) + ", "
+        + "new java.util.LinkedHashSet<" + LIB + "EnumValueMirror>("
+        + "java.util.Arrays.<" + LIB + "EnumValueMirror>asList(" + String.join(", ", values)
+        + ")))");
+  }
+
+  private String valueGeneratorMirror(PropertyModel property) {
+    String type = LIB + "ValueGeneratorMirror";
+
+    if (property.uuid().isPresent()) {
+      return optionalOf(type, "(" + LIB + "UuidMirror) () -> "
+          + property.uuid().get().overwrite());
+    }
+
+    if (property.intSequence().isPresent()) {
+      IntSequence intSequence = property.intSequence().get();
+      Optional<Integer> initialValue =
+          intSequence.initialValue() == IntSequence.INITIAL_VALUE_UNSET
+              ? Optional.empty()
+              : Optional.of(intSequence.initialValue());
+
+      return optionalOf(type, "new " + LIB + "ImmutableIntSequenceMirror("
+          + literal(intSequence.name()) + ", " + optionalInteger(initialValue) + ", "
+          + intSequence.overwrite() + ")");
+    }
+
+    if (property.currentTime().isPresent()) {
+      return optionalOf(type, "(" + LIB + "CurrentTimeMirror) () -> "
+          + property.currentTime().get().overwrite());
+    }
+
+    return optionalEmpty(type);
+  }
+
+  private String classLiteral(TypeMirror type) {
+    TypeMirror erasure = types.erasure(type);
+
+    if (erasure.getKind().isPrimitive()) {
+      return erasure.getKind().name().toLowerCase() + ".class";
+    }
+
+    if (erasure.getKind() == TypeKind.ARRAY) {
+      String componentLiteral = classLiteral(((ArrayType) erasure).getComponentType());
+      return componentLiteral.substring(0, componentLiteral.length() - ".class".length())
+          + "[].class";
+    }
+
+    return ((TypeElement) types.asElement(erasure)).getQualifiedName() + ".class";
+  }
+
+  private boolean isAccessibleFrom(TypeMirror type, PackageElement fromPackage) {
+    TypeMirror erasure = types.erasure(type);
+
+    if (erasure.getKind().isPrimitive()) {
+      return true;
+    }
+
+    if (erasure.getKind() == TypeKind.ARRAY) {
+      return isAccessibleFrom(((ArrayType) erasure).getComponentType(), fromPackage);
+    }
+
+    if (erasure.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+
+    Element element = ((DeclaredType) erasure).asElement();
+    boolean samePackage = elements.getPackageOf(element).equals(fromPackage);
+
+    while (element instanceof TypeElement) {
+      TypeElement typeElement = (TypeElement) element;
+
+      if (typeElement.getNestingKind() == NestingKind.LOCAL
+          || typeElement.getNestingKind() == NestingKind.ANONYMOUS
+          || typeElement.getModifiers().contains(Modifier.PRIVATE)
+          || (!samePackage && !typeElement.getModifiers().contains(Modifier.PUBLIC))) {
+        return false;
+      }
+
+      element = typeElement.getEnclosingElement();
+    }
+
+    return true;
+  }
+
+  private String literal(String value) {
+    return elements.getConstantExpression(value);
+  }
+
+  private String optionalString(Optional<String> value) {
+    return value.isPresent()
+        ? optionalOf("java.lang.String", literal(value.get()))
+        : optionalEmpty("java.lang.String");
+  }
+
+  private static String optionalInteger(Optional<Integer> value) {
+    return value.isPresent()
+        ? optionalOf("java.lang.Integer", value.get().toString())
+        : optionalEmpty("java.lang.Integer");
+  }
+
+  private static String optionalOf(String type, String expression) {
+    return "java.util.Optional.<" + type + ">of(" + expression + ")";
+  }
+
+  private static String optionalEmpty(String type) {
+    return "java.util.Optional.<" + type + ">empty()";
+  }
+}
@@ -0,0 +1,131 @@
+package com.redhat.lightblue.generator.processor;
+
+import com.redhat.lightblue.generator.EntityName;
+import com.redhat.lightblue.generator.Transient;
+import com.redhat.lightblue.generator.Version;
+
+import java.beans.Introspector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * A bean class as seen by the javac element model. Properties are discovered following the same
+ * rules as {@link Introspector#getBeanInfo(Class, Class)} with {@link Object} as the stop class.
+ */
+class BeanModel {
+  private final TypeElement element;
+  private final List<PropertyModel> properties;
+
+  private BeanModel(TypeElement element, List<PropertyModel> properties) {
+    this.element = element;
+    this.properties = properties;
+  }
+
+  static BeanModel of(TypeElement element, Elements elements, Types types) {
+    DeclaredType beanType = (DeclaredType) element.asType();
+    Map<String, ExecutableElement> getters = new TreeMap<>();
+    Map<String, List<ExecutableElement>> setters = new TreeMap<>();
+
+    for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(element))) {
+      if (!method.getModifiers().contains(Modifier.PUBLIC)
+          || method.getModifiers().contains(Modifier.STATIC)
+          || ((TypeElement) method.getEnclosingElement()).getQualifiedName()
+              .contentEquals(Object.class.getName())) {
+        continue;
+      }
+
+      String methodName = method.getSimpleName().toString();
+      int parameterCount = method.getParameters().size();
+      TypeKind returnKind = method.getReturnType().getKind();
+
+      if (parameterCount == 0 && methodName.startsWith("is") && methodName.length() > 2
+          && returnKind == TypeKind.BOOLEAN) {
+        // "is" getters take precedence over "get" getters, as with Introspector
+        getters.put(Introspector.decapitalize(methodName.substring(2)), method);
+      } else if (parameterCount == 0 && methodName.startsWith("get") && methodName.length() > 3
+          && returnKind != TypeKind.VOID) {
+        getters.putIfAbsent(Introspector.decapitalize(methodName.substring(3)), method);
+      } else if (parameterCount == 1 && methodName.startsWith("set") && methodName.length() > 3
+          && returnKind == TypeKind.VOID) {
+        setters.computeIfAbsent(Introspector.decapitalize(methodName.substring(3)),
+            k -> new ArrayList<>()).add(method);
+      }
+    }
+
+    Map<String, PropertyModel> properties = new TreeMap<>();
+
+    for (Map.Entry<String, ExecutableElement> getter : getters.entrySet()) {
+      String name = getter.getKey();
+      ExecutableElement readMethod = getter.getValue();
+      TypeMirror type = ((ExecutableType) types.asMemberOf(beanType, readMethod)).getReturnType();
+
+      if (readMethod.getAnnotation(Transient.class) != null) {
+        continue;
+      }
+
+      Optional<ExecutableElement> writeMethod = setters
+          .getOrDefault(name, Collections.emptyList())
+          .stream()
+          .filter(setter -> types.isSameType(type, parameterType(beanType, setter, types)))
+          .findFirst();
+
+      properties.put(name, new PropertyModel(name, type, Optional.of(readMethod), writeMethod));
+    }
+
+    for (Map.Entry<String, List<ExecutableElement>> setter : setters.entrySet()) {
+      String name = setter.getKey();
+
+      if (getters.containsKey(name)) {
+        continue;
+      }
+
+      ExecutableElement writeMethod = setter.getValue().get(0);
+      TypeMirror type = parameterType(beanType, writeMethod, types);
+
+      properties.put(name, new PropertyModel(name, type, Optional.empty(),
+          Optional.of(writeMethod)));
+    }
+
+    return new BeanModel(element, new ArrayList<>(properties.values()));
+  }
+
+  TypeElement element() {
+    return element;
+  }
+
+  String entityName() {
+    return Optional.ofNullable(element.getAnnotation(EntityName.class))
+        .map(EntityName::value)
+        .orElse(Introspector.decapitalize(element.getSimpleName().toString()));
+  }
+
+  Optional<Version> version() {
+    return Optional.ofNullable(element.getAnnotation(Version.class));
+  }
+
+  /**
+   * Sorted by name.
+   */
+  List<PropertyModel> properties() {
+    return properties;
+  }
+
+  private static TypeMirror parameterType(DeclaredType beanType, ExecutableElement setter,
+      Types types) {
+    return ((ExecutableType) types.asMemberOf(beanType, setter)).getParameterTypes().get(0);
+  }
+}
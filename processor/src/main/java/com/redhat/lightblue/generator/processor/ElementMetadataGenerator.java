@@ -0,0 +1,318 @@
+package com.redhat.lightblue.generator.processor;
+
+import com.redhat.lightblue.generator.Description;
+import com.redhat.lightblue.generator.IntSequence;
+import com.redhat.lightblue.generator.RecursionPolicy;
+import com.redhat.lightblue.generator.Version;
+import com.redhat.lightblue.metadata.ArrayField;
+import com.redhat.lightblue.metadata.EntityInfo;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.EntitySchema;
+import com.redhat.lightblue.metadata.Enum;
+import com.redhat.lightblue.metadata.EnumValue;
+import com.redhat.lightblue.metadata.Enums;
+import com.redhat.lightblue.metadata.Field;
+import com.redhat.lightblue.metadata.FieldConstraint;
+import com.redhat.lightblue.metadata.Fields;
+import com.redhat.lightblue.metadata.MetadataStatus;
+import com.redhat.lightblue.metadata.ObjectArrayElement;
+import com.redhat.lightblue.metadata.ObjectField;
+import com.redhat.lightblue.metadata.SimpleArrayElement;
+import com.redhat.lightblue.metadata.SimpleField;
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.ValueGenerator;
+import com.redhat.lightblue.metadata.ValueGenerator.ValueGeneratorType;
+import com.redhat.lightblue.metadata.constraints.ArrayElementIdConstraint;
+import com.redhat.lightblue.metadata.constraints.ArraySizeConstraint;
+import com.redhat.lightblue.metadata.constraints.EnumConstraint;
+import com.redhat.lightblue.metadata.constraints.IdentityConstraint;
+import com.redhat.lightblue.metadata.constraints.RequiredConstraint;
+import com.redhat.lightblue.metadata.constraints.StringLengthConstraint;
+import com.redhat.lightblue.metadata.types.ArrayType;
+import com.redhat.lightblue.metadata.types.ObjectType;
+
+import java.beans.Introspector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * Generates new entity metadata from the javac element model, following the same rules as
+ * {@link com.redhat.lightblue.generator.MetadataGenerator#generateMetadata(Class)}.
+ *
+ * <p>Since the version is determined at compile time, {@link Version#preferImplementationVersion()}
+ * is not supported and {@link Version#value()} is always used.
+ */
+class ElementMetadataGenerator {
+  private final LightblueTypes lightblueTypes;
+  private final Function<TypeElement, BeanModel> beanModels;
+  private final int maxDepth;
+  private final RecursionPolicy recursionPolicy;
+
+  /**
+   * @param maxDepth As for {@link com.redhat.lightblue.generator.MetadataGenerator}.
+   * @param recursionPolicy What to do with object fields which are nested deeper than
+   *                        {@code maxDepth}, or whose type is the same as an enclosing object's
+   *                        type.
+   */
+  ElementMetadataGenerator(LightblueTypes lightblueTypes,
+      Function<TypeElement, BeanModel> beanModels, int maxDepth,
+      RecursionPolicy recursionPolicy) {
+    this.lightblueTypes = lightblueTypes;
+    this.beanModels = beanModels;
+    this.maxDepth = maxDepth;
+    this.recursionPolicy = recursionPolicy;
+  }
+
+  /**
+   * @throws IllegalArgumentException If an object field is too deep or recursive, and the
+   * {@link RecursionPolicy} is to fail.
+   */
+  EntityMetadata generateMetadata(BeanModel entity) {
+    EntityInfo info = new EntityInfo(entity.entityName());
+    EntitySchema schema = new EntitySchema(entity.entityName());
+    schema.setStatus(MetadataStatus.ACTIVE);
+
+    entity.version().ifPresent(version -> {
+      String[] extendsVersions = version.extendsVersions().length == 0
+          ? null
+          : version.extendsVersions();
+
+      schema.setVersion(new com.redhat.lightblue.metadata.Version(version.value(),
+          extendsVersions, version.changelog()));
+    });
+
+    Deque<String> path = new ArrayDeque<>();
+    path.push(entity.element().getQualifiedName().toString());
+    addFields(entity, schema.getFields(), "", path, info.getEnums());
+
+    return new EntityMetadata(info, schema);
+  }
+
+  static String enumName(TypeElement enumElement) {
+    return Introspector.decapitalize(enumElement.getSimpleName().toString());
+  }
+
+  /**
+   * @param fieldPath The path of the fields' enclosing object, empty for the entity.
+   * @param path The qualified names of the entity and each object enclosing the fields.
+   */
+  private void addFields(BeanModel bean, Fields fields, String fieldPath, Deque<String> path,
+      Enums enums) {
+    for (PropertyModel property : bean.properties()) {
+      property.enumElement().ifPresent(enumElement -> addEnum(enumElement, enums));
+
+      Optional<Field> maybeField = getField(property, fieldPath, path, enums);
+
+      if (!maybeField.isPresent()) {
+        continue;
+      }
+
+      Field field = maybeField.get();
+      field.setConstraints(getConstraints(property));
+      property.description().ifPresent(field::setDescription);
+
+      if (field instanceof SimpleField) {
+        getValueGenerator(property).ifPresent(((SimpleField) field)::setValueGenerator);
+      }
+
+      fields.addNew(field);
+    }
+  }
+
+  /**
+   * Adds the enum unless another field at any depth already did.
+   */
+  private static void addEnum(TypeElement enumElement, Enums enums) {
+    String name = enumName(enumElement);
+
+    if (enums.getEnum(name) != null) {
+      return;
+    }
+
+    Enum generatedEnum = new Enum(name);
+    Set<EnumValue> enumValues = new HashSet<>();
+
+    for (VariableElement constant : ElementFilter.fieldsIn(enumElement.getEnclosedElements())) {
+      if (constant.getKind() != ElementKind.ENUM_CONSTANT) {
+        continue;
+      }
+
+      Description description = constant.getAnnotation(Description.class);
+      enumValues.add(new EnumValue(constant.getSimpleName().toString(),
+          description == null ? null : description.value()));
+    }
+
+    generatedEnum.setValues(enumValues);
+    enums.addEnum(generatedEnum);
+  }
+
+  /**
+   * @return The field, or empty if it is omitted per the {@link RecursionPolicy}.
+   */
+  private Optional<Field> getField(PropertyModel property, String parentPath,
+      Deque<String> path, Enums enums) {
+    TypeMirror type = property.type();
+    String name = property.name();
+    String fieldPath = parentPath.isEmpty() ? name : parentPath + "." + name;
+    Type lightblueType = lightblueTypes.typeOf(type);
+
+    if (LightblueTypes.isSimpleFieldType(lightblueType)) {
+      return Optional.of(new SimpleField(name, lightblueType));
+    }
+
+    if (ArrayType.TYPE.equals(lightblueType)) {
+      TypeMirror elementType = property.elementType().orElseThrow(() ->
+          new IllegalArgumentException("Cannot determine array element type of " + name));
+      Type arrayElementType = lightblueTypes.typeOf(elementType);
+
+      if (LightblueTypes.isSimpleFieldType(arrayElementType)) {
+        return Optional.of(new ArrayField(name, new SimpleArrayElement(arrayElementType)));
+      }
+
+      if (ObjectType.TYPE.equals(arrayElementType)) {
+        ObjectArrayElement arrayElement = new ObjectArrayElement();
+
+        if (!addNestedFields(elementType, arrayElement.getFields(), fieldPath + ".*", path,
+            enums)) {
+          return Optional.empty();
+        }
+
+        return Optional.of(new ArrayField(name, arrayElement));
+      }
+
+      throw new UnsupportedOperationException("Unsupported array element type: "
+          + arrayElementType);
+    }
+
+    ObjectField objectField = new ObjectField(name);
+
+    if (!addNestedFields(type, objectField.getFields(), fieldPath, path, enums)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(objectField);
+  }
+
+  /**
+   * Adds the fields of an object, unless it is too deep or recursive, in which case the
+   * {@link RecursionPolicy} applies.
+   *
+   * @return False if the object's field should be omitted.
+   */
+  private boolean addNestedFields(TypeMirror type, Fields fields, String fieldPath,
+      Deque<String> path, Enums enums) {
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    String qualifiedName = element.getQualifiedName().toString();
+    // The entity is at the bottom of the path, at a depth of 0
+    int depth = path.size();
+
+    final String problem;
+
+    if (depth > maxDepth) {
+      problem = "it is nested deeper than the maximum depth of " + maxDepth;
+    } else if (path.contains(qualifiedName)) {
+      problem = "its type is recursive: " + qualifiedName;
+    } else {
+      path.push(qualifiedName);
+      addFields(beanModels.apply(element), fields, fieldPath, path, enums);
+      path.pop();
+      return true;
+    }
+
+    switch (recursionPolicy) {
+      case EMPTY_OBJECT:
+        return true;
+      case OMIT:
+        return false;
+      default:
+        throw new IllegalArgumentException("Cannot generate field " + fieldPath + " because "
+            + problem);
+    }
+  }
+
+  private List<FieldConstraint> getConstraints(PropertyModel property) {
+    List<FieldConstraint> constraints = new ArrayList<>();
+
+    if (property.isRequired()) {
+      constraints.add(new RequiredConstraint());
+    }
+
+    property.minItems().ifPresent(i -> {
+      ArraySizeConstraint constraint = new ArraySizeConstraint(ArraySizeConstraint.MIN);
+      constraint.setValue(i);
+      constraints.add(constraint);
+    });
+
+    property.maxItems().ifPresent(i -> {
+      ArraySizeConstraint constraint = new ArraySizeConstraint(ArraySizeConstraint.MAX);
+      constraint.setValue(i);
+      constraints.add(constraint);
+    });
+
+    property.minLength().ifPresent(l ->
+        constraints.add(new StringLengthConstraint(StringLengthConstraint.MINLENGTH, l)));
+
+    property.maxLength().ifPresent(l ->
+        constraints.add(new StringLengthConstraint(StringLengthConstraint.MAXLENGTH, l)));
+
+    if (property.isIdentifying()) {
+      constraints.add(new IdentityConstraint());
+    }
+
+    if (property.isElementIdentifying()) {
+      constraints.add(new ArrayElementIdConstraint());
+    }
+
+    property.enumElement().ifPresent(enumElement -> {
+      EnumConstraint enumConstraint = new EnumConstraint();
+      enumConstraint.setName(enumName(enumElement));
+      constraints.add(enumConstraint);
+    });
+
+    return constraints;
+  }
+
+  private Optional<ValueGenerator> getValueGenerator(PropertyModel property) {
+    if (property.uuid().isPresent()) {
+      ValueGenerator generator = new ValueGenerator(ValueGeneratorType.UUID);
+      generator.setOverwrite(property.uuid().get().overwrite());
+      return Optional.of(generator);
+    }
+
+    if (property.intSequence().isPresent()) {
+      IntSequence intSequence = property.intSequence().get();
+      ValueGenerator generator = new ValueGenerator(ValueGeneratorType.IntSequence);
+      Properties properties = generator.getProperties();
+
+      generator.setOverwrite(intSequence.overwrite());
+      properties.setProperty("name", intSequence.name());
+
+      if (intSequence.initialValue() != IntSequence.INITIAL_VALUE_UNSET) {
+        properties.setProperty("initialValue", Integer.toString(intSequence.initialValue()));
+      }
+
+      return Optional.of(generator);
+    }
+
+    if (property.currentTime().isPresent()) {
+      ValueGenerator generator = new ValueGenerator(ValueGeneratorType.CurrentTime);
+      generator.setOverwrite(property.currentTime().get().overwrite());
+      return Optional.of(generator);
+    }
+
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,118 @@
+package com.redhat.lightblue.generator.processor;
+
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.ArrayType;
+import com.redhat.lightblue.metadata.types.BigDecimalType;
+import com.redhat.lightblue.metadata.types.BigIntegerType;
+import com.redhat.lightblue.metadata.types.BinaryType;
+import com.redhat.lightblue.metadata.types.BooleanType;
+import com.redhat.lightblue.metadata.types.DateType;
+import com.redhat.lightblue.metadata.types.DoubleType;
+import com.redhat.lightblue.metadata.types.IntegerType;
+import com.redhat.lightblue.metadata.types.ObjectType;
+import com.redhat.lightblue.metadata.types.StringType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.Date;
+import java.util.UUID;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Maps javac type mirrors to lightblue types, following the same default rules that
+ * {@link com.redhat.lightblue.generator.TypeMappers} applies to classes at runtime. Custom
+ * {@link com.redhat.lightblue.generator.TypeMapper}s are not consulted, since they map loaded
+ * classes.
+ */
+class LightblueTypes {
+  private final Types types;
+  private final TypeMirror temporal;
+  private final TypeMirror iterable;
+
+  LightblueTypes(Elements elements, Types types) {
+    this.types = types;
+    this.temporal = erasureOf(Temporal.class.getName(), elements, types);
+    this.iterable = erasureOf(Iterable.class.getName(), elements, types);
+  }
+
+  Type typeOf(TypeMirror type) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return BooleanType.TYPE;
+      case CHAR:
+        return StringType.TYPE;
+      case DOUBLE:
+      case FLOAT:
+        return DoubleType.TYPE;
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+        return IntegerType.TYPE;
+      case ARRAY:
+        TypeMirror componentType = ((javax.lang.model.type.ArrayType) type).getComponentType();
+        return componentType.getKind() == TypeKind.BYTE ? BinaryType.TYPE : ArrayType.TYPE;
+      case DECLARED:
+        return typeOfDeclared((DeclaredType) type);
+      default:
+        return ObjectType.TYPE;
+    }
+  }
+
+  static boolean isSimpleFieldType(Type type) {
+    return !(type.equals(ObjectType.TYPE) || type.equals(ArrayType.TYPE));
+  }
+
+  private Type typeOfDeclared(DeclaredType type) {
+    TypeElement element = (TypeElement) type.asElement();
+    String name = element.getQualifiedName().toString();
+    TypeMirror erasure = types.erasure(type);
+
+    if (name.equals(String.class.getName()) || name.equals(Character.class.getName())
+        || name.equals(UUID.class.getName()) || element.getKind() == ElementKind.ENUM) {
+      return StringType.TYPE;
+    }
+
+    if (name.equals(Boolean.class.getName())) {
+      return BooleanType.TYPE;
+    }
+
+    if (name.equals(Date.class.getName()) || types.isAssignable(erasure, temporal)) {
+      return DateType.TYPE;
+    }
+
+    if (name.equals(BigDecimal.class.getName())) {
+      return BigDecimalType.TYPE;
+    }
+
+    if (name.equals(BigInteger.class.getName())) {
+      return BigIntegerType.TYPE;
+    }
+
+    if (name.equals(Double.class.getName()) || name.equals(Float.class.getName())) {
+      return DoubleType.TYPE;
+    }
+
+    if (name.equals(Integer.class.getName()) || name.equals(Long.class.getName())
+        || name.equals(Short.class.getName()) || name.equals(Byte.class.getName())) {
+      return IntegerType.TYPE;
+    }
+
+    if (types.isAssignable(erasure, iterable)) {
+      return ArrayType.TYPE;
+    }
+
+    return ObjectType.TYPE;
+  }
+
+  private static TypeMirror erasureOf(String className, Elements elements, Types types) {
+    return types.erasure(elements.getTypeElement(className).asType());
+  }
+}
@@ -0,0 +1,257 @@
+package com.redhat.lightblue.generator.processor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.EntityName;
+import com.redhat.lightblue.generator.MetadataGenerator;
+import com.redhat.lightblue.generator.RecursionPolicy;
+import com.redhat.lightblue.generator.Version;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.ArrayType;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import com.redhat.lightblue.metadata.types.ObjectType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates lightblue metadata at compile time for classes annotated with {@link Version} or
+ * {@link EntityName}.
+ *
+ * <p>For each entity, writes its metadata json as the class output resource
+ * {@value #METADATA_RESOURCE_DIRECTORY}{@code <entity name>.json}, and generates
+ * {@link com.redhat.lightblue.generator.BeanMirror} implementations for the entity and the beans
+ * it embeds, so that {@link com.redhat.lightblue.generator.GeneratedReflector} can generate
+ * metadata at runtime without reflection.
+ *
+ * <p>Like {@link MetadataGenerator}, object fields are nested to any depth and recursive types
+ * fail, unless the options {@value #MAX_DEPTH_OPTION} and {@value #RECURSION_POLICY_OPTION} say
+ * otherwise, for example {@code -Alightblue.recursionPolicy=EMPTY_OBJECT}.
+ */
+@SupportedAnnotationTypes({
+    "com.redhat.lightblue.generator.Version",
+    "com.redhat.lightblue.generator.EntityName"})
+@SupportedOptions({MetadataProcessor.MAX_DEPTH_OPTION, MetadataProcessor.RECURSION_POLICY_OPTION})
+public class MetadataProcessor extends AbstractProcessor {
+  public static final String METADATA_RESOURCE_DIRECTORY = "META-INF/lightblue/";
+  public static final String MAX_DEPTH_OPTION = "lightblue.maxDepth";
+  public static final String RECURSION_POLICY_OPTION = "lightblue.recursionPolicy";
+
+  private final Set<String> generatedMirrors = new HashSet<>();
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private Elements elements;
+  private Types types;
+  private LightblueTypes lightblueTypes;
+  private BeanMirrorSourceWriter sourceWriter;
+  private JSONMetadataParser parser;
+  private int maxDepth = MetadataGenerator.UNLIMITED_DEPTH;
+  private RecursionPolicy recursionPolicy = RecursionPolicy.FAIL;
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+
+    elements = processingEnv.getElementUtils();
+    types = processingEnv.getTypeUtils();
+    lightblueTypes = new LightblueTypes(elements, types);
+    sourceWriter = new BeanMirrorSourceWriter(elements, types);
+
+    Extensions<JsonNode> extensions = new Extensions<>();
+    extensions.addDefaultExtensions();
+    parser = new JSONMetadataParser(extensions, new DefaultTypes(),
+        JsonNodeFactory.withExactBigDecimals(true));
+
+    Map<String, String> options = processingEnv.getOptions();
+    String maxDepthOption = options.get(MAX_DEPTH_OPTION);
+    String recursionPolicyOption = options.get(RECURSION_POLICY_OPTION);
+
+    if (maxDepthOption != null) {
+      try {
+        maxDepth = Integer.parseInt(maxDepthOption);
+      } catch (NumberFormatException e) {
+        maxDepth = -1;
+      }
+
+      if (maxDepth < 0) {
+        maxDepth = MetadataGenerator.UNLIMITED_DEPTH;
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            MAX_DEPTH_OPTION + " must be a number of objects, at least 0, but was "
+                + maxDepthOption);
+      }
+    }
+
+    if (recursionPolicyOption != null) {
+      try {
+        recursionPolicy = RecursionPolicy.valueOf(recursionPolicyOption);
+      } catch (IllegalArgumentException e) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            RECURSION_POLICY_OPTION + " must be one of "
+                + Arrays.toString(RecursionPolicy.values()) + " but was " + recursionPolicyOption);
+      }
+    }
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    Map<TypeElement, BeanModel> beanModels = new HashMap<>();
+    ElementMetadataGenerator generator = new ElementMetadataGenerator(lightblueTypes,
+        element -> beanModel(element, beanModels), maxDepth, recursionPolicy);
+
+    Set<TypeElement> entities = new LinkedHashSet<>();
+    addEntities(roundEnv.getElementsAnnotatedWith(Version.class), entities);
+    addEntities(roundEnv.getElementsAnnotatedWith(EntityName.class), entities);
+
+    for (TypeElement entity : entities) {
+      BeanModel entityModel = beanModel(entity, beanModels);
+
+      try {
+        writeMetadata(entityModel, generator.generateMetadata(entityModel));
+      } catch (IllegalArgumentException | UnsupportedOperationException e) {
+        // Fails the build, rather than leaving the entity without metadata to be found at runtime
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            "Cannot generate lightblue metadata: " + e.getMessage(), entity);
+      }
+
+      for (BeanModel bean : reachableBeans(entityModel, beanModels)) {
+        writeMirror(bean, entity);
+      }
+    }
+
+    return false;
+  }
+
+  private void addEntities(Set<? extends Element> annotated, Set<TypeElement> entities) {
+    for (Element element : annotated) {
+      if (element.getKind() == ElementKind.CLASS) {
+        entities.add((TypeElement) element);
+      }
+    }
+  }
+
+  private BeanModel beanModel(TypeElement element, Map<TypeElement, BeanModel> beanModels) {
+    return beanModels.computeIfAbsent(element, e -> BeanModel.of(e, elements, types));
+  }
+
+  /**
+   * @return The entity, and all beans it refers to through object fields or object array
+   *     elements.
+   */
+  private Set<BeanModel> reachableBeans(BeanModel entity, Map<TypeElement, BeanModel> beanModels) {
+    Set<BeanModel> reachable = new LinkedHashSet<>();
+    Queue<BeanModel> toVisit = new ArrayDeque<>();
+    toVisit.add(entity);
+
+    while (!toVisit.isEmpty()) {
+      BeanModel bean = toVisit.remove();
+
+      if (!reachable.add(bean)) {
+        continue;
+      }
+
+      for (PropertyModel property : bean.properties()) {
+        Type type = lightblueTypes.typeOf(property.type());
+        Optional<TypeMirror> objectType = Optional.empty();
+
+        if (ObjectType.TYPE.equals(type)) {
+          objectType = Optional.of(property.type());
+        } else if (ArrayType.TYPE.equals(type)) {
+          objectType = property.elementType()
+              .filter(e -> ObjectType.TYPE.equals(lightblueTypes.typeOf(e)));
+        }
+
+        objectType
+            .filter(t -> t.getKind() == TypeKind.DECLARED)
+            .map(t -> (TypeElement) ((DeclaredType) t).asElement())
+            .ifPresent(e -> toVisit.add(beanModel(e, beanModels)));
+      }
+    }
+
+    return reachable;
+  }
+
+  private void writeMetadata(BeanModel entity, EntityMetadata metadata) {
+    String resourceName = METADATA_RESOURCE_DIRECTORY + entity.entityName() + ".json";
+
+    try {
+      FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT,
+          "", resourceName, entity.element());
+
+      try (Writer writer = resource.openWriter()) {
+        mapper.writerWithDefaultPrettyPrinter().writeValue(writer, parser.convert(metadata));
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Failed to write " + resourceName + ": " + e.getMessage(), entity.element());
+    }
+  }
+
+  private void writeMirror(BeanModel bean, TypeElement entity) {
+    String mirrorClassName = sourceWriter.mirrorClassName(bean.element());
+
+    if (generatedMirrors.contains(mirrorClassName)
+        || elements.getTypeElement(mirrorClassName) != null) {
+      return;
+    }
+
+    Optional<TypeMirror> inaccessibleType = sourceWriter.findInaccessibleType(bean);
+
+    if (inaccessibleType.isPresent()) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+          "Not generating " + mirrorClassName + " because " + inaccessibleType.get()
+              + " is not accessible from its package. It will be reflected on at runtime instead.",
+          bean.element());
+      return;
+    }
+
+    generatedMirrors.add(mirrorClassName);
+
+    try {
+      JavaFileObject source = processingEnv.getFiler().createSourceFile(mirrorClassName,
+          bean.element(), entity);
+
+      try (Writer writer = source.openWriter()) {
+        sourceWriter.write(bean, writer);
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Failed to write " + mirrorClassName + ": " + e.getMessage(), bean.element());
+    }
+  }
+}
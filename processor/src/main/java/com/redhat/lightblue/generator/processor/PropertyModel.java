@@ -0,0 +1,148 @@
+package com.redhat.lightblue.generator.processor;
+
+import com.redhat.lightblue.generator.CurrentTime;
+import com.redhat.lightblue.generator.Description;
+import com.redhat.lightblue.generator.ElementIdentity;
+import com.redhat.lightblue.generator.Identity;
+import com.redhat.lightblue.generator.IntSequence;
+import com.redhat.lightblue.generator.MaxItems;
+import com.redhat.lightblue.generator.MaxLength;
+import com.redhat.lightblue.generator.MinItems;
+import com.redhat.lightblue.generator.MinLength;
+import com.redhat.lightblue.generator.Required;
+import com.redhat.lightblue.generator.Uuid;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Optional;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A java beans property discovered from the javac element model. Reads annotations from the same
+ * accessors {@link com.redhat.lightblue.generator.javabeans.JavaBeansFieldMirror} does.
+ */
+class PropertyModel {
+  private final String name;
+  private final TypeMirror type;
+  private final Optional<ExecutableElement> readMethod;
+  private final Optional<ExecutableElement> writeMethod;
+
+  PropertyModel(String name, TypeMirror type, Optional<ExecutableElement> readMethod,
+      Optional<ExecutableElement> writeMethod) {
+    this.name = name;
+    this.type = type;
+    this.readMethod = readMethod;
+    this.writeMethod = writeMethod;
+  }
+
+  String name() {
+    return name;
+  }
+
+  TypeMirror type() {
+    return type;
+  }
+
+  /**
+   * The component type of an array property, or the first type argument of the property's
+   * declared type if it is not itself generic. This matches what {@code MetadataGenerator} is able
+   * to resolve at runtime.
+   */
+  Optional<TypeMirror> elementType() {
+    if (type.getKind() == TypeKind.ARRAY) {
+      return Optional.of(((ArrayType) type).getComponentType());
+    }
+
+    if (!readMethod.isPresent() || type.getKind() != TypeKind.DECLARED) {
+      return Optional.empty();
+    }
+
+    List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+
+    if (typeArguments.isEmpty()) {
+      return Optional.empty();
+    }
+
+    TypeMirror elementType = typeArguments.get(0);
+
+    if (elementType.getKind() != TypeKind.DECLARED
+        || !((DeclaredType) elementType).getTypeArguments().isEmpty()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(elementType);
+  }
+
+  Optional<TypeElement> enumElement() {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return Optional.empty();
+    }
+
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+
+    return element.getKind() == ElementKind.ENUM ? Optional.of(element) : Optional.empty();
+  }
+
+  Optional<ExecutableElement> readMethod() {
+    return readMethod;
+  }
+
+  Optional<String> description() {
+    return onWriteMethod(Description.class).map(Description::value);
+  }
+
+  boolean isRequired() {
+    return onWriteMethod(Required.class).isPresent();
+  }
+
+  boolean isIdentifying() {
+    return onEitherMethod(Identity.class);
+  }
+
+  boolean isElementIdentifying() {
+    return onEitherMethod(ElementIdentity.class);
+  }
+
+  Optional<Integer> minItems() {
+    return onWriteMethod(MinItems.class).map(MinItems::value);
+  }
+
+  Optional<Integer> maxItems() {
+    return onWriteMethod(MaxItems.class).map(MaxItems::value);
+  }
+
+  Optional<Integer> minLength() {
+    return onWriteMethod(MinLength.class).map(MinLength::value);
+  }
+
+  Optional<Integer> maxLength() {
+    return onWriteMethod(MaxLength.class).map(MaxLength::value);
+  }
+
+  Optional<Uuid> uuid() {
+    return onWriteMethod(Uuid.class);
+  }
+
+  Optional<IntSequence> intSequence() {
+    return onWriteMethod(IntSequence.class);
+  }
+
+  Optional<CurrentTime> currentTime() {
+    return onWriteMethod(CurrentTime.class);
+  }
+
+  private <A extends Annotation> Optional<A> onWriteMethod(Class<A> annotationType) {
+    return writeMethod.map(method -> method.getAnnotation(annotationType));
+  }
+
+  private boolean onEitherMethod(Class<? extends Annotation> annotationType) {
+    return onWriteMethod(annotationType).isPresent()
+        || readMethod.map(method -> method.getAnnotation(annotationType)).isPresent();
+  }
+}
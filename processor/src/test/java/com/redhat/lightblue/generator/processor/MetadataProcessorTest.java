@@ -0,0 +1,318 @@
+package com.redhat.lightblue.generator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.generator.GeneratedReflector;
+import com.redhat.lightblue.generator.MetadataGenerator;
+import com.redhat.lightblue.generator.RecursionPolicy;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.Version;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+@RunWith(JUnit4.class)
+public class MetadataProcessorTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Extensions extensions = new Extensions();
+  private JsonNodeFactory factory = JsonNodeFactory.withExactBigDecimals(true);
+  private JSONMetadataParser parser = new JSONMetadataParser(extensions, new DefaultTypes(), factory);
+  private ObjectMapper mapper = new ObjectMapper();
+
+  private static final String USER_SOURCE = ""
+      + "package com.example;\n"
+      + "\n"
+      + "import com.redhat.lightblue.generator.*;\n"
+      + "import java.util.Date;\n"
+      + "import java.util.List;\n"
+      + "\n"
+      + "@Version(value = \"1.0.0\", changelog = \"Do some stuff\", extendsVersions = \"0.9.0\")\n"
+      + "public class User {\n"
+      + "  private String _id;\n"
+      + "  private String firstName;\n"
+      + "  private Date lastUpdateDate;\n"
+      + "  private List<Address> addresses;\n"
+      + "  private List<String> nicknames;\n"
+      + "  private PhoneNumber phoneNumber;\n"
+      + "  private Status status;\n"
+      + "  private boolean admin;\n"
+      + "\n"
+      + "  public String get_id() { return _id; }\n"
+      + "  @Identity @IntSequence(name = \"userIdSequence\", initialValue = 100)\n"
+      + "  public void set_id(String _id) { this._id = _id; }\n"
+      + "\n"
+      + "  public String getFirstName() { return firstName; }\n"
+      + "  @Required @MinLength(2) @MaxLength(64) @Description(\"Given \\\"first\\\" name\")\n"
+      + "  public void setFirstName(String firstName) { this.firstName = firstName; }\n"
+      + "\n"
+      + "  public Date getLastUpdateDate() { return lastUpdateDate; }\n"
+      + "  @Required @CurrentTime(overwrite = true)\n"
+      + "  public void setLastUpdateDate(Date lastUpdateDate) { this.lastUpdateDate = lastUpdateDate; }\n"
+      + "\n"
+      + "  public List<Address> getAddresses() { return addresses; }\n"
+      + "  @MinItems(1) @MaxItems(5)\n"
+      + "  public void setAddresses(List<Address> addresses) { this.addresses = addresses; }\n"
+      + "\n"
+      + "  public List<String> getNicknames() { return nicknames; }\n"
+      + "  public void setNicknames(List<String> nicknames) { this.nicknames = nicknames; }\n"
+      + "\n"
+      + "  public PhoneNumber getPhoneNumber() { return phoneNumber; }\n"
+      + "  public void setPhoneNumber(PhoneNumber phoneNumber) { this.phoneNumber = phoneNumber; }\n"
+      + "\n"
+      + "  public Status getStatus() { return status; }\n"
+      + "  @Required\n"
+      + "  public void setStatus(Status status) { this.status = status; }\n"
+      + "\n"
+      + "  public boolean isAdmin() { return admin; }\n"
+      + "  public void setAdmin(boolean admin) { this.admin = admin; }\n"
+      + "\n"
+      + "  @Transient\n"
+      + "  public String getDisplayName() { return firstName; }\n"
+      + "\n"
+      + "  public enum Status {\n"
+      + "    enabled,\n"
+      + "    @Description(\"Use instead of deleting users\")\n"
+      + "    disabled;\n"
+      + "  }\n"
+      + "\n"
+      + "  public static class Address {\n"
+      + "    private String uuid;\n"
+      + "    private int postalCode;\n"
+      + "\n"
+      + "    public String getUuid() { return uuid; }\n"
+      + "    @ElementIdentity @Uuid\n"
+      + "    public void setUuid(String uuid) { this.uuid = uuid; }\n"
+      + "\n"
+      + "    public int getPostalCode() { return postalCode; }\n"
+      + "    @Required\n"
+      + "    public void setPostalCode(int postalCode) { this.postalCode = postalCode; }\n"
+      + "  }\n"
+      + "\n"
+      + "  static class PhoneNumber {\n"
+      + "    private Integer digits;\n"
+      + "\n"
+      + "    public Integer getDigits() { return digits; }\n"
+      + "    public void setDigits(Integer digits) { this.digits = digits; }\n"
+      + "  }\n"
+      + "}\n";
+
+  private static final String USER_ADDRESS_SOURCE = ""
+      + "package com.example;\n"
+      + "\n"
+      + "import com.redhat.lightblue.generator.*;\n"
+      + "\n"
+      + "@EntityName(\"userAddress\")\n"
+      + "public class User_Address {\n"
+      + "  private String _id;\n"
+      + "\n"
+      + "  public String get_id() { return _id; }\n"
+      + "  public void set_id(String _id) { this._id = _id; }\n"
+      + "}\n";
+
+  private static final String CATEGORY_SOURCE = ""
+      + "package com.example;\n"
+      + "\n"
+      + "import com.redhat.lightblue.generator.*;\n"
+      + "import java.util.List;\n"
+      + "\n"
+      + "@EntityName(\"category\")\n"
+      + "public class Category {\n"
+      + "  private String _id;\n"
+      + "  private Category parent;\n"
+      + "  private List<Category> children;\n"
+      + "  private Label label;\n"
+      + "\n"
+      + "  public String get_id() { return _id; }\n"
+      + "  public void set_id(String _id) { this._id = _id; }\n"
+      + "  public Category getParent() { return parent; }\n"
+      + "  public void setParent(Category parent) { this.parent = parent; }\n"
+      + "  public List<Category> getChildren() { return children; }\n"
+      + "  public void setChildren(List<Category> children) { this.children = children; }\n"
+      + "  public Label getLabel() { return label; }\n"
+      + "  public void setLabel(Label label) { this.label = label; }\n"
+      + "\n"
+      + "  public static class Label {\n"
+      + "    private String text;\n"
+      + "    private Label translation;\n"
+      + "\n"
+      + "    public String getText() { return text; }\n"
+      + "    public void setText(String text) { this.text = text; }\n"
+      + "    public Label getTranslation() { return translation; }\n"
+      + "    public void setTranslation(Label translation) { this.translation = translation; }\n"
+      + "  }\n"
+      + "}\n";
+
+  private Path classOutput;
+  private ClassLoader classLoader;
+
+  @Before
+  public void setUp() throws Exception {
+    extensions.addDefaultExtensions();
+
+    classOutput = temporaryFolder.newFolder("classes").toPath();
+    compile(USER_SOURCE, "com/example/User.java");
+    classLoader = new URLClassLoader(new URL[]{classOutput.toUri().toURL()},
+        getClass().getClassLoader());
+  }
+
+  @Test
+  public void shouldWriteSameMetadataAsRuntimeGeneration() throws Exception {
+    Class<?> user = classLoader.loadClass("com.example.User");
+    MetadataGenerator generator = new MetadataGenerator(new JavaBeansReflector());
+
+    Path metadataJson = classOutput.resolve(MetadataProcessor.METADATA_RESOURCE_DIRECTORY)
+        .resolve("user.json");
+
+    assertTrue(Files.exists(metadataJson));
+    assertEquals(parser.convert(generator.generateMetadata(user)),
+        mapper.readTree(Files.readAllBytes(metadataJson)));
+  }
+
+  @Test
+  public void shouldGenerateMirrorsForEntityAndEmbeddedBeans() throws Exception {
+    Class<?> user = classLoader.loadClass("com.example.User");
+    Reflector reflector = new GeneratedReflector(new JavaBeansReflector());
+
+    assertEquals("com.example.User_BeanMirror",
+        reflector.reflect(user).getClass().getName());
+    assertEquals("com.example.User$Address_BeanMirror",
+        reflector.reflect(classLoader.loadClass("com.example.User$Address")).getClass().getName());
+    assertEquals("com.example.User$PhoneNumber_BeanMirror",
+        reflector.reflect(classLoader.loadClass("com.example.User$PhoneNumber")).getClass()
+            .getName());
+  }
+
+  @Test
+  public void shouldNotConfuseMirrorsOfNestedAndTopLevelBeansWithSimilarNames() throws Exception {
+    compile(USER_ADDRESS_SOURCE, "com/example/User_Address.java");
+    classLoader = new URLClassLoader(new URL[]{classOutput.toUri().toURL()},
+        getClass().getClassLoader());
+    Reflector reflector = new GeneratedReflector(new JavaBeansReflector());
+
+    assertEquals("com.example.User$Address_BeanMirror",
+        reflector.reflect(classLoader.loadClass("com.example.User$Address")).getClass().getName());
+    assertEquals("com.example.User_Address_BeanMirror",
+        reflector.reflect(classLoader.loadClass("com.example.User_Address")).getClass().getName());
+    assertEquals("userAddress",
+        reflector.reflect(classLoader.loadClass("com.example.User_Address")).getEntityName());
+  }
+
+  @Test
+  public void shouldApplyRecursionPolicyAsRuntimeGenerationDoes() throws Exception {
+    assertRecursiveMetadataAsRuntimeGeneration(MetadataGenerator.UNLIMITED_DEPTH,
+        RecursionPolicy.EMPTY_OBJECT);
+    assertRecursiveMetadataAsRuntimeGeneration(MetadataGenerator.UNLIMITED_DEPTH,
+        RecursionPolicy.OMIT);
+    assertRecursiveMetadataAsRuntimeGeneration(0, RecursionPolicy.EMPTY_OBJECT);
+  }
+
+  @Test
+  public void shouldFailToCompileRecursiveTypesByDefault() throws Exception {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    assertFalse(compiles(CATEGORY_SOURCE, "com/example/Category.java", diagnostics));
+    assertTrue(diagnostics.getDiagnostics().toString(), diagnostics.getDiagnostics().stream()
+        .anyMatch(d -> d.getKind() == Diagnostic.Kind.ERROR
+            && d.getMessage(null).startsWith("Cannot generate lightblue metadata")));
+    assertFalse(Files.exists(classOutput.resolve(MetadataProcessor.METADATA_RESOURCE_DIRECTORY)
+        .resolve("category.json")));
+  }
+
+  @Test
+  public void shouldGenerateSameMetadataFromGeneratedMirrors() throws Exception {
+    Class<?> user = classLoader.loadClass("com.example.User");
+    MetadataGenerator reflective = new MetadataGenerator(new JavaBeansReflector());
+    MetadataGenerator generated = new MetadataGenerator(
+        new GeneratedReflector(new JavaBeansReflector()));
+
+    assertEquals(parser.convert(reflective.generateMetadata(user)),
+        parser.convert(generated.generateMetadata(user)));
+  }
+
+  private void assertRecursiveMetadataAsRuntimeGeneration(int maxDepth,
+      RecursionPolicy recursionPolicy) throws Exception {
+    compile(CATEGORY_SOURCE, "com/example/Category.java",
+        "-A" + MetadataProcessor.MAX_DEPTH_OPTION + "=" + maxDepth,
+        "-A" + MetadataProcessor.RECURSION_POLICY_OPTION + "=" + recursionPolicy);
+    classLoader = new URLClassLoader(new URL[]{classOutput.toUri().toURL()},
+        getClass().getClassLoader());
+
+    Class<?> category = classLoader.loadClass("com.example.Category");
+    MetadataGenerator generator = new MetadataGenerator(new JavaBeansReflector(), maxDepth,
+        recursionPolicy);
+    Path metadataJson = classOutput.resolve(MetadataProcessor.METADATA_RESOURCE_DIRECTORY)
+        .resolve("category.json");
+
+    assertEquals(maxDepth + " " + recursionPolicy,
+        parser.convert(generator.generateMetadata(category)),
+        mapper.readTree(Files.readAllBytes(metadataJson)));
+  }
+
+  private void compile(String source, String path, String... options) throws Exception {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    assertTrue(diagnostics.getDiagnostics().toString(),
+        compiles(source, path, diagnostics, options));
+  }
+
+  private boolean compiles(String source, String path,
+      DiagnosticCollector<JavaFileObject> diagnostics, String... options) throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+
+    fileManager.setLocation(StandardLocation.CLASS_OUTPUT,
+        Collections.singleton(classOutput.toFile()));
+    fileManager.setLocation(StandardLocation.SOURCE_OUTPUT,
+        Collections.singleton(classOutput.toFile()));
+    fileManager.setLocation(StandardLocation.CLASS_PATH, Arrays.asList(
+        codeSourceOf(Version.class), codeSourceOf(MetadataGenerator.class)));
+
+    JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///" + path),
+        JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+
+    JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+        Arrays.asList(options), null, Collections.singletonList(sourceFile));
+    task.setProcessors(Collections.singletonList(new MetadataProcessor()));
+
+    return task.call();
+  }
+
+  private static File codeSourceOf(Class<?> type) throws Exception {
+    return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+  }
+}
@@ -0,0 +1,130 @@
+package com.redhat.lightblue.generator.runtime;
+
+import com.redhat.lightblue.generator.FieldMirror;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.TypeMappers;
+import com.redhat.lightblue.generator.javabeans.AccessorMethods;
+import com.redhat.lightblue.generator.javabeans.JavaBeansProperty;
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.ArrayType;
+import com.redhat.lightblue.metadata.types.ObjectType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Models the properties of bean classes from their {@link Reflector mirrors}, shaped by the same
+ * type mappings as the metadata generated from them, and resolves handles to read and write
+ * them. Each class is modeled once.
+ *
+ * <p>Thread-safe, provided the reflector and type mappers are.
+ */
+final class BeanModels {
+  private final Reflector reflector;
+  private final TypeMappers typeMappers;
+
+  private final ClassValue<List<PropertyModel>> models = new ClassValue<List<PropertyModel>>() {
+    @Override
+    protected List<PropertyModel> computeValue(Class<?> bean) {
+      return Collections.unmodifiableList(model(bean));
+    }
+  };
+
+  BeanModels(Reflector reflector, TypeMappers typeMappers) {
+    this.reflector = Objects.requireNonNull(reflector, "reflector");
+    this.typeMappers = Objects.requireNonNull(typeMappers, "typeMappers");
+  }
+
+  /**
+   * @return The properties of {@code bean} which are fields of its metadata, in the order of its
+   * mirror's fields.
+   * @throws IllegalArgumentException If a property has no accessible getter.
+   */
+  List<PropertyModel> properties(Class<?> bean) {
+    return models.get(bean);
+  }
+
+  /**
+   * @return The lightblue type of {@code javaType}, by the same type mappers as properties.
+   */
+  Type typeOf(Class<?> javaType) {
+    return typeMappers.typeOf(javaType);
+  }
+
+  private List<PropertyModel> model(Class<?> bean) {
+    // Paired as by the reflectors, whichever discovered the fields
+    Map<String, JavaBeansProperty> accessors = new HashMap<>();
+    List<PropertyModel> properties = new ArrayList<>();
+
+    for (JavaBeansProperty property : AccessorMethods.properties(bean)) {
+      accessors.put(property.name(), property);
+    }
+
+    for (FieldMirror field : reflector.reflect(bean).getFields()) {
+      JavaBeansProperty property = accessors.get(field.name());
+
+      if (property == null || property.readMethod() == null) {
+        throw new IllegalArgumentException("No getter for " + field.name() + " of " + bean);
+      }
+
+      Method getter = property.readMethod();
+      Class<?> javaType = field.javaType();
+      Type type = typeMappers.typeOf(javaType);
+      MethodHandle setter = property.writeMethod() == null
+          ? null
+          : setter(property.writeMethod(), property.type());
+
+      if (ObjectType.TYPE.equals(type)) {
+        properties.add(new PropertyModel(field, PropertyModel.Kind.OBJECT, null, false,
+            handle(getter), setter));
+      } else if (ArrayType.TYPE.equals(type)) {
+        Class<?> elementType = javaType.isArray()
+            ? javaType.getComponentType()
+            : field.elementJavaType().orElse(Object.class);
+        boolean objectElements = ObjectType.TYPE.equals(typeMappers.typeOf(elementType));
+        properties.add(new PropertyModel(field, PropertyModel.Kind.ARRAY, elementType,
+            objectElements, handle(getter), setter));
+      } else {
+        properties.add(new PropertyModel(field, PropertyModel.Kind.SIMPLE, null, false,
+            handle(getter), setter));
+      }
+    }
+
+    return properties;
+  }
+
+  /**
+   * @return A handle to {@code setter}, adapted to take an {@code Object} first.
+   */
+  private static MethodHandle setter(Method setter, Class<?> type) {
+    try {
+      setter.setAccessible(true);
+      return MethodHandles.lookup().unreflect(setter)
+          .asType(MethodType.methodType(void.class, Object.class, type));
+    } catch (IllegalAccessException | RuntimeException e) {
+      throw new IllegalArgumentException("Cannot access " + setter, e);
+    }
+  }
+
+  /**
+   * @return A handle to {@code getter}, adapted to take an {@code Object}.
+   */
+  private static MethodHandle handle(Method getter) {
+    try {
+      // A public method may still be declared by a class which is not
+      getter.setAccessible(true);
+      return MethodHandles.lookup().unreflect(getter)
+          .asType(MethodType.methodType(getter.getReturnType(), Object.class));
+    } catch (IllegalAccessException | RuntimeException e) {
+      throw new IllegalArgumentException("Cannot access " + getter, e);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.redhat.lightblue.generator.runtime;
+
+import java.util.Objects;
+
+/**
+ * A value of an entity which lightblue would reject because of a constraint in its metadata.
+ */
+public final class ConstraintViolation {
+  private final String path;
+  private final String constraint;
+  private final String message;
+
+  ConstraintViolation(String path, String constraint, String message) {
+    this.path = path;
+    this.constraint = constraint;
+    this.message = message;
+  }
+
+  /**
+   * @return The lightblue path of the offending field, with indexes of array elements, such as
+   * {@code addresses.2.city}.
+   */
+  public String path() {
+    return path;
+  }
+
+  /**
+   * @return The type of the violated constraint, as it appears in metadata, such as
+   * {@code required} or {@code minLength}.
+   */
+  public String constraint() {
+    return constraint;
+  }
+
+  public String message() {
+    return message;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof ConstraintViolation)) {
+      return false;
+    }
+
+    ConstraintViolation that = (ConstraintViolation) o;
+    return path.equals(that.path) && constraint.equals(that.constraint)
+        && message.equals(that.message);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(path, constraint, message);
+  }
+
+  @Override
+  public String toString() {
+    return path + ": " + message;
+  }
+}
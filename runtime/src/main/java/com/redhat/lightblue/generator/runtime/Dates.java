@@ -0,0 +1,192 @@
+package com.redhat.lightblue.generator.runtime;
+
+import com.redhat.lightblue.util.Constants;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.OffsetDateTime;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoField;
+import java.time.temporal.Temporal;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.function.Function;
+
+/**
+ * Converts the java types which are lightblue dates to and from the text of lightblue documents.
+ * Like lightblue, dates are written in the default zone, as it is when first used, which is also
+ * the zone of local dates and times.
+ */
+final class Dates {
+  private static final TimeZone timeZone = TimeZone.getDefault();
+  private static final ZoneId zoneId = timeZone.toZoneId();
+  private static final ZoneRules zone = zoneId.getRules();
+
+  private Dates() {}
+
+  /**
+   * @return The date in lightblue's format, {@code yyyyMMdd'T'HH:mm:ss.SSSZ}.
+   */
+  static String format(Date date) {
+    long millis = date.getTime();
+    ZoneOffset offset = zone.getOffset(Instant.ofEpochMilli(millis));
+    LocalDateTime time = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+        (int) Math.floorMod(millis, 1000L) * 1_000_000, offset);
+
+    // Before 1583 lightblue's calendar is Julian, and before a zone's first transition java.time
+    // keeps local mean time where java.util does not
+    if (time.getYear() < 1583 || time.getYear() > 9999
+        || offset.getTotalSeconds() * 1000 != timeZone.getOffset(millis)) {
+      // Lightblue's own format, cached per thread, which is several times slower
+      return Constants.getDateFormat().format(date);
+    }
+
+    int offsetMinutes = offset.getTotalSeconds() / 60;
+    char[] text = new char[26];
+
+    digits(text, 0, time.getYear(), 4);
+    digits(text, 4, time.getMonthValue(), 2);
+    digits(text, 6, time.getDayOfMonth(), 2);
+    text[8] = 'T';
+    digits(text, 9, time.getHour(), 2);
+    text[11] = ':';
+    digits(text, 12, time.getMinute(), 2);
+    text[14] = ':';
+    digits(text, 15, time.getSecond(), 2);
+    text[17] = '.';
+    digits(text, 18, (int) Math.floorMod(millis, 1000L), 3);
+    text[21] = offsetMinutes < 0 ? '-' : '+';
+    digits(text, 22, Math.abs(offsetMinutes) / 60 * 100 + Math.abs(offsetMinutes) % 60, 4);
+
+    return new String(text);
+  }
+
+  /**
+   * @throws IllegalArgumentException If the temporal is not a point in time, or a date or time
+   * which can be placed in the default zone.
+   */
+  static String format(Temporal temporal) {
+    return format(Date.from(toInstant(temporal)));
+  }
+
+  /**
+   * @return The date of text in lightblue's format, {@code yyyyMMdd'T'HH:mm:ss.SSSZ}.
+   * @throws IllegalArgumentException If the text is not a lightblue date.
+   */
+  static Date parse(String text) {
+    if (text.length() == 26 && text.charAt(8) == 'T' && text.charAt(11) == ':'
+        && text.charAt(14) == ':' && text.charAt(17) == '.'
+        && (text.charAt(21) == '+' || text.charAt(21) == '-')) {
+      int year = digits(text, 0, 4);
+      int month = digits(text, 4, 2);
+      int day = digits(text, 6, 2);
+      int hour = digits(text, 9, 2);
+      int minute = digits(text, 12, 2);
+      int second = digits(text, 15, 2);
+      int millis = digits(text, 18, 3);
+      int offsetHours = digits(text, 22, 2);
+      int offsetMinutes = digits(text, 24, 2);
+
+      // Otherwise left to lightblue's format, which is lenient, and Julian before 1583
+      if (year >= 1583 && month >= 1 && month <= 12 && day >= 1 && day <= 31 && hour >= 0
+          && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59
+          && millis >= 0 && offsetHours >= 0 && offsetHours <= 18 && offsetMinutes >= 0
+          && offsetMinutes <= 59 && day <= Month.of(month).length(Year.isLeap(year))) {
+        int sign = text.charAt(21) == '-' ? -1 : 1;
+        long epochSecond = LocalDateTime.of(year, month, day, hour, minute, second)
+            .toEpochSecond(ZoneOffset.UTC) - sign * (offsetHours * 3600 + offsetMinutes * 60);
+        return new Date(epochSecond * 1000 + millis);
+      }
+    }
+
+    try {
+      return Constants.getDateFormat().parse(text);
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("Not a lightblue date: " + text, e);
+    }
+  }
+
+  /**
+   * @return A conversion of dates to temporals of {@code type}: instants, local dates and times in
+   * the default zone, or zoned or offset times in the default zone.
+   * @throws IllegalArgumentException If dates cannot be converted to {@code type}.
+   */
+  static Function<Date, Temporal> toTemporal(Class<?> type) {
+    if (type == Instant.class) {
+      return Date::toInstant;
+    }
+
+    if (type == LocalDateTime.class) {
+      return date -> LocalDateTime.ofInstant(date.toInstant(), zoneId);
+    }
+
+    if (type == LocalDate.class) {
+      return date -> LocalDateTime.ofInstant(date.toInstant(), zoneId).toLocalDate();
+    }
+
+    if (type == ZonedDateTime.class) {
+      return date -> ZonedDateTime.ofInstant(date.toInstant(), zoneId);
+    }
+
+    if (type == OffsetDateTime.class) {
+      return date -> OffsetDateTime.ofInstant(date.toInstant(), zoneId);
+    }
+
+    throw new IllegalArgumentException("Cannot convert lightblue dates to " + type.getName());
+  }
+
+  private static void digits(char[] text, int start, int value, int length) {
+    for (int i = start + length - 1; i >= start; i--) {
+      text[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+
+  /**
+   * @return The decimal digits of text from start, or -1 if they are not all digits.
+   */
+  private static int digits(String text, int start, int length) {
+    int value = 0;
+
+    for (int i = start; i < start + length; i++) {
+      char c = text.charAt(i);
+
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+
+      value = value * 10 + (c - '0');
+    }
+
+    return value;
+  }
+
+  private static Instant toInstant(Temporal temporal) {
+    if (temporal instanceof Instant) {
+      return (Instant) temporal;
+    }
+
+    if (temporal instanceof LocalDateTime) {
+      return ((LocalDateTime) temporal).atZone(zoneId).toInstant();
+    }
+
+    if (temporal instanceof LocalDate) {
+      return ((LocalDate) temporal).atStartOfDay(zoneId).toInstant();
+    }
+
+    if (temporal.isSupported(ChronoField.INSTANT_SECONDS)) {
+      // As ZonedDateTime and OffsetDateTime are
+      return Instant.from(temporal);
+    }
+
+    throw new IllegalArgumentException("Cannot convert " + temporal.getClass().getName()
+        + " to a lightblue date, since it is not a point in time: " + temporal);
+  }
+}
@@ -0,0 +1,894 @@
+package com.redhat.lightblue.generator.runtime;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.lightblue.generator.CachingReflector;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.TypeMappers;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.ArrayType;
+import com.redhat.lightblue.metadata.types.BigDecimalType;
+import com.redhat.lightblue.metadata.types.BigIntegerType;
+import com.redhat.lightblue.metadata.types.BinaryType;
+import com.redhat.lightblue.metadata.types.BooleanType;
+import com.redhat.lightblue.metadata.types.DateType;
+import com.redhat.lightblue.metadata.types.DoubleType;
+import com.redhat.lightblue.metadata.types.IntegerType;
+import com.redhat.lightblue.metadata.types.ObjectType;
+import com.redhat.lightblue.metadata.types.StringType;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Reads lightblue documents into entities, streaming from a {@link JsonParser} without building a
+ * tree of each document. Documents are read as laid out by the metadata generated from the
+ * entities' classes, as {@link EntitySerializer} writes them: properties which are not fields of
+ * the metadata, or which cannot be written, are skipped, as are fields which are not properties.
+ *
+ * <p>Each class is compiled once into a plan of readers for its properties, which write them
+ * through method handles, without boxing {@code int}, {@code long}, {@code double}, and
+ * {@code boolean} values. Fields are matched to properties in the order the plan expects them,
+ * which is the order they are written in, and otherwise by name.
+ *
+ * <p>Thread-safe, provided the reflector and type mappers are.
+ */
+public final class EntityDeserializer {
+  /**
+   * Only reads values of the types which custom type mappers map to lightblue types.
+   */
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final BeanModels models;
+
+  private final ClassValue<ReadPlan> plans = new ClassValue<ReadPlan>() {
+    @Override
+    protected ReadPlan computeValue(Class<?> bean) {
+      return compile(bean);
+    }
+  };
+
+  /**
+   * Reflects with JavaBeans, using the default type mappings.
+   */
+  public EntityDeserializer() {
+    this(new CachingReflector(new JavaBeansReflector()), TypeMappers.defaults());
+  }
+
+  /**
+   * @param reflector Should be the one the entities' metadata is generated with.
+   * @param typeMappers Should be those the entities' metadata is generated with.
+   */
+  public EntityDeserializer(Reflector reflector, TypeMappers typeMappers) {
+    this.models = new BeanModels(reflector, typeMappers);
+  }
+
+  /**
+   * Reads an object, from the parser's current token or, if it has none, its next. The parser is
+   * left at the end of the object.
+   *
+   * @return The entity, or null if the document is null.
+   * @throws JsonMappingException If the document does not fit the entity's class.
+   * @throws IllegalArgumentException If the entity's class cannot be read, such as when it has no
+   * constructor without parameters.
+   */
+  public <T> T read(JsonParser parser, Class<T> entityClass) throws IOException {
+    JsonToken token = parser.getCurrentToken() == null ? parser.nextToken()
+        : parser.getCurrentToken();
+
+    if (token == null) {
+      throw JsonMappingException.from(parser, "No document to read as " + entityClass.getName());
+    }
+
+    return token == JsonToken.VALUE_NULL ? null : entityClass.cast(plans.get(entityClass)
+        .read(parser));
+  }
+
+  /**
+   * Reads an array of objects, as found in the processed documents of find responses, from the
+   * parser's current token or, if it has none, its next. The parser is left at the end of the
+   * array.
+   *
+   * @return The entities, with nulls for null documents.
+   * @throws JsonMappingException If a document does not fit the entity's class.
+   */
+  public <T> List<T> readArray(JsonParser parser, Class<T> entityClass) throws IOException {
+    JsonToken token = parser.getCurrentToken() == null ? parser.nextToken()
+        : parser.getCurrentToken();
+
+    if (token != JsonToken.START_ARRAY) {
+      throw JsonMappingException.from(parser, "Expected an array of " + entityClass.getName()
+          + " but found " + token);
+    }
+
+    ReadPlan plan = plans.get(entityClass);
+    List<T> entities = new ArrayList<>();
+
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      entities.add(parser.getCurrentToken() == JsonToken.VALUE_NULL
+          ? null
+          : entityClass.cast(plan.read(parser)));
+    }
+
+    return entities;
+  }
+
+  /**
+   * Reads a document which has already been parsed, by traversing it.
+   */
+  public <T> T fromJson(JsonNode document, Class<T> entityClass) throws IOException {
+    try (JsonParser parser = document.traverse()) {
+      return read(parser, entityClass);
+    }
+  }
+
+  private ReadPlan compile(Class<?> bean) {
+    List<PropertyModel> properties = models.properties(bean);
+    PropertyReader[] readers = new PropertyReader[properties.size()];
+
+    for (int i = 0; i < readers.length; i++) {
+      PropertyModel property = properties.get(i);
+      Class<?> javaType = property.javaType;
+
+      if (!property.isWritable()) {
+        readers[i] = new SkippingPropertyReader(property, i);
+      } else if (javaType == int.class) {
+        readers[i] = new IntPropertyReader(property, i);
+      } else if (javaType == long.class) {
+        readers[i] = new LongPropertyReader(property, i);
+      } else if (javaType == double.class) {
+        readers[i] = new DoublePropertyReader(property, i);
+      } else if (javaType == boolean.class) {
+        readers[i] = new BooleanPropertyReader(property, i);
+      } else {
+        readers[i] = new ValuePropertyReader(property, i, valueReader(property));
+      }
+    }
+
+    return new ReadPlan(constructor(bean), readers);
+  }
+
+  private ValueReader valueReader(PropertyModel property) {
+    switch (property.kind) {
+      case OBJECT:
+        return new ObjectReader(property.javaType);
+      case ARRAY:
+        return new ArrayReader(property.javaType, property.elementType,
+            elementReader(property.elementType));
+      default:
+        return simpleReader(property.javaType, models.typeOf(property.javaType),
+            property.enumValues);
+    }
+  }
+
+  private ValueReader elementReader(Class<?> elementType) {
+    Type type = models.typeOf(elementType);
+
+    if (ObjectType.TYPE.equals(type)) {
+      return new ObjectReader(elementType);
+    }
+
+    if (ArrayType.TYPE.equals(type)) {
+      // As MetadataGenerator does not generate fields for them either
+      throw new UnsupportedOperationException("Unsupported array element type: " + type);
+    }
+
+    // Elements have no enum in metadata, so enum elements are read by name
+    return simpleReader(elementType, type, null);
+  }
+
+  /**
+   * @param enumValues For enums, the value in metadata of each constant, as
+   *                   {@link PropertyModel#enumValues}, or null to read constants by name.
+   * @return A reader of values of {@code type}, which is simple, as {@code javaType}.
+   */
+  private static ValueReader simpleReader(Class<?> javaType, Type type, String[] enumValues) {
+    if (StringType.TYPE.equals(type)) {
+      if (javaType.isEnum()) {
+        return new EnumReader(javaType, enumValues);
+      }
+
+      if (javaType == String.class) {
+        return SimpleReader.STRING;
+      }
+
+      if (javaType == char.class || javaType == Character.class) {
+        return SimpleReader.CHARACTER;
+      }
+
+      if (javaType == UUID.class) {
+        return SimpleReader.UUID;
+      }
+    }
+
+    if (IntegerType.TYPE.equals(type)) {
+      if (javaType == int.class || javaType == Integer.class) {
+        return SimpleReader.INTEGER;
+      }
+
+      if (javaType == long.class || javaType == Long.class) {
+        return SimpleReader.LONG;
+      }
+
+      if (javaType == short.class || javaType == Short.class) {
+        return SimpleReader.SHORT;
+      }
+
+      if (javaType == byte.class || javaType == Byte.class) {
+        return SimpleReader.BYTE;
+      }
+    }
+
+    if (DoubleType.TYPE.equals(type)) {
+      if (javaType == double.class || javaType == Double.class) {
+        return SimpleReader.DOUBLE;
+      }
+
+      if (javaType == float.class || javaType == Float.class) {
+        return SimpleReader.FLOAT;
+      }
+    }
+
+    if (BooleanType.TYPE.equals(type) && (javaType == boolean.class
+        || javaType == Boolean.class)) {
+      return SimpleReader.BOOLEAN;
+    }
+
+    if (BigDecimalType.TYPE.equals(type) && javaType == BigDecimal.class) {
+      return SimpleReader.BIG_DECIMAL;
+    }
+
+    if (BigIntegerType.TYPE.equals(type) && javaType == BigInteger.class) {
+      return SimpleReader.BIG_INTEGER;
+    }
+
+    if (DateType.TYPE.equals(type) && javaType.isAssignableFrom(Date.class)) {
+      return SimpleReader.DATE;
+    }
+
+    if (DateType.TYPE.equals(type) && Temporal.class.isAssignableFrom(javaType)) {
+      return new TemporalReader(Dates.toTemporal(javaType));
+    }
+
+    if (BinaryType.TYPE.equals(type) && javaType == byte[].class) {
+      return SimpleReader.BINARY;
+    }
+
+    // Left to lightblue to convert
+    return new TypeReader(type, javaType);
+  }
+
+  /**
+   * @return A handle to the bean's constructor without parameters, as {@code ()Object}.
+   */
+  private static MethodHandle constructor(Class<?> bean) {
+    if (bean.isInterface() || Modifier.isAbstract(bean.getModifiers())) {
+      throw new IllegalArgumentException("Cannot construct " + bean + ", which is abstract");
+    }
+
+    try {
+      Constructor<?> constructor = bean.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return MethodHandles.lookup().unreflectConstructor(constructor)
+          .asType(MethodType.methodType(Object.class));
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("No constructor without parameters for " + bean, e);
+    } catch (IllegalAccessException | RuntimeException e) {
+      throw new IllegalArgumentException("Cannot access the constructor of " + bean, e);
+    }
+  }
+
+  private static JsonMappingException mismatch(JsonParser parser, String expected)
+      throws IOException {
+    return JsonMappingException.from(parser, "Expected " + expected + " but found "
+        + parser.getCurrentToken());
+  }
+
+  private static final class ReadPlan {
+    private final MethodHandle constructor;
+    /** In the order fields are expected. */
+    private final PropertyReader[] readers;
+    private final Map<String, PropertyReader> readersByName;
+
+    ReadPlan(MethodHandle constructor, PropertyReader[] readers) {
+      this.constructor = constructor;
+      this.readers = readers;
+      this.readersByName = new HashMap<>();
+
+      for (PropertyReader reader : readers) {
+        readersByName.put(reader.property.name, reader);
+      }
+    }
+
+    /**
+     * Reads an object, from the parser's current token, and leaves it at the end of the object.
+     */
+    Object read(JsonParser parser) throws IOException {
+      if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+        throw mismatch(parser, "an object");
+      }
+
+      Object bean = newInstance();
+      int expected = 0;
+
+      while (true) {
+        PropertyReader reader;
+        boolean isExpected = false;
+
+        if (expected < readers.length) {
+          isExpected = parser.nextFieldName(readers[expected].name);
+        } else {
+          parser.nextToken();
+        }
+
+        if (isExpected) {
+          reader = readers[expected++];
+        } else if (parser.getCurrentToken() == JsonToken.END_OBJECT) {
+          return bean;
+        } else if (parser.getCurrentToken() != JsonToken.FIELD_NAME) {
+          throw mismatch(parser, "a field");
+        } else {
+          reader = readersByName.get(parser.getCurrentName());
+
+          if (reader != null) {
+            // Fields likely follow on in order from here
+            expected = reader.index + 1;
+          }
+        }
+
+        if (parser.nextToken() == null) {
+          throw mismatch(parser, "a value");
+        }
+
+        if (reader == null) {
+          parser.skipChildren();
+        } else {
+          reader.read(parser, bean);
+        }
+      }
+    }
+
+    private Object newInstance() {
+      try {
+        return constructor.invokeExact();
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException("Failed to construct an entity", t);
+      }
+    }
+  }
+
+  private abstract static class PropertyReader {
+    final PropertyModel property;
+    final SerializedString name;
+    final int index;
+
+    PropertyReader(PropertyModel property, int index) {
+      this.property = property;
+      this.name = new SerializedString(property.name);
+      this.index = index;
+    }
+
+    /**
+     * Reads the property's value, from the parser's current token, into the bean.
+     */
+    abstract void read(JsonParser parser, Object bean) throws IOException;
+
+    final RuntimeException writeFailure(Object bean, Throwable t) {
+      if (t instanceof RuntimeException) {
+        return (RuntimeException) t;
+      }
+
+      if (t instanceof Error) {
+        throw (Error) t;
+      }
+
+      return new IllegalStateException("Failed to write " + property.name + " of "
+          + bean.getClass(), t);
+    }
+  }
+
+  private static final class SkippingPropertyReader extends PropertyReader {
+    SkippingPropertyReader(PropertyModel property, int index) {
+      super(property, index);
+    }
+
+    @Override
+    void read(JsonParser parser, Object bean) throws IOException {
+      parser.skipChildren();
+    }
+  }
+
+  /** Leaves the property as it is if the value is null, as it is for all primitives. */
+  private static final class IntPropertyReader extends PropertyReader {
+    private final MethodHandle setter;
+
+    IntPropertyReader(PropertyModel property, int index) {
+      super(property, index);
+      this.setter = property.setter(int.class);
+    }
+
+    @Override
+    void read(JsonParser parser, Object bean) throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+        return;
+      }
+
+      int value = parser.getIntValue();
+
+      try {
+        setter.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw writeFailure(bean, t);
+      }
+    }
+  }
+
+  private static final class LongPropertyReader extends PropertyReader {
+    private final MethodHandle setter;
+
+    LongPropertyReader(PropertyModel property, int index) {
+      super(property, index);
+      this.setter = property.setter(long.class);
+    }
+
+    @Override
+    void read(JsonParser parser, Object bean) throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+        return;
+      }
+
+      long value = parser.getLongValue();
+
+      try {
+        setter.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw writeFailure(bean, t);
+      }
+    }
+  }
+
+  private static final class DoublePropertyReader extends PropertyReader {
+    private final MethodHandle setter;
+
+    DoublePropertyReader(PropertyModel property, int index) {
+      super(property, index);
+      this.setter = property.setter(double.class);
+    }
+
+    @Override
+    void read(JsonParser parser, Object bean) throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+        return;
+      }
+
+      double value = parser.getDoubleValue();
+
+      try {
+        setter.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw writeFailure(bean, t);
+      }
+    }
+  }
+
+  private static final class BooleanPropertyReader extends PropertyReader {
+    private final MethodHandle setter;
+
+    BooleanPropertyReader(PropertyModel property, int index) {
+      super(property, index);
+      this.setter = property.setter(boolean.class);
+    }
+
+    @Override
+    void read(JsonParser parser, Object bean) throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+        return;
+      }
+
+      boolean value = parser.getBooleanValue();
+
+      try {
+        setter.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw writeFailure(bean, t);
+      }
+    }
+  }
+
+  private static final class ValuePropertyReader extends PropertyReader {
+    private final ValueReader valueReader;
+    private final MethodHandle setter;
+    private final boolean primitive;
+
+    ValuePropertyReader(PropertyModel property, int index, ValueReader valueReader) {
+      super(property, index);
+      this.valueReader = valueReader;
+      this.setter = property.setter(Object.class);
+      this.primitive = property.javaType.isPrimitive();
+    }
+
+    @Override
+    void read(JsonParser parser, Object bean) throws IOException {
+      Object value = parser.getCurrentToken() == JsonToken.VALUE_NULL
+          ? null
+          : valueReader.read(parser);
+
+      if (value == null && primitive) {
+        return;
+      }
+
+      try {
+        setter.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw writeFailure(bean, t);
+      }
+    }
+  }
+
+  /**
+   * Reads values of some java type.
+   */
+  private interface ValueReader {
+    /**
+     * Reads a value from the parser's current token, which is not null, and leaves the parser at
+     * its last token.
+     */
+    Object read(JsonParser parser) throws IOException;
+  }
+
+  private enum SimpleReader implements ValueReader {
+    STRING {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return text(parser, "a string");
+      }
+    },
+    CHARACTER {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        String text = text(parser, "a character");
+
+        if (text.length() != 1) {
+          throw mismatch(parser, "a single character");
+        }
+
+        return text.charAt(0);
+      }
+    },
+    UUID {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        String text = text(parser, "a UUID");
+
+        try {
+          return java.util.UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+          throw JsonMappingException.from(parser, "Not a UUID: " + text, e);
+        }
+      }
+    },
+    INTEGER {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return parser.getIntValue();
+      }
+    },
+    LONG {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return parser.getLongValue();
+      }
+    },
+    SHORT {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return parser.getShortValue();
+      }
+    },
+    BYTE {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return parser.getByteValue();
+      }
+    },
+    DOUBLE {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return parser.getDoubleValue();
+      }
+    },
+    FLOAT {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return parser.getFloatValue();
+      }
+    },
+    BOOLEAN {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return parser.getBooleanValue();
+      }
+    },
+    BIG_DECIMAL {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken().isNumeric()) {
+          return parser.getDecimalValue();
+        }
+
+        try {
+          return new BigDecimal(text(parser, "a decimal"));
+        } catch (NumberFormatException e) {
+          throw JsonMappingException.from(parser, "Not a decimal: " + parser.getText(), e);
+        }
+      }
+    },
+    BIG_INTEGER {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken().isNumeric()) {
+          return parser.getBigIntegerValue();
+        }
+
+        try {
+          return new BigInteger(text(parser, "an integer"));
+        } catch (NumberFormatException e) {
+          throw JsonMappingException.from(parser, "Not an integer: " + parser.getText(), e);
+        }
+      }
+    },
+    DATE {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return date(parser);
+      }
+    },
+    BINARY {
+      @Override
+      public Object read(JsonParser parser) throws IOException {
+        return parser.getBinaryValue();
+      }
+    };
+
+    /**
+     * @return The text of a scalar value, as lightblue reads strings.
+     */
+    static String text(JsonParser parser, String expected) throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+        return parser.getText();
+      }
+
+      if (!parser.getCurrentToken().isScalarValue()) {
+        throw mismatch(parser, expected);
+      }
+
+      return parser.getText();
+    }
+
+    static Date date(JsonParser parser) throws IOException {
+      if (parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+        throw mismatch(parser, "a date");
+      }
+
+      try {
+        return Dates.parse(parser.getText());
+      } catch (IllegalArgumentException e) {
+        throw JsonMappingException.from(parser, e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Reads enum constants from their values in metadata, or from their names if they are not
+   * values, as {@code EntitySerializer} writes them.
+   */
+  private static final class EnumReader implements ValueReader {
+    private final Class<?> type;
+    private final Map<String, Object> constantsByValue = new HashMap<>();
+
+    EnumReader(Class<?> type, String[] enumValues) {
+      this.type = type;
+      Object[] constants = type.getEnumConstants();
+
+      for (int i = 0; i < constants.length; i++) {
+        constantsByValue.put(enumValues != null && enumValues[i] != null
+            ? enumValues[i]
+            : ((Enum<?>) constants[i]).name(), constants[i]);
+      }
+    }
+
+    @Override
+    public Object read(JsonParser parser) throws IOException {
+      Object constant = constantsByValue.get(SimpleReader.text(parser, "an enum value"));
+
+      if (constant == null) {
+        throw JsonMappingException.from(parser, parser.getText() + " is not a value of "
+            + type.getName());
+      }
+
+      return constant;
+    }
+  }
+
+  private static final class TemporalReader implements ValueReader {
+    private final Function<Date, Temporal> conversion;
+
+    TemporalReader(Function<Date, Temporal> conversion) {
+      this.conversion = conversion;
+    }
+
+    @Override
+    public Object read(JsonParser parser) throws IOException {
+      return conversion.apply(SimpleReader.date(parser));
+    }
+  }
+
+  /**
+   * Reads values as lightblue converts them from its type, for types the other readers do not
+   * know.
+   */
+  private static final class TypeReader implements ValueReader {
+    private final Type type;
+    private final Class<?> javaType;
+
+    TypeReader(Type type, Class<?> javaType) {
+      this.type = type;
+      this.javaType = javaType;
+    }
+
+    @Override
+    public Object read(JsonParser parser) throws IOException {
+      JsonNode node = mapper.readTree(parser);
+      Object value = type.fromJson(node);
+
+      if (value != null && !javaType.isInstance(value)) {
+        throw JsonMappingException.from(parser, "Cannot read " + type.getName() + " "
+            + value.getClass().getName() + " as " + javaType.getName());
+      }
+
+      return value;
+    }
+  }
+
+  private final class ObjectReader implements ValueReader {
+    private final Class<?> type;
+    /** Resolved on first use, since the type may enclose itself. */
+    private ReadPlan plan;
+
+    ObjectReader(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    public Object read(JsonParser parser) throws IOException {
+      ReadPlan resolved = plan;
+
+      if (resolved == null) {
+        // Racing threads resolve the same plan, which is immutable
+        resolved = plans.get(type);
+        plan = resolved;
+      }
+
+      return resolved.read(parser);
+    }
+  }
+
+  private static final class ArrayReader implements ValueReader {
+    private final Class<?> javaType;
+    private final Class<?> elementType;
+    private final ValueReader elementReader;
+    /** Makes collections to add elements to, unless arrays are read as lists or java arrays. */
+    private final MethodHandle collection;
+
+    ArrayReader(Class<?> javaType, Class<?> elementType, ValueReader elementReader) {
+      this.javaType = javaType;
+      this.elementType = elementType;
+      this.elementReader = elementReader;
+      this.collection = javaType.isArray() || javaType.isAssignableFrom(ArrayList.class)
+          ? null
+          : collection(javaType);
+    }
+
+    @Override
+    public Object read(JsonParser parser) throws IOException {
+      if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+        throw mismatch(parser, "an array");
+      }
+
+      List<Object> elements = new ArrayList<>();
+
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        elements.add(parser.getCurrentToken() == JsonToken.VALUE_NULL
+            ? null
+            : elementReader.read(parser));
+      }
+
+      if (javaType.isArray()) {
+        return toArray(parser, elements);
+      }
+
+      if (collection == null) {
+        return elements;
+      }
+
+      Collection<Object> values = newCollection();
+      values.addAll(elements);
+      return values;
+    }
+
+    private Object toArray(JsonParser parser, List<Object> elements) throws IOException {
+      if (!elementType.isPrimitive()) {
+        return elements.toArray((Object[]) Array.newInstance(elementType, elements.size()));
+      }
+
+      Object array = Array.newInstance(elementType, elements.size());
+
+      for (int i = 0; i < elements.size(); i++) {
+        if (elements.get(i) == null) {
+          throw JsonMappingException.from(parser, "Cannot read null into an array of "
+              + elementType);
+        }
+
+        Array.set(array, i, elements.get(i));
+      }
+
+      return array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Object> newCollection() {
+      try {
+        return (Collection<Object>) collection.invokeExact();
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException("Failed to construct a " + javaType, t);
+      }
+    }
+
+    /**
+     * @return A handle which makes a collection of {@code type}, as {@code ()Object}.
+     * @throws IllegalArgumentException If there is no collection of {@code type} to make.
+     */
+    private static MethodHandle collection(Class<?> type) {
+      if (type.isAssignableFrom(LinkedHashSet.class)) {
+        return constructor(LinkedHashSet.class);
+      }
+
+      if (type.isAssignableFrom(TreeSet.class)) {
+        return constructor(TreeSet.class);
+      }
+
+      if (Collection.class.isAssignableFrom(type)) {
+        return constructor(type);
+      }
+
+      throw new IllegalArgumentException("Cannot read arrays as " + type);
+    }
+  }
+}
@@ -0,0 +1,675 @@
+package com.redhat.lightblue.generator.runtime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.redhat.lightblue.generator.CachingReflector;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.TypeMappers;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.query.ArrayAddExpression;
+import com.redhat.lightblue.query.BinaryComparisonOperator;
+import com.redhat.lightblue.query.FieldAndRValue;
+import com.redhat.lightblue.query.ForEachExpression;
+import com.redhat.lightblue.query.NaryLogicalExpression;
+import com.redhat.lightblue.query.NaryLogicalOperator;
+import com.redhat.lightblue.query.PartialUpdateExpression;
+import com.redhat.lightblue.query.QueryExpression;
+import com.redhat.lightblue.query.RValueExpression;
+import com.redhat.lightblue.query.RemoveElementExpression;
+import com.redhat.lightblue.query.SetExpression;
+import com.redhat.lightblue.query.UnsetExpression;
+import com.redhat.lightblue.query.UpdateExpression;
+import com.redhat.lightblue.query.UpdateExpressionList;
+import com.redhat.lightblue.query.UpdateOperator;
+import com.redhat.lightblue.query.Value;
+import com.redhat.lightblue.query.ValueComparisonExpression;
+import com.redhat.lightblue.util.Path;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Finds how an entity has changed, as a lightblue update which makes a document of it as it was
+ * into a document of it as it is, so that only what changed is sent to lightblue. Fields are
+ * compared as laid out by the metadata generated from the entity's class.
+ *
+ * <p>Simple fields which changed are {@code $set}, or {@code $unset} if they became null, as are
+ * objects which were or became null; other objects are compared field by field. Elements of
+ * arrays of objects with {@link com.redhat.lightblue.generator.ElementIdentity} fields are matched
+ * by those fields: changed elements are updated {@code $foreach} element with their identity,
+ * removed elements are removed likewise, and added elements are {@code $append}ed, provided that
+ * they follow the rest in the same order as before. Arrays of objects without identities are
+ * compared element by element if they are the same size. Any other array which changed is
+ * {@code $set} whole.
+ *
+ * <p>Each class is compiled once into comparisons of its properties, which read them through
+ * method handles, without boxing primitives. Values are only converted to JSON where they changed.
+ *
+ * <p>Thread-safe, provided the reflector and type mappers are.
+ */
+public final class EntityDiffer {
+  private final BeanModels models;
+  private final EntitySerializer serializer;
+
+  private final ClassValue<DiffPlan> plans = new ClassValue<DiffPlan>() {
+    @Override
+    protected DiffPlan computeValue(Class<?> bean) {
+      return compile(bean);
+    }
+  };
+
+  /**
+   * Reflects with JavaBeans, using the default type mappings.
+   */
+  public EntityDiffer() {
+    this(new CachingReflector(new JavaBeansReflector()), TypeMappers.defaults());
+  }
+
+  /**
+   * @param reflector Should be the one the entities' metadata is generated with.
+   * @param typeMappers Should be those the entities' metadata is generated with.
+   */
+  public EntityDiffer(Reflector reflector, TypeMappers typeMappers) {
+    this.models = new BeanModels(reflector, typeMappers);
+    this.serializer = new EntitySerializer(reflector, typeMappers);
+  }
+
+  /**
+   * @return An update of the entity from {@code before} to {@code after}, or empty if they are
+   * the same.
+   * @throws IllegalArgumentException If they are not of the same class.
+   */
+  public Optional<UpdateExpression> diff(Object before, Object after) {
+    Objects.requireNonNull(before, "before");
+    Objects.requireNonNull(after, "after");
+
+    if (before.getClass() != after.getClass()) {
+      throw new IllegalArgumentException("Cannot diff a " + before.getClass().getName()
+          + " with a " + after.getClass().getName());
+    }
+
+    Changes changes = new Changes();
+    plans.get(after.getClass()).diff(before, after, "", changes);
+    return changes.toUpdate();
+  }
+
+  private DiffPlan compile(Class<?> bean) {
+    List<PropertyModel> properties = models.properties(bean);
+    PropertyDiffer[] differs = new PropertyDiffer[properties.size()];
+    List<Integer> identity = new ArrayList<>();
+
+    for (int i = 0; i < differs.length; i++) {
+      PropertyModel property = properties.get(i);
+      Class<?> javaType = property.javaType;
+
+      if (javaType == int.class || javaType == long.class || javaType == short.class
+          || javaType == byte.class) {
+        differs[i] = new LongDiffer(bean, property, i);
+      } else if (javaType == double.class || javaType == float.class) {
+        differs[i] = new DoubleDiffer(bean, property, i);
+      } else if (javaType == boolean.class) {
+        differs[i] = new BooleanDiffer(bean, property, i);
+      } else if (property.kind == PropertyModel.Kind.OBJECT) {
+        differs[i] = new ObjectDiffer(bean, property, i);
+      } else if (property.kind == PropertyModel.Kind.ARRAY) {
+        differs[i] = new ArrayDiffer(bean, property, i);
+      } else {
+        differs[i] = new ValueDiffer(bean, property, i);
+      }
+
+      if (property.mirror.isElementIdentifying()) {
+        identity.add(i);
+      }
+    }
+
+    return new DiffPlan(bean, properties, differs, identity);
+  }
+
+  private final class DiffPlan {
+    private final Class<?> bean;
+    private final PropertyDiffer[] differs;
+    /** Identifies the bean as an element of arrays; empty if it cannot be identified. */
+    private final PropertyModel[] identity;
+    private final int[] identityIndexes;
+
+    DiffPlan(Class<?> bean, List<PropertyModel> properties, PropertyDiffer[] differs,
+        List<Integer> identity) {
+      this.bean = bean;
+      this.differs = differs;
+
+      // Only simple fields can be queried for
+      boolean simple = identity.stream()
+          .allMatch(i -> properties.get(i).kind == PropertyModel.Kind.SIMPLE);
+
+      this.identity = new PropertyModel[simple ? identity.size() : 0];
+      this.identityIndexes = new int[this.identity.length];
+
+      for (int i = 0; i < this.identity.length; i++) {
+        this.identityIndexes[i] = identity.get(i);
+        this.identity[i] = properties.get(identity.get(i));
+      }
+    }
+
+    /**
+     * @param prefix The path of the beans, followed by a dot unless they are the entity.
+     */
+    void diff(Object before, Object after, String prefix, Changes changes) {
+      for (PropertyDiffer differ : differs) {
+        differ.diff(before, after, prefix, changes);
+      }
+    }
+
+    boolean isIdentified() {
+      return identity.length > 0;
+    }
+
+    /**
+     * @return The values of the element's identity, or null if any is null.
+     */
+    Object key(Object element) {
+      if (identity.length == 1) {
+        return identity[0].get(element);
+      }
+
+      Object[] values = new Object[identity.length];
+
+      for (int i = 0; i < values.length; i++) {
+        values[i] = identity[i].get(element);
+
+        if (values[i] == null) {
+          return null;
+        }
+      }
+
+      return Arrays.asList(values);
+    }
+
+    /**
+     * @return A query, relative to the element, which matches its identity.
+     */
+    QueryExpression query(Object element) {
+      List<QueryExpression> comparisons = new ArrayList<>(identity.length);
+
+      for (int i = 0; i < identity.length; i++) {
+        comparisons.add(new ValueComparisonExpression(new Path(identity[i].name),
+            BinaryComparisonOperator._eq, new Value(serializer.propertyToJson(bean,
+                identityIndexes[i], identity[i].get(element)))));
+      }
+
+      return comparisons.size() == 1
+          ? comparisons.get(0)
+          : new NaryLogicalExpression(NaryLogicalOperator._and, comparisons);
+    }
+  }
+
+  private abstract class PropertyDiffer {
+    final Class<?> bean;
+    final PropertyModel property;
+    final int index;
+
+    PropertyDiffer(Class<?> bean, PropertyModel property, int index) {
+      this.bean = bean;
+      this.property = property;
+      this.index = index;
+    }
+
+    /**
+     * @param prefix The path of the beans, followed by a dot unless they are the entity.
+     */
+    abstract void diff(Object before, Object after, String prefix, Changes changes);
+
+    final JsonNode toJson(Object value) {
+      return serializer.propertyToJson(bean, index, value);
+    }
+
+    final RuntimeException readFailure(Object bean, Throwable t) {
+      if (t instanceof RuntimeException) {
+        return (RuntimeException) t;
+      }
+
+      if (t instanceof Error) {
+        throw (Error) t;
+      }
+
+      return new IllegalStateException("Failed to read " + property.name + " of "
+          + bean.getClass(), t);
+    }
+  }
+
+  private final class LongDiffer extends PropertyDiffer {
+    private final MethodHandle getter;
+
+    LongDiffer(Class<?> bean, PropertyModel property, int index) {
+      super(bean, property, index);
+      this.getter = property.getter(long.class);
+    }
+
+    @Override
+    void diff(Object before, Object after, String prefix, Changes changes) {
+      long value = get(after);
+
+      if (get(before) != value) {
+        changes.set(prefix + property.name, toJson(value));
+      }
+    }
+
+    private long get(Object bean) {
+      try {
+        return (long) getter.invokeExact(bean);
+      } catch (Throwable t) {
+        throw readFailure(bean, t);
+      }
+    }
+  }
+
+  private final class DoubleDiffer extends PropertyDiffer {
+    private final MethodHandle getter;
+
+    DoubleDiffer(Class<?> bean, PropertyModel property, int index) {
+      super(bean, property, index);
+      this.getter = property.getter(double.class);
+    }
+
+    @Override
+    void diff(Object before, Object after, String prefix, Changes changes) {
+      double value = get(after);
+
+      if (Double.doubleToLongBits(get(before)) != Double.doubleToLongBits(value)) {
+        changes.set(prefix + property.name, toJson(value));
+      }
+    }
+
+    private double get(Object bean) {
+      try {
+        return (double) getter.invokeExact(bean);
+      } catch (Throwable t) {
+        throw readFailure(bean, t);
+      }
+    }
+  }
+
+  private final class BooleanDiffer extends PropertyDiffer {
+    private final MethodHandle getter;
+
+    BooleanDiffer(Class<?> bean, PropertyModel property, int index) {
+      super(bean, property, index);
+      this.getter = property.getter(boolean.class);
+    }
+
+    @Override
+    void diff(Object before, Object after, String prefix, Changes changes) {
+      boolean value = get(after);
+
+      if (get(before) != value) {
+        changes.set(prefix + property.name, toJson(value));
+      }
+    }
+
+    private boolean get(Object bean) {
+      try {
+        return (boolean) getter.invokeExact(bean);
+      } catch (Throwable t) {
+        throw readFailure(bean, t);
+      }
+    }
+  }
+
+  private final class ValueDiffer extends PropertyDiffer {
+    ValueDiffer(Class<?> bean, PropertyModel property, int index) {
+      super(bean, property, index);
+    }
+
+    @Override
+    void diff(Object before, Object after, String prefix, Changes changes) {
+      Object value = property.get(after);
+
+      if (Objects.deepEquals(property.get(before), value)) {
+        return;
+      }
+
+      if (value == null) {
+        changes.unset(prefix + property.name);
+      } else {
+        changes.set(prefix + property.name, toJson(value));
+      }
+    }
+  }
+
+  private final class ObjectDiffer extends PropertyDiffer {
+    /** Resolved on first use, since the type may enclose itself. */
+    private DiffPlan plan;
+
+    ObjectDiffer(Class<?> bean, PropertyModel property, int index) {
+      super(bean, property, index);
+    }
+
+    @Override
+    void diff(Object before, Object after, String prefix, Changes changes) {
+      Object was = property.get(before);
+      Object is = property.get(after);
+
+      if (was == is) {
+        return;
+      }
+
+      if (is == null) {
+        changes.unset(prefix + property.name);
+      } else if (was == null) {
+        changes.set(prefix + property.name, toJson(is));
+      } else {
+        plan().diff(was, is, prefix + property.name + ".", changes);
+      }
+    }
+
+    private DiffPlan plan() {
+      DiffPlan resolved = plan;
+
+      if (resolved == null) {
+        // Racing threads resolve the same plan, which is immutable. Objects are compared as their
+        // declared type, as they are written.
+        resolved = plans.get(property.javaType);
+        plan = resolved;
+      }
+
+      return resolved;
+    }
+  }
+
+  private final class ArrayDiffer extends PropertyDiffer {
+    /** Resolved on first use, since the type may enclose itself; null for simple elements. */
+    private DiffPlan elementPlan;
+
+    ArrayDiffer(Class<?> bean, PropertyModel property, int index) {
+      super(bean, property, index);
+    }
+
+    @Override
+    void diff(Object before, Object after, String prefix, Changes changes) {
+      Object was = property.get(before);
+      Object is = property.get(after);
+      String path = prefix + property.name;
+
+      if (was == is) {
+        return;
+      }
+
+      if (is == null) {
+        changes.unset(path);
+        return;
+      }
+
+      if (was != null && property.objectElements) {
+        List<?> wasElements = elements(was);
+        List<?> isElements = elements(is);
+        DiffPlan plan = elementPlan();
+
+        if (plan.isIdentified()
+            ? diffIdentified(plan, wasElements, isElements, path, changes)
+            : diffIndexed(plan, wasElements, isElements, path, changes)) {
+          return;
+        }
+      } else if (was != null && elements(was).equals(elements(is))) {
+        return;
+      }
+
+      changes.set(path, toJson(is));
+    }
+
+    /**
+     * Diffs elements by their identities.
+     *
+     * @return Whether they could be, which is if every element has a distinct identity, and those
+     * which remain are in the same order, followed by those which are added.
+     */
+    private boolean diffIdentified(DiffPlan plan, List<?> was, List<?> is, String path,
+        Changes changes) {
+      if (diffInPlace(plan, was, is, path, changes)) {
+        return true;
+      }
+
+      Map<Object, Integer> wasIndexes = new HashMap<>();
+      Map<Object, Object> isByKey = new HashMap<>();
+      List<Object> added = new ArrayList<>();
+      int lastIndex = -1;
+
+      for (int i = 0; i < was.size(); i++) {
+        Object key = was.get(i) == null ? null : plan.key(was.get(i));
+
+        if (key == null || wasIndexes.put(key, i) != null) {
+          return false;
+        }
+      }
+
+      for (Object element : is) {
+        Object key = element == null ? null : plan.key(element);
+
+        if (key == null || isByKey.put(key, element) != null) {
+          return false;
+        }
+
+        Integer wasIndex = wasIndexes.get(key);
+
+        if (wasIndex == null) {
+          added.add(element);
+        } else if (!added.isEmpty() || wasIndex < lastIndex) {
+          // Elements cannot be moved, nor inserted between others
+          return false;
+        } else {
+          lastIndex = wasIndex;
+        }
+      }
+
+      Path field = new Path(path);
+
+      for (Object element : was) {
+        Object isElement = isByKey.get(plan.key(element));
+
+        if (isElement == null) {
+          changes.update(new ForEachExpression(field, plan.query(element),
+              new RemoveElementExpression()));
+        } else if (isElement != element) {
+          updateElement(plan, element, isElement, field, path, changes);
+        }
+      }
+
+      if (!added.isEmpty()) {
+        List<RValueExpression> values = new ArrayList<>(added.size());
+
+        for (Object element : added) {
+          values.add(new RValueExpression(new Value(serializer.toJson(plan.bean, element))));
+        }
+
+        changes.update(new ArrayAddExpression(field, UpdateOperator._append, values));
+      }
+
+      return true;
+    }
+
+    /**
+     * Diffs elements with the same identities at the same indexes, which is what usually remains
+     * of an array, without looking them up.
+     *
+     * @return Whether they could be diffed so, before any changes are made.
+     */
+    private boolean diffInPlace(DiffPlan plan, List<?> was, List<?> is, String path,
+        Changes changes) {
+      if (was.size() != is.size()) {
+        return false;
+      }
+
+      for (int i = 0; i < is.size(); i++) {
+        Object wasElement = was.get(i);
+        Object isElement = is.get(i);
+
+        if (wasElement == null || isElement == null) {
+          return false;
+        }
+
+        Object key = plan.key(isElement);
+
+        if (key == null || !key.equals(plan.key(wasElement))) {
+          return false;
+        }
+      }
+
+      // Identities may still be repeated, in which case the first update would apply to them all
+      if (is.size() > 1) {
+        Set<Object> keys = new HashSet<>();
+
+        for (Object element : is) {
+          if (!keys.add(plan.key(element))) {
+            return false;
+          }
+        }
+      }
+
+      Path field = null;
+
+      for (int i = 0; i < is.size(); i++) {
+        if (was.get(i) != is.get(i)) {
+          field = updateElement(plan, was.get(i), is.get(i), field, path, changes);
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * @param field The path of the array, or null if it is not yet parsed.
+     * @return The path of the array, if it has been parsed.
+     */
+    private Path updateElement(DiffPlan plan, Object was, Object is, Path field, String path,
+        Changes changes) {
+      Changes elementChanges = new Changes();
+      plan.diff(was, is, "", elementChanges);
+      Optional<UpdateExpression> update = elementChanges.toUpdate();
+
+      if (!update.isPresent()) {
+        return field;
+      }
+
+      Path parsed = field == null ? new Path(path) : field;
+      changes.update(new ForEachExpression(parsed, plan.query(is), update.get()));
+      return parsed;
+    }
+
+    /**
+     * Diffs elements at the same indexes.
+     *
+     * @return Whether they could be, which is if there are as many as before.
+     */
+    private boolean diffIndexed(DiffPlan plan, List<?> was, List<?> is, String path,
+        Changes changes) {
+      if (was.size() != is.size()) {
+        return false;
+      }
+
+      for (int i = 0; i < is.size(); i++) {
+        Object wasElement = was.get(i);
+        Object isElement = is.get(i);
+        String elementPath = path + "." + i;
+
+        if (wasElement == isElement) {
+          continue;
+        }
+
+        if (isElement == null) {
+          changes.set(elementPath, toJson(null));
+        } else if (wasElement == null) {
+          changes.set(elementPath, serializer.toJson(plan.bean, isElement));
+        } else {
+          plan.diff(wasElement, isElement, elementPath + ".", changes);
+        }
+      }
+
+      return true;
+    }
+
+    private DiffPlan elementPlan() {
+      DiffPlan resolved = elementPlan;
+
+      if (resolved == null) {
+        resolved = plans.get(property.elementType);
+        elementPlan = resolved;
+      }
+
+      return resolved;
+    }
+  }
+
+  /**
+   * @return The elements of an array or iterable, as a list.
+   */
+  private static List<?> elements(Object array) {
+    if (array instanceof List) {
+      return (List<?>) array;
+    }
+
+    if (array instanceof Object[]) {
+      return Arrays.asList((Object[]) array);
+    }
+
+    List<Object> elements = new ArrayList<>();
+
+    if (array.getClass().isArray()) {
+      for (int i = 0; i < Array.getLength(array); i++) {
+        elements.add(Array.get(array, i));
+      }
+    } else {
+      for (Object element : (Iterable<?>) array) {
+        elements.add(element);
+      }
+    }
+
+    return elements;
+  }
+
+  /**
+   * Collects the changes to an entity, or to an element of an array.
+   */
+  private static final class Changes {
+    private final List<FieldAndRValue> sets = new ArrayList<>();
+    private final List<Path> unsets = new ArrayList<>();
+    private final List<PartialUpdateExpression> arrayUpdates = new ArrayList<>();
+
+    void set(String path, JsonNode value) {
+      sets.add(new FieldAndRValue(new Path(path), new RValueExpression(new Value(value))));
+    }
+
+    void unset(String path) {
+      unsets.add(new Path(path));
+    }
+
+    void update(PartialUpdateExpression arrayUpdate) {
+      arrayUpdates.add(arrayUpdate);
+    }
+
+    Optional<UpdateExpression> toUpdate() {
+      List<PartialUpdateExpression> updates = new ArrayList<>(2 + arrayUpdates.size());
+
+      if (!sets.isEmpty()) {
+        updates.add(new SetExpression(UpdateOperator._set, sets));
+      }
+
+      if (!unsets.isEmpty()) {
+        updates.add(new UnsetExpression(unsets));
+      }
+
+      updates.addAll(arrayUpdates);
+
+      if (updates.isEmpty()) {
+        return Optional.empty();
+      }
+
+      return Optional.of(updates.size() == 1 ? updates.get(0) : new UpdateExpressionList(updates));
+    }
+  }
+}
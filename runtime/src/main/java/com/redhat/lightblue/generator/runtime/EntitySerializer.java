@@ -0,0 +1,689 @@
+package com.redhat.lightblue.generator.runtime;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.redhat.lightblue.generator.CachingReflector;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.TypeMappers;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.ArrayType;
+import com.redhat.lightblue.metadata.types.BigDecimalType;
+import com.redhat.lightblue.metadata.types.BigIntegerType;
+import com.redhat.lightblue.metadata.types.BinaryType;
+import com.redhat.lightblue.metadata.types.BooleanType;
+import com.redhat.lightblue.metadata.types.DateType;
+import com.redhat.lightblue.metadata.types.DoubleType;
+import com.redhat.lightblue.metadata.types.IntegerType;
+import com.redhat.lightblue.metadata.types.ObjectType;
+import com.redhat.lightblue.metadata.types.StringType;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Writes entities as lightblue documents, laid out like the metadata generated from their classes:
+ * the same properties, named the same, with values of the same lightblue types. Properties which
+ * are {@link com.redhat.lightblue.generator.Transient} are left out, as are null values.
+ *
+ * <p>Each class is compiled once into a plan of writers for its properties, which read them
+ * through method handles, without boxing primitives, and write them with their names already
+ * encoded.
+ *
+ * <p>Thread-safe, provided the reflector and type mappers are.
+ */
+public final class EntitySerializer {
+  private static final JsonNodeFactory NODE_FACTORY = JsonNodeFactory.withExactBigDecimals(true);
+  /**
+   * Only writes values of the types which custom type mappers map to lightblue types.
+   */
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final BeanModels models;
+
+  private final ClassValue<WritePlan> plans = new ClassValue<WritePlan>() {
+    @Override
+    protected WritePlan computeValue(Class<?> bean) {
+      return compile(bean);
+    }
+  };
+
+  /**
+   * Reflects with JavaBeans, using the default type mappings.
+   */
+  public EntitySerializer() {
+    this(new CachingReflector(new JavaBeansReflector()), TypeMappers.defaults());
+  }
+
+  /**
+   * @param reflector Should be the one the entities' metadata is generated with.
+   * @param typeMappers Should be those the entities' metadata is generated with.
+   */
+  public EntitySerializer(Reflector reflector, TypeMappers typeMappers) {
+    this.models = new BeanModels(reflector, typeMappers);
+  }
+
+  /**
+   * Writes the entity as an object.
+   */
+  public void write(Object entity, JsonGenerator generator) throws IOException {
+    plans.get(entity.getClass()).write(entity, generator);
+  }
+
+  /**
+   * @return The entity as an object, with big decimals as they are.
+   */
+  public ObjectNode toJson(Object entity) {
+    return toJson(entity, NODE_FACTORY);
+  }
+
+  public ObjectNode toJson(Object entity, JsonNodeFactory factory) {
+    return plans.get(entity.getClass()).toJson(entity, factory);
+  }
+
+  /**
+   * @return The bean as an object, written as {@code type}, which it is an instance of.
+   */
+  ObjectNode toJson(Class<?> type, Object bean) {
+    return plans.get(type).toJson(bean, NODE_FACTORY);
+  }
+
+  /**
+   * @param property The index of one of the bean's {@link BeanModels#properties(Class)
+   * properties}.
+   * @return The property's value, as written for the bean.
+   */
+  JsonNode propertyToJson(Class<?> bean, int property, Object value) {
+    return value == null
+        ? NODE_FACTORY.nullNode()
+        : plans.get(bean).writers[property].valueToJson(value, NODE_FACTORY);
+  }
+
+  private WritePlan compile(Class<?> bean) {
+    List<PropertyWriter> writers = new ArrayList<>();
+
+    for (PropertyModel property : models.properties(bean)) {
+      Class<?> javaType = property.javaType;
+
+      if (javaType == int.class || javaType == long.class || javaType == short.class
+          || javaType == byte.class) {
+        writers.add(new LongPropertyWriter(property));
+      } else if (javaType == double.class || javaType == float.class) {
+        writers.add(new DoublePropertyWriter(property));
+      } else if (javaType == boolean.class) {
+        writers.add(new BooleanPropertyWriter(property));
+      } else {
+        writers.add(new ValuePropertyWriter(property, valueWriter(property)));
+      }
+    }
+
+    return new WritePlan(writers.toArray(new PropertyWriter[0]));
+  }
+
+  private ValueWriter valueWriter(PropertyModel property) {
+    switch (property.kind) {
+      case OBJECT:
+        return new ObjectWriter(property.javaType);
+      case ARRAY:
+        return new ArrayWriter(elementWriter(property.elementType));
+      default:
+        return simpleWriter(property.javaType, models.typeOf(property.javaType),
+            property.enumValues);
+    }
+  }
+
+  private ValueWriter elementWriter(Class<?> elementType) {
+    Type type = models.typeOf(elementType);
+
+    if (ObjectType.TYPE.equals(type)) {
+      return new ObjectWriter(elementType);
+    }
+
+    if (ArrayType.TYPE.equals(type)) {
+      // As MetadataGenerator does not generate fields for them either
+      throw new UnsupportedOperationException("Unsupported array element type: " + type);
+    }
+
+    // Elements have no enum in metadata, so enum elements are written by name
+    return simpleWriter(elementType, type, null);
+  }
+
+  /**
+   * @param enumValues For enums, the value in metadata of each constant, as
+   *                   {@link PropertyModel#enumValues}, or null to write constants by name.
+   * @return A writer of values of {@code javaType} as {@code type}, which is simple.
+   */
+  private static ValueWriter simpleWriter(Class<?> javaType, Type type, String[] enumValues) {
+    Class<?> boxed = boxed(javaType);
+
+    if (StringType.TYPE.equals(type)) {
+      return javaType.isEnum() ? new EnumWriter(javaType, enumValues) : SimpleWriter.STRING;
+    }
+
+    if (IntegerType.TYPE.equals(type) && Number.class.isAssignableFrom(boxed)) {
+      return SimpleWriter.INTEGER;
+    }
+
+    if (DoubleType.TYPE.equals(type) && Number.class.isAssignableFrom(boxed)) {
+      return SimpleWriter.DOUBLE;
+    }
+
+    if (BooleanType.TYPE.equals(type) && boxed == Boolean.class) {
+      return SimpleWriter.BOOLEAN;
+    }
+
+    if (BigDecimalType.TYPE.equals(type) && boxed == BigDecimal.class) {
+      return SimpleWriter.BIG_DECIMAL;
+    }
+
+    if (BigIntegerType.TYPE.equals(type) && boxed == BigInteger.class) {
+      return SimpleWriter.BIG_INTEGER;
+    }
+
+    if (DateType.TYPE.equals(type) && Date.class.isAssignableFrom(javaType)) {
+      return SimpleWriter.DATE;
+    }
+
+    if (DateType.TYPE.equals(type) && Temporal.class.isAssignableFrom(javaType)) {
+      return SimpleWriter.TEMPORAL;
+    }
+
+    if (BinaryType.TYPE.equals(type) && javaType == byte[].class) {
+      return SimpleWriter.BINARY;
+    }
+
+    // Left to lightblue to convert
+    return new TypeWriter(type);
+  }
+
+  private static Class<?> boxed(Class<?> javaType) {
+    if (!javaType.isPrimitive()) {
+      return javaType;
+    }
+
+    if (javaType == boolean.class) {
+      return Boolean.class;
+    }
+
+    // Characters are strings; other primitives are numbers
+    return javaType == char.class ? Character.class : Number.class;
+  }
+
+  private static final class WritePlan {
+    private final PropertyWriter[] writers;
+
+    WritePlan(PropertyWriter[] writers) {
+      this.writers = writers;
+    }
+
+    void write(Object bean, JsonGenerator generator) throws IOException {
+      generator.writeStartObject();
+
+      for (PropertyWriter writer : writers) {
+        writer.write(bean, generator);
+      }
+
+      generator.writeEndObject();
+    }
+
+    ObjectNode toJson(Object bean, JsonNodeFactory factory) {
+      ObjectNode object = factory.objectNode();
+
+      for (PropertyWriter writer : writers) {
+        writer.put(bean, object, factory);
+      }
+
+      return object;
+    }
+  }
+
+  private abstract static class PropertyWriter {
+    final PropertyModel property;
+    final SerializedString name;
+
+    PropertyWriter(PropertyModel property) {
+      this.property = property;
+      this.name = new SerializedString(property.name);
+    }
+
+    abstract void write(Object bean, JsonGenerator generator) throws IOException;
+
+    abstract void put(Object bean, ObjectNode object, JsonNodeFactory factory);
+
+    /**
+     * @param value A value of the property, which is not null.
+     */
+    abstract JsonNode valueToJson(Object value, JsonNodeFactory factory);
+
+    final RuntimeException readFailure(Object bean, Throwable t) {
+      if (t instanceof RuntimeException) {
+        return (RuntimeException) t;
+      }
+
+      if (t instanceof Error) {
+        throw (Error) t;
+      }
+
+      return new IllegalStateException("Failed to read " + property.name + " of "
+          + bean.getClass(), t);
+    }
+  }
+
+  private static final class LongPropertyWriter extends PropertyWriter {
+    private final MethodHandle getter;
+
+    LongPropertyWriter(PropertyModel property) {
+      super(property);
+      this.getter = property.getter(long.class);
+    }
+
+    long get(Object bean) {
+      try {
+        return (long) getter.invokeExact(bean);
+      } catch (Throwable t) {
+        throw readFailure(bean, t);
+      }
+    }
+
+    @Override
+    void write(Object bean, JsonGenerator generator) throws IOException {
+      generator.writeFieldName(name);
+      generator.writeNumber(get(bean));
+    }
+
+    @Override
+    void put(Object bean, ObjectNode object, JsonNodeFactory factory) {
+      object.set(property.name, factory.numberNode(get(bean)));
+    }
+
+    @Override
+    JsonNode valueToJson(Object value, JsonNodeFactory factory) {
+      return factory.numberNode(((Number) value).longValue());
+    }
+  }
+
+  private static final class DoublePropertyWriter extends PropertyWriter {
+    private final MethodHandle getter;
+
+    DoublePropertyWriter(PropertyModel property) {
+      super(property);
+      this.getter = property.getter(double.class);
+    }
+
+    double get(Object bean) {
+      try {
+        return (double) getter.invokeExact(bean);
+      } catch (Throwable t) {
+        throw readFailure(bean, t);
+      }
+    }
+
+    @Override
+    void write(Object bean, JsonGenerator generator) throws IOException {
+      generator.writeFieldName(name);
+      generator.writeNumber(get(bean));
+    }
+
+    @Override
+    void put(Object bean, ObjectNode object, JsonNodeFactory factory) {
+      object.set(property.name, factory.numberNode(get(bean)));
+    }
+
+    @Override
+    JsonNode valueToJson(Object value, JsonNodeFactory factory) {
+      return factory.numberNode(((Number) value).doubleValue());
+    }
+  }
+
+  private static final class BooleanPropertyWriter extends PropertyWriter {
+    private final MethodHandle getter;
+
+    BooleanPropertyWriter(PropertyModel property) {
+      super(property);
+      this.getter = property.getter(boolean.class);
+    }
+
+    boolean get(Object bean) {
+      try {
+        return (boolean) getter.invokeExact(bean);
+      } catch (Throwable t) {
+        throw readFailure(bean, t);
+      }
+    }
+
+    @Override
+    void write(Object bean, JsonGenerator generator) throws IOException {
+      generator.writeFieldName(name);
+      generator.writeBoolean(get(bean));
+    }
+
+    @Override
+    void put(Object bean, ObjectNode object, JsonNodeFactory factory) {
+      object.set(property.name, factory.booleanNode(get(bean)));
+    }
+
+    @Override
+    JsonNode valueToJson(Object value, JsonNodeFactory factory) {
+      return factory.booleanNode((Boolean) value);
+    }
+  }
+
+  private static final class ValuePropertyWriter extends PropertyWriter {
+    private final ValueWriter valueWriter;
+
+    ValuePropertyWriter(PropertyModel property, ValueWriter valueWriter) {
+      super(property);
+      this.valueWriter = valueWriter;
+    }
+
+    @Override
+    void write(Object bean, JsonGenerator generator) throws IOException {
+      Object value = property.get(bean);
+
+      if (value != null) {
+        generator.writeFieldName(name);
+        valueWriter.write(value, generator);
+      }
+    }
+
+    @Override
+    void put(Object bean, ObjectNode object, JsonNodeFactory factory) {
+      Object value = property.get(bean);
+
+      if (value != null) {
+        object.set(property.name, valueWriter.toJson(value, factory));
+      }
+    }
+
+    @Override
+    JsonNode valueToJson(Object value, JsonNodeFactory factory) {
+      return valueWriter.toJson(value, factory);
+    }
+  }
+
+  /**
+   * Writes non-null values of some java type.
+   */
+  private interface ValueWriter {
+    void write(Object value, JsonGenerator generator) throws IOException;
+
+    JsonNode toJson(Object value, JsonNodeFactory factory);
+  }
+
+  private enum SimpleWriter implements ValueWriter {
+    STRING {
+      @Override
+      public void write(Object value, JsonGenerator generator) throws IOException {
+        generator.writeString(value.toString());
+      }
+
+      @Override
+      public JsonNode toJson(Object value, JsonNodeFactory factory) {
+        return factory.textNode(value.toString());
+      }
+    },
+    INTEGER {
+      @Override
+      public void write(Object value, JsonGenerator generator) throws IOException {
+        generator.writeNumber(((Number) value).longValue());
+      }
+
+      @Override
+      public JsonNode toJson(Object value, JsonNodeFactory factory) {
+        return factory.numberNode(((Number) value).longValue());
+      }
+    },
+    DOUBLE {
+      @Override
+      public void write(Object value, JsonGenerator generator) throws IOException {
+        generator.writeNumber(((Number) value).doubleValue());
+      }
+
+      @Override
+      public JsonNode toJson(Object value, JsonNodeFactory factory) {
+        return factory.numberNode(((Number) value).doubleValue());
+      }
+    },
+    BOOLEAN {
+      @Override
+      public void write(Object value, JsonGenerator generator) throws IOException {
+        generator.writeBoolean((Boolean) value);
+      }
+
+      @Override
+      public JsonNode toJson(Object value, JsonNodeFactory factory) {
+        return factory.booleanNode((Boolean) value);
+      }
+    },
+    BIG_DECIMAL {
+      @Override
+      public void write(Object value, JsonGenerator generator) throws IOException {
+        generator.writeNumber((BigDecimal) value);
+      }
+
+      @Override
+      public JsonNode toJson(Object value, JsonNodeFactory factory) {
+        return factory.numberNode((BigDecimal) value);
+      }
+    },
+    BIG_INTEGER {
+      @Override
+      public void write(Object value, JsonGenerator generator) throws IOException {
+        generator.writeNumber((BigInteger) value);
+      }
+
+      @Override
+      public JsonNode toJson(Object value, JsonNodeFactory factory) {
+        return factory.numberNode((BigInteger) value);
+      }
+    },
+    DATE {
+      @Override
+      public void write(Object value, JsonGenerator generator) throws IOException {
+        generator.writeString(Dates.format((Date) value));
+      }
+
+      @Override
+      public JsonNode toJson(Object value, JsonNodeFactory factory) {
+        return factory.textNode(Dates.format((Date) value));
+      }
+    },
+    TEMPORAL {
+      @Override
+      public void write(Object value, JsonGenerator generator) throws IOException {
+        generator.writeString(Dates.format((Temporal) value));
+      }
+
+      @Override
+      public JsonNode toJson(Object value, JsonNodeFactory factory) {
+        return factory.textNode(Dates.format((Temporal) value));
+      }
+    },
+    BINARY {
+      @Override
+      public void write(Object value, JsonGenerator generator) throws IOException {
+        generator.writeBinary((byte[]) value);
+      }
+
+      @Override
+      public JsonNode toJson(Object value, JsonNodeFactory factory) {
+        return factory.binaryNode((byte[]) value);
+      }
+    }
+  }
+
+  /**
+   * Writes enum constants as their values in metadata, or by name if they are not values.
+   */
+  private static final class EnumWriter implements ValueWriter {
+    private final SerializedString[] values;
+
+    EnumWriter(Class<?> type, String[] enumValues) {
+      Object[] constants = type.getEnumConstants();
+      values = new SerializedString[constants.length];
+
+      for (int i = 0; i < constants.length; i++) {
+        values[i] = new SerializedString(enumValues != null && enumValues[i] != null
+            ? enumValues[i]
+            : ((Enum<?>) constants[i]).name());
+      }
+    }
+
+    @Override
+    public void write(Object value, JsonGenerator generator) throws IOException {
+      generator.writeString(values[((Enum<?>) value).ordinal()]);
+    }
+
+    @Override
+    public JsonNode toJson(Object value, JsonNodeFactory factory) {
+      return factory.textNode(values[((Enum<?>) value).ordinal()].getValue());
+    }
+  }
+
+  /**
+   * Writes values as lightblue converts them to its type, for types the other writers do not know.
+   */
+  private static final class TypeWriter implements ValueWriter {
+    private final Type type;
+
+    TypeWriter(Type type) {
+      this.type = type;
+    }
+
+    @Override
+    public void write(Object value, JsonGenerator generator) throws IOException {
+      mapper.writeTree(generator, toJson(value, NODE_FACTORY));
+    }
+
+    @Override
+    public JsonNode toJson(Object value, JsonNodeFactory factory) {
+      return type.toJson(factory, value);
+    }
+  }
+
+  private final class ObjectWriter implements ValueWriter {
+    private final Class<?> type;
+    /** Resolved on first use, since the type may enclose itself. */
+    private WritePlan plan;
+
+    ObjectWriter(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    public void write(Object value, JsonGenerator generator) throws IOException {
+      plan().write(value, generator);
+    }
+
+    @Override
+    public JsonNode toJson(Object value, JsonNodeFactory factory) {
+      return plan().toJson(value, factory);
+    }
+
+    private WritePlan plan() {
+      WritePlan resolved = plan;
+
+      if (resolved == null) {
+        // Racing threads resolve the same plan, which is immutable. Values are written as their
+        // declared type, which their metadata describes, even if they are of a subclass.
+        resolved = plans.get(type);
+        plan = resolved;
+      }
+
+      return resolved;
+    }
+  }
+
+  private static final class ArrayWriter implements ValueWriter {
+    private final ValueWriter elementWriter;
+
+    ArrayWriter(ValueWriter elementWriter) {
+      this.elementWriter = elementWriter;
+    }
+
+    @Override
+    public void write(Object value, JsonGenerator generator) throws IOException {
+      generator.writeStartArray();
+
+      if (value instanceof Object[]) {
+        for (Object element : (Object[]) value) {
+          writeElement(element, generator);
+        }
+      } else if (value instanceof List && value instanceof RandomAccess) {
+        List<?> list = (List<?>) value;
+
+        for (int i = 0; i < list.size(); i++) {
+          writeElement(list.get(i), generator);
+        }
+      } else if (value instanceof int[]) {
+        for (int element : (int[]) value) {
+          generator.writeNumber(element);
+        }
+      } else if (value instanceof long[]) {
+        for (long element : (long[]) value) {
+          generator.writeNumber(element);
+        }
+      } else if (value instanceof double[]) {
+        for (double element : (double[]) value) {
+          generator.writeNumber(element);
+        }
+      } else if (value.getClass().isArray()) {
+        for (int i = 0; i < Array.getLength(value); i++) {
+          writeElement(Array.get(value, i), generator);
+        }
+      } else {
+        for (Object element : (Iterable<?>) value) {
+          writeElement(element, generator);
+        }
+      }
+
+      generator.writeEndArray();
+    }
+
+    @Override
+    public JsonNode toJson(Object value, JsonNodeFactory factory) {
+      ArrayNode array = factory.arrayNode();
+
+      if (value instanceof Object[]) {
+        for (Object element : (Object[]) value) {
+          array.add(elementToJson(element, factory));
+        }
+      } else if (value.getClass().isArray()) {
+        for (int i = 0; i < Array.getLength(value); i++) {
+          array.add(elementToJson(Array.get(value, i), factory));
+        }
+      } else {
+        for (Object element : (Iterable<?>) value) {
+          array.add(elementToJson(element, factory));
+        }
+      }
+
+      return array;
+    }
+
+    private void writeElement(Object element, JsonGenerator generator) throws IOException {
+      if (element == null) {
+        generator.writeNull();
+      } else {
+        elementWriter.write(element, generator);
+      }
+    }
+
+    private JsonNode elementToJson(Object element, JsonNodeFactory factory) {
+      return element == null ? factory.nullNode() : elementWriter.toJson(element, factory);
+    }
+  }
+}
@@ -0,0 +1,360 @@
+package com.redhat.lightblue.generator.runtime;
+
+import com.redhat.lightblue.generator.CachingReflector;
+import com.redhat.lightblue.generator.FieldMirror;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.TypeMappers;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.constraints.ArraySizeConstraint;
+import com.redhat.lightblue.metadata.constraints.EnumConstraint;
+import com.redhat.lightblue.metadata.constraints.RequiredConstraint;
+import com.redhat.lightblue.metadata.constraints.StringLengthConstraint;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Checks entities against the constraints their metadata would be generated with, so that
+ * violations are found before they are sent to lightblue: {@code @Required}, {@code @MinLength},
+ * {@code @MaxLength}, {@code @MinItems}, {@code @MaxItems}, and enum values. Objects nested
+ * within entities, directly or as elements of arrays, are checked too.
+ *
+ * <p>Each class is compiled once into checks of only its constrained properties, which read them
+ * through method handles. Checking a valid entity allocates nothing, apart from iterators of
+ * collections which are not lists. A required field with a value generator may be null, since
+ * lightblue generates its value.
+ *
+ * <p>Thread-safe, provided the reflector and type mappers are.
+ */
+public final class EntityValidator {
+  private final BeanModels models;
+
+  private final ClassValue<BeanValidator> validators = new ClassValue<BeanValidator>() {
+    @Override
+    protected BeanValidator computeValue(Class<?> bean) {
+      return compile(bean);
+    }
+  };
+
+  /**
+   * Reflects with JavaBeans, using the default type mappings.
+   */
+  public EntityValidator() {
+    this(new CachingReflector(new JavaBeansReflector()), TypeMappers.defaults());
+  }
+
+  /**
+   * @param reflector Should be the one the entities' metadata is generated with.
+   * @param typeMappers Should be those the entities' metadata is generated with.
+   */
+  public EntityValidator(Reflector reflector, TypeMappers typeMappers) {
+    this.models = new BeanModels(reflector, typeMappers);
+  }
+
+  public boolean isValid(Object entity) {
+    return validators.get(entity.getClass()).isValid(entity);
+  }
+
+  /**
+   * @return Every violation in the entity, or an empty list if it is valid.
+   */
+  public List<ConstraintViolation> validate(Object entity) {
+    BeanValidator validator = validators.get(entity.getClass());
+
+    if (validator.isValid(entity)) {
+      return Collections.emptyList();
+    }
+
+    // Checked again, this time tracking where violations are
+    List<ConstraintViolation> violations = new ArrayList<>();
+    validator.collect(entity, "", violations);
+    return Collections.unmodifiableList(violations);
+  }
+
+  private BeanValidator compile(Class<?> bean) {
+    List<PropertyCheck> checks = new ArrayList<>();
+
+    for (PropertyModel property : models.properties(bean)) {
+      // No constraint applies to primitives, whose values need not be boxed to learn that
+      if (property.javaType.isPrimitive()) {
+        continue;
+      }
+
+      PropertyCheck check = new PropertyCheck(property);
+
+      if (check.isNeeded()) {
+        checks.add(check);
+      }
+    }
+
+    return new BeanValidator(checks.toArray(new PropertyCheck[0]));
+  }
+
+  private static final class BeanValidator {
+    private final PropertyCheck[] checks;
+
+    BeanValidator(PropertyCheck[] checks) {
+      this.checks = checks;
+    }
+
+    boolean isValid(Object bean) {
+      for (PropertyCheck check : checks) {
+        if (!check.isValid(bean)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * @param prefix The path of the bean, followed by a dot unless it is the entity.
+     */
+    void collect(Object bean, String prefix, List<ConstraintViolation> violations) {
+      for (PropertyCheck check : checks) {
+        check.collect(bean, prefix, violations);
+      }
+    }
+  }
+
+  private final class PropertyCheck {
+    private final PropertyModel property;
+    private final boolean required;
+    private final boolean checksLength;
+    private final int minLength;
+    private final int maxLength;
+    private final boolean checksItems;
+    private final int minItems;
+    private final int maxItems;
+    /** Whether each constant is allowed, by ordinal; null if all are. */
+    private final boolean[] allowedConstants;
+    /** Resolved on first use, since the type may enclose itself. */
+    private BeanValidator nested;
+
+    PropertyCheck(PropertyModel property) {
+      FieldMirror mirror = property.mirror;
+
+      this.property = property;
+      this.required = mirror.isRequired() && !mirror.valueGeneratorMirror().isPresent();
+      this.checksLength = mirror.minLength().isPresent() || mirror.maxLength().isPresent();
+      this.minLength = mirror.minLength().orElse(0);
+      this.maxLength = mirror.maxLength().orElse(Integer.MAX_VALUE);
+      this.checksItems = property.kind == PropertyModel.Kind.ARRAY
+          && (mirror.minItems().isPresent() || mirror.maxItems().isPresent());
+      this.minItems = mirror.minItems().orElse(0);
+      this.maxItems = mirror.maxItems().orElse(Integer.MAX_VALUE);
+      this.allowedConstants = allowedConstants(property);
+    }
+
+    boolean isNeeded() {
+      return required || checksLength || checksItems || allowedConstants != null
+          || property.objectType().isPresent();
+    }
+
+    boolean isValid(Object bean) {
+      Object value = property.get(bean);
+
+      if (value == null) {
+        return !required;
+      }
+
+      if (checksLength && value instanceof CharSequence) {
+        int length = ((CharSequence) value).length();
+
+        if (length < minLength || length > maxLength) {
+          return false;
+        }
+      }
+
+      if (allowedConstants != null && !allowedConstants[((Enum<?>) value).ordinal()]) {
+        return false;
+      }
+
+      if (property.kind == PropertyModel.Kind.OBJECT) {
+        return nested().isValid(value);
+      }
+
+      if (property.kind == PropertyModel.Kind.ARRAY) {
+        if (checksItems) {
+          int size = size(value);
+
+          if (size >= 0 && (size < minItems || size > maxItems)) {
+            return false;
+          }
+        }
+
+        return !property.objectElements || elementsAreValid(value);
+      }
+
+      return true;
+    }
+
+    void collect(Object bean, String prefix, List<ConstraintViolation> violations) {
+      Object value = property.get(bean);
+      String path = prefix + property.name;
+
+      if (value == null) {
+        if (required) {
+          violations.add(new ConstraintViolation(path, RequiredConstraint.REQUIRED,
+              "is required"));
+        }
+
+        return;
+      }
+
+      if (checksLength && value instanceof CharSequence) {
+        int length = ((CharSequence) value).length();
+
+        if (length < minLength) {
+          violations.add(new ConstraintViolation(path, StringLengthConstraint.MINLENGTH,
+              "length " + length + " is less than " + minLength));
+        } else if (length > maxLength) {
+          violations.add(new ConstraintViolation(path, StringLengthConstraint.MAXLENGTH,
+              "length " + length + " is more than " + maxLength));
+        }
+      }
+
+      if (allowedConstants != null && !allowedConstants[((Enum<?>) value).ordinal()]) {
+        violations.add(new ConstraintViolation(path, EnumConstraint.ENUM,
+            ((Enum<?>) value).name() + " is not a value of enum "
+                + property.mirror.enumMirror().get().name()));
+      }
+
+      if (property.kind == PropertyModel.Kind.OBJECT) {
+        BeanValidator validator = nested();
+
+        if (!validator.isValid(value)) {
+          validator.collect(value, path + ".", violations);
+        }
+      }
+
+      if (property.kind == PropertyModel.Kind.ARRAY) {
+        if (checksItems) {
+          int size = size(value);
+
+          if (size >= 0 && size < minItems) {
+            violations.add(new ConstraintViolation(path, ArraySizeConstraint.MIN,
+                size + " items are fewer than " + minItems));
+          } else if (size > maxItems) {
+            violations.add(new ConstraintViolation(path, ArraySizeConstraint.MAX,
+                size + " items are more than " + maxItems));
+          }
+        }
+
+        if (property.objectElements) {
+          collectElements(value, path, violations);
+        }
+      }
+    }
+
+    private boolean elementsAreValid(Object array) {
+      BeanValidator validator = nested();
+
+      if (array instanceof Object[]) {
+        for (Object element : (Object[]) array) {
+          if (element != null && !validator.isValid(element)) {
+            return false;
+          }
+        }
+      } else if (array instanceof List && array instanceof RandomAccess) {
+        List<?> list = (List<?>) array;
+
+        for (int i = 0; i < list.size(); i++) {
+          Object element = list.get(i);
+
+          if (element != null && !validator.isValid(element)) {
+            return false;
+          }
+        }
+      } else if (array instanceof Iterable) {
+        for (Object element : (Iterable<?>) array) {
+          if (element != null && !validator.isValid(element)) {
+            return false;
+          }
+        }
+      }
+
+      return true;
+    }
+
+    private void collectElements(Object array, String path,
+        List<ConstraintViolation> violations) {
+      BeanValidator validator = nested();
+      Iterable<?> elements = array instanceof Object[]
+          ? Arrays.asList((Object[]) array)
+          : array instanceof Iterable ? (Iterable<?>) array : Collections.emptyList();
+      int index = 0;
+
+      for (Object element : elements) {
+        if (element != null && !validator.isValid(element)) {
+          validator.collect(element, path + "." + index + ".", violations);
+        }
+
+        index++;
+      }
+    }
+
+    private BeanValidator nested() {
+      BeanValidator validator = nested;
+
+      if (validator == null) {
+        // Racing threads resolve the same validator, which is immutable
+        validator = validators.get(property.objectType().get());
+        nested = validator;
+      }
+
+      return validator;
+    }
+  }
+
+  /**
+   * @return Whether each constant of the property's enum is a value of its enum in metadata, or
+   * null if the property is not an enum or all are.
+   */
+  private static boolean[] allowedConstants(PropertyModel property) {
+    if (property.enumValues == null) {
+      return null;
+    }
+
+    boolean[] allowed = new boolean[property.enumValues.length];
+    boolean allAllowed = true;
+
+    for (int i = 0; i < allowed.length; i++) {
+      allowed[i] = property.enumValues[i] != null;
+      allAllowed &= allowed[i];
+    }
+
+    return allAllowed ? null : allowed;
+  }
+
+  /**
+   * @return The number of items in an array or collection, or -1 if it is neither, in which case
+   * no size is out of bounds.
+   */
+  private static int size(Object array) {
+    if (array instanceof Collection) {
+      return ((Collection<?>) array).size();
+    }
+
+    if (array.getClass().isArray()) {
+      return Array.getLength(array);
+    }
+
+    if (array instanceof Iterable) {
+      int size = 0;
+
+      for (Object ignored : (Iterable<?>) array) {
+        size++;
+      }
+
+      return size;
+    }
+
+    return -1;
+  }
+}
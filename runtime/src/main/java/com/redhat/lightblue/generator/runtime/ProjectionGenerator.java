@@ -0,0 +1,129 @@
+package com.redhat.lightblue.generator.runtime;
+
+import com.redhat.lightblue.generator.CachingReflector;
+import com.redhat.lightblue.generator.FieldMirror;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.TypeMappers;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.ArrayType;
+import com.redhat.lightblue.metadata.types.ObjectType;
+import com.redhat.lightblue.query.FieldProjection;
+import com.redhat.lightblue.query.Projection;
+import com.redhat.lightblue.query.ProjectionList;
+import com.redhat.lightblue.util.Path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Generates projections which include only the fields a class reads, so that documents can be
+ * found as that class, such as a view of an entity with only some of its fields, without the rest
+ * of each document. Each class's fields are found as they would be to generate its metadata.
+ *
+ * <p>Projections include the path of each simple field, such as {@code billingAddress.city}, and
+ * of each simple field of objects in arrays, such as {@code addresses.*.city}. Arrays of simple
+ * values, and objects whose type encloses them, are included with all that is beneath them.
+ *
+ * <p>Each class's projection is generated once. Thread-safe, provided the reflector and type
+ * mappers are.
+ */
+public final class ProjectionGenerator {
+  private final Reflector reflector;
+  private final TypeMappers typeMappers;
+
+  private final ClassValue<ProjectionList> projections = new ClassValue<ProjectionList>() {
+    @Override
+    protected ProjectionList computeValue(Class<?> bean) {
+      List<Projection> fields = new ArrayList<>();
+      Set<Class<?>> enclosing = new HashSet<>();
+
+      enclosing.add(bean);
+      addFields(bean, "", enclosing, fields);
+
+      return new ProjectionList(Collections.unmodifiableList(fields));
+    }
+  };
+
+  /**
+   * Reflects with JavaBeans, using the default type mappings.
+   */
+  public ProjectionGenerator() {
+    this(new CachingReflector(new JavaBeansReflector()), TypeMappers.defaults());
+  }
+
+  /**
+   * @param reflector Should be the one the entities' metadata is generated with.
+   * @param typeMappers Should be those the entities' metadata is generated with.
+   */
+  public ProjectionGenerator(Reflector reflector, TypeMappers typeMappers) {
+    this.reflector = Objects.requireNonNull(reflector, "reflector");
+    this.typeMappers = Objects.requireNonNull(typeMappers, "typeMappers");
+  }
+
+  /**
+   * @return A projection which includes the fields of {@code bean}, and of the objects within it,
+   * and no others.
+   */
+  public ProjectionList generateProjection(Class<?> bean) {
+    return projections.get(bean);
+  }
+
+  /**
+   * @param prefix The path of the bean, followed by a dot unless it is the entity.
+   * @param enclosing The types of the bean and of the objects which enclose it.
+   */
+  private void addFields(Class<?> bean, String prefix, Set<Class<?>> enclosing,
+      List<Projection> fields) {
+    for (FieldMirror field : reflector.reflect(bean).getFields()) {
+      String path = prefix + field.name();
+      Class<?> javaType = field.javaType();
+      Type type = typeMappers.typeOf(javaType);
+
+      if (ObjectType.TYPE.equals(type)) {
+        addObject(javaType, path, path + ".", enclosing, fields);
+      } else if (ArrayType.TYPE.equals(type)) {
+        Optional<Class<?>> elementType = javaType.isArray()
+            ? Optional.of(javaType.getComponentType())
+            : field.elementJavaType();
+
+        if (elementType.isPresent()
+            && ObjectType.TYPE.equals(typeMappers.typeOf(elementType.get()))) {
+          addObject(elementType.get(), path, path + ".*.", enclosing, fields);
+        } else {
+          // Simple values, or values which are not known, which are all needed
+          fields.add(new FieldProjection(new Path(path), true, true));
+        }
+      } else {
+        fields.add(new FieldProjection(new Path(path), true, false));
+      }
+    }
+  }
+
+  /**
+   * @param path The path of the object, or array of objects.
+   * @param prefix The path of the object's fields, followed by a dot.
+   */
+  private void addObject(Class<?> object, String path, String prefix, Set<Class<?>> enclosing,
+      List<Projection> fields) {
+    if (!enclosing.add(object)) {
+      // Recursive, so however deep the documents are, all of it is needed
+      fields.add(new FieldProjection(new Path(path), true, true));
+      return;
+    }
+
+    int before = fields.size();
+    addFields(object, prefix, enclosing, fields);
+    enclosing.remove(object);
+
+    if (fields.size() == before) {
+      // No fields are needed, but the object itself is
+      fields.add(new FieldProjection(new Path(path), true, false));
+    }
+  }
+}
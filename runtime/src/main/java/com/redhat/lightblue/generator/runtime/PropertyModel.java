@@ -0,0 +1,130 @@
+package com.redhat.lightblue.generator.runtime;
+
+import com.redhat.lightblue.generator.EnumValueMirror;
+import com.redhat.lightblue.generator.FieldMirror;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A property of a bean, as it is laid out in the entity's metadata, with handles to read and
+ * write it.
+ */
+final class PropertyModel {
+  /** How the property's lightblue field is shaped, as {@code MetadataGenerator} decides it. */
+  enum Kind {
+    SIMPLE, OBJECT, ARRAY
+  }
+
+  final FieldMirror mirror;
+  final String name;
+  final Class<?> javaType;
+  final Kind kind;
+  /** For arrays, the java type of elements; otherwise null. */
+  final Class<?> elementType;
+  /** For arrays, whether elements are objects rather than simple values. */
+  final boolean objectElements;
+  /**
+   * For enums with a mirror, the value in metadata of each constant by ordinal, or null for a
+   * constant which is not one; otherwise null.
+   */
+  final String[] enumValues;
+  /** Reads the property, as {@code (Object)Object}. */
+  final MethodHandle getter;
+  /** Reads the property, as {@code (Object)} followed by its own type, which may be primitive. */
+  private final MethodHandle typedGetter;
+  /** Writes the property, as {@code (Object, its own type)void}; null if it is read-only. */
+  private final MethodHandle typedSetter;
+
+  PropertyModel(FieldMirror mirror, Kind kind, Class<?> elementType, boolean objectElements,
+      MethodHandle typedGetter, MethodHandle typedSetter) {
+    this.mirror = mirror;
+    this.name = mirror.name();
+    this.javaType = mirror.javaType();
+    this.kind = kind;
+    this.elementType = elementType;
+    this.objectElements = objectElements;
+    this.enumValues = enumValues(mirror);
+    this.typedGetter = typedGetter;
+    this.typedSetter = typedSetter;
+    this.getter = typedGetter.asType(MethodType.methodType(Object.class, Object.class));
+  }
+
+  /**
+   * @return The java type of the objects this property holds, either directly or as elements.
+   */
+  Optional<Class<?>> objectType() {
+    if (kind == Kind.OBJECT) {
+      return Optional.of(javaType);
+    }
+
+    if (kind == Kind.ARRAY && objectElements) {
+      return Optional.of(elementType);
+    }
+
+    return Optional.empty();
+  }
+
+  /**
+   * @return A handle which reads the property as {@code (Object)returnType}, such as a primitive
+   * type which its own type widens to, so that it is not boxed.
+   */
+  MethodHandle getter(Class<?> returnType) {
+    return typedGetter.asType(MethodType.methodType(returnType, Object.class));
+  }
+
+  boolean isWritable() {
+    return typedSetter != null;
+  }
+
+  /**
+   * @return A handle which writes the property as {@code (Object, valueType)void}, such as a
+   * primitive type which converts to its own type, so that it is not boxed.
+   * @throws IllegalStateException If the property is read-only.
+   */
+  MethodHandle setter(Class<?> valueType) {
+    if (typedSetter == null) {
+      throw new IllegalStateException(name + " of " + mirror.javaType() + " is read-only");
+    }
+
+    return typedSetter.asType(MethodType.methodType(void.class, Object.class, valueType));
+  }
+
+  Object get(Object bean) {
+    try {
+      return getter.invokeExact(bean);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("Failed to read " + name + " of " + bean.getClass(), t);
+    }
+  }
+
+  /**
+   * Names constants as the mirror names their values, which may be by {@code toString()} rather
+   * than by {@link Enum#name()}.
+   */
+  private static String[] enumValues(FieldMirror mirror) {
+    if (!mirror.javaType().isEnum() || !mirror.enumMirror().isPresent()) {
+      return null;
+    }
+
+    Map<String, String> valuesByConstant = new HashMap<>();
+
+    for (EnumValueMirror value : mirror.enumMirror().get().values()) {
+      valuesByConstant.put(value.constantName(), value.name());
+    }
+
+    Object[] constants = mirror.javaType().getEnumConstants();
+    String[] values = new String[constants.length];
+
+    for (int i = 0; i < constants.length; i++) {
+      values[i] = valuesByConstant.get(((Enum<?>) constants[i]).name());
+    }
+
+    return values;
+  }
+}
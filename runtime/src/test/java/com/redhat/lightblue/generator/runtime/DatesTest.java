@@ -0,0 +1,60 @@
+package com.redhat.lightblue.generator.runtime;
+
+import static org.junit.Assert.assertEquals;
+
+import com.redhat.lightblue.util.Constants;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class DatesTest {
+  @Test
+  public void formatsDatesAsLightblueDoes() {
+    Random random = new Random(42);
+    long[] edges = {0, -1, 999, 1000, -12212553600000L, -12212553600001L, 253402300799999L,
+        253402300800000L, 1478412000000L, 1489309200000L};
+
+    for (long millis : edges) {
+      assertFormattedAsLightblueDoes(new Date(millis));
+    }
+
+    for (int i = 0; i < 10_000; i++) {
+      long millis = -12212553600000L + (long) (random.nextDouble() * 265614854400000L);
+      assertFormattedAsLightblueDoes(new Date(millis));
+    }
+  }
+
+  @Test
+  public void parsesDatesAsLightblueDoes() throws ParseException {
+    Random random = new Random(42);
+    String[] texts = {"20160229T23:59:59.999+0000", "20170101T00:00:00.000-0530",
+        "20170230T12:00:00.000+0100", "20170101T24:00:00.000+0000", "15821015T00:00:00.000+0000",
+        "20170101T00:00:00.000+0000 and then some"};
+
+    for (String text : texts) {
+      assertEquals(Constants.getDateFormat().parse(text), Dates.parse(text));
+    }
+
+    for (int i = 0; i < 10_000; i++) {
+      long millis = -12212553600000L + (long) (random.nextDouble() * 265614854400000L);
+      String text = Constants.getDateFormat().format(new Date(millis));
+
+      // Not always the date formatted, since offsets are written without their seconds
+      assertEquals(Constants.getDateFormat().parse(text), Dates.parse(text));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsTextWhichIsNotADate() {
+    Dates.parse("yesterday");
+  }
+
+  private static void assertFormattedAsLightblueDoes(Date date) {
+    assertEquals(Constants.getDateFormat().format(date), Dates.format(date));
+  }
+}
@@ -0,0 +1,99 @@
+package com.redhat.lightblue.generator.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.lightblue.generator.runtime.entities.Address;
+import com.redhat.lightblue.generator.runtime.entities.Color;
+import com.redhat.lightblue.generator.runtime.entities.Customer;
+import com.redhat.lightblue.generator.runtime.entities.Swatch;
+import com.redhat.lightblue.generator.runtime.entities.Tier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class EntityDeserializerTest {
+  private final EntityDeserializer deserializer = new EntityDeserializer();
+  private final EntitySerializer serializer = new EntitySerializer();
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  public void readsWhatTheSerializerWrites() throws IOException {
+    Customer customer = new Customer();
+    customer.setId("42");
+    customer.setName("Ada");
+    customer.setTier(Tier.PAID);
+    customer.setActive(true);
+    customer.setBillingAddress(new Address("billing", "Cambridge"));
+    customer.setAddresses(Arrays.asList(new Address("home", "Boston"), null));
+    customer.setTags(new String[] {"a", "b"});
+
+    Customer read = read(mapper.writeValueAsString(serializer.toJson(customer)));
+
+    assertEquals(serializer.toJson(customer), serializer.toJson(read));
+  }
+
+  @Test
+  public void readsFieldsInAnyOrderAndSkipsThoseWhichAreNotProperties() throws IOException {
+    Customer customer = read("{\"tags\":[\"x\"],\"unknown\":{\"nested\":[1,{}]},"
+        + "\"displayName\":\"Ada L.\",\"addresses\":[{\"floor\":3,\"city\":\"Boston\"}],"
+        + "\"active\":true,\"name\":\"Ada\",\"tier\":null}");
+
+    assertEquals("Ada", customer.getName());
+    assertNull(customer.getTier());
+    assertNull(customer.getDisplayName());
+    assertArrayEquals(new String[] {"x"}, customer.getTags());
+    assertEquals(1, customer.getAddresses().size());
+    assertEquals("Boston", customer.getAddresses().get(0).getCity());
+    assertEquals(3, customer.getAddresses().get(0).getFloor());
+  }
+
+  @Test
+  public void readsArraysOfDocuments() throws IOException {
+    try (JsonParser parser = mapper.getFactory().createParser(
+        "[{\"name\":\"Ada\",\"active\":false},null,{\"name\":\"Grace\",\"active\":true}]")) {
+      List<Customer> customers = deserializer.readArray(parser, Customer.class);
+
+      assertEquals(3, customers.size());
+      assertEquals("Ada", customers.get(0).getName());
+      assertFalse(customers.get(0).isActive());
+      assertNull(customers.get(1));
+      assertEquals("Grace", customers.get(2).getName());
+    }
+  }
+
+  @Test(expected = JsonMappingException.class)
+  public void rejectsValuesWhichAreNotEnumConstants() throws IOException {
+    read("{\"tier\":\"GOLD\"}");
+  }
+
+  @Test
+  public void readsEnumsFromTheValuesOfTheirEnumInMetadata() throws IOException {
+    try (JsonParser parser = mapper.getFactory().createParser("{\"color\":\"blue\"}")) {
+      assertEquals(Color.BLUE, deserializer.read(parser, Swatch.class).getColor());
+    }
+  }
+
+  @Test(expected = JsonMappingException.class)
+  public void rejectsEnumConstantNamesWhichAreNotValues() throws IOException {
+    try (JsonParser parser = mapper.getFactory().createParser("{\"color\":\"BLUE\"}")) {
+      deserializer.read(parser, Swatch.class);
+    }
+  }
+
+  private Customer read(String json) throws IOException {
+    try (JsonParser parser = mapper.getFactory().createParser(json)) {
+      return deserializer.read(parser, Customer.class);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.redhat.lightblue.generator.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.lightblue.generator.runtime.entities.Address;
+import com.redhat.lightblue.generator.runtime.entities.Customer;
+import com.redhat.lightblue.generator.runtime.entities.Tier;
+import com.redhat.lightblue.query.UpdateExpression;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class EntityDifferTest {
+  private final EntityDiffer differ = new EntityDiffer();
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private Customer before;
+  private Customer after;
+
+  @Before
+  public void setUp() {
+    before = customer();
+    after = customer();
+  }
+
+  @Test
+  public void findsNoUpdateOfTheSameEntity() {
+    assertFalse(differ.diff(before, after).isPresent());
+  }
+
+  @Test
+  public void setsAndUnsetsChangedFieldsOfTheEntityAndItsObjects() throws IOException {
+    after.setName("Bob");
+    after.setTier(null);
+    after.setActive(false);
+    after.getBillingAddress().setFloor(3);
+    after.setTags(new String[] {"a", "c"});
+
+    assertEquals(json("["
+        + "{'$set':{'name':'Bob','active':false,'billingAddress.floor':3,'tags':['a','c']}},"
+        + "{'$unset':['tier']}]"), diff());
+  }
+
+  @Test
+  public void updatesElementsOfArraysByTheirIdentity() throws IOException {
+    after.setAddresses(Arrays.asList(
+        new Address("work", "Boston"),
+        new Address("gym", "Cambridge")));
+
+    assertEquals(json("["
+        + "{'$foreach':{'addresses':{'field':'label','op':'$eq','rvalue':'home'},"
+        + "'$update':'$remove'}},"
+        + "{'$foreach':{'addresses':{'field':'label','op':'$eq','rvalue':'work'},"
+        + "'$update':{'$set':{'city':'Boston'}}}},"
+        + "{'$append':{'addresses':"
+        + "{'label':'gym','city':'Cambridge','floor':0}}}]"), diff());
+  }
+
+  @Test
+  public void updatesOnlyTheElementsWhichChanged() throws IOException {
+    after.getAddresses().get(1).setFloor(2);
+
+    assertEquals(json("{'$foreach':{'addresses':{'field':'label','op':'$eq','rvalue':'work'},"
+        + "'$update':{'$set':{'floor':2}}}}"), diff());
+  }
+
+  @Test
+  public void setsArraysWhoseElementsMove() throws IOException {
+    after.setAddresses(Arrays.asList(
+        new Address("work", "Providence"),
+        new Address("home", "Salem")));
+
+    assertEquals(json("{'$set':{'addresses':["
+        + "{'label':'work','city':'Providence','floor':0},"
+        + "{'label':'home','city':'Salem','floor':0}]}}"), diff());
+  }
+
+  private JsonNode diff() throws IOException {
+    UpdateExpression update = differ.diff(before, after).get();
+    // Reparsed, since lightblue writes integers as longs
+    return mapper.readTree(update.toJson().toString());
+  }
+
+  private JsonNode json(String json) throws IOException {
+    return mapper.readTree(json.replace('\'', '"'));
+  }
+
+  private static Customer customer() {
+    Customer customer = new Customer();
+    customer.setId("42");
+    customer.setName("Ada");
+    customer.setTier(Tier.PAID);
+    customer.setActive(true);
+    customer.setBillingAddress(new Address("billing", "Cambridge"));
+    customer.setAddresses(Arrays.asList(
+        new Address("home", "Salem"),
+        new Address("work", "Providence")));
+    customer.setTags(new String[] {"a", "b"});
+    return customer;
+  }
+}
@@ -0,0 +1,91 @@
+package com.redhat.lightblue.generator.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.lightblue.generator.MetadataGenerator;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.generator.runtime.entities.Address;
+import com.redhat.lightblue.generator.runtime.entities.Color;
+import com.redhat.lightblue.generator.runtime.entities.Customer;
+import com.redhat.lightblue.generator.runtime.entities.Swatch;
+import com.redhat.lightblue.generator.runtime.entities.Tier;
+import com.redhat.lightblue.metadata.EnumValue;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class EntitySerializerTest {
+  private final EntitySerializer serializer = new EntitySerializer();
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private Customer customer;
+
+  @Before
+  public void setUp() {
+    customer = new Customer();
+    customer.setId("42");
+    customer.setName("Ada");
+    customer.setTier(Tier.PAID);
+    customer.setActive(true);
+    customer.setDisplayName("Ada L.");
+    customer.setAddresses(Arrays.asList(new Address("home", "Boston"), null));
+    customer.setTags(new String[] {"a", "b"});
+  }
+
+  @Test
+  public void writesPropertiesAsTheFieldsOfTheirMetadata() throws IOException {
+    JsonNode expected = mapper.readTree("{"
+        + "\"id\":\"42\",\"name\":\"Ada\",\"tier\":\"PAID\",\"active\":true,"
+        + "\"addresses\":[{\"label\":\"home\",\"city\":\"Boston\",\"floor\":0},null],"
+        + "\"tags\":[\"a\",\"b\"]}");
+
+    assertEquals(expected, reparsed(serializer.toJson(customer)));
+  }
+
+  @Test
+  public void writesEnumsAsTheValuesOfTheirEnumInMetadata() throws IOException {
+    Swatch swatch = new Swatch(Color.RED);
+    StringWriter json = new StringWriter();
+
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(json)) {
+      serializer.write(swatch, generator);
+    }
+
+    assertEquals(mapper.readTree("{\"color\":\"red\"}"), serializer.toJson(swatch));
+    assertEquals(mapper.readTree("{\"color\":\"red\"}"), mapper.readTree(json.toString()));
+    assertTrue(new MetadataGenerator(new JavaBeansReflector()).generateMetadata(Swatch.class)
+        .getEntityInfo().getEnums().getEnum("color").getEnumValues().stream()
+        .map(EnumValue::getName)
+        .anyMatch("red"::equals));
+  }
+
+  @Test
+  public void writesTheSameDocumentToGeneratorsAsToTrees() throws IOException {
+    customer.setBillingAddress(new Address("billing", "Cambridge"));
+    StringWriter json = new StringWriter();
+
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(json)) {
+      serializer.write(customer, generator);
+    }
+
+    assertEquals(reparsed(serializer.toJson(customer)), mapper.readTree(json.toString()));
+  }
+
+  /**
+   * @return The node as it is read back, with integers in the smallest nodes that hold them, as
+   * lightblue's own integers are longs.
+   */
+  private JsonNode reparsed(JsonNode node) throws IOException {
+    return mapper.readTree(mapper.writeValueAsString(node));
+  }
+}
@@ -0,0 +1,147 @@
+package com.redhat.lightblue.generator.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.redhat.lightblue.generator.BeanMirror;
+import com.redhat.lightblue.generator.EnumMirror;
+import com.redhat.lightblue.generator.EnumValueMirror;
+import com.redhat.lightblue.generator.FieldMirror;
+import com.redhat.lightblue.generator.ImmutableBeanMirror;
+import com.redhat.lightblue.generator.ImmutableEnumMirror;
+import com.redhat.lightblue.generator.ImmutableFieldMirror;
+import com.redhat.lightblue.generator.Reflector;
+import com.redhat.lightblue.generator.TypeMappers;
+import com.redhat.lightblue.generator.javabeans.JavaBeansReflector;
+import com.redhat.lightblue.generator.runtime.entities.Address;
+import com.redhat.lightblue.generator.runtime.entities.Color;
+import com.redhat.lightblue.generator.runtime.entities.Customer;
+import com.redhat.lightblue.generator.runtime.entities.Swatch;
+import com.redhat.lightblue.generator.runtime.entities.Tier;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class EntityValidatorTest {
+  private final EntityValidator validator = new EntityValidator();
+
+  private Customer customer;
+
+  @Before
+  public void setUp() {
+    customer = new Customer();
+    customer.setName("Ada");
+    customer.setTier(Tier.PAID);
+    customer.setAddresses(Arrays.asList(new Address("home", "Boston")));
+  }
+
+  @Test
+  public void validEntityHasNoViolations() {
+    assertTrue(validator.isValid(customer));
+    assertEquals(Collections.emptyList(), validator.validate(customer));
+  }
+
+  @Test
+  public void findsViolationsOfTopLevelFields() {
+    customer.setName(null);
+    customer.setTags(new String[] {"a", "b", "c"});
+    customer.setAddresses(Collections.emptyList());
+
+    assertFalse(validator.isValid(customer));
+    assertEquals(Arrays.asList(
+        new ConstraintViolation("addresses", "minItems", "0 items are fewer than 1"),
+        new ConstraintViolation("name", "required", "is required"),
+        new ConstraintViolation("tags", "maxItems", "3 items are more than 2")),
+        sorted(validator.validate(customer)));
+  }
+
+  @Test
+  public void findsViolationsOfNestedObjectsWithTheirPaths() {
+    customer.setName("A");
+    customer.setBillingAddress(new Address("billing", null));
+    customer.setAddresses(Arrays.asList(new Address("home", "Boston"),
+        new Address("work", "Llanfairpwllgwyngyll-gogerychwyrndrobwll")));
+
+    assertEquals(Arrays.asList(
+        new ConstraintViolation("addresses.1.city", "maxLength", "length 40 is more than 20"),
+        new ConstraintViolation("billingAddress.city", "required", "is required"),
+        new ConstraintViolation("name", "minLength", "length 1 is less than 2")),
+        sorted(validator.validate(customer)));
+  }
+
+  @Test
+  public void requiredFieldWithValueGeneratorMayBeNull() {
+    customer.setId(null);
+
+    assertTrue(validator.isValid(customer));
+  }
+
+  @Test
+  public void enumConstantsNamedByToStringAreValues() {
+    assertTrue(validator.isValid(new Swatch(Color.RED)));
+    assertEquals(Collections.emptyList(), validator.validate(new Swatch(Color.BLUE)));
+  }
+
+  @Test
+  public void findsEnumConstantsWhichAreNotValues() {
+    EntityValidator validator = new EntityValidator(new WithoutBlue(), TypeMappers.defaults());
+
+    assertTrue(validator.isValid(new Swatch(Color.RED)));
+    assertFalse(validator.isValid(new Swatch(Color.BLUE)));
+    assertEquals(Collections.singletonList(
+        new ConstraintViolation("color", "enum", "BLUE is not a value of enum color")),
+        validator.validate(new Swatch(Color.BLUE)));
+  }
+
+  private static List<ConstraintViolation> sorted(List<ConstraintViolation> violations) {
+    ConstraintViolation[] sorted = violations.toArray(new ConstraintViolation[0]);
+    Arrays.sort(sorted, (a, b) -> a.path().compareTo(b.path()));
+    return Arrays.asList(sorted);
+  }
+
+  /**
+   * Mirrors beans as they were before {@link Color#BLUE} was added, like a stale generated
+   * mirror would.
+   */
+  private static final class WithoutBlue implements Reflector {
+    private final Reflector delegate = new JavaBeansReflector();
+
+    @Override
+    public BeanMirror reflect(Class<?> bean) {
+      BeanMirror mirror = delegate.reflect(bean);
+      List<FieldMirror> fields = new ArrayList<>();
+
+      for (FieldMirror field : mirror.getFields()) {
+        fields.add(new ImmutableFieldMirror(field.name(), field.javaType(), field.description(),
+            field.isRequired(), field.isIdentifying(), field.isElementIdentifying(),
+            field.minItems(), field.maxItems(), field.minLength(), field.maxLength(),
+            field.elementJavaType(), field.enumMirror().map(WithoutBlue::withoutBlue),
+            field.valueGeneratorMirror(), this));
+      }
+
+      return new ImmutableBeanMirror(mirror.getEntityName(), mirror.getVersion(), fields);
+    }
+
+    private static EnumMirror withoutBlue(EnumMirror enumMirror) {
+      Set<EnumValueMirror> values = new LinkedHashSet<>();
+
+      for (EnumValueMirror value : enumMirror.values()) {
+        if (!value.constantName().equals(Color.BLUE.name())) {
+          values.add(value);
+        }
+      }
+
+      return new ImmutableEnumMirror(enumMirror.name(), values);
+    }
+  }
+}
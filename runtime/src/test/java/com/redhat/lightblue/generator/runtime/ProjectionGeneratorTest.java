@@ -0,0 +1,76 @@
+package com.redhat.lightblue.generator.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.lightblue.generator.runtime.entities.Customer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class ProjectionGeneratorTest {
+  private final ProjectionGenerator generator = new ProjectionGenerator();
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  public void includesOnlyTheFieldsOfTheClassAndItsObjects() throws IOException {
+    assertEquals(json("["
+        + "{'field':'active','include':true,'recursive':false},"
+        + "{'field':'addresses.*.city','include':true,'recursive':false},"
+        + "{'field':'addresses.*.floor','include':true,'recursive':false},"
+        + "{'field':'addresses.*.label','include':true,'recursive':false},"
+        + "{'field':'billingAddress.city','include':true,'recursive':false},"
+        + "{'field':'billingAddress.floor','include':true,'recursive':false},"
+        + "{'field':'billingAddress.label','include':true,'recursive':false},"
+        + "{'field':'id','include':true,'recursive':false},"
+        + "{'field':'name','include':true,'recursive':false},"
+        + "{'field':'tags','include':true,'recursive':true},"
+        + "{'field':'tier','include':true,'recursive':false}]"),
+        generator.generateProjection(Customer.class).toJson());
+  }
+
+  @Test
+  public void includesRecursiveObjectsWithAllBeneathThem() throws IOException {
+    assertEquals(json("["
+        + "{'field':'children','include':true,'recursive':true},"
+        + "{'field':'name','include':true,'recursive':false}]"),
+        generator.generateProjection(Category.class).toJson());
+  }
+
+  @Test
+  public void generatesEachClassProjectionOnce() {
+    assertSame(generator.generateProjection(Customer.class),
+        generator.generateProjection(Customer.class));
+  }
+
+  private JsonNode json(String json) throws IOException {
+    return mapper.readTree(json.replace('\'', '"'));
+  }
+
+  public static class Category {
+    private String name;
+    private List<Category> children;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public List<Category> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Category> children) {
+      this.children = children;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.redhat.lightblue.generator.runtime.entities;
+
+import com.redhat.lightblue.generator.ElementIdentity;
+import com.redhat.lightblue.generator.MaxLength;
+import com.redhat.lightblue.generator.Required;
+
+public class Address {
+  private String label;
+  private String city;
+  private int floor;
+
+  public Address() {
+  }
+
+  public Address(String label, String city) {
+    this.label = label;
+    this.city = city;
+  }
+
+  @ElementIdentity
+  public String getLabel() {
+    return label;
+  }
+
+  public void setLabel(String label) {
+    this.label = label;
+  }
+
+  public String getCity() {
+    return city;
+  }
+
+  @Required
+  @MaxLength(20)
+  public void setCity(String city) {
+    this.city = city;
+  }
+
+  public int getFloor() {
+    return floor;
+  }
+
+  public void setFloor(int floor) {
+    this.floor = floor;
+  }
+}
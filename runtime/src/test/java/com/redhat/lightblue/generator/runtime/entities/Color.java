@@ -0,0 +1,13 @@
+package com.redhat.lightblue.generator.runtime.entities;
+
+/**
+ * Named in metadata by {@link #toString()}, as java beans mirrors name enum values.
+ */
+public enum Color {
+  RED, BLUE;
+
+  @Override
+  public String toString() {
+    return name().toLowerCase();
+  }
+}
@@ -0,0 +1,98 @@
+package com.redhat.lightblue.generator.runtime.entities;
+
+import com.redhat.lightblue.generator.EntityName;
+import com.redhat.lightblue.generator.Identity;
+import com.redhat.lightblue.generator.MaxItems;
+import com.redhat.lightblue.generator.MinItems;
+import com.redhat.lightblue.generator.MinLength;
+import com.redhat.lightblue.generator.Required;
+import com.redhat.lightblue.generator.Transient;
+import com.redhat.lightblue.generator.Uuid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@EntityName("customer")
+public class Customer {
+  private String id;
+  private String name;
+  private Tier tier;
+  private boolean active;
+  private Address billingAddress;
+  private List<Address> addresses = new ArrayList<>();
+  private String[] tags;
+  private String displayName;
+
+  @Identity
+  public String getId() {
+    return id;
+  }
+
+  @Required
+  @Uuid
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Required
+  @MinLength(2)
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public Tier getTier() {
+    return tier;
+  }
+
+  public void setTier(Tier tier) {
+    this.tier = tier;
+  }
+
+  public boolean isActive() {
+    return active;
+  }
+
+  @Required
+  public void setActive(boolean active) {
+    this.active = active;
+  }
+
+  public Address getBillingAddress() {
+    return billingAddress;
+  }
+
+  public void setBillingAddress(Address billingAddress) {
+    this.billingAddress = billingAddress;
+  }
+
+  public List<Address> getAddresses() {
+    return addresses;
+  }
+
+  @MinItems(1)
+  public void setAddresses(List<Address> addresses) {
+    this.addresses = addresses;
+  }
+
+  public String[] getTags() {
+    return tags;
+  }
+
+  @MaxItems(2)
+  public void setTags(String[] tags) {
+    this.tags = tags;
+  }
+
+  @Transient
+  public String getDisplayName() {
+    return displayName;
+  }
+
+  public void setDisplayName(String displayName) {
+    this.displayName = displayName;
+  }
+}
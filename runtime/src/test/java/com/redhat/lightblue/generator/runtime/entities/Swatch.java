@@ -0,0 +1,23 @@
+package com.redhat.lightblue.generator.runtime.entities;
+
+import com.redhat.lightblue.generator.EntityName;
+
+@EntityName("swatch")
+public class Swatch {
+  private Color color;
+
+  public Swatch() {
+  }
+
+  public Swatch(Color color) {
+    this.color = color;
+  }
+
+  public Color getColor() {
+    return color;
+  }
+
+  public void setColor(Color color) {
+    this.color = color;
+  }
+}
@@ -0,0 +1,5 @@
+package com.redhat.lightblue.generator.runtime.entities;
+
+public enum Tier {
+  FREE, PAID
+}